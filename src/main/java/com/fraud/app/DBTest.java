@@ -15,6 +15,7 @@ public class DBTest {
         ConfigLoader cfg = new ConfigLoader();
         Properties p = cfg.getProperties();
         DataSource ds = DBUtil.createDataSource(p);
+        Main.migrateSchema(p, ds);
         TransactionDao txDao = new TransactionDao(ds);
 
         Transaction tx = new Transaction("TEST_TXN_1", "acct123", 1234.5, "INR",
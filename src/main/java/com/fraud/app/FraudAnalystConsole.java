@@ -2,6 +2,7 @@ package com.fraud.app;
 
 import com.fraud.config.ConfigLoader;
 import com.fraud.dao.AlertDao;
+import com.fraud.dao.AlertStore;
 import com.fraud.model.FraudAlert;
 import com.fraud.service.ReportService;
 import com.fraud.util.DBUtil;
@@ -26,8 +27,10 @@ public class FraudAnalystConsole {
             cfg = new ConfigLoader();
             Properties props = cfg.getProperties();
             ds = DBUtil.createDataSource(props);
+            Main.migrateSchema(props, ds);
 
-            AlertDao alertDao = new AlertDao(ds);
+            // cached: an investigation keeps coming back to the same accounts
+            AlertStore alertDao = Main.createAlertDao(props, ds);
             ReportService reportService = new ReportService(alertDao);
 
             showConfig(props);
@@ -109,7 +112,7 @@ public class FraudAnalystConsole {
 
     // ----- Menu actions -----
 
-    private static void handleOverview(AlertDao alertDao) {
+    private static void handleOverview(AlertStore alertDao) {
         String accountId = readLine("Enter accountId (e.g. acct123): ");
         if (accountId.isEmpty()) {
             System.out.println("Account id is required.");
@@ -148,7 +151,7 @@ public class FraudAnalystConsole {
         System.out.println();
     }
 
-    private static void handleListAlerts(AlertDao alertDao) {
+    private static void handleListAlerts(AlertStore alertDao) {
         String accountId = readLine("Enter accountId: ");
         if (accountId.isEmpty()) {
             System.out.println("Account id is required.");
@@ -157,28 +160,24 @@ public class FraudAnalystConsole {
         int limit = readInt("Max alerts to list (default 50): ");
         if (limit <= 0) limit = 50;
 
-        List<FraudAlert> alerts = alertDao.getAlertsByAccount(accountId, limit);
-        if (alerts.isEmpty()) {
-            System.out.println("No alerts found for account " + accountId);
-            return;
-        }
-
+        // printed page by page as the alerts are read
         System.out.println("\n--- Alerts for account: " + accountId + " (limit=" + limit + ") ---");
-        for (FraudAlert a : alerts) {
+        long listed = alertDao.forEachAlert(accountId, limit, AlertDao.DEFAULT_PAGE_SIZE, a -> {
             System.out.printf("id=%d  txId=%s  risk=%s  score=%d  createdAt=%s%n",
                     a.getId(), a.getTransactionId(), a.getRiskLevel(),
                     a.getScore(), a.getCreatedAt());
             System.out.println("   reason: " + a.getReason());
-        }
+        });
+        if (listed == 0) System.out.println("No alerts found for account " + accountId);
         System.out.println();
     }
 
-    private static void handleRecentAlerts(AlertDao alertDao) {
+    private static void handleRecentAlerts(AlertStore alertDao) {
         // This is basically a list view for a chosen account, but highlighted as "recent"
         handleListAlerts(alertDao);
     }
 
-    private static void handleExport(AlertDao alertDao, ReportService reportService, Properties props) {
+    private static void handleExport(AlertStore alertDao, ReportService reportService, Properties props) {
         String defaultAccount = "acct123";
         String accountId = readLine("Enter accountId to export (default " + defaultAccount + "): ");
         if (accountId.isEmpty()) accountId = defaultAccount;
@@ -1,24 +1,47 @@
 package com.fraud.app;
 
 import com.fraud.config.ConfigLoader;
+import com.fraud.config.ConfigWatcher;
 import com.fraud.dao.AlertDao;
+import com.fraud.dao.AlertStore;
+import com.fraud.dao.CachingAlertDao;
+import com.fraud.dao.SchemaMigrator;
 import com.fraud.dao.TransactionDao;
+import com.fraud.engine.FraudEngine;
 import com.fraud.engine.RuleFactory;
+import com.fraud.engine.RulePipeline;
+import com.fraud.model.AlertSummary;
 import com.fraud.model.FraudAlert;
 import com.fraud.model.Transaction;
-import com.fraud.rules.Rule;
+import com.fraud.model.TransactionBatch;
+import com.fraud.service.AsyncPersistence;
 import com.fraud.service.DetectionService;
+import com.fraud.service.LiveIngestServer;
+import com.fraud.service.ParallelDetectionExecutor;
 import com.fraud.service.ReportService;
+import com.fraud.service.ScoringHttpServer;
+import com.fraud.service.StagedDetectionPipeline;
+import com.fraud.state.DaoVelocityStore;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.VelocityStore;
+import com.fraud.state.WindowPolicy;
+import com.fraud.util.BinaryTransactionFile;
 import com.fraud.util.CsvReader;
 import com.fraud.util.DBUtil;
+import com.fraud.util.MappedCsvParser;
+import com.fraud.util.RingBuffer;
 import com.fraud.util.ShutdownUtil;
+import com.fraud.util.TransactionCursor;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -29,9 +52,17 @@ public class Main {
     public static void main(String[] args) throws Exception {
         log.info("Starting Fraud Detection System");
 
-        ConfigLoader cfg = new ConfigLoader();
+        // -Dfraud.config.dir=/path reads (and watches) the config files there instead of the classpath
+        String configDir = System.getProperty("fraud.config.dir");
+        ConfigLoader cfg = configDir == null ? new ConfigLoader() : new ConfigLoader(Paths.get(configDir));
         Properties props = cfg.getProperties();
+        if (args != null && args.length > 0 && "convert-binary".equalsIgnoreCase(args[0].trim())) {
+            convertBinary(props, args);
+            return;
+        }
         DataSource ds = DBUtil.createDataSource(props);
+        migrateSchema(props, ds);
+        AlertStore alertDao = createAlertDao(props, ds);
 
         // --------------------------------------------------------------------
         // NON-INTERACTIVE COMMAND MODE
@@ -42,12 +73,12 @@ public class Main {
             try {
                 switch (cmd) {
                     case "run-detection":
-                        runDetection(cfg, ds);
+                        runDetection(cfg, ds, alertDao);
                         break;
 
                     case "export-report":
                         exportReport(
-                                ds,
+                                alertDao,
                                 args.length > 1 ? args[1] : "acct123",
                                 props.getProperty("report.output", "alerts_report.csv")
                         );
@@ -55,7 +86,7 @@ public class Main {
 
                     case "export-pdf":
                         exportReportPdf(
-                                ds,
+                                alertDao,
                                 args.length > 1 ? args[1] : "acct123",
                                 args.length > 2 ? args[2] : "alerts_report.pdf"
                         );
@@ -63,7 +94,7 @@ public class Main {
 
                     case "export-json":
                         exportReportJson(
-                                ds,
+                                alertDao,
                                 args.length > 1 ? args[1] : "acct123",
                                 args.length > 2 ? args[2] : "alerts_report.json"
                         );
@@ -73,6 +104,14 @@ public class Main {
                         dbTest(ds);
                         break;
 
+                    case "live-stream":
+                        liveStream(cfg, ds, alertDao, new BufferedReader(new InputStreamReader(System.in)));
+                        break;
+
+                    case "score-http":
+                        scoreHttp(cfg, ds, alertDao, new BufferedReader(new InputStreamReader(System.in)));
+                        break;
+
                     default:
                         log.warn("Unknown command: {}", cmd);
                         printUsage();
@@ -97,16 +136,16 @@ public class Main {
 
                 try {
                     switch (choice) {
-                        case "1": liveStreamStub(); break;
-                        case "2": monthlySummaryAnalytics(ds, in); break;
-                        case "3": searchAlerts(ds, in); break;
+                        case "1": liveStream(cfg, ds, alertDao, in); break;
+                        case "2": monthlySummaryAnalytics(alertDao, in); break;
+                        case "3": searchAlerts(alertDao, in); break;
                         case "4": searchTransactions(ds, in); break;
-                        case "5": systemStatus(cfg, ds); break;
-                        case "6": exportCsvInteractive(ds, props, in); break;
+                        case "5": systemStatus(cfg, ds, alertDao); break;
+                        case "6": exportCsvInteractive(alertDao, props, in); break;
                         case "7": showConfiguration(cfg); break;
-                        case "8": runDetection(cfg, ds); break;
-                        case "9": exportPdfInteractive(ds, props, in); break;
-                        case "10": exportJsonInteractive(ds, props, in); break;
+                        case "8": runDetection(cfg, ds, alertDao); break;
+                        case "9": exportPdfInteractive(alertDao, props, in); break;
+                        case "10": exportJsonInteractive(alertDao, props, in); break;
 
                         case "0":
                         case "exit":
@@ -136,7 +175,7 @@ public class Main {
         System.out.println("=========================================");
         System.out.println("        FRAUD ANALYST CONSOLE v1.0       ");
         System.out.println("=========================================");
-        System.out.println("1) Live Stream Mode (stub)");
+        System.out.println("1) Live Stream Mode");
         System.out.println("2) Monthly Summary Reports");
         System.out.println("3) Search Alerts");
         System.out.println("4) Search Transactions");
@@ -152,45 +191,102 @@ public class Main {
     }
 
     // --------------------------------------------------------------------
-    // MENU: Live Stream Stub
+    // MENU: Live Stream (TCP ingest until Enter / end of input)
+    // --------------------------------------------------------------------
+    private static void liveStream(ConfigLoader cfg, DataSource ds, AlertStore alertDao, BufferedReader in) throws Exception {
+        Properties p = cfg.getProperties();
+        RulePipeline pipeline = createPipeline(p, RuleFactory.createEngine(cfg));
+        ConfigWatcher watcher = watchConfig(cfg, pipeline);
+        DetectionService svc = createDetectionService(p, createTransactionDao(p, ds), alertDao, pipeline);
+
+        int port = Integer.parseInt(p.getProperty("live.port", "9099").trim());
+        int workers = Math.max(1, Integer.parseInt(p.getProperty("thread.pool.size", "1").trim()));
+        int batchSize = Integer.parseInt(p.getProperty("detection.batch.size", "0").trim());
+        int reportSeconds = Integer.parseInt(p.getProperty("live.report.seconds", "10").trim());
+
+        LiveIngestServer server = null;
+        try {
+            server = new LiveIngestServer(svc, port, workers, batchSize, reportSeconds);
+            System.out.println("Live stream listening on port " + server.getPort()
+                    + " (one CSV or JSON transaction per line). Press Enter to stop.");
+            in.readLine();
+        } finally {
+            if (server != null) server.close();
+            if (watcher != null) watcher.close();
+            pipeline.close();
+            flushPersistence(svc);
+        }
+        System.out.println("Live stream stopped. Transactions: " + server.getProcessed()
+                + ", alerts: " + server.getAlerts() + ", errors: " + server.getErrors());
+    }
+
+    // --------------------------------------------------------------------
+    // HTTP SCORING ENDPOINT (POST /score until Enter / end of input)
     // --------------------------------------------------------------------
-    private static void liveStreamStub() {
-        log.info("Live stream mode not implemented.");
-        System.out.println("Real-time streaming disabled in this version.");
+    private static void scoreHttp(ConfigLoader cfg, DataSource ds, AlertStore alertDao, BufferedReader in) throws Exception {
+        Properties p = cfg.getProperties();
+        RulePipeline pipeline = createPipeline(p, RuleFactory.createEngine(cfg));
+        ConfigWatcher watcher = watchConfig(cfg, pipeline);
+        DetectionService svc = createDetectionService(p, createTransactionDao(p, ds), alertDao, pipeline);
+
+        int port = Integer.parseInt(p.getProperty("http.port", "8080").trim());
+        int workers = Math.max(1, Integer.parseInt(p.getProperty("thread.pool.size", "1").trim()));
+        // request threads only matter below Java 21; on 21+ every request gets a virtual thread
+        int requestThreads = Integer.parseInt(p.getProperty("http.request.threads", "200").trim());
+        long sloMillis = Long.parseLong(p.getProperty("http.slo.ms", "50").trim());
+        long timeoutMillis = Long.parseLong(p.getProperty("http.timeout.ms",
+                String.valueOf(ScoringHttpServer.DEFAULT_TIMEOUT_MILLIS)).trim());
+        int reportSeconds = Integer.parseInt(p.getProperty("http.report.seconds", "10").trim());
+
+        ScoringHttpServer server = null;
+        try {
+            server = new ScoringHttpServer(svc, port, workers, requestThreads, sloMillis, timeoutMillis, reportSeconds);
+            System.out.println("Scoring endpoint: POST http://localhost:" + server.getPort() + ScoringHttpServer.PATH
+                    + ". Press Enter to stop.");
+            in.readLine();
+        } finally {
+            if (server != null) server.close();
+            if (watcher != null) watcher.close();
+            pipeline.close();
+            flushPersistence(svc);
+        }
+        System.out.println("Scoring endpoint stopped. Requests: " + server.getRequests() + ", errors: "
+                + server.getErrors() + ", slower than " + sloMillis + " ms: " + server.getSloViolations());
     }
 
     // --------------------------------------------------------------------
     // MENU: Monthly Summary Analytics
     // --------------------------------------------------------------------
-    private static void monthlySummaryAnalytics(DataSource ds, BufferedReader in) throws Exception {
+    private static void monthlySummaryAnalytics(AlertStore alertDao, BufferedReader in) throws Exception {
         System.out.println("Enter accountId (default acct123): ");
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
 
-        AlertDao dao = new AlertDao(ds);
-        List<FraudAlert> list = dao.getAlertsByAccount(acc, 1000);
-
-        if (list.isEmpty()) {
+        // counted by the database: no alert rows are fetched
+        AlertSummary summary = alertDao.getMonthlySummary(acc);
+        if (summary.getTotal() == 0) {
             System.out.println("No alerts found.");
             return;
         }
 
-        long high = list.stream().filter(a -> "HIGH".equalsIgnoreCase(a.getRiskLevel())).count();
-        long med  = list.stream().filter(a -> "MEDIUM".equalsIgnoreCase(a.getRiskLevel())).count();
-
-        System.out.println("Total alerts: " + list.size());
-        System.out.println("HIGH risk:   " + high);
-        System.out.println("MEDIUM risk: " + med);
+        System.out.println("Total alerts: " + summary.getTotal());
+        System.out.println("HIGH risk:   " + summary.getTotal("HIGH"));
+        System.out.println("MEDIUM risk: " + summary.getTotal("MEDIUM"));
+        System.out.println("Alerts per month:");
+        summary.getAlertsPerMonth().forEach((month, n) -> System.out.println("  " + month + " -> " + n));
+        System.out.println("Top rules:");
+        summary.getRuleCounts().stream().limit(5)
+                .forEach(e -> System.out.println("  " + e.getKey() + " -> " + e.getValue()));
     }
 
     // --------------------------------------------------------------------
     // MENU: Search Alerts
     // --------------------------------------------------------------------
-    private static void searchAlerts(DataSource ds, BufferedReader in) throws Exception {
+    private static void searchAlerts(AlertStore alertDao, BufferedReader in) throws Exception {
         System.out.print("Enter accountId: ");
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
-        new AlertDao(ds).getAlertsByAccount(acc, 100).forEach(System.out::println);
+        alertDao.forEachAlert(acc, 100, AlertDao.DEFAULT_PAGE_SIZE, System.out::println);
     }
 
     // --------------------------------------------------------------------
@@ -201,17 +297,16 @@ public class Main {
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
 
-        TransactionDao dao = new TransactionDao(ds);
-        List<Transaction> list = dao.getRecentTransactions(acc, 3600);
-
-        if (list.isEmpty()) System.out.println("No transactions found.");
-        list.forEach(System.out::println);
+        // printed a page at a time as rows arrive
+        long found = new TransactionDao(ds).forEachTransactionSince(acc, LocalDateTime.now().minusHours(1),
+                TransactionDao.DEFAULT_PAGE_SIZE, System.out::println);
+        if (found == 0) System.out.println("No transactions found.");
     }
 
     // --------------------------------------------------------------------
     // MENU: System Status
     // --------------------------------------------------------------------
-    private static void systemStatus(ConfigLoader cfg, DataSource ds) {
+    private static void systemStatus(ConfigLoader cfg, DataSource ds, AlertStore alertDao) {
         System.out.println("DB URL: " + cfg.getProperties().getProperty("db.url"));
         try {
             ds.getConnection().close();
@@ -219,31 +314,32 @@ public class Main {
         } catch (Exception e) {
             System.out.println("DB FAILED: " + e.getMessage());
         }
+        if (alertDao instanceof CachingAlertDao) System.out.println(((CachingAlertDao) alertDao).stats());
     }
 
     // --------------------------------------------------------------------
     // MENU: Export CSV
     // --------------------------------------------------------------------
-    private static void exportCsvInteractive(DataSource ds, Properties props, BufferedReader in)
+    private static void exportCsvInteractive(AlertStore alertDao, Properties props, BufferedReader in)
             throws Exception {
         System.out.print("Enter accountId: ");
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
 
         String file = props.getProperty("report.output", "alerts_report.csv");
-        exportReport(ds, acc, file);
+        exportReport(alertDao, acc, file);
         System.out.println("CSV saved: " + file);
     }
 
     // EXPORT CSV BASE FUNCTION
-    private static void exportReport(DataSource ds, String acc, String file) {
-        new ReportService(new AlertDao(ds)).exportAlerts(acc, file);
+    private static void exportReport(AlertStore alertDao, String acc, String file) {
+        new ReportService(alertDao).exportAlerts(acc, file);
     }
 
     // --------------------------------------------------------------------
     // MENU: Export PDF
     // --------------------------------------------------------------------
-    private static void exportPdfInteractive(DataSource ds, Properties props, BufferedReader in)
+    private static void exportPdfInteractive(AlertStore alertDao, Properties props, BufferedReader in)
             throws Exception {
         System.out.print("Enter accountId: ");
         String acc = in.readLine();
@@ -253,18 +349,18 @@ public class Main {
         String out = in.readLine();
         if (out == null || out.trim().isEmpty()) out = "alerts_report.pdf";
 
-        exportReportPdf(ds, acc, out);
+        exportReportPdf(alertDao, acc, out);
     }
 
     // EXPORT PDF BASE FUNCTION
-    private static void exportReportPdf(DataSource ds, String acc, String dest) {
-        new ReportService(new AlertDao(ds)).exportAlertsToPdf(acc, dest);
+    private static void exportReportPdf(AlertStore alertDao, String acc, String dest) {
+        new ReportService(alertDao).exportAlertsToPdf(acc, dest);
     }
 
     // --------------------------------------------------------------------
     // MENU: Export JSON
     // --------------------------------------------------------------------
-    private static void exportJsonInteractive(DataSource ds, Properties props, BufferedReader in)
+    private static void exportJsonInteractive(AlertStore alertDao, Properties props, BufferedReader in)
             throws Exception {
         System.out.print("Enter accountId: ");
         String acc = in.readLine();
@@ -274,12 +370,12 @@ public class Main {
         String out = in.readLine();
         if (out == null || out.trim().isEmpty()) out = "alerts_report.json";
 
-        exportReportJson(ds, acc, out);
+        exportReportJson(alertDao, acc, out);
     }
 
     // EXPORT JSON BASE FUNCTION
-    private static void exportReportJson(DataSource ds, String acc, String dest) {
-        new ReportService(new AlertDao(ds)).exportAlertsToJson(acc, dest);
+    private static void exportReportJson(AlertStore alertDao, String acc, String dest) {
+        new ReportService(alertDao).exportAlertsToJson(acc, dest);
     }
 
     private static void showConfiguration(ConfigLoader cfg) {
@@ -297,33 +393,271 @@ public class Main {
     // --------------------------------------------------------------------
     // DETECTION PIPELINE
     // --------------------------------------------------------------------
-    private static void runDetection(ConfigLoader cfg, DataSource ds) throws Exception {
+    private static void runDetection(ConfigLoader cfg, DataSource ds, AlertStore alertDao) throws Exception {
+        Properties p = cfg.getProperties();
+
+        TransactionCursor cursor = openInput(p);
+        try {
+            runDetection(cfg, ds, alertDao, cursor);
+        } finally {
+            cursor.close();
+        }
+        if (cursor.getRowsRejected() > 0) {
+            System.out.println("Rows rejected (csv.error.policy=" + p.getProperty("csv.error.policy", "skip").trim()
+                    + "): " + cursor.getRowsRejected() + " of " + cursor.getRowsRead());
+        }
+    }
+
+    // detection.input: CSV or binary (see convert-binary) file (default: bundled /transactions.csv),
+    // read one record at a time
+    private static TransactionCursor openInput(Properties p) throws Exception {
+        String input = p.getProperty("detection.input", "").trim();
+        if (input.isEmpty()) {
+            return CsvReader.openResource("/transactions.csv", csvErrorPolicy(p), csvQuarantine(p));
+        }
+        Path file = Paths.get(input);
+        return BinaryTransactionFile.isBinary(file) ? BinaryTransactionFile.open(file) : openCsv(p, file);
+    }
+
+    // csv.parse.threads > 1 parses a file in memory-mapped chunks on that many threads
+    private static TransactionCursor openCsv(Properties p, Path file) throws Exception {
+        int parseThreads = Integer.parseInt(p.getProperty("csv.parse.threads", "1").trim());
+        return parseThreads > 1
+                ? MappedCsvParser.open(file, parseThreads, csvErrorPolicy(p), csvQuarantine(p))
+                : CsvReader.open(file, csvErrorPolicy(p), csvQuarantine(p));
+    }
+
+    private static CsvReader.OnError csvErrorPolicy(Properties p) {
+        return CsvReader.OnError.of(p.getProperty("csv.error.policy", "skip"));
+    }
+
+    private static Path csvQuarantine(Properties p) {
+        return Paths.get(p.getProperty("csv.quarantine.file", "quarantine.csv").trim());
+    }
+
+    // --------------------------------------------------------------------
+    // CSV -> BINARY CONVERSION (for repeated replays; needs no database)
+    // --------------------------------------------------------------------
+    private static void convertBinary(Properties p, String[] args) throws Exception {
+        if (args.length < 3) {
+            printUsage();
+            return;
+        }
+        long start = System.nanoTime();
+        long written;
+        try (TransactionCursor in = openCsv(p, Paths.get(args[1]))) {
+            written = BinaryTransactionFile.convert(in, Paths.get(args[2]));
+            if (in.getRowsRejected() > 0) System.out.println("Rows rejected: " + in.getRowsRejected());
+        }
+        System.out.printf("Wrote %d transactions to %s in %.1f s%n", written, args[2], (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void runDetection(ConfigLoader cfg, DataSource ds, AlertStore alertDao, Iterator<Transaction> input) throws Exception {
         Properties p = cfg.getProperties();
 
-        List<Rule> rules = RuleFactory.createRules(cfg);
-
-        DetectionService svc = new DetectionService(
-                new TransactionDao(ds),
-                new AlertDao(ds),
-                rules,
-                Integer.parseInt(p.getProperty("risk.score.medium")),
-                Integer.parseInt(p.getProperty("risk.score.high")),
-                Integer.parseInt(p.getProperty("velocity.window.seconds")),
-                Integer.parseInt(p.getProperty("velocity.limit"))
-        );
-
-        List<Transaction> txns = CsvReader.readFromResource("/transactions.csv");
-        int alerts = 0;
-
-        for (Transaction t : txns) {
-            Optional<FraudAlert> result = svc.analyzeAndPersist(t);
-            if (result.isPresent()) {
-                alerts++;
-                log.warn("ALERT: {}", result.get());
+        // order rules by measured cost on the first records of this run's input, then score those first
+        List<Transaction> sample = new ArrayList<>(1000);
+        while (sample.size() < 1000 && input.hasNext()) sample.add(input.next());
+        FraudEngine engine = RuleFactory.createEngine(cfg).calibrate(sample, 20);
+        Iterator<Transaction> txns = concat(sample.iterator(), input);
+        log.info("Rule evaluation order: {}", engine.getEvaluationOrder());
+
+        // detection.pipeline=staged: parse, score and persist on their own threads, joined by rings
+        boolean staged = "staged".equalsIgnoreCase(p.getProperty("detection.pipeline", "direct").trim());
+        if (staged && "db".equalsIgnoreCase(p.getProperty("velocity.store", "memory").trim())) {
+            // the db store counts persisted rows, which lag behind scoring in the staged pipeline
+            throw new IllegalArgumentException("detection.pipeline=staged requires velocity.store=memory");
+        }
+
+        RulePipeline pipeline = createPipeline(p, engine);
+        ConfigWatcher watcher = watchConfig(cfg, pipeline);
+        TransactionDao txDao = createTransactionDao(p, ds);
+        DetectionService svc = createDetectionService(p, txDao, alertDao, pipeline);
+
+        long alerts = 0;
+        // detection.batch.size > 0 scores rules column-wise over batches of that size
+        int batchSize = Integer.parseInt(p.getProperty("detection.batch.size", "0"));
+        // thread.pool.size > 1 spreads accounts over that many workers (per-account order kept)
+        int workers = Integer.parseInt(p.getProperty("thread.pool.size", "1").trim());
+
+        try {
+            if (staged) {
+                StagedDetectionPipeline stages = new StagedDetectionPipeline(svc,
+                        Integer.parseInt(p.getProperty("detection.ring.size",
+                                String.valueOf(StagedDetectionPipeline.DEFAULT_RING_SIZE)).trim()),
+                        RingBuffer.WaitStrategy.of(p.getProperty("detection.wait.strategy")),
+                        (t, alert, error) -> {
+                            if (alert != null) log.warn("ALERT: {}", alert);
+                        });
+                stages.run(txns);
+                alerts = stages.getAlerts();
+                if (stages.getFailures() > 0) {
+                    System.out.println("Transactions that failed (see log): " + stages.getFailures());
+                }
+                System.out.println("Pipeline stages: " + stages.stats());
+            } else if (workers > 1) {
+                ParallelDetectionExecutor executor = new ParallelDetectionExecutor(svc, workers,
+                        ParallelDetectionExecutor.DEFAULT_QUEUE_CAPACITY, batchSize, a -> log.warn("ALERT: {}", a));
+                try {
+                    while (txns.hasNext()) executor.submit(txns.next());
+                } finally {
+                    executor.close();
+                }
+                alerts = executor.getAlerts();
+                if (executor.getFailures() > 0) {
+                    System.out.println("Transactions that failed (see log): " + executor.getFailures());
+                }
+            } else if (batchSize > 0) {
+                TransactionBatch batch = new TransactionBatch(batchSize);
+                while (txns.hasNext()) {
+                    batch.add(txns.next());
+                    if (batch.isFull() || !txns.hasNext()) {
+                        for (FraudAlert a : svc.analyzeAndPersist(batch)) {
+                            alerts++;
+                            log.warn("ALERT: {}", a);
+                        }
+                        batch.clear();
+                    }
+                }
+            } else {
+                while (txns.hasNext()) {
+                    Optional<FraudAlert> result = svc.analyzeAndPersist(txns.next());
+                    if (result.isPresent()) {
+                        alerts++;
+                        log.warn("ALERT: {}", result.get());
+                    }
+                }
             }
+        } finally {
+            if (watcher != null) watcher.close();
+            pipeline.close();
+            flushPersistence(svc);
         }
 
         System.out.println("Detection complete. Alerts created: " + alerts);
+        if (txDao.isIdempotent()) {
+            System.out.println("Transactions inserted: " + txDao.getInsertedCount() + ", duplicates skipped: "
+                    + txDao.getDuplicateCount() + " (" + txDao.getFilteredCount() + " without a database round trip)");
+        }
+        System.out.printf("Rule pipeline v%d: avg rules evaluated/txn=%.2f (previous order: %.2f)%n",
+                pipeline.getVersion(), pipeline.getAvgRulesEvaluated(), pipeline.getPreviousAvgRulesEvaluated());
+        if (svc.getLateEventCount() > 0) {
+            System.out.println("Late events (scored without velocity checks): " + svc.getLateEventCount());
+        }
+    }
+
+    // adaptive reordering from live hit rates (engine.adaptive.sample.every=0 disables it)
+    private static RulePipeline createPipeline(Properties p, FraudEngine engine) {
+        RulePipeline pipeline = new RulePipeline(engine,
+                Integer.parseInt(p.getProperty("engine.adaptive.sample.every", "64")));
+        pipeline.startAdaptive(Long.parseLong(p.getProperty("engine.adaptive.interval.seconds", "30")));
+        return pipeline;
+    }
+
+    // hot reload of rules.json and risk thresholds (only when the config comes from a directory)
+    private static ConfigWatcher watchConfig(ConfigLoader cfg, RulePipeline pipeline) throws IOException {
+        if (cfg.getConfigDir() == null || !Boolean.parseBoolean(cfg.getProperties().getProperty("config.watch", "true"))) {
+            return null;
+        }
+        ConfigWatcher watcher = new ConfigWatcher(cfg, pipeline::reload);
+        watcher.start();
+        return watcher;
+    }
+
+    // persist.async=true queues writes for background writers, batched by size or time
+    private static DetectionService createDetectionService(Properties p, TransactionDao txDao, AlertStore alertDao,
+                                                           RulePipeline pipeline) {
+        int windowSeconds = Integer.parseInt(p.getProperty("velocity.window.seconds"));
+        int limit = Integer.parseInt(p.getProperty("velocity.limit"));
+        WindowPolicy policy = WindowPolicy.of(p.getProperty("velocity.time.mode"),
+                p.getProperty("velocity.allowed.lateness.seconds"));
+        VelocityStore store = createVelocityStore(p, txDao, windowSeconds, limit, policy);
+        if (!Boolean.parseBoolean(p.getProperty("persist.async", "false").trim())) {
+            return new DetectionService(txDao, alertDao, pipeline, windowSeconds, limit, store, policy);
+        }
+        if (store instanceof DaoVelocityStore) {
+            // the db store counts persisted rows, which lag behind scoring with queued writes
+            throw new IllegalArgumentException("persist.async=true requires velocity.store=memory");
+        }
+        AsyncPersistence persistence = new AsyncPersistence(txDao, alertDao,
+                Integer.parseInt(p.getProperty("persist.queue.capacity", "10000").trim()),
+                Integer.parseInt(p.getProperty("persist.writers", "2").trim()),
+                Integer.parseInt(p.getProperty("persist.batch.size", "500").trim()),
+                Long.parseLong(p.getProperty("persist.batch.delay.ms", "50").trim()),
+                AsyncPersistence.Backpressure.of(p.getProperty("persist.backpressure")),
+                Paths.get(p.getProperty("persist.spill.file", "persist-spill.jsonl").trim()));
+        ShutdownUtil.flushOnShutdown(persistence);
+        return new DetectionService(persistence, pipeline, windowSeconds, limit, store, policy);
+    }
+
+    // persist.idempotent=true skips already stored transaction ids (ON DUPLICATE KEY no-op) instead of
+    // letting each duplicate fail; persist.recent.ids of them are remembered to skip the round trip
+    private static TransactionDao createTransactionDao(Properties p, DataSource ds) {
+        return new TransactionDao(ds,
+                Boolean.parseBoolean(p.getProperty("persist.idempotent", "false").trim()),
+                Integer.parseInt(p.getProperty("persist.recent.ids", "100000").trim()));
+    }
+
+    // alert.cache.accounts > 0 keeps that many accounts' newest alerts in memory for the console
+    // menus and exports; saving an alert drops its account so the next read reloads it
+    static AlertStore createAlertDao(Properties p, DataSource ds) {
+        AlertDao dao = new AlertDao(ds);
+        int accounts = Integer.parseInt(p.getProperty("alert.cache.accounts", "1000").trim());
+        if (accounts <= 0) return dao;
+        return new CachingAlertDao(dao, accounts,
+                Integer.parseInt(p.getProperty("alert.cache.max.alerts", "1000").trim()),
+                Long.parseLong(p.getProperty("alert.cache.ttl.seconds", "60").trim()) * 1000);
+    }
+
+    // write out queued rows before reporting; a no-op when saving inline
+    private static void flushPersistence(DetectionService svc) {
+        AsyncPersistence persistence = svc.getAsyncPersistence();
+        if (persistence == null) return;
+        persistence.close();
+        ShutdownUtil.unregister(persistence);
+        System.out.println("Rows written: " + persistence.getWritten() + " in " + persistence.getBatches()
+                + " batches" + (persistence.getSpilled() > 0 ? ", spilled: " + persistence.getSpilled() : "")
+                + (persistence.getFailed() > 0 ? ", lost (see log): " + persistence.getFailed() : ""));
+    }
+
+    // db.migrate=true (default) applies pending db/migration scripts; every entry point that opens
+    // a DataSource calls this first, since the tables are created here rather than by hand
+    static void migrateSchema(Properties p, DataSource ds) {
+        if (!Boolean.parseBoolean(p.getProperty("db.migrate", "true").trim())) return;
+        SchemaMigrator migrator = new SchemaMigrator(ds);
+        int applied = migrator.migrate();
+        if (applied > 0) log.info("Applied {} schema migration(s)", applied);
+    }
+
+    private static <T> Iterator<T> concat(Iterator<T> first, Iterator<T> second) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+        };
+    }
+
+    // velocity.store=memory (default) keeps per-account history in-process, dropping accounts idle for
+    // longer than the window (plus lateness); "db" queries the table
+    private static VelocityStore createVelocityStore(Properties p, TransactionDao txDao, int windowSeconds,
+                                                     int limit, WindowPolicy policy) {
+        String type = p.getProperty("velocity.store", "memory").trim().toLowerCase();
+        if ("db".equals(type)) {
+            return new DaoVelocityStore(txDao);
+        }
+        int capacity = Integer.parseInt(p.getProperty("velocity.ring.capacity",
+                String.valueOf(InMemoryVelocityStore.DEFAULT_CAPACITY)).trim());
+        if (capacity < limit) {
+            throw new IllegalArgumentException("velocity.ring.capacity (" + capacity
+                    + ") must be >= velocity.limit (" + limit + ")");
+        }
+        return new InMemoryVelocityStore(capacity, limit, windowSeconds + policy.getAllowedLatenessSeconds());
     }
 
     // --------------------------------------------------------------------
@@ -360,5 +694,8 @@ public class Main {
         System.out.println(" export-pdf acct123 report.pdf");
         System.out.println(" export-json acct123 report.json");
         System.out.println(" db-test");
+        System.out.println(" convert-binary transactions.csv transactions.ftx");
+        System.out.println(" live-stream");
+        System.out.println(" score-http");
     }
 }
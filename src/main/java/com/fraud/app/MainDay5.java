@@ -1,31 +1,29 @@
 package com.fraud.app;
 
 import com.fraud.config.ConfigLoader;
-import com.fraud.dao.AlertDao;
-import com.fraud.dao.DaoException;
+import com.fraud.dao.AlertStore;
 import com.fraud.dao.TransactionDao;
+import com.fraud.engine.RuleFactory;
+import com.fraud.model.AlertSummary;
 import com.fraud.model.FraudAlert;
 import com.fraud.model.Transaction;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
-import com.fraud.rules.impl.GeoLocationRule;
-import com.fraud.rules.impl.HighAmountRule;
 import com.fraud.service.DetectionService;
+import com.fraud.service.LiveIngestServer;
+import com.fraud.service.ParallelDetectionExecutor;
 import com.fraud.service.ReportService;
 import com.fraud.util.CsvReader;
 import com.fraud.util.DBUtil;
 import com.fraud.util.ShutdownUtil;
 import com.zaxxer.hikari.HikariDataSource;
-import com.fraud.rules.impl.NightTimeRule;
-import com.fraud.rules.impl.ChannelRiskRule;
-import com.fraud.rules.impl.RiskyMerchantRule;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.sql.SQLIntegrityConstraintViolationException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 
 public class MainDay5 {
@@ -35,16 +33,19 @@ public class MainDay5 {
         ConfigLoader cfg = new ConfigLoader();
         Properties props = cfg.getProperties();
         DataSource ds = DBUtil.createDataSource(props);
+        Main.migrateSchema(props, ds);
+        // one instance for the whole session, so repeated look-ups of an account hit the alert cache
+        AlertStore alertDao = Main.createAlertDao(props, ds);
         if (args != null && args.length > 0) {
             String cmd = args[0].trim().toLowerCase();
             try {
                 switch (cmd) {
                     case "run-detection":
-                        runDetection(cfg, ds);
+                        runDetection(cfg, ds, alertDao);
                         break;
                     case "export-report":
                         String account = args.length > 1 ? args[1] : "acct123";
-                        exportReport(ds, account, props.getProperty("report.output"));
+                        exportReport(alertDao, account, props.getProperty("report.output"));
                         break;
                     case "db-test":
                         dbTest(ds);
@@ -69,15 +70,15 @@ public class MainDay5 {
             try {
                 switch (choice) {
                     case "1":
-                        liveStreamStub();
+                        liveStream(cfg, ds, alertDao, in);
                         break;
 
                     case "2": // Day 6 - Monthly Summary Reports / Analytics
-                        monthlySummaryAnalytics(ds, in);
+                        monthlySummaryAnalytics(alertDao, in);
                         break;
 
                     case "3": // Search Alerts
-                        searchAlerts(ds, in);
+                        searchAlerts(alertDao, in);
                         break;
 
                     case "4": // Search Transactions
@@ -89,7 +90,7 @@ public class MainDay5 {
                         break;
 
                     case "6": // Export Reports (Day 4)
-                        exportReportsInteractive(ds, props, in);
+                        exportReportsInteractive(alertDao, props, in);
                         break;
 
                     case "7": // Configuration (Day 1 style)
@@ -146,72 +147,60 @@ public class MainDay5 {
     }
 
     // ==========================
-    // Option 1: Live Stream Mode (stub for now)
+    // Option 1: Live Stream Mode (TCP, one CSV/JSON transaction per line)
     // ==========================
-    private static void liveStreamStub() {
+    private static void liveStream(ConfigLoader cfg, DataSource ds, AlertStore alertDao, BufferedReader in) throws Exception {
+        Properties p = cfg.getProperties();
         System.out.println("==== Live Stream Mode ====");
-        System.out.println("Real-time transaction streaming is NOT enabled in this version.");
-        System.out.println("Use CSV-based detection (via Monthly Reports / detection pipeline) instead.");
+        int port = Integer.parseInt(p.getProperty("live.port", "9099").trim());
+        int workers = Math.max(1, Integer.parseInt(p.getProperty("thread.pool.size", "1").trim()));
+        int reportSeconds = Integer.parseInt(p.getProperty("live.report.seconds", "10").trim());
+        LiveIngestServer server = new LiveIngestServer(createDetectionService(cfg, ds, alertDao), port, workers, 0,
+                reportSeconds);
+        try {
+            System.out.println("Listening on port " + server.getPort() + ". Press Enter to stop.");
+            in.readLine();
+        } finally {
+            server.close();
+        }
+        // counted once close() has finished the transactions already received
+        System.out.println("Stopped. Transactions: " + server.getProcessed() + ", alerts: "
+                + server.getAlerts() + ", errors: " + server.getErrors());
     }
 
     // ==========================
     // Option 2: Monthly Summary / Analytics (Day 6)
     // ==========================
-    private static void monthlySummaryAnalytics(DataSource ds, BufferedReader in) throws Exception {
+    private static void monthlySummaryAnalytics(AlertStore alertDao, BufferedReader in) throws Exception {
         System.out.println("==== Day 6: Monthly Summary / Analytics ====");
         System.out.print("Enter accountId for analytics (default acct123): ");
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
 
-        AlertDao alertDao = new AlertDao(ds);
-        List<FraudAlert> alerts = alertDao.getAlertsByAccount(acc, 1000);
+        // counted by the database over all of the account's alerts
+        AlertSummary summary = alertDao.getMonthlySummary(acc);
 
-        if (alerts.isEmpty()) {
+        if (summary.getTotal() == 0) {
             System.out.println("No alerts found for account: " + acc);
             return;
         }
 
-        int total = alerts.size();
-        int high = 0;
-        int medium = 0;
-
-        Map<String, Integer> reasonsCount = new HashMap<>();
-        Map<String, Integer> monthBuckets = new TreeMap<>();
-        LocalDateTime latest = null;
-
-        for (FraudAlert a : alerts) {
-            if ("HIGH".equalsIgnoreCase(a.getRiskLevel())) high++;
-            if ("MEDIUM".equalsIgnoreCase(a.getRiskLevel())) medium++;
-
-            String reason = a.getReason() != null ? a.getReason() : "Unknown";
-            reasonsCount.put(reason, reasonsCount.getOrDefault(reason, 0) + 1);
-
-            LocalDateTime ts = a.getCreatedAt();
-            if (ts != null) {
-                String ym = ts.getYear() + "-" + String.format("%02d", ts.getMonthValue());
-                monthBuckets.put(ym, monthBuckets.getOrDefault(ym, 0) + 1);
-                if (latest == null || ts.isAfter(latest)) {
-                    latest = ts;
-                }
-            }
-        }
-
         System.out.println("\n--- Alert Summary for account: " + acc + " ---");
-        System.out.println("Total alerts: " + total);
-        System.out.println("HIGH risk alerts: " + high);
-        System.out.println("MEDIUM risk alerts: " + medium);
+        System.out.println("Total alerts: " + summary.getTotal());
+        System.out.println("HIGH risk alerts: " + summary.getTotal("HIGH"));
+        System.out.println("MEDIUM risk alerts: " + summary.getTotal("MEDIUM"));
 
         System.out.println("\nAlerts per month:");
-        for (Map.Entry<String, Integer> e : monthBuckets.entrySet()) {
+        for (Map.Entry<YearMonth, Long> e : summary.getAlertsPerMonth().entrySet()) {
             System.out.println("  " + e.getKey() + " -> " + e.getValue());
         }
 
-        System.out.println("\nTop reasons:");
-        reasonsCount.entrySet().stream()
-                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
+        System.out.println("\nTop rules:");
+        summary.getRuleCounts().stream()
                 .limit(5)
                 .forEach(e -> System.out.println("  " + e.getKey() + " -> " + e.getValue()));
 
+        LocalDateTime latest = summary.getLatest();
         if (latest != null) {
             System.out.println("\nMost recent alert at: " + latest);
         }
@@ -221,13 +210,12 @@ public class MainDay5 {
     // ==========================
     // Option 3: Search Alerts
     // ==========================
-    private static void searchAlerts(DataSource ds, BufferedReader in) throws Exception {
+    private static void searchAlerts(AlertStore alertDao, BufferedReader in) throws Exception {
         System.out.println("==== Search Alerts ====");
         System.out.print("Enter accountId (default acct123): ");
         String acc = in.readLine();
         if (acc == null || acc.trim().isEmpty()) acc = "acct123";
 
-        AlertDao alertDao = new AlertDao(ds);
         List<FraudAlert> alerts = alertDao.getAlertsByAccount(acc, 100);
 
         if (alerts.isEmpty()) {
@@ -304,18 +292,17 @@ public class MainDay5 {
     // ==========================
     // Option 6: Export Reports
     // ==========================
-    private static void exportReportsInteractive(DataSource ds, Properties props, BufferedReader in) throws Exception {
+    private static void exportReportsInteractive(AlertStore alertDao, Properties props, BufferedReader in) throws Exception {
         System.out.println("==== Export Alerts Report (Day 4) ====");
         System.out.print("Enter accountId to export (default acct123): ");
         String account = in.readLine();
         if (account == null || account.trim().isEmpty()) account = "acct123";
 
         String outputFile = props.getProperty("report.output", "alerts_report.csv");
-        exportReport(ds, account, outputFile);
+        exportReport(alertDao, account, outputFile);
     }
 
-    private static void exportReport(DataSource ds, String accountId, String outputFile) {
-        AlertDao alertDao = new AlertDao(ds);
+    private static void exportReport(AlertStore alertDao, String accountId, String outputFile) {
         ReportService report = new ReportService(alertDao);
         report.exportAlerts(accountId, outputFile);
     }
@@ -341,63 +328,56 @@ public class MainDay5 {
     // ==========================
     // Detection pipeline (used by console + non-interactive)
     // ==========================
-    private static void runDetection(ConfigLoader cfg, DataSource ds) throws Exception {
+    private static void runDetection(ConfigLoader cfg, DataSource ds, AlertStore alertDao) throws Exception {
         Properties p = cfg.getProperties();
-        TransactionDao txDao = new TransactionDao(ds);
-        AlertDao alertDao = new AlertDao(ds);
-
-        // ---- Build rules list from rules.json ----
-        Map<String, Integer> ruleWeights = cfg.getRuleWeights();
-        JsonNode root = cfg.getRulesNode();
-        JsonNode rulesNode = root.get("rules");
-
-        // 1) HighAmountRule
-        double highAmountThreshold =
-                Double.parseDouble(p.getProperty("high_amount_threshold", "50000"));
-        int highAmountWeight = ruleWeights.getOrDefault("HighAmountRule", 30);
-        List<Rule> rules = new ArrayList<>();
-        rules.add(new HighAmountRule(highAmountThreshold, highAmountWeight));
-
-        // 2) GeoLocationRule (riskyCountries from JSON)
-        Set<String> riskyCountries = new HashSet<>();
-        if (root.has("riskyCountries")) {
-            root.get("riskyCountries").forEach(n -> riskyCountries.add(n.asText()));
-        }
-        int geoWeight = ruleWeights.getOrDefault("GeoLocationRule", 25);
-        rules.add(new GeoLocationRule(riskyCountries, geoWeight));
-
-        // 3) NightTimeRule (nightStartHour, nightEndHour from JSON)
-        int nightStart = 0;
-        int nightEnd = 5;
-        int nightWeight = ruleWeights.getOrDefault("NightTimeRule", 20);
-        if (rulesNode != null && rulesNode.has("NightTimeRule")) {
-            JsonNode nNode = rulesNode.get("NightTimeRule");
-            if (nNode.has("nightStartHour")) {
-                nightStart = nNode.get("nightStartHour").asInt(0);
-            }
-            if (nNode.has("nightEndHour")) {
-                nightEnd = nNode.get("nightEndHour").asInt(5);
+        DetectionService svc = createDetectionService(cfg, ds, alertDao);
+
+        // ---- Load transactions from CSV & run detection ----
+        // records are scored as they are read; bad rows follow csv.error.policy (default skip)
+        CsvReader.OnError onError = CsvReader.OnError.of(p.getProperty("csv.error.policy", "skip"));
+        try (CsvReader.Cursor txns = CsvReader.openResource("/transactions.csv", onError,
+                Paths.get(p.getProperty("csv.quarantine.file", "quarantine.csv").trim()))) {
+            System.out.println("Running detection...");
+
+            // thread.pool.size > 1: accounts are spread over that many workers (per-account order kept);
+            // failing transactions, e.g. duplicate ids, are logged and skipped
+            int workers = Integer.parseInt(p.getProperty("thread.pool.size", "1").trim());
+            if (workers > 1) {
+                ParallelDetectionExecutor executor = new ParallelDetectionExecutor(svc, workers,
+                        ParallelDetectionExecutor.DEFAULT_QUEUE_CAPACITY, 0, a -> System.out.println("ALERT: " + a));
+                try {
+                    while (txns.hasNext()) executor.submit(txns.next());
+                } finally {
+                    executor.close();
+                }
+                System.out.println("Detection complete. Alerts created: " + executor.getAlerts()
+                        + " (skipped: " + executor.getFailures() + ")");
+                return;
             }
-        }
-        rules.add(new NightTimeRule(nightStart, nightEnd, nightWeight));
-
-        // 4) ChannelRiskRule (weightOnline from JSON)
-        int channelOnlineWeight = 15; // default
-        if (rulesNode != null && rulesNode.has("ChannelRiskRule")) {
-            JsonNode cNode = rulesNode.get("ChannelRiskRule");
-            if (cNode.has("weightOnline")) {
-                channelOnlineWeight = cNode.get("weightOnline").asInt(15);
+
+            int alerts = 0;
+            while (txns.hasNext()) {
+                // duplicate transaction ids are skipped by TransactionDao, not reported as errors
+                Optional<FraudAlert> maybe = svc.analyzeAndPersist(txns.next());
+                if (maybe.isPresent()) {
+                    alerts++;
+                    System.out.println("ALERT: " + maybe.get());
+                }
             }
+            System.out.println("Detection complete. Alerts created: " + alerts);
         }
-        rules.add(new ChannelRiskRule(channelOnlineWeight));
+    }
 
-        // 5) RiskyMerchantRule (riskyMerchants from JSON)
-        Set<String> riskyMerchants = new HashSet<>();
-        if (root.has("riskyMerchants")) {
-            root.get("riskyMerchants").forEach(n -> riskyMerchants.add(n.asText()));
-        }
-        int riskyMerchantWeight = ruleWeights.getOrDefault("RiskyMerchantRule", 25);
-        rules.add(new RiskyMerchantRule(riskyMerchants, riskyMerchantWeight));
+
+    private static DetectionService createDetectionService(ConfigLoader cfg, DataSource ds, AlertStore alertDao)
+            throws Exception {
+        Properties p = cfg.getProperties();
+        TransactionDao txDao = new TransactionDao(ds,
+                Boolean.parseBoolean(p.getProperty("persist.idempotent", "false").trim()),
+                Integer.parseInt(p.getProperty("persist.recent.ids", "100000").trim()));
+
+        // ---- Build rules list from rules.json (built-in rules + "when" expressions) ----
+        List<Rule> rules = RuleFactory.createRules(cfg);
 
         // ---- thresholds & velocity settings ----
         int medium = Integer.parseInt(p.getProperty("risk.score.medium", "30"));
@@ -405,39 +385,9 @@ public class MainDay5 {
         int velocitySeconds = Integer.parseInt(p.getProperty("velocity.window.seconds", "120"));
         int velocityLimit = Integer.parseInt(p.getProperty("velocity.limit", "3"));
 
-        DetectionService svc =
-                new DetectionService(txDao, alertDao, rules, medium, high,
-                        velocitySeconds, velocityLimit);
-
-        // ---- Load transactions from CSV & run detection ----
-        List<Transaction> txns = CsvReader.readFromResource("/transactions.csv");
-        System.out.println("Loaded " + txns.size() + " transactions. Running detection...");
-
-        int alerts = 0;
-        for (Transaction tx : txns) {
-            try {
-                Optional<FraudAlert> maybe = svc.analyzeAndPersist(tx);
-                if (maybe.isPresent()) {
-                    alerts++;
-                    System.out.println("ALERT: " + maybe.get());
-                }
-            } catch (DaoException e) {
-                // Gracefully ignore duplicate transaction IDs
-                Throwable cause = e.getCause();
-                if (cause instanceof SQLIntegrityConstraintViolationException) {
-                    String msg = cause.getMessage();
-                    if (msg != null && msg.contains("Duplicate entry")) {
-                        System.out.println("Skipping duplicate transactionId=" + tx.getTransactionId());
-                        continue;
-                    }
-                }
-                throw e;
-            }
-        }
-        System.out.println("Detection complete. Alerts created: " + alerts);
+        return new DetectionService(txDao, alertDao, rules, medium, high, velocitySeconds, velocityLimit);
     }
 
-
     // ==========================
     // DB test helper
     // ==========================
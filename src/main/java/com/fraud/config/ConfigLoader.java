@@ -3,32 +3,64 @@ package com.fraud.config;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.zip.CRC32;
 
 public class ConfigLoader {
-    private static final String PROPS = "/application.properties";
-    private static final String RULES = "/rules.json";
+    static final String PROPS_FILE = "application.properties";
+    static final String RULES_FILE = "rules.json";
+    private static final String PROPS = "/" + PROPS_FILE;
+    private static final String RULES = "/" + RULES_FILE;
 
     private final Properties properties = new Properties();
     private final JsonNode rulesNode;
+    private final Path configDir;
+    private final String version;
 
+    /** Load application.properties and rules.json from the classpath. */
     public ConfigLoader() throws IOException {
+        this(null);
+    }
+
+    /**
+     * Load application.properties and rules.json from {@code configDir}; a file missing there is
+     * read from the classpath instead. A null directory means classpath only.
+     */
+    public ConfigLoader(Path configDir) throws IOException {
+        this.configDir = configDir;
+        byte[] props = read(configDir, PROPS_FILE, PROPS);
+        byte[] rules = read(configDir, RULES_FILE, RULES);
+
         // load properties
-        try (InputStream is = getClass().getResourceAsStream(PROPS)) {
-            if (is == null) throw new IOException("application.properties not found in resources");
+        try (InputStream is = new ByteArrayInputStream(props)) {
             properties.load(is);
         }
 
         // load rules.json
         ObjectMapper mapper = new ObjectMapper();
-        try (InputStream is = getClass().getResourceAsStream(RULES)) {
-            if (is == null) throw new IOException("rules.json not found in resources");
-            rulesNode = mapper.readTree(is);
+        rulesNode = mapper.readTree(rules);
+
+        CRC32 crc = new CRC32();
+        crc.update(props);
+        crc.update(rules);
+        version = String.format("%08x", crc.getValue());
+    }
+
+    private byte[] read(Path dir, String fileName, String resource) throws IOException {
+        if (dir != null && Files.isRegularFile(dir.resolve(fileName))) {
+            return Files.readAllBytes(dir.resolve(fileName));
+        }
+        try (InputStream is = getClass().getResourceAsStream(resource)) {
+            if (is == null) throw new IOException(fileName + " not found in " + (dir == null ? "resources" : dir + " or resources"));
+            return is.readAllBytes();
         }
     }
 
@@ -40,6 +72,19 @@ public class ConfigLoader {
         return rulesNode;
     }
 
+    /** Directory the files were read from, or null when loaded from the classpath. */
+    public Path getConfigDir() {
+        return configDir;
+    }
+
+    /**
+     * Checksum of the loaded application.properties and rules.json (8 hex digits). Identical
+     * files give the same version, so it identifies a configuration across restarts.
+     */
+    public String getVersion() {
+        return version;
+    }
+
     /**
      * Convenience method to extract rule weights from rules.json into a Map.
      * Expected structure in rules.json:
@@ -65,4 +110,4 @@ public class ConfigLoader {
         }
         return map;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.fraud.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches application.properties and rules.json in a config directory and hands each new
+ * version to a listener on its own daemon thread, so scoring threads never parse or build.
+ * <p>
+ * The listener validates and applies the config; throwing rejects it and the previous version
+ * stays in effect. Saving a file without changing its content does not trigger a reload.
+ */
+public class ConfigWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    /** Quiet period after a change before reloading, so editors can finish writing. */
+    private static final long SETTLE_MILLIS = 250;
+
+    private final Path configDir;
+    private final Consumer<ConfigLoader> listener;
+    private volatile String appliedVersion;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param current  config already in effect (its version is not reloaded)
+     * @param listener applies a new config; throw to reject it
+     */
+    public ConfigWatcher(ConfigLoader current, Consumer<ConfigLoader> listener) {
+        this.configDir = Objects.requireNonNull(current.getConfigDir(), "config must be loaded from a directory");
+        this.listener = Objects.requireNonNull(listener, "listener required");
+        this.appliedVersion = current.getVersion();
+    }
+
+    public synchronized void start() throws IOException {
+        if (thread != null) return;
+        watchService = FileSystems.getDefault().newWatchService();
+        configDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::watch, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for config changes (version {})", configDir, appliedVersion);
+    }
+
+    /**
+     * Reload now if the files changed since the last applied version.
+     *
+     * @return true if a new version was applied
+     */
+    public synchronized boolean reload() {
+        ConfigLoader next;
+        try {
+            next = new ConfigLoader(configDir);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read config from {}; keeping version {}", configDir, appliedVersion, e);
+            return false;
+        }
+        if (next.getVersion().equals(appliedVersion)) return false;
+        try {
+            listener.accept(next);
+        } catch (RuntimeException e) {
+            log.warn("Rejected config version {}; keeping version {}: {}",
+                    next.getVersion(), appliedVersion, e.getMessage());
+            return false;
+        }
+        log.info("Applied config version {} (was {})", next.getVersion(), appliedVersion);
+        appliedVersion = next.getVersion();
+        return true;
+    }
+
+    /** Version of the config currently in effect. */
+    public String getAppliedVersion() {
+        return appliedVersion;
+    }
+
+    private void watch() {
+        WatchService ws = watchService;
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                boolean relevant = drain(key);
+                // coalesce the burst of events a single save produces
+                WatchKey more;
+                while ((more = ws.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= drain(more);
+                }
+                if (relevant) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private static boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object ctx = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else if (ctx != null) {
+                String name = ctx.toString();
+                relevant |= ConfigLoader.PROPS_FILE.equals(name) || ConfigLoader.RULES_FILE.equals(name);
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (thread == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug("Error closing config watch service", e);
+        }
+        thread.interrupt();
+        thread = null;
+    }
+}
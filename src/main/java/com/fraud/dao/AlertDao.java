@@ -1,24 +1,68 @@
 package com.fraud.dao;
 
+import com.fraud.model.AlertSummary;
 import com.fraud.model.FraudAlert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class AlertDao {
+public class AlertDao implements AlertStore {
     private static final Logger LOGGER = LoggerFactory.getLogger(AlertDao.class);
 
     private final DataSource ds;
+    // rule name <-> bit of rule_mask; loaded on first use, reloaded when a name or bit is not in it
+    private volatile RuleCodes codes;
 
     private static final String INSERT_ALERT =
-            "INSERT INTO fraud_alerts(transaction_id, account_id, score, risk_level, reason) VALUES (?, ?, ?, ?, ?)";
+            "INSERT INTO fraud_alerts(transaction_id, account_id, score, risk_level, reason, config_version, rule_mask) VALUES (?, ?, ?, ?, ?, ?, ?)";
 
     private static final String SELECT_BY_ACCOUNT =
-            "SELECT id, transaction_id, account_id, score, risk_level, reason, created_at FROM fraud_alerts WHERE account_id = ? ORDER BY created_at DESC LIMIT ?";
+            "SELECT id, transaction_id, account_id, score, risk_level, reason, created_at, config_version, rule_mask FROM fraud_alerts WHERE account_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    // keyset pages, newest first: (created_at, id) is unique and served by idx_alert_account_created
+    // (InnoDB appends the primary key), so each page starts with an index seek, not an OFFSET scan
+    private static final String SELECT_PAGE_FIRST =
+            "SELECT id, transaction_id, account_id, score, risk_level, reason, created_at, config_version, rule_mask FROM fraud_alerts " +
+                    "WHERE account_id = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String SELECT_PAGE_AFTER =
+            "SELECT id, transaction_id, account_id, score, risk_level, reason, created_at, config_version, rule_mask FROM fraud_alerts " +
+                    "WHERE account_id = ? AND (created_at < ? OR (created_at = ? AND id < ?)) " +
+                    "ORDER BY created_at DESC, id DESC LIMIT ?";
+
+    private static final String SELECT_RULE_CODES = "SELECT code, rule_name FROM rule_codes";
+    // next free code, unless all 64 bits are taken; a code or name taken meanwhile is ignored and retried
+    private static final String INSERT_RULE_CODE =
+            "INSERT IGNORE INTO rule_codes (code, rule_name) SELECT COALESCE(MAX(code) + 1, 0), ? FROM rule_codes " +
+                    "HAVING COALESCE(MAX(code) + 1, 0) < " + Long.SIZE;
+
+    // one row per (month, risk) and one per (month, risk, rule), counted by the database over the
+    // account's idx_alert_account_created range; no alert row is sent to the client
+    private static final String SUMMARY_BY_RISK =
+            "SELECT DATE_FORMAT(created_at, '%Y-%m') AS month, risk_level, COUNT(*) AS alerts, MAX(created_at) AS latest " +
+                    "FROM fraud_alerts WHERE account_id = ? GROUP BY month, risk_level";
+    private static final String SUMMARY_BY_RULE =
+            "SELECT DATE_FORMAT(a.created_at, '%Y-%m') AS month, a.risk_level, r.rule_name, COUNT(*) AS alerts " +
+                    "FROM fraud_alerts a JOIN rule_codes r ON a.rule_mask & (1 << r.code) <> 0 " +
+                    "WHERE a.account_id = ? AND a.rule_mask <> 0 GROUP BY month, a.risk_level, r.rule_name";
+
+    /** Rows per query in {@link #forEachAlert}. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    // rows sent per executeBatch; the driver rewrites each chunk into one multi-row INSERT
+    static final int MAX_BATCH = 1000;
 
     public AlertDao(DataSource ds) {
         this.ds = ds;
@@ -29,6 +73,7 @@ public class AlertDao {
      *
      * @param a alert to save
      */
+    @Override
     public void saveAlert(FraudAlert a) {
         if (a == null) {
             LOGGER.warn("saveAlert called with null alert - ignoring.");
@@ -41,12 +86,7 @@ public class AlertDao {
         try (Connection c = ds.getConnection();
              PreparedStatement ps = c.prepareStatement(INSERT_ALERT, Statement.RETURN_GENERATED_KEYS)) {
 
-            ps.setString(1, a.getTransactionId());
-            ps.setString(2, a.getAccountId());
-            ps.setInt(3, a.getScore());
-            ps.setString(4, a.getRiskLevel());
-            ps.setString(5, a.getReason());
-
+            bind(ps, a, codesFor(c, Collections.singletonList(a)));
             int updated = ps.executeUpdate();
             if (updated == 0) {
                 LOGGER.warn("No rows inserted for alert tx={}", a.getTransactionId());
@@ -69,6 +109,173 @@ public class AlertDao {
         }
     }
 
+    /**
+     * Persist many alerts over one connection and statement, with JDBC batches of up to
+     * {@value #MAX_BATCH} rows, and assign the generated ids from one key result set per batch.
+     * If a batch fails, the rows the driver did not report as inserted are retried one at a time,
+     * so one bad row does not fail the rest; a row that hits an integrity constraint (SQLState
+     * class 23) is skipped with a warning.
+     *
+     * @return the alerts that could not be saved for other reasons; empty if all went in
+     * @throws DaoException if no connection could be obtained
+     */
+    @Override
+    public List<FraudAlert> saveAll(Collection<FraudAlert> alerts) {
+        List<FraudAlert> failed = new ArrayList<>();
+        if (alerts == null || alerts.isEmpty()) return failed;
+
+        List<FraudAlert> chunk = new ArrayList<>(Math.min(alerts.size(), MAX_BATCH));
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(INSERT_ALERT, Statement.RETURN_GENERATED_KEYS)) {
+            RuleCodes rc = codesFor(c, alerts);
+            for (FraudAlert a : alerts) {
+                if (a == null) continue;
+                chunk.add(a);
+                if (chunk.size() == MAX_BATCH) {
+                    executeChunk(ps, chunk, rc, failed);
+                    chunk.clear();
+                }
+            }
+            executeChunk(ps, chunk, rc, failed);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to open a batch for {} alert(s) (SQLState={}, errorCode={})",
+                    alerts.size(), e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to save " + alerts.size() + " alerts", e);
+        }
+        LOGGER.debug("Saved {} of {} alert(s) in batches", alerts.size() - failed.size(), alerts.size());
+        return failed;
+    }
+
+    private void executeChunk(PreparedStatement ps, List<FraudAlert> chunk, RuleCodes rc, List<FraudAlert> failed) {
+        if (chunk.isEmpty()) return;
+        int[] counts;
+        try {
+            for (FraudAlert a : chunk) {
+                bind(ps, a, rc);
+                ps.addBatch();
+            }
+            counts = ps.executeBatch();
+        } catch (BatchUpdateException e) {
+            LOGGER.debug("Batch of {} alert(s) failed (SQLState={}); retrying row by row", chunk.size(), e.getSQLState());
+            retryRows(ps, chunk, rc, e.getUpdateCounts(), failed);
+            return;
+        } catch (SQLException e) {
+            LOGGER.debug("Batch of {} alert(s) failed (SQLState={}); retrying row by row", chunk.size(), e.getSQLState());
+            retryRows(ps, chunk, rc, new int[0], failed);
+            return;
+        }
+        // one key per inserted row, in batch order
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i < counts.length && counts[i] == 0) continue;
+                if (!rs.next()) {
+                    LOGGER.debug("Batch returned fewer generated keys than rows; {} alert(s) left without id",
+                            chunk.size() - i);
+                    break;
+                }
+                chunk.get(i).setId(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            // the rows are in; only their ids are unknown
+            LOGGER.warn("Could not read generated alert ids for a batch of {} (SQLState={})",
+                    chunk.size(), e.getSQLState());
+        }
+    }
+
+    // rows the driver reports as done are kept (their ids unknown); the rest go one at a time
+    private void retryRows(PreparedStatement ps, List<FraudAlert> chunk, RuleCodes rc, int[] counts,
+                           List<FraudAlert> failed) {
+        try {
+            ps.clearBatch();
+        } catch (SQLException ignored) {
+            // the statement is still usable for single executions
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i < counts.length && counts[i] != Statement.EXECUTE_FAILED) continue;
+            FraudAlert a = chunk.get(i);
+            try {
+                bind(ps, a, rc);
+                if (ps.executeUpdate() > 0) {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) a.setId(rs.getLong(1));
+                    }
+                }
+            } catch (SQLException e) {
+                String sqlState = e.getSQLState();
+                if (sqlState != null && sqlState.startsWith("23")) {
+                    LOGGER.warn("Alert for tx={} violates a constraint (SQLState={}) - skipping.",
+                            a.getTransactionId(), sqlState);
+                    continue;
+                }
+                LOGGER.error("Failed to save alert for tx={} (SQLState={}, errorCode={})",
+                        a.getTransactionId(), sqlState, e.getErrorCode(), e);
+                failed.add(a);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, FraudAlert a, RuleCodes rc) throws SQLException {
+        ps.setString(1, a.getTransactionId());
+        ps.setString(2, a.getAccountId());
+        ps.setInt(3, a.getScore());
+        ps.setString(4, a.getRiskLevel());
+        ps.setString(5, a.getReason());
+        ps.setString(6, a.getConfigVersion());
+        ps.setLong(7, rc == null ? 0L : rc.mask(a.getRules()));
+    }
+
+    // codes for the rules of these alerts; a name seen for the first time is given the next free code
+    private RuleCodes codesFor(Connection c, Collection<FraudAlert> alerts) throws SQLException {
+        RuleCodes known = codes;
+        Set<String> missing = new LinkedHashSet<>();
+        for (FraudAlert a : alerts) {
+            if (a == null || a.getRules() == null) continue;
+            for (String rule : a.getRules()) {
+                if (known == null || !known.knows(rule)) missing.add(rule);
+            }
+        }
+        if (missing.isEmpty()) return known;
+
+        synchronized (this) {
+            known = loadCodes(c, known);
+            for (String rule : missing) {
+                for (int attempt = 0; !known.knows(rule) && attempt < 3; attempt++) {
+                    try (PreparedStatement ps = c.prepareStatement(INSERT_RULE_CODE)) {
+                        ps.setString(1, rule);
+                        ps.executeUpdate();
+                    }
+                    known = loadCodes(c, known);
+                }
+                if (!known.knows(rule)) {
+                    LOGGER.warn("No rule code left for rule {}; its alerts are saved without it in rule_mask", rule);
+                    known.unassigned.add(rule);
+                }
+            }
+            codes = known;
+            return known;
+        }
+    }
+
+    private static RuleCodes loadCodes(Connection c, RuleCodes previous) throws SQLException {
+        RuleCodes loaded = new RuleCodes(previous == null ? Collections.emptySet() : previous.unassigned);
+        try (PreparedStatement ps = c.prepareStatement(SELECT_RULE_CODES);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) loaded.put(rs.getInt(1), rs.getString(2));
+        }
+        return loaded;
+    }
+
+    // rule names of a stored mask, reading rule_codes again when it has a code not seen yet
+    private List<String> ruleNames(Connection c, long mask) throws SQLException {
+        if (mask == 0L) return new ArrayList<>(0);
+        RuleCodes known = codes;
+        if (known == null || !known.covers(mask)) {
+            known = loadCodes(c, known);
+            codes = known;
+        }
+        return known.names(mask);
+    }
+
     /**
      * Return most recent alerts for the given account (ordered by created_at desc).
      *
@@ -76,6 +283,7 @@ public class AlertDao {
      * @param limit max rows
      * @return list of FraudAlert
      */
+    @Override
     public List<FraudAlert> getAlertsByAccount(String accountId, int limit) {
         if (accountId == null || accountId.trim().isEmpty()) {
             LOGGER.debug("getAlertsByAccount called with empty accountId -> returning empty list.");
@@ -93,18 +301,7 @@ public class AlertDao {
             ps.setInt(2, limit);
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    FraudAlert a = new FraudAlert();
-                    a.setId(rs.getLong("id"));
-                    a.setTransactionId(rs.getString("transaction_id"));
-                    a.setAccountId(rs.getString("account_id"));
-                    a.setScore(rs.getInt("score"));
-                    a.setRiskLevel(rs.getString("risk_level"));
-                    a.setReason(rs.getString("reason"));
-                    Timestamp ts = rs.getTimestamp("created_at");
-                    if (ts != null) a.setCreatedAt(ts.toLocalDateTime());
-                    list.add(a);
-                }
+                while (rs.next()) list.add(mapRow(c, rs));
             }
 
             LOGGER.debug("Fetched {} alert(s) for account={}", list.size(), accountId);
@@ -116,4 +313,165 @@ public class AlertDao {
             throw new DaoException("Failed to query alerts for " + accountId, e);
         }
     }
+
+    /**
+     * One page of an account's alerts, newest first, continuing after {@code after} (the last
+     * alert of the previous page, or null for the first page). Uses a keyset on
+     * (created_at, id), so a page costs the same however deep into the history it is.
+     */
+    @Override
+    public List<FraudAlert> getAlertsPage(String accountId, FraudAlert after, int pageSize) {
+        if (accountId == null || accountId.trim().isEmpty()) return new ArrayList<>();
+        if (pageSize <= 0) pageSize = DEFAULT_PAGE_SIZE;
+
+        List<FraudAlert> page = new ArrayList<>(Math.min(pageSize, DEFAULT_PAGE_SIZE));
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(after == null ? SELECT_PAGE_FIRST : SELECT_PAGE_AFTER)) {
+            int i = 1;
+            ps.setString(i++, accountId);
+            if (after != null) {
+                Timestamp ts = Timestamp.valueOf(after.getCreatedAt());
+                ps.setTimestamp(i++, ts);
+                ps.setTimestamp(i++, ts);
+                ps.setLong(i++, after.getId());
+            }
+            ps.setInt(i, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) page.add(mapRow(c, rs));
+            }
+            return page;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to query alerts for account={} (SQLState={}, errorCode={})",
+                    accountId, e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to query alerts for " + accountId, e);
+        }
+    }
+
+    /**
+     * Feed an account's alerts, newest first, to {@code action} one page at a time. At most one
+     * page is held in memory and no connection is held while {@code action} runs, so this suits
+     * exports of any size.
+     *
+     * @param limit max alerts; 0 or less for all
+     * @return alerts passed to {@code action}
+     */
+    @Override
+    public long forEachAlert(String accountId, long limit, int pageSize, Consumer<? super FraudAlert> action) {
+        if (pageSize <= 0) pageSize = DEFAULT_PAGE_SIZE;
+        long count = 0;
+        FraudAlert last = null;
+        while (limit <= 0 || count < limit) {
+            int size = limit <= 0 ? pageSize : (int) Math.min(pageSize, limit - count);
+            List<FraudAlert> page = getAlertsPage(accountId, last, size);
+            for (FraudAlert a : page) action.accept(a);
+            count += page.size();
+            if (page.size() < size) break;
+            last = page.get(page.size() - 1);
+        }
+        LOGGER.debug("Streamed {} alert(s) for account={}", count, accountId);
+        return count;
+    }
+
+    /**
+     * All of an account's alerts counted by month and risk level, and by the rules they matched,
+     * with GROUP BY in the database: two small result sets whatever the number of alerts.
+     * Rule counts come from {@code rule_mask}, so alerts that predate it and whose reason could
+     * not be mapped to a rule count only towards the totals.
+     */
+    @Override
+    public AlertSummary getMonthlySummary(String accountId) {
+        AlertSummary summary = new AlertSummary(accountId);
+        if (accountId == null || accountId.trim().isEmpty()) return summary;
+
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(SUMMARY_BY_RISK)) {
+                ps.setString(1, accountId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp latest = rs.getTimestamp("latest");
+                        summary.addAlerts(YearMonth.parse(rs.getString("month")), rs.getString("risk_level"),
+                                rs.getLong("alerts"), latest == null ? null : latest.toLocalDateTime());
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement(SUMMARY_BY_RULE)) {
+                ps.setString(1, accountId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        summary.addRuleMatches(YearMonth.parse(rs.getString("month")), rs.getString("risk_level"),
+                                rs.getString("rule_name"), rs.getLong("alerts"));
+                    }
+                }
+            }
+            LOGGER.debug("Summarized {} alert(s) for account={}", summary.getTotal(), accountId);
+            return summary;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to summarize alerts for account={} (SQLState={}, errorCode={})",
+                    accountId, e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to summarize alerts for " + accountId, e);
+        }
+    }
+
+    private FraudAlert mapRow(Connection c, ResultSet rs) throws SQLException {
+        FraudAlert a = new FraudAlert();
+        a.setId(rs.getLong("id"));
+        a.setTransactionId(rs.getString("transaction_id"));
+        a.setAccountId(rs.getString("account_id"));
+        a.setScore(rs.getInt("score"));
+        a.setRiskLevel(rs.getString("risk_level"));
+        a.setReason(rs.getString("reason"));
+        a.setConfigVersion(rs.getString("config_version"));
+        a.setRules(ruleNames(c, rs.getLong("rule_mask")));
+        Timestamp ts = rs.getTimestamp("created_at");
+        if (ts != null) a.setCreatedAt(ts.toLocalDateTime());
+        return a;
+    }
+
+    /** Rule names by code (bit position in rule_mask), as read from rule_codes. */
+    private static final class RuleCodes {
+        final Map<String, Integer> byName = new HashMap<>();
+        final String[] byCode = new String[Long.SIZE];
+        // names that got no code because all were taken; not looked up again
+        final Set<String> unassigned;
+
+        RuleCodes(Set<String> unassigned) {
+            this.unassigned = Collections.synchronizedSet(new HashSet<>(unassigned));
+        }
+
+        void put(int code, String name) {
+            if (code < 0 || code >= byCode.length) return;
+            byCode[code] = name;
+            byName.put(name, code);
+        }
+
+        boolean knows(String name) {
+            return byName.containsKey(name) || unassigned.contains(name);
+        }
+
+        boolean covers(long mask) {
+            for (long m = mask; m != 0; m &= m - 1) {
+                if (byCode[Long.numberOfTrailingZeros(m)] == null) return false;
+            }
+            return true;
+        }
+
+        long mask(List<String> rules) {
+            if (rules == null) return 0L;
+            long mask = 0L;
+            for (String rule : rules) {
+                Integer code = byName.get(rule);
+                if (code != null) mask |= 1L << code;
+            }
+            return mask;
+        }
+
+        List<String> names(long mask) {
+            List<String> out = new ArrayList<>(Long.bitCount(mask));
+            for (long m = mask; m != 0; m &= m - 1) {
+                String name = byCode[Long.numberOfTrailingZeros(m)];
+                if (name != null) out.add(name);
+            }
+            return out;
+        }
+    }
 }
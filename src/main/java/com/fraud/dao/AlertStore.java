@@ -0,0 +1,45 @@
+package com.fraud.dao;
+
+import com.fraud.model.AlertSummary;
+import com.fraud.model.FraudAlert;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where alerts are saved and read back: the database ({@link AlertDao}) or a cache in front of
+ * another store ({@link CachingAlertDao}).
+ */
+public interface AlertStore {
+
+    /** Save one alert and set its generated id. */
+    void saveAlert(FraudAlert a);
+
+    /**
+     * Save many alerts, setting their generated ids.
+     *
+     * @return the alerts that could not be saved; empty if all went in
+     */
+    List<FraudAlert> saveAll(Collection<FraudAlert> alerts);
+
+    /** The newest {@code limit} alerts of an account, newest first. */
+    List<FraudAlert> getAlertsByAccount(String accountId, int limit);
+
+    /**
+     * One page of an account's alerts, newest first, continuing after {@code after} (the last
+     * alert of the previous page, or null for the first page).
+     */
+    List<FraudAlert> getAlertsPage(String accountId, FraudAlert after, int pageSize);
+
+    /**
+     * Feed an account's alerts, newest first, to {@code action} one page at a time.
+     *
+     * @param limit max alerts; 0 or less for all
+     * @return alerts passed to {@code action}
+     */
+    long forEachAlert(String accountId, long limit, int pageSize, Consumer<? super FraudAlert> action);
+
+    /** All of an account's alerts counted by month, risk level and rule. */
+    AlertSummary getMonthlySummary(String accountId);
+}
@@ -0,0 +1,193 @@
+package com.fraud.dao;
+
+import com.fraud.model.AlertSummary;
+import com.fraud.model.FraudAlert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of each account's newest alerts in front of another {@link AlertStore}, for
+ * consoles that look up the same accounts over and over.
+ * <p>
+ * An entry holds the newest N alerts of one account, as loaded by the largest
+ * {@link #getAlertsByAccount} limit asked so far (up to {@code maxAlertsPerAccount}), and answers
+ * any smaller limit from memory. At most {@code maxAccounts} entries are kept, the least recently
+ * used going first, and an entry is reloaded once {@code ttl} has passed since it was loaded, so
+ * alerts written by other processes show up within the TTL. Saving alerts through this instance
+ * drops their accounts' entries, so the next read loads them with the ids and creation times the
+ * database gave them. Larger reads, keyset pages and summaries go straight to the underlying store.
+ */
+public class CachingAlertDao implements AlertStore {
+    private final AlertStore delegate;
+    private final int maxAlertsPerAccount;
+    private final long ttlNanos;
+    private final Map<String, CachedAlerts> entries;
+    // bumped by every write, so a load that raced one is not cached without it
+    private long writes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxAccounts         accounts kept; the least recently used is evicted beyond that
+     * @param maxAlertsPerAccount largest limit served from the cache
+     * @param ttlMillis           time after loading that an entry is read again from the database
+     */
+    public CachingAlertDao(AlertStore delegate, int maxAccounts, int maxAlertsPerAccount, long ttlMillis) {
+        if (delegate == null) throw new IllegalArgumentException("delegate required");
+        if (maxAccounts <= 0) throw new IllegalArgumentException("maxAccounts must be > 0");
+        if (maxAlertsPerAccount <= 0) throw new IllegalArgumentException("maxAlertsPerAccount must be > 0");
+        if (ttlMillis <= 0) throw new IllegalArgumentException("ttlMillis must be > 0");
+        this.delegate = delegate;
+        this.maxAlertsPerAccount = maxAlertsPerAccount;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<String, CachedAlerts>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAlerts> eldest) {
+                if (size() <= maxAccounts) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public List<FraudAlert> getAlertsByAccount(String accountId, int limit) {
+        if (accountId == null || accountId.trim().isEmpty()) return new ArrayList<>();
+        if (limit <= 0) limit = 50;
+        if (limit > maxAlertsPerAccount) {
+            misses.increment();
+            return delegate.getAlertsByAccount(accountId, limit);
+        }
+
+        long generation;
+        synchronized (this) {
+            CachedAlerts e = entries.get(accountId);
+            if (e != null && System.nanoTime() - e.loadedAt < ttlNanos && e.covers(limit)) {
+                hits.increment();
+                return new ArrayList<>(e.alerts.subList(0, Math.min(limit, e.alerts.size())));
+            }
+            generation = writes;
+        }
+        misses.increment();
+
+        List<FraudAlert> loaded = delegate.getAlertsByAccount(accountId, limit);
+        synchronized (this) {
+            if (writes == generation) {
+                entries.put(accountId, new CachedAlerts(new ArrayList<>(loaded), limit, loaded.size() < limit));
+            }
+        }
+        return loaded;
+    }
+
+    /** Served from the cache when {@code limit} is within {@code maxAlertsPerAccount}; otherwise streamed. */
+    @Override
+    public long forEachAlert(String accountId, long limit, int pageSize, Consumer<? super FraudAlert> action) {
+        if (limit <= 0 || limit > maxAlertsPerAccount) {
+            return delegate.forEachAlert(accountId, limit, pageSize, action);
+        }
+        List<FraudAlert> alerts = getAlertsByAccount(accountId, (int) limit);
+        alerts.forEach(action);
+        return alerts.size();
+    }
+
+    @Override
+    public List<FraudAlert> getAlertsPage(String accountId, FraudAlert after, int pageSize) {
+        return delegate.getAlertsPage(accountId, after, pageSize);
+    }
+
+    @Override
+    public AlertSummary getMonthlySummary(String accountId) {
+        return delegate.getMonthlySummary(accountId);
+    }
+
+    @Override
+    public void saveAlert(FraudAlert a) {
+        try {
+            delegate.saveAlert(a);
+        } finally {
+            if (a != null) written(Collections.singletonList(a));
+        }
+    }
+
+    @Override
+    public List<FraudAlert> saveAll(Collection<FraudAlert> alerts) {
+        try {
+            return delegate.saveAll(alerts);
+        } finally {
+            // also when some or all failed: rows may have gone in before the failure
+            if (alerts != null) written(alerts);
+        }
+    }
+
+    // drop the accounts written to; a load that raced the write is not cached (see writes)
+    private synchronized void written(Collection<FraudAlert> alerts) {
+        writes++;
+        for (FraudAlert a : alerts) {
+            if (a != null) entries.remove(a.getAccountId());
+        }
+    }
+
+    /** Drop one account's cached alerts, e.g. after changing them outside this DAO. */
+    public synchronized void invalidate(String accountId) {
+        writes++;
+        entries.remove(accountId);
+    }
+
+    public synchronized void invalidateAll() {
+        writes++;
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Accounts dropped to stay within the size bound (expired entries are replaced, not counted). */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** e.g. {@code alert cache: 12 accounts, hits 340, misses 25 (93.2% hit rate), evictions 0}. */
+    public String stats() {
+        long h = getHitCount();
+        long m = getMissCount();
+        return String.format("alert cache: %d accounts, hits %d, misses %d (%.1f%% hit rate), evictions %d",
+                size(), h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m), getEvictionCount());
+    }
+
+    /** The newest alerts of one account: exactly the newest {@code limit}, or all of them if {@code complete}. */
+    private static final class CachedAlerts {
+        final List<FraudAlert> alerts;
+        final long loadedAt = System.nanoTime();
+        final int limit;
+        final boolean complete;
+
+        CachedAlerts(List<FraudAlert> alerts, int limit, boolean complete) {
+            this.alerts = alerts;
+            this.limit = limit;
+            this.complete = complete;
+        }
+
+        boolean covers(int requested) {
+            return complete || requested <= limit;
+        }
+    }
+}
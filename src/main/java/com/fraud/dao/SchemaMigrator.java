@@ -0,0 +1,213 @@
+package com.fraud.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date on startup. Migrations are the SQL scripts
+ * {@code db/migration/V<version>__<description>.sql} on the classpath, listed in {@link #SCRIPTS};
+ * each is applied once, in version order, and recorded in {@code schema_version} with a checksum
+ * so that a script edited after it ran is reported instead of silently ignored. A script is never
+ * changed once released: schema changes go into a new version.
+ * <p>
+ * MySQL commits DDL as it goes, so a script that fails halfway is not rolled back; it stays
+ * unrecorded and the error names it, to be fixed by hand before the next start. A named lock
+ * keeps two instances starting together from migrating at the same time.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    /** Migration scripts in version order; append, never edit or reorder. */
+    static final List<String> SCRIPTS = Arrays.asList(
+            "V1__baseline.sql",
+            "V2__account_time_indexes.sql",
+            "V3__alert_rule_codes.sql",
+            "V4__alert_config_version.sql");
+
+    private static final String LOCATION = "/db/migration/";
+    private static final String LOCK_NAME = "fraud_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String CREATE_VERSION_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum BIGINT NOT NULL, " +
+                    "installed_on DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "execution_ms BIGINT NOT NULL)";
+    private static final String SELECT_APPLIED = "SELECT version, checksum FROM schema_version";
+    private static final String INSERT_APPLIED =
+            "INSERT INTO schema_version(version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+
+    private final DataSource ds;
+
+    public SchemaMigrator(DataSource ds) {
+        this.ds = ds;
+    }
+
+    /** Apply every pending migration. @return the number applied */
+    public int migrate() {
+        return migrate(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Apply pending migrations up to and including {@code targetVersion}.
+     *
+     * @return the number applied
+     * @throws DaoException if a script fails, or an applied script no longer matches its checksum
+     */
+    public int migrate(int targetVersion) {
+        try (Connection c = ds.getConnection()) {
+            lock(c);
+            try {
+                return migrate(c, targetVersion);
+            } finally {
+                unlock(c);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Schema migration failed (SQLState={}, errorCode={})", e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Schema migration failed", e);
+        }
+    }
+
+    private int migrate(Connection c, int targetVersion) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(CREATE_VERSION_TABLE);
+        }
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(SELECT_APPLIED);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getLong(2));
+        }
+
+        int count = 0;
+        for (String script : SCRIPTS) {
+            int version = version(script);
+            if (version > targetVersion) break;
+            String sql = load(script);
+            long checksum = checksum(sql);
+            Long recorded = applied.get(version);
+            if (recorded != null) {
+                if (recorded != checksum) {
+                    throw new DaoException("Migration " + script + " was changed after it was applied"
+                            + " (checksum " + recorded + ", now " + checksum + ")");
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            try (Statement st = c.createStatement()) {
+                for (String statement : splitStatements(sql)) st.execute(statement);
+            } catch (SQLException e) {
+                throw new DaoException("Migration " + script + " failed and may be partly applied; "
+                        + "fix the schema by hand before restarting", e);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            try (PreparedStatement ps = c.prepareStatement(INSERT_APPLIED)) {
+                ps.setInt(1, version);
+                ps.setString(2, description(script));
+                ps.setLong(3, checksum);
+                ps.setLong(4, millis);
+                ps.executeUpdate();
+            }
+            LOGGER.info("Applied schema migration {} in {} ms", script, millis);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Split a script into statements at semicolons that end a statement, skipping {@code --}
+     * comment lines and semicolons inside quoted strings.
+     */
+    public static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        for (String line : script.split("\r?\n")) {
+            if (quote == 0 && line.trim().startsWith("--")) continue;
+            for (int i = 0; i < line.length(); i++) {
+                char ch = line.charAt(i);
+                if (quote != 0) {
+                    if (ch == quote) quote = 0;
+                } else if (ch == '\'' || ch == '"' || ch == '`') {
+                    quote = ch;
+                } else if (ch == ';') {
+                    add(statements, current);
+                    continue;
+                }
+                current.append(ch);
+            }
+            current.append('\n');
+        }
+        add(statements, current);
+        return statements;
+    }
+
+    private static void add(List<String> statements, StringBuilder current) {
+        String s = current.toString().trim();
+        if (!s.isEmpty()) statements.add(s);
+        current.setLength(0);
+    }
+
+    private static void lock(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new DaoException("Another instance held the schema migration lock for "
+                            + LOCK_TIMEOUT_SECONDS + " s");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection c) {
+        try (PreparedStatement ps = c.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            // the lock goes with the connection anyway
+            LOGGER.debug("Failed to release the schema migration lock", e);
+        }
+    }
+
+    private static int version(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String description(String script) {
+        return script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    private static String load(String script) {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(LOCATION + script)) {
+            if (in == null) throw new DaoException("Migration script not found on classpath: " + LOCATION + script);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DaoException("Failed to read migration script " + script, e);
+        }
+    }
+
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -1,6 +1,7 @@
 package com.fraud.dao;
 
 import com.fraud.model.Transaction;
+import com.fraud.util.RecentIdFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,7 +9,14 @@ import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 public class TransactionDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionDao.class);
@@ -28,8 +36,131 @@ public class TransactionDao {
             "SELECT transaction_id, account_id, amount, currency, txn_timestamp, merchant, location, channel " +
                     "FROM transactions WHERE account_id = ? AND txn_timestamp >= ? ORDER BY txn_timestamp DESC";
 
+    // keyset pages, newest first: (txn_timestamp, transaction_id) is unique (the id is the key), and
+    // idx_txn_account_time (account_id, txn_timestamp + key) serves the seek and the order
+    private static final String SELECT_PAGE_FIRST =
+            "SELECT transaction_id, account_id, amount, currency, txn_timestamp, merchant, location, channel " +
+                    "FROM transactions WHERE account_id = ? AND txn_timestamp >= ? " +
+                    "ORDER BY txn_timestamp DESC, transaction_id DESC LIMIT ?";
+    private static final String SELECT_PAGE_AFTER =
+            "SELECT transaction_id, account_id, amount, currency, txn_timestamp, merchant, location, channel " +
+                    "FROM transactions WHERE account_id = ? AND txn_timestamp >= ? " +
+                    "AND (txn_timestamp < ? OR (txn_timestamp = ? AND transaction_id < ?)) " +
+                    "ORDER BY txn_timestamp DESC, transaction_id DESC LIMIT ?";
+
+    // velocity check: rows in the window and, among them, rows with the same amount and merchant
+    private static final String COUNT_WINDOW =
+            "SELECT COUNT(*), COALESCE(SUM(amount = ? AND LOWER(merchant) = LOWER(?)), 0) FROM transactions " +
+                    "WHERE account_id = ? AND txn_timestamp >= ?";
+    private static final String UNTIL = " AND txn_timestamp <= ?";
+
+    /** Rows per query in {@link #forEachTransactionSince}. */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    // idempotent mode: an existing transaction_id makes the row a no-op (0 affected rows with
+    // useAffectedRows, see DBUtil), not an error; unlike INSERT IGNORE, data errors still fail
+    private static final String INSERT_IF_ABSENT_PREFIX =
+            "INSERT INTO transactions(transaction_id, account_id, amount, currency, txn_timestamp, merchant, location, channel) " +
+                    "VALUES ";
+    private static final String ROW_PARAMS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ON_DUPLICATE = " ON DUPLICATE KEY UPDATE transaction_id = transaction_id";
+
+    private static final String SELECT_EXISTING_PREFIX =
+            "SELECT transaction_id FROM transactions WHERE transaction_id IN (";
+
+    // rows sent per executeBatch; the driver rewrites each chunk into one multi-row INSERT
+    static final int MAX_BATCH = 1000;
+
+    private final boolean idempotent;
+    private final RecentIdFilter recentIds;
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+
     public TransactionDao(DataSource ds) {
+        this(ds, false, 0);
+    }
+
+    /**
+     * @param idempotent       write through {@link #insertIfAbsent} / {@link #insertAllIfAbsent}
+     *                         (callers check {@link #isIdempotent}); {@link #save} is unchanged
+     * @param recentIdCapacity ids remembered so repeats skip the database; 0 disables the filter
+     */
+    public TransactionDao(DataSource ds, boolean idempotent, int recentIdCapacity) {
         this.ds = ds;
+        this.idempotent = idempotent;
+        this.recentIds = recentIdCapacity > 0 ? new RecentIdFilter(recentIdCapacity) : null;
+    }
+
+    /** Outcome of {@link #insertAllIfAbsent}. */
+    public static final class SaveResult {
+        private int inserted;
+        private int skipped;
+        private final List<Transaction> duplicates = new ArrayList<>();
+        private final List<Transaction> failed = new ArrayList<>();
+
+        /** Rows the database inserted. */
+        public int getInserted() {
+            return inserted;
+        }
+
+        /** Rows whose transaction_id already existed (or repeated within the call). */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Transactions known to be duplicates. Normally all skipped rows; a row that another writer
+         * inserted between the existence check and the insert is counted as skipped but not listed.
+         */
+        public List<Transaction> getDuplicates() {
+            return duplicates;
+        }
+
+        /** Transactions that could not be written for other reasons. */
+        public List<Transaction> getFailed() {
+            return failed;
+        }
+    }
+
+    /** Outcome of {@link #countWindow}. */
+    public static final class WindowCount {
+        private final int count;
+        private final int matches;
+
+        WindowCount(int count, int matches) {
+            this.count = count;
+            this.matches = matches;
+        }
+
+        /** Transactions in the window. */
+        public int getCount() {
+            return count;
+        }
+
+        /** Of those, transactions with the given amount and merchant (case-insensitive). */
+        public int getMatches() {
+            return matches;
+        }
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /** Rows inserted by the idempotent methods. */
+    public long getInsertedCount() {
+        return inserted.sum();
+    }
+
+    /** Duplicates skipped by the idempotent methods, including {@link #getFilteredCount}. */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /** Duplicates recognised from memory, without a database round trip. */
+    public long getFilteredCount() {
+        return filtered.sum();
     }
 
     /**
@@ -49,24 +180,14 @@ public class TransactionDao {
         try (Connection c = ds.getConnection();
              PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
 
-            ps.setString(1, t.getTransactionId());
-            ps.setString(2, t.getAccountId());
-            ps.setDouble(3, t.getAmount());
-            ps.setString(4, t.getCurrency());
-            ps.setTimestamp(5, Timestamp.valueOf(t.getTimestamp()));
-            ps.setString(6, t.getMerchant());
-            ps.setString(7, t.getLocation());
-            ps.setString(8, t.getChannel());
-
+            bind(ps, t);
             ps.executeUpdate();
             LOGGER.debug("Transaction saved successfully id={}", t.getTransactionId());
 
         } catch (SQLException e) {
-            String sqlState = e.getSQLState();
-            // SQLState class '23' denotes integrity constraint violation in SQL standard
-            if (sqlState != null && sqlState.startsWith("23")) {
+            if (isDuplicate(e)) {
                 LOGGER.warn("Duplicate transaction_id detected (SQLState={}): {} - ignoring duplicate insert.",
-                        sqlState, t.getTransactionId());
+                        e.getSQLState(), t.getTransactionId());
                 return;
             }
             LOGGER.error("Failed to save transaction {} (SQLState={}, errorCode={})",
@@ -75,6 +196,255 @@ public class TransactionDao {
         }
     }
 
+    /**
+     * Persist many transactions over one connection and statement, with JDBC batches of up to
+     * {@value #MAX_BATCH} rows (one round trip each with {@code rewriteBatchedStatements}).
+     * If a batch fails, its rows are retried one at a time on the same connection, so a
+     * duplicate transaction_id is skipped as in {@link #save} without losing the rest.
+     *
+     * @return the transactions that could not be saved for other reasons; empty if all went in
+     * @throws DaoException if no connection could be obtained
+     */
+    public List<Transaction> saveAll(Collection<? extends Transaction> txns) {
+        List<Transaction> failed = new ArrayList<>();
+        if (txns == null || txns.isEmpty()) return failed;
+
+        List<Transaction> chunk = new ArrayList<>(Math.min(txns.size(), MAX_BATCH));
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+            for (Transaction t : txns) {
+                if (t == null) continue;
+                chunk.add(t);
+                if (chunk.size() == MAX_BATCH) {
+                    executeChunk(ps, chunk, failed);
+                    chunk.clear();
+                }
+            }
+            executeChunk(ps, chunk, failed);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to open a batch for {} transaction(s) (SQLState={}, errorCode={})",
+                    txns.size(), e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to save " + txns.size() + " transactions", e);
+        }
+        LOGGER.debug("Saved {} of {} transaction(s) in batches", txns.size() - failed.size(), txns.size());
+        return failed;
+    }
+
+    private void executeChunk(PreparedStatement ps, List<Transaction> chunk, List<Transaction> failed) {
+        if (chunk.isEmpty()) return;
+        try {
+            for (Transaction t : chunk) {
+                bind(ps, t);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return;
+        } catch (BatchUpdateException e) {
+            LOGGER.debug("Batch of {} transaction(s) failed (SQLState={}); retrying row by row",
+                    chunk.size(), e.getSQLState());
+            retryRows(ps, chunk, e.getUpdateCounts(), failed);
+        } catch (SQLException e) {
+            LOGGER.debug("Batch of {} transaction(s) failed (SQLState={}); retrying row by row",
+                    chunk.size(), e.getSQLState());
+            retryRows(ps, chunk, new int[0], failed);
+        }
+    }
+
+    // rows the driver reports as done are kept; the rest go one at a time
+    private void retryRows(PreparedStatement ps, List<Transaction> chunk, int[] counts, List<Transaction> failed) {
+        try {
+            ps.clearBatch();
+        } catch (SQLException ignored) {
+            // the statement is still usable for single executions
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i < counts.length && counts[i] != Statement.EXECUTE_FAILED) continue;
+            Transaction t = chunk.get(i);
+            try {
+                bind(ps, t);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                if (isDuplicate(e)) {
+                    LOGGER.warn("Duplicate transaction_id detected (SQLState={}): {} - ignoring duplicate insert.",
+                            e.getSQLState(), t.getTransactionId());
+                    continue;
+                }
+                LOGGER.error("Failed to save transaction {} (SQLState={}, errorCode={})",
+                        t.getTransactionId(), e.getSQLState(), e.getErrorCode(), e);
+                failed.add(t);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Transaction t) throws SQLException {
+        bind(ps, t, 0);
+    }
+
+    // the eight columns of INSERT_SQL, starting after parameter index 'offset'
+    private static void bind(PreparedStatement ps, Transaction t, int offset) throws SQLException {
+        ps.setString(offset + 1, t.getTransactionId());
+        ps.setString(offset + 2, t.getAccountId());
+        ps.setDouble(offset + 3, t.getAmount());
+        ps.setString(offset + 4, t.getCurrency());
+        ps.setTimestamp(offset + 5, Timestamp.valueOf(t.getTimestamp()));
+        ps.setString(offset + 6, t.getMerchant());
+        ps.setString(offset + 7, t.getLocation());
+        ps.setString(offset + 8, t.getChannel());
+    }
+
+    // SQLState class '23' denotes integrity constraint violation in SQL standard
+    private static boolean isDuplicate(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * Idempotent insert: a transaction_id that already exists is skipped without an exception
+     * ({@code ON DUPLICATE KEY UPDATE} a no-op, judged by the affected-row count). Recently seen
+     * ids are skipped before the database is asked. Data errors (e.g. an over-long merchant) fail
+     * the row as in {@link #save}.
+     *
+     * @return true if inserted, false if the transaction_id was already there
+     * @throws DaoException on any other failure
+     */
+    public boolean insertIfAbsent(Transaction t) {
+        String id = t.getTransactionId();
+        if (recentIds != null && recentIds.contains(id)) {
+            duplicates.increment();
+            filtered.increment();
+            return false;
+        }
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(INSERT_IF_ABSENT_PREFIX + ROW_PARAMS + ON_DUPLICATE)) {
+            bind(ps, t, 0);
+            boolean added = ps.executeUpdate() > 0;
+            (added ? inserted : duplicates).increment();
+            if (recentIds != null) recentIds.add(id);
+            return added;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to save transaction {} (SQLState={}, errorCode={})",
+                    id, e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to save transaction " + id, e);
+        }
+    }
+
+    /**
+     * Idempotent bulk insert over one connection. Per chunk of up to {@value #MAX_BATCH} rows:
+     * one primary-key lookup finds the ids already stored, and one multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}
+     * writes the rest; its affected-row count is the number inserted. Ids in the recent-id filter
+     * and repeats within the call are skipped first. A chunk whose insert fails is retried row by
+     * row so that one bad row does not fail the others.
+     *
+     * @throws DaoException if no connection could be obtained
+     */
+    public SaveResult insertAllIfAbsent(Collection<? extends Transaction> txns) {
+        SaveResult result = new SaveResult();
+        Map<String, Transaction> pending = new LinkedHashMap<>();
+        for (Transaction t : txns) {
+            if (t == null) continue;
+            String id = t.getTransactionId();
+            boolean known = recentIds != null && recentIds.contains(id);
+            if (known || pending.putIfAbsent(id, t) != null) {
+                result.skipped++;
+                result.duplicates.add(t);
+                if (known) filtered.increment();
+            }
+        }
+        if (!pending.isEmpty()) {
+            List<Transaction> rows = new ArrayList<>(pending.values());
+            try (Connection c = ds.getConnection()) {
+                for (int from = 0; from < rows.size(); from += MAX_BATCH) {
+                    insertChunkIfAbsent(c, rows.subList(from, Math.min(rows.size(), from + MAX_BATCH)), result);
+                }
+            } catch (SQLException e) {
+                LOGGER.error("Failed to open a batch for {} transaction(s) (SQLState={}, errorCode={})",
+                        rows.size(), e.getSQLState(), e.getErrorCode(), e);
+                throw new DaoException("Failed to save " + rows.size() + " transactions", e);
+            }
+        }
+        inserted.add(result.inserted);
+        duplicates.add(result.skipped);
+        LOGGER.debug("Idempotent batch: {} inserted, {} skipped, {} failed",
+                result.inserted, result.skipped, result.failed.size());
+        return result;
+    }
+
+    private void insertChunkIfAbsent(Connection c, List<Transaction> chunk, SaveResult result) {
+        Set<String> existing;
+        try {
+            existing = selectExisting(c, chunk);
+        } catch (SQLException e) {
+            LOGGER.debug("Existence check for {} transaction(s) failed (SQLState={}); inserting row by row",
+                    chunk.size(), e.getSQLState());
+            insertRowsIfAbsent(c, chunk, result);
+            return;
+        }
+        List<Transaction> fresh = new ArrayList<>(chunk.size() - existing.size());
+        for (Transaction t : chunk) {
+            if (existing.contains(t.getTransactionId())) {
+                result.skipped++;
+                result.duplicates.add(t);
+                if (recentIds != null) recentIds.add(t.getTransactionId());
+            } else {
+                fresh.add(t);
+            }
+        }
+        if (fresh.isEmpty()) return;
+
+        StringBuilder sql = new StringBuilder(INSERT_IF_ABSENT_PREFIX);
+        for (int i = 0; i < fresh.size(); i++) sql.append(i == 0 ? "" : ", ").append(ROW_PARAMS);
+        try (PreparedStatement ps = c.prepareStatement(sql.append(ON_DUPLICATE).toString())) {
+            for (int i = 0; i < fresh.size(); i++) bind(ps, fresh.get(i), i * 8);
+            int added = ps.executeUpdate();
+            result.inserted += added;
+            result.skipped += fresh.size() - added;   // inserted by someone else since the check
+            if (recentIds != null) {
+                for (Transaction t : fresh) recentIds.add(t.getTransactionId());
+            }
+        } catch (SQLException e) {
+            LOGGER.debug("Insert of {} transaction(s) failed (SQLState={}); retrying row by row",
+                    fresh.size(), e.getSQLState());
+            insertRowsIfAbsent(c, fresh, result);
+        }
+    }
+
+    private void insertRowsIfAbsent(Connection c, List<Transaction> rows, SaveResult result) {
+        try (PreparedStatement ps = c.prepareStatement(INSERT_IF_ABSENT_PREFIX + ROW_PARAMS + ON_DUPLICATE)) {
+            for (Transaction t : rows) {
+                try {
+                    bind(ps, t, 0);
+                    if (ps.executeUpdate() > 0) {
+                        result.inserted++;
+                    } else {
+                        result.skipped++;
+                        result.duplicates.add(t);
+                    }
+                    if (recentIds != null) recentIds.add(t.getTransactionId());
+                } catch (SQLException e) {
+                    LOGGER.error("Failed to save transaction {} (SQLState={}, errorCode={})",
+                            t.getTransactionId(), e.getSQLState(), e.getErrorCode(), e);
+                    result.failed.add(t);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Failed to prepare insert for {} transaction(s) (SQLState={})", rows.size(), e.getSQLState(), e);
+            result.failed.addAll(rows);
+        }
+    }
+
+    private static Set<String> selectExisting(Connection c, List<Transaction> chunk) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_EXISTING_PREFIX);
+        for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+        sql.append(')');
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i).getTransactionId());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) existing.add(rs.getString(1));
+            }
+        }
+        return existing;
+    }
+
     /**
      * Returns transactions for accountId since (now - windowSeconds).
      */
@@ -102,19 +472,7 @@ public class TransactionDao {
             ps.setTimestamp(2, Timestamp.valueOf(since));
 
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    String txId = rs.getString("transaction_id");
-                    String acc = rs.getString("account_id");
-                    double amount = rs.getDouble("amount");
-                    String currency = rs.getString("currency");
-                    Timestamp ts = rs.getTimestamp("txn_timestamp");
-                    String merchant = rs.getString("merchant");
-                    String location = rs.getString("location");
-                    String channel = rs.getString("channel");
-
-                    Transaction t = new Transaction(txId, acc, amount, currency, ts.toLocalDateTime(), merchant, location, channel);
-                    list.add(t);
-                }
+                while (rs.next()) list.add(mapRow(rs));
             }
 
             LOGGER.debug("Fetched {} transaction(s) for account={}", list.size(), accountId);
@@ -126,4 +484,93 @@ public class TransactionDao {
             throw new DaoException("Failed to fetch transactions for " + accountId, e);
         }
     }
+
+    /**
+     * Count an account's transactions in {@code [since, until]} and, among them, those with the
+     * given amount and merchant, in one aggregate query served by idx_txn_account_time.
+     *
+     * @param until upper bound (inclusive), or null for open-ended
+     */
+    public WindowCount countWindow(String accountId, LocalDateTime since, LocalDateTime until,
+                                   double amount, String merchant) {
+        if (accountId == null || accountId.trim().isEmpty() || since == null) return new WindowCount(0, 0);
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(until == null ? COUNT_WINDOW : COUNT_WINDOW + UNTIL)) {
+            ps.setDouble(1, amount);
+            ps.setString(2, merchant);
+            ps.setString(3, accountId);
+            ps.setTimestamp(4, Timestamp.valueOf(since));
+            if (until != null) ps.setTimestamp(5, Timestamp.valueOf(until));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new WindowCount(rs.getInt(1), rs.getInt(2)) : new WindowCount(0, 0);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Failed to count transactions for account={} (SQLState={}, errorCode={})",
+                    accountId, e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to count transactions for " + accountId, e);
+        }
+    }
+
+    /**
+     * One page of an account's transactions since {@code since}, newest first, continuing after
+     * {@code after} (the last transaction of the previous page, or null for the first page).
+     * Uses a keyset on (txn_timestamp, transaction_id), so a page costs the same however deep
+     * into the history it is.
+     */
+    public List<Transaction> getTransactionsPage(String accountId, LocalDateTime since, Transaction after, int pageSize) {
+        if (accountId == null || accountId.trim().isEmpty() || since == null) return new ArrayList<>();
+        if (pageSize <= 0) pageSize = DEFAULT_PAGE_SIZE;
+
+        List<Transaction> page = new ArrayList<>(Math.min(pageSize, DEFAULT_PAGE_SIZE));
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(after == null ? SELECT_PAGE_FIRST : SELECT_PAGE_AFTER)) {
+            int i = 1;
+            ps.setString(i++, accountId);
+            ps.setTimestamp(i++, Timestamp.valueOf(since));
+            if (after != null) {
+                Timestamp ts = Timestamp.valueOf(after.getTimestamp());
+                ps.setTimestamp(i++, ts);
+                ps.setTimestamp(i++, ts);
+                ps.setString(i++, after.getTransactionId());
+            }
+            ps.setInt(i, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) page.add(mapRow(rs));
+            }
+            return page;
+        } catch (SQLException e) {
+            LOGGER.error("Failed to fetch transactions for account={} (SQLState={}, errorCode={})",
+                    accountId, e.getSQLState(), e.getErrorCode(), e);
+            throw new DaoException("Failed to fetch transactions for " + accountId, e);
+        }
+    }
+
+    /**
+     * Feed an account's transactions since {@code since}, newest first, to {@code action} one
+     * page at a time. At most one page is held in memory and no connection is held while
+     * {@code action} runs, so output starts with the first page.
+     *
+     * @return transactions passed to {@code action}
+     */
+    public long forEachTransactionSince(String accountId, LocalDateTime since, int pageSize,
+                                        Consumer<? super Transaction> action) {
+        if (pageSize <= 0) pageSize = DEFAULT_PAGE_SIZE;
+        long count = 0;
+        Transaction last = null;
+        while (true) {
+            List<Transaction> page = getTransactionsPage(accountId, since, last, pageSize);
+            for (Transaction t : page) action.accept(t);
+            count += page.size();
+            if (page.size() < pageSize) break;
+            last = page.get(page.size() - 1);
+        }
+        LOGGER.debug("Streamed {} transaction(s) for account={}", count, accountId);
+        return count;
+    }
+
+    private static Transaction mapRow(ResultSet rs) throws SQLException {
+        return new Transaction(rs.getString("transaction_id"), rs.getString("account_id"), rs.getDouble("amount"),
+                rs.getString("currency"), rs.getTimestamp("txn_timestamp").toLocalDateTime(), rs.getString("merchant"),
+                rs.getString("location"), rs.getString("channel"));
+    }
 }
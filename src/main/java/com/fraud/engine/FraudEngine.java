@@ -1,28 +1,309 @@
 package com.fraud.engine;
 
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 import com.fraud.rules.Rule;
-import com.fraud.rules.RuleResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * Small helper engine that evaluates a list of rules for a transaction.
+ * <p>
+ * {@link #score(Transaction, ScoreCard)} is the allocation-free path: it uses {@link Rule#score}
+ * and records matches as a bitmask. Reason text is only built on demand via {@link #reasons}.
+ * <p>
+ * When risk thresholds are given, rules run in cost/weight order (cheap, high-weight first) and
+ * scoring stops as soon as the risk band is fixed: the score already reaches the high threshold,
+ * or the remaining rules' {@link Rule#maxScore()} cannot lift it to the next band. Bit {@code i}
+ * of the matched mask always refers to the {@code i}-th rule as configured, whatever the order.
+ * Rule contributions are assumed to be non-negative.
  */
 public class FraudEngine {
 
-    private final List<Rule> rules;
+    /** Matched rules are tracked in a {@code long} bitmask. */
+    public static final int MAX_RULES = 64;
+
+    private final Rule[] rules;
+    private final long[] costNanos;          // per configured index
+    private final int[] order;               // evaluation order -> configured index
+    private final long[] remainingMax;       // remainingMax[k] = sum of maxScore for order[k..]
+    private final int mediumThreshold;
+    private final int highThreshold;
+    private final boolean earlyExit;
+    private final boolean fullReasonsOnAlert;
+    private final String configVersion;
 
     public FraudEngine(List<Rule> rules) {
+        this(rules, Integer.MAX_VALUE, Integer.MAX_VALUE, false, true);
+    }
+
+    /**
+     * @param mediumThreshold    score at which a transaction becomes MEDIUM
+     * @param highThreshold      score at which a transaction becomes HIGH
+     * @param earlyExit          stop evaluating once the risk band is fixed
+     * @param fullReasonsOnAlert let {@link #complete} evaluate skipped rules for alerting transactions
+     */
+    public FraudEngine(List<Rule> rules, int mediumThreshold, int highThreshold,
+                       boolean earlyExit, boolean fullReasonsOnAlert) {
+        this(rules, mediumThreshold, highThreshold, earlyExit, fullReasonsOnAlert, null);
+    }
+
+    /**
+     * @param configVersion version of the configuration the rules and thresholds came from
+     *                      (see {@link com.fraud.config.ConfigLoader#getVersion()}); may be null
+     */
+    public FraudEngine(List<Rule> rules, int mediumThreshold, int highThreshold,
+                       boolean earlyExit, boolean fullReasonsOnAlert, String configVersion) {
+        this(checkSize(rules.toArray(new Rule[0])), uniformCosts(rules.size()), null,
+                mediumThreshold, highThreshold, earlyExit, fullReasonsOnAlert, configVersion);
+    }
+
+    private FraudEngine(Rule[] rules, long[] costNanos, int[] order, int mediumThreshold, int highThreshold,
+                        boolean earlyExit, boolean fullReasonsOnAlert, String configVersion) {
         this.rules = rules;
+        this.costNanos = costNanos;
+        this.mediumThreshold = mediumThreshold;
+        this.highThreshold = highThreshold;
+        this.earlyExit = earlyExit;
+        this.fullReasonsOnAlert = fullReasonsOnAlert;
+        this.configVersion = configVersion;
+        if (order != null) this.order = order;
+        else this.order = earlyExit ? orderBy(weightPerCost(rules, costNanos)) : identityOrder(rules.length);
+        this.remainingMax = remainingMax(rules, this.order);
     }
 
     public int evaluate(Transaction t) {
         int score = 0;
         for (Rule r : rules) {
-            RuleResult rr = r.evaluate(t);
-            if (rr != null && rr.isMatched()) score += rr.getScore();
+            int s = r.score(t);
+            if (s != Rule.NO_MATCH) score += s;
         }
         return score;
     }
+
+    /**
+     * Run all rules in score-only mode.
+     *
+     * @param t    transaction to score
+     * @param card reusable output; reset before use
+     */
+    public void score(Transaction t, ScoreCard card) {
+        score(t, card, 0);
+    }
+
+    /**
+     * Run the rules in score-only mode, stopping early (if enabled) once the band is fixed.
+     *
+     * @param t         transaction to score
+     * @param card      reusable output; reset before use
+     * @param baseScore score already accumulated outside the engine (e.g. velocity checks),
+     *                  taken into account when deciding the band
+     */
+    public void score(Transaction t, ScoreCard card, int baseScore) {
+        card.reset();
+        for (int k = 0; k < order.length; k++) {
+            if (earlyExit && bandFixed(baseScore + card.getScore(), remainingMax[k])) return;
+            int i = order[k];
+            int s = rules[i].score(t);
+            card.evaluated(i);
+            if (s != Rule.NO_MATCH) card.match(i, s);
+        }
+    }
+
+    /**
+     * Columnar scoring of a whole batch with each rule's {@link Rule#scoreBatch} kernel.
+     * Every rule runs on every row (no early exit), so masks are complete.
+     *
+     * @param scores output, at least {@code batch.size()} long; overwritten
+     * @param masks  output matched-rule bitmasks, at least {@code batch.size()} long; overwritten
+     */
+    public void scoreBatch(TransactionBatch batch, int[] scores, long[] masks) {
+        int n = batch.size();
+        Arrays.fill(scores, 0, n, 0);
+        Arrays.fill(masks, 0, n, 0L);
+        for (int i : order) {
+            rules[i].scoreBatch(batch, i, scores, masks);
+        }
+    }
+
+    /**
+     * Evaluate the rules that early exit skipped, so the score and reasons of an alerting
+     * transaction are complete. No-op when full reasons are disabled or nothing was skipped.
+     */
+    public void complete(Transaction t, ScoreCard card) {
+        if (!fullReasonsOnAlert) return;
+        for (int i = 0; i < rules.length; i++) {
+            if (card.isEvaluated(i)) continue;
+            int s = rules[i].score(t);
+            card.evaluated(i);
+            if (s != Rule.NO_MATCH) card.match(i, s);
+        }
+    }
+
+    /** "HIGH", "MEDIUM" or "LOW" for a total score. */
+    public String riskLevel(int totalScore) {
+        if (totalScore >= highThreshold) return "HIGH";
+        if (totalScore >= mediumThreshold) return "MEDIUM";
+        return "LOW";
+    }
+
+    /**
+     * Build "RuleName:reason" entries for the rules set in {@code matchedMask}.
+     */
+    public List<String> reasons(Transaction t, long matchedMask) {
+        if (matchedMask == 0L) return Collections.emptyList();
+        List<String> out = new ArrayList<>(Long.bitCount(matchedMask));
+        for (int i = 0; i < rules.length; i++) {
+            if ((matchedMask & (1L << i)) != 0) {
+                out.add(rules[i].name() + ":" + rules[i].reason(t));
+            }
+        }
+        return out;
+    }
+
+    /** Names of the rules set in {@code matchedMask}, in configured order. */
+    public List<String> ruleNames(long matchedMask) {
+        if (matchedMask == 0L) return new ArrayList<>(2);
+        List<String> out = new ArrayList<>(Long.bitCount(matchedMask) + 2);
+        for (int i = 0; i < rules.length; i++) {
+            if ((matchedMask & (1L << i)) != 0) out.add(rules[i].name());
+        }
+        return out;
+    }
+
+    /**
+     * Measure each rule's average cost over {@code sample} and return an engine with the
+     * same settings whose evaluation order reflects the measured costs.
+     */
+    public FraudEngine calibrate(List<Transaction> sample, int rounds) {
+        if (sample == null || sample.isEmpty() || rounds <= 0) return this;
+        long[] measured = new long[rules.length];
+        long sink = 0;
+        for (int i = 0; i < rules.length; i++) {
+            Rule r = rules[i];
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (Transaction t : sample) sink += r.score(t);
+            }
+            long perCall = (System.nanoTime() - start) / ((long) rounds * sample.size());
+            measured[i] = Math.max(1, perCall);
+        }
+        if (sink == Long.MIN_VALUE) measured[0]++; // keep the loop observable to the JIT
+        return new FraudEngine(rules, measured, null, mediumThreshold, highThreshold, earlyExit, fullReasonsOnAlert,
+                configVersion);
+    }
+
+    /**
+     * Same rules and settings, evaluated in descending {@code priority} order
+     * (indexed by configured rule position). Ignored when early exit is off.
+     */
+    public FraudEngine reorder(double[] priority) {
+        if (!earlyExit || priority.length != rules.length) return this;
+        return new FraudEngine(rules, costNanos, orderBy(priority),
+                mediumThreshold, highThreshold, earlyExit, fullReasonsOnAlert, configVersion);
+    }
+
+    /**
+     * Evaluate every rule (no early exit), timing each one into {@code stats}.
+     * Used on a sample of traffic so that rules normally skipped still get hit-rate data.
+     */
+    public void scoreProfiled(Transaction t, ScoreCard card, RuleStats stats) {
+        card.reset();
+        for (int k = 0; k < order.length; k++) {
+            int i = order[k];
+            long start = System.nanoTime();
+            int s = rules[i].score(t);
+            stats.recordRule(i, s != Rule.NO_MATCH, System.nanoTime() - start);
+            card.evaluated(i);
+            if (s != Rule.NO_MATCH) card.match(i, s);
+        }
+    }
+
+    public boolean hasSameOrder(FraudEngine other) {
+        return other != null && Arrays.equals(order, other.order);
+    }
+
+    /** True if both engines run the same rule instances (possibly in a different order). */
+    boolean hasSameRules(FraudEngine other) {
+        return other != null && other.rules == rules;
+    }
+
+    /** Version of the configuration this engine was built from, or null if unknown. */
+    public String getConfigVersion() {
+        return configVersion;
+    }
+
+    int ruleCount() {
+        return rules.length;
+    }
+
+    Rule rule(int index) {
+        return rules[index];
+    }
+
+    public List<Rule> getRules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    /** Rule names in the order they are evaluated. */
+    public List<String> getEvaluationOrder() {
+        List<String> out = new ArrayList<>(order.length);
+        for (int i : order) out.add(rules[i].name());
+        return out;
+    }
+
+    private boolean bandFixed(int score, long remaining) {
+        if (score >= highThreshold) return true;                              // HIGH can't drop
+        long best = score + remaining;
+        if (best < mediumThreshold) return true;                              // stays LOW
+        return score >= mediumThreshold && best < highThreshold;              // stays MEDIUM
+    }
+
+    private static long[] uniformCosts(int n) {
+        long[] c = new long[n];
+        Arrays.fill(c, 1L);
+        return c;
+    }
+
+    private static int[] identityOrder(int n) {
+        int[] o = new int[n];
+        for (int i = 0; i < n; i++) o[i] = i;
+        return o;
+    }
+
+    private static Rule[] checkSize(Rule[] rules) {
+        if (rules.length > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " rules supported, got " + rules.length);
+        }
+        return rules;
+    }
+
+    // highest weight per unit of cost first
+    private static double[] weightPerCost(Rule[] rules, long[] cost) {
+        double[] p = new double[rules.length];
+        for (int i = 0; i < p.length; i++) p[i] = (double) rules[i].maxScore() / cost[i];
+        return p;
+    }
+
+    // descending priority; ties keep the configured order
+    private static int[] orderBy(double[] priority) {
+        Integer[] idx = new Integer[priority.length];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, Comparator.comparingDouble((Integer i) -> -priority[i]));
+        int[] o = new int[idx.length];
+        for (int i = 0; i < o.length; i++) o[i] = idx[i];
+        return o;
+    }
+
+    private static long[] remainingMax(Rule[] rules, int[] order) {
+        long[] rem = new long[order.length + 1];
+        for (int k = order.length - 1; k >= 0; k--) {
+            rem[k] = Math.min((long) Integer.MAX_VALUE, rem[k + 1] + rules[order[k]].maxScore());
+        }
+        return rem;
+    }
 }
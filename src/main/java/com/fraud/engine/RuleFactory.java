@@ -3,12 +3,45 @@ package com.fraud.engine;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fraud.config.ConfigLoader;
 import com.fraud.rules.Rule;
+import com.fraud.rules.expr.ExpressionRule;
 import com.fraud.rules.impl.*;
 
 import java.util.*;
 
 public class RuleFactory {
 
+    /**
+     * Build a FraudEngine from rules.json plus the risk thresholds and engine switches in
+     * application.properties (engine.early.exit, engine.full.reasons; both default to true).
+     * The engine records {@link ConfigLoader#getVersion()}.
+     *
+     * @throws IllegalArgumentException if the thresholds or a rule definition are invalid
+     */
+    public static FraudEngine createEngine(ConfigLoader cfg) {
+        Properties props = cfg.getProperties();
+        int medium = parseInt(props, "risk.score.medium", "30");
+        int high = parseInt(props, "risk.score.high", "60");
+        if (medium < 0 || high < medium) {
+            throw new IllegalArgumentException("Invalid risk thresholds: medium=" + medium + ", high=" + high);
+        }
+        return new FraudEngine(
+                createRules(cfg),
+                medium,
+                high,
+                Boolean.parseBoolean(props.getProperty("engine.early.exit", "true")),
+                Boolean.parseBoolean(props.getProperty("engine.full.reasons", "true")),
+                cfg.getVersion());
+    }
+
+    private static int parseInt(Properties props, String key, String def) {
+        String value = props.getProperty(key, def).trim();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+        }
+    }
+
     public static List<Rule> createRules(ConfigLoader cfg) {
         List<Rule> rules = new ArrayList<>();
         Properties props = cfg.getProperties();
@@ -33,11 +66,7 @@ public class RuleFactory {
             JsonNode n = rulesNode.get("GeoLocationRule");
             if (n.path("enabled").asBoolean(true)) {
                 int weight = n.path("weight").asInt(25);
-                Set<String> riskyCountries = new HashSet<>();
-                if (root.has("riskyCountries")) {
-                    root.get("riskyCountries").forEach(c -> riskyCountries.add(c.asText()));
-                }
-                rules.add(new GeoLocationRule(riskyCountries, weight));
+                rules.add(new GeoLocationRule(createRegionTable(root, weight)));
             }
         }
 
@@ -74,6 +103,44 @@ public class RuleFactory {
             }
         }
 
+        // 6. Expression rules: any entry with a "when" expression
+        Iterator<Map.Entry<String, JsonNode>> entries = rulesNode.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> e = entries.next();
+            JsonNode n = e.getValue();
+            if (!n.has("when") || !n.path("enabled").asBoolean(true)) continue;
+            try {
+                rules.add(new ExpressionRule(e.getKey(), n.get("when").asText(), n.path("weight").asInt(0)));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid expression for rule " + e.getKey() + ": " + ex.getMessage(), ex);
+            }
+        }
+
         return rules;
     }
-}
\ No newline at end of file
+
+    /**
+     * riskyCountries (plain names at the rule weight) plus riskyRegions, which may carry
+     * their own weight and aliases:
+     * <pre>
+     * "riskyRegions": [ {"name": "Russia", "weight": 30, "aliases": ["RU", "RUS"]} ]
+     * </pre>
+     * A region listed in both uses its riskyRegions entry.
+     */
+    static RiskRegionTable createRegionTable(JsonNode root, int defaultWeight) {
+        List<RiskRegionTable.Region> regions = new ArrayList<>();
+        if (root.has("riskyCountries")) {
+            root.get("riskyCountries").forEach(c ->
+                    regions.add(new RiskRegionTable.Region(c.asText(), defaultWeight, null)));
+        }
+        if (root.has("riskyRegions")) {
+            for (JsonNode r : root.get("riskyRegions")) {
+                List<String> aliases = new ArrayList<>();
+                r.path("aliases").forEach(a -> aliases.add(a.asText()));
+                regions.add(new RiskRegionTable.Region(
+                        r.path("name").asText(null), r.path("weight").asInt(defaultWeight), aliases));
+            }
+        }
+        return new RiskRegionTable(regions);
+    }
+}
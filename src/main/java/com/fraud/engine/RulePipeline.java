@@ -0,0 +1,184 @@
+package com.fraud.engine;
+
+import com.fraud.config.ConfigLoader;
+import com.fraud.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the current (immutable) {@link FraudEngine} and swaps it atomically, so scoring threads
+ * never pause while a new rule order is published.
+ * <p>
+ * With adaptive ordering enabled, about one in {@code sampleEvery} transactions (chosen at random,
+ * so scoring threads share no counter) is scored with every
+ * rule profiled (see {@link FraudEngine#scoreProfiled}); {@link #reoptimize()} turns those
+ * statistics into a new evaluation order and publishes it if it differs.
+ * <p>
+ * {@link #reload(ConfigLoader)} builds an engine from a new configuration on the calling thread
+ * (e.g. a {@link com.fraud.config.ConfigWatcher}) and publishes it the same way. Statistics are
+ * kept with the engine they describe, so a new rule set starts with fresh ones.
+ */
+public class RulePipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RulePipeline.class);
+
+    private final AtomicReference<Snapshot> current;
+    private final int sampleEvery;
+    private final AtomicLong version = new AtomicLong(1);
+    private ScheduledExecutorService scheduler;
+
+    // rules evaluated per (non-sampled) transaction, for the current and the previous order
+    private final LongAdder epochTxns = new LongAdder();
+    private final LongAdder epochRulesEvaluated = new LongAdder();
+    private volatile double previousAvgRulesEvaluated = Double.NaN;
+
+    /** Fixed pipeline: no sampling, the engine only changes through {@link #publish}. */
+    public RulePipeline(FraudEngine engine) {
+        this(engine, 0);
+    }
+
+    /**
+     * @param sampleEvery profile about one in this many transactions; 0 disables adaptive statistics
+     */
+    public RulePipeline(FraudEngine engine, int sampleEvery) {
+        this.sampleEvery = Math.max(0, sampleEvery);
+        this.current = new AtomicReference<>(new Snapshot(engine, newStats(engine)));
+    }
+
+    public FraudEngine current() {
+        return current.get().engine;
+    }
+
+    /**
+     * Score with the current engine and return that engine, so the caller derives risk level
+     * and reasons from the same snapshot even if a swap happens meanwhile.
+     */
+    public FraudEngine score(Transaction t, ScoreCard card, int baseScore) {
+        Snapshot snap = current.get();
+        FraudEngine engine = snap.engine;
+        RuleStats stats = snap.stats;
+        if (stats != null && ThreadLocalRandom.current().nextInt(sampleEvery) == 0) {
+            engine.scoreProfiled(t, card, stats);
+            stats.recordDecision(!"LOW".equals(engine.riskLevel(baseScore + card.getScore())));
+        } else {
+            engine.score(t, card, baseScore);
+            epochTxns.increment();
+            epochRulesEvaluated.add(card.getRulesEvaluated());
+        }
+        return engine;
+    }
+
+    /**
+     * Atomically replace the engine. Counters for rules-evaluated-per-transaction restart;
+     * rule statistics carry over only if {@code next} runs the same rules. Writers (reorder,
+     * reload) are serialized so a reorder computed for an old engine cannot replace a newer one;
+     * scoring threads never take the lock.
+     */
+    public synchronized void publish(FraudEngine next) {
+        Snapshot prevSnap = current.get();
+        RuleStats stats = next.hasSameRules(prevSnap.engine) ? prevSnap.stats : newStats(next);
+        FraudEngine prev = current.getAndSet(new Snapshot(next, stats)).engine;
+        long txns = epochTxns.sumThenReset();
+        long evaluated = epochRulesEvaluated.sumThenReset();
+        previousAvgRulesEvaluated = txns == 0 ? Double.NaN : (double) evaluated / txns;
+        long v = version.incrementAndGet();
+        log.info("Published rule pipeline v{} (config {}): {} -> {} (avg rules/txn before swap={})",
+                v, next.getConfigVersion(), prev.getEvaluationOrder(), next.getEvaluationOrder(),
+                previousAvgRulesEvaluated);
+    }
+
+    /**
+     * Build an engine from {@code cfg} and publish it. Nothing is swapped if the config is invalid.
+     *
+     * @throws IllegalArgumentException if the thresholds or a rule definition are invalid
+     */
+    public void reload(ConfigLoader cfg) {
+        publish(RuleFactory.createEngine(cfg));
+    }
+
+    /**
+     * Recompute the evaluation order from live statistics and publish it if it changed.
+     *
+     * @return true if a new order was published
+     */
+    public synchronized boolean reoptimize() {
+        Snapshot snap = current.get();
+        if (snap.stats == null || snap.stats.sampledTransactions() == 0) return false;
+        FraudEngine engine = snap.engine;
+        FraudEngine next = engine.reorder(snap.stats.priorities(engine));
+        if (next.hasSameOrder(engine)) return false;
+        publish(next);
+        return true;
+    }
+
+    /**
+     * Run {@link #reoptimize()} periodically on a daemon thread.
+     */
+    public synchronized void startAdaptive(long intervalSeconds) {
+        if (sampleEvery == 0 || intervalSeconds <= 0 || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread th = new Thread(r, "rule-pipeline-optimizer");
+            th.setDaemon(true);
+            return th;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reoptimize();
+            } catch (RuntimeException e) {
+                log.warn("Rule reordering failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Number of engines published so far (starts at 1). */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /** Average rules evaluated per transaction since the last swap. */
+    public double getAvgRulesEvaluated() {
+        long txns = epochTxns.sum();
+        return txns == 0 ? Double.NaN : (double) epochRulesEvaluated.sum() / txns;
+    }
+
+    /** Average rules evaluated per transaction under the previous engine (NaN before the first swap). */
+    public double getPreviousAvgRulesEvaluated() {
+        return previousAvgRulesEvaluated;
+    }
+
+    /** Statistics for the current engine, or null when adaptive ordering is off. */
+    public RuleStats getStats() {
+        return current.get().stats;
+    }
+
+    private RuleStats newStats(FraudEngine engine) {
+        return sampleEvery > 0 ? new RuleStats(engine.ruleCount()) : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /** An engine and the statistics gathered for it, swapped together. */
+    private static final class Snapshot {
+        final FraudEngine engine;
+        final RuleStats stats;
+
+        Snapshot(FraudEngine engine, RuleStats stats) {
+            this.engine = engine;
+            this.stats = stats;
+        }
+    }
+}
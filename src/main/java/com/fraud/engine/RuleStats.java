@@ -0,0 +1,71 @@
+package com.fraud.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live per-rule statistics gathered from a sample of scored transactions:
+ * how often each rule is evaluated and matches, and how long it takes.
+ * Indexed by the rule's configured position in the engine.
+ */
+public class RuleStats {
+
+    private final LongAdder[] calls;
+    private final LongAdder[] hits;
+    private final LongAdder[] nanos;
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+
+    public RuleStats(int ruleCount) {
+        calls = adders(ruleCount);
+        hits = adders(ruleCount);
+        nanos = adders(ruleCount);
+    }
+
+    void recordRule(int index, boolean hit, long elapsedNanos) {
+        calls[index].increment();
+        if (hit) hits[index].increment();
+        nanos[index].add(elapsedNanos);
+    }
+
+    void recordDecision(boolean alert) {
+        decisions.increment();
+        if (alert) alerts.increment();
+    }
+
+    public long sampledTransactions() {
+        return decisions.sum();
+    }
+
+    /** Smoothed hit rate of a rule (0..1). */
+    public double hitRate(int index) {
+        return (hits[index].sum() + 1.0) / (calls[index].sum() + 2.0);
+    }
+
+    /** Average cost of a rule in nanoseconds (at least 1). */
+    public double avgNanos(int index) {
+        long c = calls[index].sum();
+        return c == 0 ? 1.0 : Math.max(1.0, (double) nanos[index].sum() / c);
+    }
+
+    /**
+     * Priority of each rule under the current traffic mix. A rule helps decide LOW when it misses
+     * (its weight leaves the remaining potential) and helps decide an alert when it hits, so its
+     * expected usefulness is {@code maxScore * P(decisive outcome)}, divided by its cost.
+     */
+    double[] priorities(FraudEngine engine) {
+        double alertShare = (alerts.sum() + 1.0) / (decisions.sum() + 2.0);
+        double[] p = new double[engine.ruleCount()];
+        for (int i = 0; i < p.length; i++) {
+            double hit = hitRate(i);
+            double decisive = (1 - alertShare) * (1 - hit) + alertShare * hit;
+            p[i] = engine.rule(i).maxScore() * decisive / avgNanos(i);
+        }
+        return p;
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] a = new LongAdder[n];
+        for (int i = 0; i < n; i++) a[i] = new LongAdder();
+        return a;
+    }
+}
@@ -0,0 +1,55 @@
+package com.fraud.engine;
+
+/**
+ * Mutable, reusable holder for the result of {@link FraudEngine#score}.
+ * One instance per scoring thread keeps the stateless path allocation-free.
+ */
+public final class ScoreCard {
+
+    private int score;
+    private long matchedMask;
+    private long evaluatedMask;
+
+    /** Sum of the matched rules' score contributions. */
+    public int getScore() { return score; }
+
+    /** Bit {@code i} is set when the engine's rule at index {@code i} matched. */
+    public long getMatchedMask() { return matchedMask; }
+
+    public boolean isMatched(int ruleIndex) {
+        return (matchedMask & (1L << ruleIndex)) != 0;
+    }
+
+    /** Bit {@code i} is set when the rule at index {@code i} was run (early exit may skip some). */
+    public long getEvaluatedMask() { return evaluatedMask; }
+
+    public boolean isEvaluated(int ruleIndex) {
+        return (evaluatedMask & (1L << ruleIndex)) != 0;
+    }
+
+    public int getRulesEvaluated() {
+        return Long.bitCount(evaluatedMask);
+    }
+
+    void reset() {
+        score = 0;
+        matchedMask = 0L;
+        evaluatedMask = 0L;
+    }
+
+    void evaluated(int ruleIndex) {
+        evaluatedMask |= 1L << ruleIndex;
+    }
+
+    void match(int ruleIndex, int contribution) {
+        score += contribution;
+        matchedMask |= 1L << ruleIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreCard{score=" + score +
+                ", matchedMask=" + Long.toBinaryString(matchedMask) +
+                ", evaluatedMask=" + Long.toBinaryString(evaluatedMask) + '}';
+    }
+}
@@ -0,0 +1,107 @@
+package com.fraud.model;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Alert counts of one account by month, risk level and rule, as aggregated by the database
+ * (see {@link com.fraud.dao.AlertDao#getMonthlySummary}). An alert that matched several rules
+ * counts once for each of them in the rule counts, and once in the alert counts.
+ */
+public class AlertSummary {
+    private final String accountId;
+    // month -> risk level -> alerts
+    private final Map<YearMonth, Map<String, Long>> alerts = new TreeMap<>();
+    // month -> risk level -> rule -> alerts that matched it
+    private final Map<YearMonth, Map<String, Map<String, Long>>> rules = new TreeMap<>();
+    private LocalDateTime latest;
+
+    public AlertSummary(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public void addAlerts(YearMonth month, String riskLevel, long count, LocalDateTime latestInGroup) {
+        alerts.computeIfAbsent(month, m -> new HashMap<>()).merge(riskLevel, count, Long::sum);
+        if (latestInGroup != null && (latest == null || latestInGroup.isAfter(latest))) latest = latestInGroup;
+    }
+
+    public void addRuleMatches(YearMonth month, String riskLevel, String rule, long count) {
+        rules.computeIfAbsent(month, m -> new HashMap<>()).computeIfAbsent(riskLevel, r -> new HashMap<>())
+                .merge(rule, count, Long::sum);
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (Map<String, Long> byRisk : alerts.values()) {
+            for (long n : byRisk.values()) total += n;
+        }
+        return total;
+    }
+
+    /** Alerts of one risk level (e.g. "HIGH"), ignoring case. */
+    public long getTotal(String riskLevel) {
+        long total = 0;
+        for (Map<String, Long> byRisk : alerts.values()) {
+            for (Map.Entry<String, Long> e : byRisk.entrySet()) {
+                if (e.getKey() != null && e.getKey().equalsIgnoreCase(riskLevel)) total += e.getValue();
+            }
+        }
+        return total;
+    }
+
+    /** Alerts per month, oldest month first. */
+    public Map<YearMonth, Long> getAlertsPerMonth() {
+        Map<YearMonth, Long> out = new LinkedHashMap<>();
+        alerts.forEach((month, byRisk) -> out.put(month, byRisk.values().stream().mapToLong(Long::longValue).sum()));
+        return out;
+    }
+
+    /** Alerts per risk level in one month. */
+    public Map<String, Long> getAlerts(YearMonth month) {
+        return Collections.unmodifiableMap(alerts.getOrDefault(month, Collections.emptyMap()));
+    }
+
+    /** Alerts each rule contributed to over all months, most frequent first. */
+    public List<Map.Entry<String, Long>> getRuleCounts() {
+        return getRuleCounts((String) null);
+    }
+
+    /** Alerts of one risk level (ignoring case; null for all) each rule contributed to, most frequent first. */
+    public List<Map.Entry<String, Long>> getRuleCounts(String riskLevel) {
+        Map<String, Long> total = new HashMap<>();
+        for (Map<String, Map<String, Long>> byRisk : rules.values()) {
+            byRisk.forEach((risk, byRule) -> {
+                if (riskLevel == null || riskLevel.equalsIgnoreCase(risk)) {
+                    byRule.forEach((rule, n) -> total.merge(rule, n, Long::sum));
+                }
+            });
+        }
+        List<Map.Entry<String, Long>> out = new ArrayList<>(total.entrySet());
+        out.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return out;
+    }
+
+    /** Alerts each rule contributed to in one month, all risk levels together. */
+    public Map<String, Long> getRuleCounts(YearMonth month) {
+        Map<String, Long> out = new HashMap<>();
+        rules.getOrDefault(month, Collections.emptyMap())
+                .values().forEach(byRule -> byRule.forEach((rule, n) -> out.merge(rule, n, Long::sum)));
+        return out;
+    }
+
+    /** Creation time of the newest alert, or null if there are none. */
+    public LocalDateTime getLatest() {
+        return latest;
+    }
+}
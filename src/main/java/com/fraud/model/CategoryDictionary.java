@@ -0,0 +1,140 @@
+package com.fraud.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns the values of one categorical field (merchant, location, ...) into dense int ids.
+ * Values are normalized once (trimmed, upper-cased) so "Online", " online" and "ONLINE" share an id.
+ * <p>
+ * Lookups by the raw string are cached, so repeated values cost one hash lookup and no allocation.
+ * At most {@code maxRawVariants} raw spellings are cached; past that, new spellings are normalized
+ * on every lookup instead, so case and whitespace variants from untrusted input cannot grow the
+ * heap. The dictionary stops growing at {@code maxSize}; unseen values then map to
+ * {@link #UNKNOWN} and callers fall back to comparing strings.
+ */
+public class CategoryDictionary {
+
+    public static final int UNKNOWN = -1;
+    public static final int DEFAULT_MAX_SIZE = 1 << 20;
+    public static final int DEFAULT_MAX_RAW_VARIANTS = 1 << 18;
+
+    private final String field;
+    private final int maxSize;
+    private final int maxRawVariants;
+    private final ConcurrentMap<String, Entry> byRaw = new ConcurrentHashMap<>();
+    private final AtomicInteger rawVariants = new AtomicInteger();
+    private final ConcurrentMap<String, Integer> byNormalized = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    public CategoryDictionary(String field) {
+        this(field, DEFAULT_MAX_SIZE);
+    }
+
+    public CategoryDictionary(String field, int maxSize) {
+        this(field, maxSize, DEFAULT_MAX_RAW_VARIANTS);
+    }
+
+    public CategoryDictionary(String field, int maxSize, int maxRawVariants) {
+        if (maxRawVariants < 0) throw new IllegalArgumentException("maxRawVariants must be >= 0");
+        this.field = field;
+        this.maxSize = maxSize;
+        this.maxRawVariants = maxRawVariants;
+    }
+
+    public static String normalize(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Id for a value, registering it if needed.
+     *
+     * @return id, or {@link #UNKNOWN} for null or when the dictionary is full
+     */
+    public int encode(String value) {
+        Entry e = entry(value);
+        return e == null ? UNKNOWN : e.id;
+    }
+
+    /**
+     * Id for a value without registering it.
+     *
+     * @return id, or {@link #UNKNOWN} if the value has never been encoded
+     */
+    public int find(String value) {
+        if (value == null) return UNKNOWN;
+        Entry e = byRaw.get(value);
+        if (e != null) return e.id;
+        Integer id = byNormalized.get(normalize(value));
+        return id == null ? UNKNOWN : id;
+    }
+
+    /** Normalized value for an id, or null. */
+    public String valueOf(int id) {
+        String[] v = values;
+        return id >= 0 && id < v.length ? v[id] : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Raw spellings cached for lookups without normalizing (at most {@code maxRawVariants}). */
+    public int getCachedVariants() {
+        return rawVariants.get();
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Entry for a raw value; {@code raw} is a shared instance of an equal string, so buffered
+     * transactions don't each hold a copy (once the raw cache is full, {@code value} itself).
+     * Null for null values or when the dictionary is full.
+     */
+    Entry entry(String value) {
+        if (value == null) return null;
+        Entry e = byRaw.get(value);
+        if (e != null) return e;
+        int id = idForNormalized(normalize(value));
+        if (id == UNKNOWN) return null;
+        Entry created = new Entry(id, value);
+        if (rawVariants.get() >= maxRawVariants) return created;
+        Entry prev = byRaw.putIfAbsent(value, created);
+        if (prev != null) return prev;
+        rawVariants.incrementAndGet();
+        return created;
+    }
+
+    private int idForNormalized(String norm) {
+        Integer id = byNormalized.get(norm);
+        if (id != null) return id;
+        synchronized (this) {
+            id = byNormalized.get(norm);
+            if (id != null) return id;
+            if (size >= maxSize) return UNKNOWN;
+            int next = size++;
+            String[] v = values;
+            if (next >= v.length) v = Arrays.copyOf(v, v.length * 2);
+            v[next] = norm;
+            values = v;
+            byNormalized.put(norm, next);
+            return next;
+        }
+    }
+
+    static final class Entry {
+        final int id;
+        final String raw;
+
+        Entry(int id, String raw) {
+            this.id = id;
+            this.raw = raw;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.fraud.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class FraudAlert {
     private long id;
@@ -10,6 +11,8 @@ public class FraudAlert {
     private String riskLevel;
     private String reason;
     private LocalDateTime createdAt;
+    private String configVersion;
+    private List<String> rules;
 
     public FraudAlert() {}
 
@@ -44,6 +47,17 @@ public class FraudAlert {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    /** Version of the rules/thresholds config that produced this alert (may be null). */
+    public String getConfigVersion() { return configVersion; }
+    public void setConfigVersion(String configVersion) { this.configVersion = configVersion; }
+
+    /**
+     * Names of the rules that raised this alert, including the Velocity and Duplicate checks
+     * (may be null). Stored as a bitmask of rule codes, which the monthly summary groups by.
+     */
+    public List<String> getRules() { return rules; }
+    public void setRules(List<String> rules) { this.rules = rules; }
+
     @Override
     public String toString() {
         return "FraudAlert{" +
@@ -54,6 +68,8 @@ public class FraudAlert {
                 ", riskLevel='" + riskLevel + '\'' +
                 ", reason='" + reason + '\'' +
                 ", createdAt=" + createdAt +
+                ", configVersion='" + configVersion + '\'' +
+                ", rules=" + rules +
                 '}';
     }
 }
\ No newline at end of file
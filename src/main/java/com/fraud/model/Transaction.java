@@ -6,11 +6,17 @@ public class Transaction {
     private String transactionId;
     private String accountId;
     private double amount;
-    private String currency;
+    String currency;
     private LocalDateTime timestamp;
-    private String merchant;
-    private String location;
-    private String channel;
+    String merchant;
+    String location;
+    String channel;
+
+    // dictionary ids (see TransactionDictionary); UNKNOWN until encoded
+    int merchantId = CategoryDictionary.UNKNOWN;
+    int locationId = CategoryDictionary.UNKNOWN;
+    int channelId = CategoryDictionary.UNKNOWN;
+    int currencyId = CategoryDictionary.UNKNOWN;
 
     public Transaction() {}
 
@@ -37,19 +43,30 @@ public class Transaction {
     public void setAmount(double amount) { this.amount = amount; }
 
     public String getCurrency() { return currency; }
-    public void setCurrency(String currency) { this.currency = currency; }
+    public void setCurrency(String currency) { this.currency = currency; this.currencyId = CategoryDictionary.UNKNOWN; }
 
     public LocalDateTime getTimestamp() { return timestamp; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
 
     public String getMerchant() { return merchant; }
-    public void setMerchant(String merchant) { this.merchant = merchant; }
+    public void setMerchant(String merchant) { this.merchant = merchant; this.merchantId = CategoryDictionary.UNKNOWN; }
 
     public String getLocation() { return location; }
-    public void setLocation(String location) { this.location = location; }
+    public void setLocation(String location) { this.location = location; this.locationId = CategoryDictionary.UNKNOWN; }
 
     public String getChannel() { return channel; }
-    public void setChannel(String channel) { this.channel = channel; }
+    public void setChannel(String channel) { this.channel = channel; this.channelId = CategoryDictionary.UNKNOWN; }
+
+    public int getMerchantId() { return merchantId; }
+    public int getLocationId() { return locationId; }
+    public int getChannelId() { return channelId; }
+    public int getCurrencyId() { return currencyId; }
+
+    /** True once {@link TransactionDictionary#encode} has assigned ids. */
+    public boolean isEncoded() {
+        return merchantId != CategoryDictionary.UNKNOWN || locationId != CategoryDictionary.UNKNOWN
+                || channelId != CategoryDictionary.UNKNOWN || currencyId != CategoryDictionary.UNKNOWN;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,81 @@
+package com.fraud.model;
+
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Struct-of-arrays view of a group of transactions for bulk scoring: one primitive array per
+ * field the rules read, so rule kernels run as tight loops over contiguous memory.
+ * <p>
+ * Categorical fields are dictionary ids (see {@link TransactionDictionary}); transactions are
+ * encoded on {@link #add}. The original objects are kept for reasons, persistence and any
+ * row a kernel cannot handle from the columns alone.
+ * <p>
+ * Not thread-safe; reuse an instance via {@link #clear()}.
+ */
+public class TransactionBatch {
+
+    /** Epoch-second value for a transaction without timestamp. */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final Transaction[] transactions;
+    private final double[] amounts;
+    private final long[] epochSeconds;
+    private final int[] merchantIds;
+    private final int[] locationIds;
+    private final int[] channelIds;
+    private int size;
+
+    public TransactionBatch(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        transactions = new Transaction[capacity];
+        amounts = new double[capacity];
+        epochSeconds = new long[capacity];
+        merchantIds = new int[capacity];
+        locationIds = new int[capacity];
+        channelIds = new int[capacity];
+    }
+
+    public static TransactionBatch of(List<Transaction> txns) {
+        TransactionBatch b = new TransactionBatch(Math.max(1, txns.size()));
+        for (Transaction t : txns) b.add(t);
+        return b;
+    }
+
+    /**
+     * Append a transaction (encoding its categorical fields if needed).
+     *
+     * @return false when the batch is full
+     */
+    public boolean add(Transaction t) {
+        if (size == transactions.length) return false;
+        if (!t.isEncoded()) TransactionDictionary.global().encode(t);
+        int i = size++;
+        transactions[i] = t;
+        amounts[i] = t.getAmount();
+        epochSeconds[i] = t.getTimestamp() == null ? NO_TIMESTAMP : t.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        merchantIds[i] = t.getMerchantId();
+        locationIds[i] = t.getLocationId();
+        channelIds[i] = t.getChannelId();
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(transactions, 0, size, null);
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public int capacity() { return transactions.length; }
+    public boolean isFull() { return size == transactions.length; }
+
+    public Transaction get(int i) { return transactions[i]; }
+
+    // Columns are exposed directly for rule kernels; only indices [0, size) are valid.
+    public double[] amounts() { return amounts; }
+    public long[] epochSeconds() { return epochSeconds; }
+    public int[] merchantIds() { return merchantIds; }
+    public int[] locationIds() { return locationIds; }
+    public int[] channelIds() { return channelIds; }
+}
@@ -0,0 +1,41 @@
+package com.fraud.model;
+
+/**
+ * Dictionaries for the categorical fields of {@link Transaction}. Ingest code calls
+ * {@link #encode(Transaction)} once per record; rules then compare int ids instead of strings.
+ * <p>
+ * Rules and readers share {@link #global()} so ids agree without passing the dictionary around.
+ */
+public class TransactionDictionary {
+
+    private static final TransactionDictionary GLOBAL = new TransactionDictionary();
+
+    private final CategoryDictionary merchants = new CategoryDictionary("merchant");
+    private final CategoryDictionary locations = new CategoryDictionary("location");
+    private final CategoryDictionary channels = new CategoryDictionary("channel");
+    private final CategoryDictionary currencies = new CategoryDictionary("currency");
+
+    public static TransactionDictionary global() {
+        return GLOBAL;
+    }
+
+    public CategoryDictionary merchants() { return merchants; }
+    public CategoryDictionary locations() { return locations; }
+    public CategoryDictionary channels() { return channels; }
+    public CategoryDictionary currencies() { return currencies; }
+
+    /**
+     * Assign ids to the categorical fields and replace the strings with shared instances.
+     *
+     * @return the same transaction
+     */
+    public Transaction encode(Transaction t) {
+        if (t == null) return null;
+        CategoryDictionary.Entry e;
+        if ((e = merchants.entry(t.merchant)) != null) { t.merchant = e.raw; t.merchantId = e.id; }
+        if ((e = locations.entry(t.location)) != null) { t.location = e.raw; t.locationId = e.id; }
+        if ((e = channels.entry(t.channel)) != null) { t.channel = e.raw; t.channelId = e.id; }
+        if ((e = currencies.entry(t.currency)) != null) { t.currency = e.raw; t.currencyId = e.id; }
+        return t;
+    }
+}
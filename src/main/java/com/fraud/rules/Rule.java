@@ -1,11 +1,19 @@
 package com.fraud.rules;
 
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 
 /**
  * Simple rule: evaluates single transaction and returns a RuleResult.
  */
 public interface Rule {
+
+    /** Returned by {@link #score(Transaction)} when the rule does not match. */
+    int NO_MATCH = -1;
+
+    /** Returned by {@link #maxScore()} when a rule cannot bound its contribution. */
+    int UNBOUNDED = Integer.MAX_VALUE;
+
     /**
      * Evaluate this rule for a single transaction.
      *
@@ -13,6 +21,53 @@ public interface Rule {
      * @return RuleResult (contains matched flag and score contribution)
      */
     RuleResult evaluate(Transaction txn);
+
+    /**
+     * Score-only evaluation used on the hot path. Implementations should override this
+     * without allocating (no RuleResult, no reason text).
+     *
+     * @param txn the transaction under inspection
+     * @return score contribution when matched, otherwise {@link #NO_MATCH}
+     */
+    default int score(Transaction txn) {
+        RuleResult rr = evaluate(txn);
+        return rr != null && rr.isMatched() ? rr.getScore() : NO_MATCH;
+    }
+
+    /**
+     * Columnar evaluation for bulk scoring. For every row that matches, adds the contribution to
+     * {@code scores[row]} and sets bit {@code ruleIndex} in {@code masks[row]}.
+     * <p>
+     * The default walks the rows through {@link #score(Transaction)}; built-in rules override it
+     * with tight loops over the batch columns.
+     */
+    default void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        long bit = 1L << ruleIndex;
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int s = score(batch.get(i));
+            if (s != NO_MATCH) {
+                scores[i] += s;
+                masks[i] |= bit;
+            }
+        }
+    }
+
+    /**
+     * Reason text for a transaction this rule matched. Only called when an alert is created.
+     */
+    default String reason(Transaction txn) {
+        RuleResult rr = evaluate(txn);
+        return rr == null ? null : rr.getReason();
+    }
+
+    /**
+     * Largest contribution this rule can add to a transaction's score. The engine uses it to
+     * stop evaluating once the risk band can no longer change.
+     */
+    default int maxScore() {
+        return UNBOUNDED;
+    }
+
     default String name() {
         // fallback name - implementations can override
         return this.getClass().getSimpleName();
@@ -0,0 +1,28 @@
+package com.fraud.rules.expr;
+
+import com.fraud.model.Transaction;
+
+/**
+ * Compiled form of a rule expression. Instances are built once by {@link ExpressionCompiler}
+ * and must not allocate in {@link #test}.
+ */
+@FunctionalInterface
+public interface Condition {
+
+    boolean test(Transaction txn);
+
+    default Condition and(Condition other) {
+        Condition self = this;
+        return t -> self.test(t) && other.test(t);
+    }
+
+    default Condition or(Condition other) {
+        Condition self = this;
+        return t -> self.test(t) || other.test(t);
+    }
+
+    default Condition negate() {
+        Condition self = this;
+        return t -> !self.test(t);
+    }
+}
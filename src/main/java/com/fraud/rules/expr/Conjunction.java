@@ -0,0 +1,276 @@
+package com.fraud.rules.expr;
+
+import com.fraud.model.CategoryDictionary;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * AND of per-field tests: an amount range, a 24-entry hour table and an id set per categorical
+ * field. A null table or set means the field is not tested.
+ * <p>
+ * {@link ExpressionCompiler} folds comparisons joined by {@code &&} into a single instance, so
+ * the common rule shapes run without lambda dispatch and every rule shares this one class
+ * (keeping {@link ExpressionRule#score} monomorphic). Conjunctions over a single field are
+ * tagged with their shape and take a dedicated branch, so their predictions are not shared
+ * with other rules.
+ */
+final class Conjunction implements Condition {
+
+    private double minAmount = Double.NEGATIVE_INFINITY;   // inclusive
+    private double maxAmount = Double.POSITIVE_INFINITY;   // inclusive
+    private boolean testsAmount;
+    private boolean[] hours;
+    private IdSet merchants;
+    private IdSet locations;
+    private IdSet channels;
+    private IdSet currencies;
+    private int shape = MIXED;    // which single field is tested, see classify()
+
+    private static final int MIXED = 0, AMOUNT = 1, HOURS = 2, MERCHANT = 3, LOCATION = 4, CHANNEL = 5;
+
+    private Conjunction() {}
+
+    static Conjunction amount(double min, double max) {
+        Conjunction c = new Conjunction();
+        c.minAmount = min;
+        c.maxAmount = max;
+        c.testsAmount = true;
+        return c.classify();
+    }
+
+    static Conjunction hours(boolean[] table) {
+        Conjunction c = new Conjunction();
+        c.hours = table;
+        return c.classify();
+    }
+
+    static Conjunction category(String field, IdSet ids) {
+        Conjunction c = new Conjunction();
+        switch (field) {
+            case "merchant": c.merchants = ids; break;
+            case "location": c.locations = ids; break;
+            case "channel":  c.channels = ids; break;
+            default:         c.currencies = ids; break;
+        }
+        return c.classify();
+    }
+
+    /**
+     * Both conjunctions in one, or null when they test the same categorical field
+     * (the caller then falls back to {@link Condition#and}).
+     */
+    Conjunction merge(Conjunction o) {
+        if ((merchants != null && o.merchants != null) || (locations != null && o.locations != null)
+                || (channels != null && o.channels != null) || (currencies != null && o.currencies != null)) {
+            return null;
+        }
+        Conjunction c = new Conjunction();
+        c.minAmount = Math.max(minAmount, o.minAmount);
+        c.maxAmount = Math.min(maxAmount, o.maxAmount);
+        c.testsAmount = testsAmount || o.testsAmount;
+        if (hours == null || o.hours == null) {
+            c.hours = hours != null ? hours : o.hours;
+        } else {
+            c.hours = new boolean[24];
+            for (int h = 0; h < 24; h++) c.hours[h] = hours[h] && o.hours[h];
+        }
+        c.merchants = merchants != null ? merchants : o.merchants;
+        c.locations = locations != null ? locations : o.locations;
+        c.channels = channels != null ? channels : o.channels;
+        c.currencies = currencies != null ? currencies : o.currencies;
+        return c.classify();
+    }
+
+    private Conjunction classify() {
+        boolean noAmount = !testsAmount && currencies == null;
+        boolean categories = merchants != null || locations != null || channels != null;
+        if (testsAmount && hours == null && !categories && currencies == null) shape = AMOUNT;
+        else if (noAmount && hours != null && !categories) shape = HOURS;
+        else if (noAmount && hours == null && locations == null && channels == null) shape = MERCHANT;
+        else if (noAmount && hours == null && merchants == null && channels == null) shape = LOCATION;
+        else if (noAmount && hours == null && merchants == null && locations == null) shape = CHANNEL;
+        else shape = MIXED;
+        return this;
+    }
+
+    @Override
+    public boolean test(Transaction t) {
+        // single-field shapes get their own branch so rules sharing this class don't share predictions
+        switch (shape) {
+            case AMOUNT: {
+                double amount = t.getAmount();
+                return (amount >= minAmount) & (amount <= maxAmount);
+            }
+            case HOURS: {
+                LocalDateTime ts = t.getTimestamp();
+                return ts != null && hours[ts.getHour()];
+            }
+            case MERCHANT: {
+                int id = t.getMerchantId();
+                return id >= 0 ? merchants.has(id) : merchants.hasRaw(t.getMerchant());
+            }
+            case LOCATION: {
+                int id = t.getLocationId();
+                return id >= 0 ? locations.has(id) : locations.hasRaw(t.getLocation());
+            }
+            case CHANNEL: {
+                int id = t.getChannelId();
+                return id >= 0 ? channels.has(id) : channels.hasRaw(t.getChannel());
+            }
+            default:
+                return testAll(t);
+        }
+    }
+
+    private boolean testAll(Transaction t) {
+        if (testsAmount) {
+            double amount = t.getAmount();
+            if (!((amount >= minAmount) & (amount <= maxAmount))) return false;   // NaN never matches
+        }
+        if (hours != null) {
+            LocalDateTime ts = t.getTimestamp();
+            if (ts == null || !hours[ts.getHour()]) return false;
+        }
+        if (merchants != null) {
+            int id = t.getMerchantId();
+            if (id >= 0 ? !merchants.has(id) : !merchants.hasRaw(t.getMerchant())) return false;
+        }
+        if (locations != null) {
+            int id = t.getLocationId();
+            if (id >= 0 ? !locations.has(id) : !locations.hasRaw(t.getLocation())) return false;
+        }
+        if (channels != null) {
+            int id = t.getChannelId();
+            if (id >= 0 ? !channels.has(id) : !channels.hasRaw(t.getChannel())) return false;
+        }
+        if (currencies != null) {
+            int id = t.getCurrencyId();
+            return id >= 0 ? currencies.has(id) : currencies.hasRaw(t.getCurrency());
+        }
+        return true;
+    }
+
+    /**
+     * Columnar form of {@link #test}: adds {@code weight} and bit {@code ruleIndex} for every
+     * matching row. A conjunction over a single column runs a dedicated branch-free loop like the
+     * built-in kernels; other shapes test row by row. Rows that were not dictionary-encoded fall
+     * back to their strings.
+     */
+    void scoreBatch(TransactionBatch batch, int ruleIndex, int weight, int[] scores, long[] masks) {
+        int n = batch.size();
+        if (shape == AMOUNT) {
+            double[] amounts = batch.amounts();
+            for (int i = 0; i < n; i++) {
+                double a = amounts[i];
+                int hit = (a >= minAmount) & (a <= maxAmount) ? 1 : 0;   // no && so it compiles without branches
+                scores[i] += hit * weight;
+                masks[i] |= (long) hit << ruleIndex;
+            }
+        } else if (shape == HOURS) {
+            long[] epochSeconds = batch.epochSeconds();
+            for (int i = 0; i < n; i++) {
+                long ts = epochSeconds[i];
+                if (ts == TransactionBatch.NO_TIMESTAMP) continue;
+                int hit = hours[(int) (Math.floorMod(ts, 86_400L) / 3_600L)] ? 1 : 0;
+                scores[i] += hit * weight;
+                masks[i] |= (long) hit << ruleIndex;
+            }
+        } else if (shape == MERCHANT) {
+            scoreIds(batch, batch.merchantIds(), merchants, ruleIndex, weight, scores, masks);
+        } else if (shape == LOCATION) {
+            scoreIds(batch, batch.locationIds(), locations, ruleIndex, weight, scores, masks);
+        } else if (shape == CHANNEL) {
+            scoreIds(batch, batch.channelIds(), channels, ruleIndex, weight, scores, masks);
+        } else {
+            double[] amounts = batch.amounts();
+            long[] epochSeconds = batch.epochSeconds();
+            int[] merchantIds = batch.merchantIds();
+            int[] locationIds = batch.locationIds();
+            int[] channelIds = batch.channelIds();
+            for (int i = 0; i < n; i++) {
+                int hit = matchesRow(batch, i, amounts, epochSeconds, merchantIds, locationIds, channelIds) ? 1 : 0;
+                scores[i] += hit * weight;
+                masks[i] |= (long) hit << ruleIndex;
+            }
+        }
+    }
+
+    private void scoreIds(TransactionBatch batch, int[] ids, IdSet set, int ruleIndex, int weight,
+                          int[] scores, long[] masks) {
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int id = ids[i];
+            int hit = id >= 0 ? set.hit(id) : (test(batch.get(i)) ? 1 : 0);
+            scores[i] += hit * weight;
+            masks[i] |= (long) hit << ruleIndex;
+        }
+    }
+
+    private boolean matchesRow(TransactionBatch batch, int i, double[] amounts, long[] epochSeconds,
+                               int[] merchantIds, int[] locationIds, int[] channelIds) {
+        if (testsAmount && !(amounts[i] >= minAmount && amounts[i] <= maxAmount)) return false;
+        if (hours != null) {
+            long ts = epochSeconds[i];
+            if (ts == TransactionBatch.NO_TIMESTAMP || !hours[(int) (Math.floorMod(ts, 86_400L) / 3_600L)]) return false;
+        }
+        if (merchants != null) {
+            int id = merchantIds[i];
+            if (id >= 0 ? !merchants.has(id) : !merchants.hasRaw(batch.get(i).getMerchant())) return false;
+        }
+        if (locations != null) {
+            int id = locationIds[i];
+            if (id >= 0 ? !locations.has(id) : !locations.hasRaw(batch.get(i).getLocation())) return false;
+        }
+        if (channels != null) {
+            int id = channelIds[i];
+            if (id >= 0 ? !channels.has(id) : !channels.hasRaw(batch.get(i).getChannel())) return false;
+        }
+        if (currencies != null) {   // no currency column
+            Transaction t = batch.get(i);
+            int id = t.getCurrencyId();
+            return id >= 0 ? currencies.has(id) : currencies.hasRaw(t.getCurrency());
+        }
+        return true;
+    }
+
+    /**
+     * Dictionary ids of a set of literals, with a string fallback for unencoded values.
+     * The table covers every id the dictionary had when compiled (up to {@link #MAX_TABLE}), so
+     * lookups for known values skip the out-of-range branch.
+     */
+    static final class IdSet {
+        static final int MAX_TABLE = 1 << 16;
+
+        private final byte[] ids;   // 1 for ids in the set
+        private final Set<String> normalized = new HashSet<>();
+
+        IdSet(CategoryDictionary dict, Set<String> values) {
+            BitSet bits = new BitSet();
+            for (String v : values) {
+                normalized.add(CategoryDictionary.normalize(v));
+                int id = dict.encode(v);
+                if (id != CategoryDictionary.UNKNOWN) bits.set(id);
+            }
+            ids = new byte[Math.max(bits.length(), Math.min(dict.size(), MAX_TABLE))];
+            bits.stream().forEach(i -> ids[i] = 1);
+        }
+
+        boolean has(int id) {
+            return id < ids.length && ids[id] != 0;
+        }
+
+        /** 1 if {@code id} (not UNKNOWN) is in the set, else 0. */
+        int hit(int id) {
+            return id < ids.length ? ids[id] : 0;
+        }
+
+        /** Slow path for transactions that were not dictionary-encoded. */
+        boolean hasRaw(String raw) {
+            return raw != null && normalized.contains(CategoryDictionary.normalize(raw));
+        }
+    }
+}
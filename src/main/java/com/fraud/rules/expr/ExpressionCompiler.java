@@ -0,0 +1,292 @@
+package com.fraud.rules.expr;
+
+import com.fraud.model.CategoryDictionary;
+import com.fraud.model.TransactionDictionary;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compiles rule expressions from rules.json into {@link Condition} trees.
+ * <pre>
+ *   expr       := and ( "||" and )*
+ *   and        := unary ( "&amp;&amp;" unary )*
+ *   unary      := "!" unary | "(" expr ")" | comparison
+ *   comparison := field op literal | field "in" list | field "in" range
+ *   op         := "==" | "!=" | "&lt;" | "&lt;=" | "&gt;" | "&gt;="
+ *   list       := "[" literal ( "," literal )* "]"
+ *   range      := ( "[" | "(" ) number "," number ( "]" | ")" )
+ * </pre>
+ * Fields: {@code amount}, {@code hour} (0-23, from the timestamp) and the categorical fields
+ * {@code merchant}, {@code location}, {@code channel}, {@code currency}. Categorical values are
+ * quoted and compared the way the dictionaries normalize them (trimmed, case-insensitive);
+ * only {@code ==}, {@code !=} and lists apply to them. An hour range whose start is after its
+ * end wraps around midnight, e.g. {@code hour in [22,4)}.
+ * <p>
+ * Each comparison is specialized when compiled: hour tests become a 24-entry table, categorical
+ * tests compare dictionary ids, amount tests an inclusive range. Comparisons joined by {@code &&}
+ * on different fields are folded into one {@link Conjunction}, so typical rules evaluate in a
+ * single method without lambda dispatch. Nothing is parsed or looked up per transaction.
+ * Transactions without a timestamp never satisfy an hour comparison.
+ */
+public final class ExpressionCompiler {
+
+    private final String src;
+    private int pos;
+
+    private ExpressionCompiler(String src) {
+        this.src = src;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is malformed or uses an unknown field
+     */
+    public static Condition compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty rule expression");
+        }
+        ExpressionCompiler c = new ExpressionCompiler(expression);
+        Condition cond = c.parseOr();
+        c.skipSpace();
+        if (c.pos < c.src.length()) throw c.error("unexpected '" + c.src.charAt(c.pos) + "'");
+        return cond;
+    }
+
+    // ---- grammar ----
+
+    private Condition parseOr() {
+        Condition left = parseAnd();
+        while (accept("||")) left = left.or(parseAnd());
+        return left;
+    }
+
+    private Condition parseAnd() {
+        Condition left = parseUnary();
+        while (accept("&&")) left = and(left, parseUnary());
+        return left;
+    }
+
+    private static Condition and(Condition left, Condition right) {
+        if (left instanceof Conjunction && right instanceof Conjunction) {
+            Conjunction merged = ((Conjunction) left).merge((Conjunction) right);
+            if (merged != null) return merged;
+        }
+        return left.and(right);
+    }
+
+    private Condition parseUnary() {
+        if (accept("!")) return parseUnary().negate();
+        if (accept("(")) {
+            Condition inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private Condition parseComparison() {
+        int start = skipSpace();
+        String field = identifier();
+        switch (field) {
+            case "amount":
+                return amount();
+            case "hour":
+                return hour();
+            case "merchant":
+            case "location":
+            case "channel":
+            case "currency":
+                return category(field);
+            default:
+                pos = start;
+                throw error("unknown field '" + field + "'");
+        }
+    }
+
+    private Condition amount() {
+        if (acceptKeyword("in")) {
+            boolean loInclusive = openBracket();
+            double lo = number();
+            expect(",");
+            double hi = number();
+            boolean hiInclusive = closeBracket();
+            return Conjunction.amount(loInclusive ? lo : Math.nextUp(lo), hiInclusive ? hi : Math.nextDown(hi));
+        }
+        String op = operator();
+        double v = number();
+        // exclusive bounds become the adjacent double, so every case is an inclusive range
+        switch (op) {
+            case "==": return Conjunction.amount(v, v);
+            case "!=": return Conjunction.amount(v, v).negate();
+            case "<":  return Conjunction.amount(Double.NEGATIVE_INFINITY, Math.nextDown(v));
+            case "<=": return Conjunction.amount(Double.NEGATIVE_INFINITY, v);
+            case ">":  return Conjunction.amount(Math.nextUp(v), Double.POSITIVE_INFINITY);
+            default:   return Conjunction.amount(v, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    private Condition hour() {
+        boolean[] table = new boolean[24];
+        if (acceptKeyword("in")) {
+            int at = skipSpace();
+            boolean loInclusive = openBracket();
+            int lo = hourValue();
+            if (accept(",")) {
+                int hi = hourValue();
+                boolean hiInclusive = closeBracket();
+                int first = loInclusive ? lo : lo + 1;
+                int last = hiInclusive ? hi : hi - 1;
+                if (lo <= hi) {
+                    for (int h = Math.max(first, 0); h <= Math.min(last, 23); h++) table[h] = true;
+                } else {
+                    for (int h = first; h <= 23; h++) table[h] = true;
+                    for (int h = 0; h <= last; h++) table[h] = true;
+                }
+            } else {
+                // a single-element list: [3]
+                if (!loInclusive || lo > 23) { pos = at; throw error("expected '[' and an hour from 0 to 23"); }
+                table[lo] = true;
+                expect("]");
+            }
+        } else {
+            String op = operator();
+            int v = hourValue();
+            for (int h = 0; h < 24; h++) {
+                switch (op) {
+                    case "==": table[h] = h == v; break;
+                    case "!=": table[h] = h != v; break;
+                    case "<":  table[h] = h < v; break;
+                    case "<=": table[h] = h <= v; break;
+                    case ">":  table[h] = h > v; break;
+                    default:   table[h] = h >= v; break;
+                }
+            }
+        }
+        return Conjunction.hours(table);
+    }
+
+    private Condition category(String field) {
+        Set<String> values = new HashSet<>();
+        boolean negate = false;
+        if (acceptKeyword("in")) {
+            expect("[");
+            do {
+                values.add(string());
+            } while (accept(","));
+            expect("]");
+        } else {
+            int at = skipSpace();
+            String op = operator();
+            if (!"==".equals(op) && !"!=".equals(op)) {
+                pos = at;
+                throw error("'" + op + "' does not apply to " + field);
+            }
+            negate = "!=".equals(op);
+            values.add(string());
+        }
+
+        TransactionDictionary dicts = TransactionDictionary.global();
+        CategoryDictionary dict;
+        switch (field) {
+            case "merchant": dict = dicts.merchants(); break;
+            case "location": dict = dicts.locations(); break;
+            case "channel":  dict = dicts.channels(); break;
+            default:         dict = dicts.currencies(); break;
+        }
+        Condition c = Conjunction.category(field, new Conjunction.IdSet(dict, values));
+        return negate ? c.negate() : c;
+    }
+
+    // ---- lexing ----
+
+    private int skipSpace() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private boolean peek(String token) {
+        skipSpace();
+        return src.startsWith(token, pos);
+    }
+
+    private boolean accept(String token) {
+        if (!peek(token)) return false;
+        pos += token.length();
+        return true;
+    }
+
+    private boolean acceptKeyword(String word) {
+        int at = skipSpace();
+        if (!src.startsWith(word, at)) return false;
+        int end = at + word.length();
+        if (end < src.length() && Character.isJavaIdentifierPart(src.charAt(end))) return false;
+        pos = end;
+        return true;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) throw error("expected '" + token + "'");
+    }
+
+    private String identifier() {
+        int start = skipSpace();
+        while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos))) pos++;
+        if (pos == start) throw error("expected a field name");
+        return src.substring(start, pos);
+    }
+
+    private String operator() {
+        for (String op : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+            if (accept(op)) return op;
+        }
+        throw error("expected a comparison operator");
+    }
+
+    private boolean openBracket() {
+        if (accept("[")) return true;
+        if (accept("(")) return false;
+        throw error("expected '[' or '('");
+    }
+
+    private boolean closeBracket() {
+        if (accept("]")) return true;
+        if (accept(")")) return false;
+        throw error("expected ']' or ')'");
+    }
+
+    private double number() {
+        int start = skipSpace();
+        if (pos < src.length() && (src.charAt(pos) == '-' || src.charAt(pos) == '+')) pos++;
+        while (pos < src.length() && (Character.isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) pos++;
+        try {
+            return Double.parseDouble(src.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("expected a number");
+        }
+    }
+
+    private int hourValue() {
+        int at = skipSpace();
+        double v = number();
+        if (v != Math.rint(v) || v < 0 || v > 24) {
+            pos = at;
+            throw error("hour must be a whole number between 0 and 24");
+        }
+        return (int) v;
+    }
+
+    private String string() {
+        skipSpace();
+        if (pos >= src.length() || src.charAt(pos) != '"') throw error("expected a quoted value");
+        int end = src.indexOf('"', pos + 1);
+        if (end < 0) throw error("unterminated string");
+        String value = src.substring(pos + 1, end);
+        pos = end + 1;
+        return value;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in: " + src);
+    }
+}
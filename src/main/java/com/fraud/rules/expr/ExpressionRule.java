@@ -0,0 +1,74 @@
+package com.fraud.rules.expr;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.rules.Rule;
+import com.fraud.rules.RuleResult;
+
+/**
+ * Rule declared in rules.json as an expression, e.g.
+ * <pre>
+ * "LargeOnlineNightRule": {"weight": 20, "when": "amount &gt;= 20000 &amp;&amp; channel == \"online\" &amp;&amp; hour in [0,5)"}
+ * </pre>
+ * The expression is compiled once by {@link ExpressionCompiler}; scoring only runs the compiled
+ * {@link Condition}. {@link #scoreBatch} runs the common {@code &&}-of-fields shape straight
+ * over the batch columns, like the built-in kernels.
+ */
+public class ExpressionRule implements Rule {
+    private final String name;
+    private final String expression;
+    private final Condition condition;
+    private final int weight;
+
+    /**
+     * @throws IllegalArgumentException if the expression does not compile
+     */
+    public ExpressionRule(String name, String expression, int weight) {
+        this.name = name;
+        this.expression = expression;
+        this.condition = ExpressionCompiler.compile(expression);
+        this.weight = weight;
+    }
+
+    @Override
+    public RuleResult evaluate(Transaction txn) {
+        if (txn == null) return new RuleResult(name(), false, 0, "txn-null");
+        if (condition.test(txn)) {
+            return new RuleResult(name(), true, weight, "Expr:" + expression);
+        }
+        return new RuleResult(name(), false, 0, "ok");
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        return txn != null && condition.test(txn) ? weight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        if (condition instanceof Conjunction) {
+            ((Conjunction) condition).scoreBatch(batch, ruleIndex, weight, scores, masks);
+        } else {
+            Rule.super.scoreBatch(batch, ruleIndex, scores, masks);
+        }
+    }
+
+    @Override
+    public String reason(Transaction txn) {
+        return "Expr:" + expression;
+    }
+
+    @Override
+    public int maxScore() {
+        return weight;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+}
@@ -1,12 +1,16 @@
 package com.fraud.rules.impl;
 
+import com.fraud.model.CategoryDictionary;
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.model.TransactionDictionary;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
 
 public class ChannelRiskRule implements Rule {
 
     private final int onlineWeight;
+    private final int onlineId = TransactionDictionary.global().channels().encode("online");
 
     public ChannelRiskRule(int onlineWeight) {
         this.onlineWeight = onlineWeight;
@@ -30,6 +34,35 @@ public class ChannelRiskRule implements Rule {
         return new RuleResult(name(), false, 0, "ok");
     }
 
+    @Override
+    public int score(Transaction txn) {
+        if (txn == null) return NO_MATCH;
+        int id = txn.getChannelId();
+        if (id != CategoryDictionary.UNKNOWN) return id == onlineId ? onlineWeight : NO_MATCH;
+
+        if (txn.getChannel() == null) return NO_MATCH;
+        // trim() returns the same instance when there is nothing to strip
+        return txn.getChannel().trim().equalsIgnoreCase("online") ? onlineWeight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        int[] ids = batch.channelIds();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int id = ids[i];
+            int hit = id == CategoryDictionary.UNKNOWN
+                    ? (score(batch.get(i)) != NO_MATCH ? 1 : 0)
+                    : (id == onlineId ? 1 : 0);
+            scores[i] += hit * onlineWeight;
+            masks[i] |= (long) hit << ruleIndex;
+        }
+    }
+
+    @Override
+    public int maxScore() {
+        return onlineWeight;
+    }
+
     @Override
     public String name() {
         return "ChannelRiskRule";
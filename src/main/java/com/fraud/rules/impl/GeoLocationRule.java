@@ -1,21 +1,26 @@
 package com.fraud.rules.impl;
 
+import com.fraud.model.CategoryDictionary;
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
 
 import java.util.Set;
 
 /**
- * Triggers when transaction location is in a configured risky countries set.
+ * Triggers when transaction location is one of the configured risky regions (or an alias of one).
+ * The contribution is the region's own weight.
  */
 public class GeoLocationRule implements Rule {
-    private final Set<String> riskyCountries;
-    private final int weight;
+    private final RiskRegionTable regions;
 
     public GeoLocationRule(Set<String> riskyCountries, int weight) {
-        this.riskyCountries = riskyCountries;
-        this.weight = weight;
+        this(RiskRegionTable.uniform(riskyCountries, weight));
+    }
+
+    public GeoLocationRule(RiskRegionTable regions) {
+        this.regions = regions;
     }
 
     @Override
@@ -24,14 +29,42 @@ public class GeoLocationRule implements Rule {
         String loc = txn.getLocation();
         if (loc == null || loc.trim().isEmpty()) return new RuleResult(name(), false, 0, "no-location");
         String norm = loc.trim();
-        for (String r : riskyCountries) {
-            if (r != null && r.equalsIgnoreCase(norm)) {
-                return new RuleResult(name(), true, weight, "RiskCountry:" + norm);
-            }
+        int weight = regions.weightOf(norm);
+        if (weight > 0) {
+            String region = regions.regionOf(norm);
+            String suffix = region == null || region.equalsIgnoreCase(norm) ? "" : "(" + region + ")";
+            return new RuleResult(name(), true, weight, "RiskCountry:" + norm + suffix);
         }
         return new RuleResult(name(), false, 0, "ok");
     }
 
+    @Override
+    public int score(Transaction txn) {
+        if (txn == null) return NO_MATCH;
+        int id = txn.getLocationId();
+        int weight = id != CategoryDictionary.UNKNOWN ? regions.weightOf(id) : regions.weightOf(txn.getLocation());
+        return weight > 0 ? weight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        int[] ids = batch.locationIds();
+        long bit = 1L << ruleIndex;
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int id = ids[i];
+            int w = id != CategoryDictionary.UNKNOWN ? regions.weightOf(id) : regions.weightOf(batch.get(i).getLocation());
+            if (w > 0) {
+                scores[i] += w;
+                masks[i] |= bit;
+            }
+        }
+    }
+
+    @Override
+    public int maxScore() {
+        return regions.getMaxWeight();
+    }
+
     @Override
     public String name() {
         return "GeoLocationRule";
@@ -1,6 +1,7 @@
 package com.fraud.rules.impl;
 
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
 
@@ -25,6 +26,26 @@ public class HighAmountRule implements Rule {
         return new RuleResult(name(), false, 0, "ok");
     }
 
+    @Override
+    public int score(Transaction txn) {
+        return txn != null && txn.getAmount() >= threshold ? weight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        double[] amounts = batch.amounts();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int hit = amounts[i] >= threshold ? 1 : 0;
+            scores[i] += hit * weight;
+            masks[i] |= (long) hit << ruleIndex;
+        }
+    }
+
+    @Override
+    public int maxScore() {
+        return weight;
+    }
+
     @Override
     public String name() {
         return "HighAmountRule";
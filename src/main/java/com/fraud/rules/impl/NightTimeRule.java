@@ -1,6 +1,7 @@
 package com.fraud.rules.impl;
 
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
 
@@ -14,11 +15,13 @@ public class NightTimeRule implements Rule {
     private final int nightStartHour; // inclusive
     private final int nightEndHour;   // exclusive
     private final int weight;
+    private final int[] nightHour = new int[24]; // 1 for hours inside the window, for scoreBatch
 
     public NightTimeRule(int nightStartHour, int nightEndHour, int weight) {
         this.nightStartHour = nightStartHour;
         this.nightEndHour = nightEndHour;
         this.weight = weight;
+        for (int h = 0; h < 24; h++) nightHour[h] = inNightWindow(h) ? 1 : 0;
     }
 
     @Override
@@ -29,20 +32,43 @@ public class NightTimeRule implements Rule {
 
         LocalDateTime ts = txn.getTimestamp();
         int hour = ts.getHour();
-        boolean inNightWindow;
 
+        if (inNightWindow(hour)) {
+            return new RuleResult(name(), true, weight, "NightTimeHour:" + hour);
+        }
+        return new RuleResult(name(), false, 0, "ok");
+    }
+
+    @Override
+    public int score(Transaction txn) {
+        if (txn == null || txn.getTimestamp() == null) return NO_MATCH;
+        return inNightWindow(txn.getTimestamp().getHour()) ? weight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        long[] ts = batch.epochSeconds();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            long t = ts[i];
+            if (t == TransactionBatch.NO_TIMESTAMP) continue;
+            int hit = nightHour[(int) (Math.floorMod(t, 86_400L) / 3_600L)];
+            scores[i] += hit * weight;
+            masks[i] |= (long) hit << ruleIndex;
+        }
+    }
+
+    private boolean inNightWindow(int hour) {
         if (nightStartHour <= nightEndHour) {
             // Simple window (e.g. 0-5)
-            inNightWindow = hour >= nightStartHour && hour < nightEndHour;
-        } else {
-            // Wrap around midnight (e.g. 22-3)
-            inNightWindow = (hour >= nightStartHour || hour < nightEndHour);
+            return hour >= nightStartHour && hour < nightEndHour;
         }
+        // Wrap around midnight (e.g. 22-3)
+        return hour >= nightStartHour || hour < nightEndHour;
+    }
 
-        if (inNightWindow) {
-            return new RuleResult(name(), true, weight, "NightTimeHour:" + hour);
-        }
-        return new RuleResult(name(), false, 0, "ok");
+    @Override
+    public int maxScore() {
+        return weight;
     }
 
     @Override
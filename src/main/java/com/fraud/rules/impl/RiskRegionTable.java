@@ -0,0 +1,184 @@
+package com.fraud.rules.impl;
+
+import com.fraud.model.CategoryDictionary;
+import com.fraud.model.TransactionDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup of risky regions (countries, sanctioned areas, ...) and their weights.
+ * Each region has a name plus aliases (ISO-2, ISO-3, local names); all spellings resolve to the
+ * region's weight in O(1):
+ * <ul>
+ *   <li>encoded transactions: array index by location dictionary id</li>
+ *   <li>raw strings: open-addressing table hashed and compared case-insensitively over the
+ *       trimmed characters, so no normalized copy of the input is ever built</li>
+ * </ul>
+ * Built once (see RuleFactory) and shared read-only by the scoring threads.
+ */
+public final class RiskRegionTable {
+
+    /** One configured region. */
+    public static final class Region {
+        private final String name;
+        private final int weight;
+        private final List<String> aliases;
+
+        public Region(String name, int weight, List<String> aliases) {
+            this.name = name;
+            this.weight = weight;
+            this.aliases = aliases == null ? Collections.emptyList() : new ArrayList<>(aliases);
+        }
+
+        public String getName() { return name; }
+        public int getWeight() { return weight; }
+        public List<String> getAliases() { return Collections.unmodifiableList(aliases); }
+    }
+
+    // open-addressing table: keys are upper-cased spellings, slots point into regionNames/regionWeights
+    private final String[] keys;
+    private final int[] slotRegion;
+    private final int mask;
+    private final List<String> regionNames = new ArrayList<>();
+    private final List<Integer> regionWeights = new ArrayList<>();
+    private final int[] weightByLocationId;
+    private final int maxWeight;
+    private int spellings;
+
+    public RiskRegionTable(List<Region> regions) {
+        int total = 0;
+        for (Region r : regions) total += 1 + r.aliases.size();
+        int cap = Integer.highestOneBit(Math.max(4, total * 2 - 1)) << 1;
+        this.keys = new String[cap];
+        this.slotRegion = new int[cap];
+        this.mask = cap - 1;
+
+        CategoryDictionary dict = TransactionDictionary.global().locations();
+        Map<Integer, Integer> byId = new HashMap<>();
+        for (Region r : regions) {
+            if (r.name == null || r.weight <= 0) continue;
+            int regionIndex = regionNames.size();
+            regionNames.add(r.name);
+            regionWeights.add(r.weight);
+            List<String> all = new ArrayList<>(r.aliases);
+            all.add(0, r.name);
+            for (String s : all) {
+                if (s == null || s.trim().isEmpty()) continue;
+                // later (more specific) entries win, so an explicit region can override a default list
+                put(s, regionIndex);
+                int id = dict.encode(s);
+                if (id != CategoryDictionary.UNKNOWN) byId.put(id, r.weight);
+            }
+        }
+        int maxId = byId.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        this.weightByLocationId = new int[maxId + 1];
+        byId.forEach((id, w) -> weightByLocationId[id] = w);
+        this.maxWeight = regionWeights.stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    /** Every name in {@code countries} at the same weight (the classic riskyCountries list). */
+    public static RiskRegionTable uniform(Iterable<String> countries, int weight) {
+        List<Region> regions = new ArrayList<>();
+        for (String c : countries) regions.add(new Region(c, weight, null));
+        return new RiskRegionTable(regions);
+    }
+
+    /** Weight for a location dictionary id, 0 when not risky. */
+    public int weightOf(int locationId) {
+        return locationId >= 0 && locationId < weightByLocationId.length ? weightByLocationId[locationId] : 0;
+    }
+
+    /** Weight for a raw location string, 0 when not risky. Does not allocate. */
+    public int weightOf(String location) {
+        int region = find(location);
+        return region < 0 ? 0 : regionWeights.get(region);
+    }
+
+    /** Configured region name an alias resolves to, or null. */
+    public String regionOf(String location) {
+        int region = find(location);
+        return region < 0 ? null : regionNames.get(region);
+    }
+
+    public int getMaxWeight() {
+        return maxWeight;
+    }
+
+    /** Number of distinct spellings (names and aliases) known. */
+    public int size() {
+        return spellings;
+    }
+
+    private void put(String spelling, int regionIndex) {
+        int start = firstNonBlank(spelling);
+        int end = lastNonBlank(spelling);
+        int slot = hash(spelling, start, end) & mask;
+        while (keys[slot] != null && !matches(keys[slot], spelling, start, end)) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == null) {
+            keys[slot] = upper(spelling, start, end);
+            spellings++;
+        }
+        slotRegion[slot] = regionIndex;
+    }
+
+    private int find(String location) {
+        if (location == null) return -1;
+        int start = firstNonBlank(location);
+        int end = lastNonBlank(location);
+        if (start >= end) return -1;
+        int slot = hash(location, start, end) & mask;
+        String k;
+        while ((k = keys[slot]) != null) {
+            if (matches(k, location, start, end)) return slotRegion[slot];
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // same whitespace definition as String.trim()
+    private static int firstNonBlank(String s) {
+        int i = 0;
+        while (i < s.length() && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int lastNonBlank(String s) {
+        int i = s.length();
+        while (i > 0 && s.charAt(i - 1) <= ' ') i--;
+        return i;
+    }
+
+    // char-wise, so stored keys compare exactly like the lookup in matches()
+    private static String upper(String s, int start, int end) {
+        char[] c = new char[end - start];
+        for (int i = start; i < end; i++) c[i - start] = Character.toUpperCase(s.charAt(i));
+        return new String(c);
+    }
+
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + Character.toUpperCase(s.charAt(i));
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String key, String s, int start, int end) {
+        if (key.length() != end - start) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != Character.toUpperCase(s.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RiskRegionTable{spellings=" + size() + ", maxWeight=" + maxWeight
+                + ", ids=" + Arrays.stream(weightByLocationId).filter(w -> w > 0).count() + '}';
+    }
+}
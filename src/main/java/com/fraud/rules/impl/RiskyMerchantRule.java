@@ -1,15 +1,20 @@
 package com.fraud.rules.impl;
 
+import com.fraud.model.CategoryDictionary;
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.model.TransactionDictionary;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 
 public class RiskyMerchantRule implements Rule {
 
     private final Set<String> riskyMerchants; // Stored as UPPERCASE
+    private final BitSet riskyMerchantIds = new BitSet(); // dictionary ids, for encoded transactions
     private final int weight;
 
     public RiskyMerchantRule(Set<String> rawMerchants, int weight) {
@@ -21,6 +26,11 @@ public class RiskyMerchantRule implements Rule {
                 if (m != null) this.riskyMerchants.add(m.trim().toUpperCase());
             }
         }
+        CategoryDictionary dict = TransactionDictionary.global().merchants();
+        for (String m : riskyMerchants) {
+            int id = dict.encode(m);
+            if (id != CategoryDictionary.UNKNOWN) riskyMerchantIds.set(id);
+        }
     }
 
     @Override
@@ -38,6 +48,48 @@ public class RiskyMerchantRule implements Rule {
         return new RuleResult(name(), false, 0, "ok");
     }
 
+    @Override
+    public int score(Transaction txn) {
+        if (txn == null) return NO_MATCH;
+        int id = txn.getMerchantId();
+        if (id != CategoryDictionary.UNKNOWN) return riskyMerchantIds.get(id) ? weight : NO_MATCH;
+
+        if (txn.getMerchant() == null) return NO_MATCH;
+        String merchant = txn.getMerchant();
+        // merchants usually arrive trimmed and upper-cased; only normalize (and allocate) when needed
+        String key = isNormalized(merchant) ? merchant : merchant.trim().toUpperCase();
+        return riskyMerchants.contains(key) ? weight : NO_MATCH;
+    }
+
+    @Override
+    public void scoreBatch(TransactionBatch batch, int ruleIndex, int[] scores, long[] masks) {
+        int[] ids = batch.merchantIds();
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            int id = ids[i];
+            int hit = id != CategoryDictionary.UNKNOWN
+                    ? (riskyMerchantIds.get(id) ? 1 : 0)
+                    : (score(batch.get(i)) != NO_MATCH ? 1 : 0);
+            scores[i] += hit * weight;
+            masks[i] |= (long) hit << ruleIndex;
+        }
+    }
+
+    private static boolean isNormalized(String s) {
+        int len = s.length();
+        if (len > 0 && (Character.isWhitespace(s.charAt(0)) || Character.isWhitespace(s.charAt(len - 1)))) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (Character.isLowerCase(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int maxScore() {
+        return weight;
+    }
+
     @Override
     public String name() {
         return "RiskyMerchantRule";
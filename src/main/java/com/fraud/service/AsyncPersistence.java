@@ -0,0 +1,430 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fraud.dao.AlertStore;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.util.DateUtil;
+import com.fraud.util.ShutdownUtil;
+import com.fraud.util.TransactionJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes scored transactions and their alerts off the decision path. {@link #submit} only
+ * queues the pair; {@code writers} threads take records from one bounded queue and write them
+ * in groups of up to {@code batchSize}, or whatever arrived within {@code maxDelayMillis} of the
+ * first record of a group. Each group is one {@link TransactionDao#saveAll} followed by one
+ * {@link AlertStore#saveAll} for the alerts whose transaction went in.
+ * <p>
+ * When the database falls behind and the queue fills up, {@link Backpressure#BLOCK} makes
+ * {@link #submit} wait, {@link Backpressure#SPILL} appends the record to a local JSON-lines file
+ * instead. Records the database rejects are spilled too (with SPILL), otherwise logged and
+ * counted. The spill file is written back by {@link #close} and, if an earlier run left one, at
+ * construction; records that fail again stay in it for the next run.
+ * <p>
+ * Alerts get their database id when written, so alerts returned by {@link DetectionService} have
+ * none yet. {@link #submit} may be called from several threads, also while {@link #close} runs
+ * (e.g. from a shutdown hook): close waits for submits in progress, and a record is either written
+ * or refused with an exception, never queued behind the writers' stop signal.
+ */
+public class AsyncPersistence implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncPersistence.class);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /** What {@link #submit} does when the queue is full. */
+    public enum Backpressure {
+        /** Wait for room: decisions slow down to the database's pace. */
+        BLOCK,
+        /** Append to the spill file and return: decisions keep their pace, writes catch up later. */
+        SPILL;
+
+        public static Backpressure of(String value) {
+            String v = value == null ? "" : value.trim();
+            if (v.isEmpty()) return BLOCK;
+            try {
+                return valueOf(v.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown backpressure '" + value + "' (expected block or spill)");
+            }
+        }
+    }
+
+    private static final Record POISON = new Record(null, null);
+
+    private final TransactionDao txDao;
+    private final AlertStore alertDao;
+    private final BlockingQueue<Record> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Backpressure backpressure;
+    private final Path spillFile;
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Object spillLock = new Object();
+    private BufferedWriter spill;     // guarded by spillLock
+    // submits hold the read lock, close takes the write lock to set closed
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed;           // guarded by closing
+
+    /**
+     * @param queueCapacity  records buffered before backpressure applies
+     * @param writers        writer threads (each holds one connection while writing a group)
+     * @param batchSize      most records written as one group
+     * @param maxDelayMillis longest a record waits for its group to fill
+     * @param spillFile      where SPILL appends records; required for SPILL, ignored for BLOCK
+     */
+    public AsyncPersistence(TransactionDao txDao, AlertStore alertDao, int queueCapacity, int writers, int batchSize,
+                            long maxDelayMillis, Backpressure backpressure, Path spillFile) {
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be > 0");
+        if (writers <= 0) throw new IllegalArgumentException("writers must be > 0");
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        if (maxDelayMillis < 0) throw new IllegalArgumentException("maxDelayMillis must be >= 0");
+        if (backpressure == Backpressure.SPILL && spillFile == null) {
+            throw new IllegalArgumentException("spillFile required for SPILL backpressure");
+        }
+        this.txDao = Objects.requireNonNull(txDao, "txDao required");
+        this.alertDao = Objects.requireNonNull(alertDao, "alertDao required");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.backpressure = Objects.requireNonNull(backpressure, "backpressure required");
+        this.spillFile = spillFile;
+
+        if (backpressure == Backpressure.SPILL) replaySpill();
+        for (int i = 0; i < writers; i++) {
+            Thread th = new Thread(this::work, "persist-writer-" + i);
+            th.setDaemon(true);
+            threads.add(th);
+        }
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Queue a transaction and its alert (or null) for writing. Applies the backpressure policy
+     * when the queue is full.
+     *
+     * @throws IllegalStateException if closed
+     */
+    public void submit(Transaction tx, FraudAlert alert) {
+        Record r = new Record(Objects.requireNonNull(tx, "tx required"), alert);
+        closing.readLock().lock();
+        try {
+            if (closed) throw new IllegalStateException("persistence closed");
+            if (queue.offer(r)) return;
+            if (backpressure == Backpressure.SPILL) {
+                spill(r);
+                return;
+            }
+            try {
+                queue.put(r);
+            } catch (InterruptedException e) {
+                // do not lose the record because the caller is being cancelled
+                Thread.currentThread().interrupt();
+                write(Collections.singletonList(r));
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write everything queued, stop the writers, then write back the spill file. Idempotent. If
+     * the calling thread is interrupted, it still waits for the writers and keeps its interrupt flag.
+     */
+    @Override
+    public synchronized void close() {
+        closing.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        // no submit is in progress or will queue anything: the pills come after the last record
+        for (int i = 0; i < threads.size(); i++) ShutdownUtil.uninterruptibly(() -> queue.put(POISON));
+        for (Thread th : threads) ShutdownUtil.uninterruptibly(th::join);
+        if (backpressure == Backpressure.SPILL) replaySpill();
+        log.info("Async persistence closed: {} written in {} batches, {} spilled, {} failed",
+                getWritten(), getBatches(), getSpilled(), getFailed());
+    }
+
+    /** Records written to the database. */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /** Records appended to the spill file (queue full or rejected by the database). */
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /** Records the database rejected and that could not be spilled; they are lost. */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private void work() {
+        List<Record> group = new ArrayList<>(batchSize);
+        try {
+            boolean stop = false;
+            while (!stop) {
+                Record first = queue.take();
+                if (first == POISON) break;
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < batchSize) {
+                    queue.drainTo(group, batchSize - group.size());
+                    // one pill per writer: write the records drained with them, keep one pill
+                    // and hand the others back
+                    int drained = group.size();
+                    group.removeIf(r -> r == POISON);
+                    int pills = drained - group.size();
+                    if (pills > 0) {
+                        for (int i = 1; i < pills; i++) queue.put(POISON);
+                        stop = true;
+                        break;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    if (group.size() >= batchSize || wait <= 0) break;
+                    Record next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    if (next == POISON) {
+                        stop = true;
+                        break;
+                    }
+                    group.add(next);
+                }
+                write(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // one batch insert for the group's transactions, then one for the alerts whose row went in
+    private void write(List<Record> group) {
+        if (group.isEmpty()) return;
+        batches.increment();
+        List<Transaction> txns = new ArrayList<>(group.size());
+        for (Record r : group) {
+            if (r.tx != null) txns.add(r.tx);
+        }
+        Set<Transaction> failedTxns = identitySet();
+        Set<Transaction> duplicates = identitySet();
+        try {
+            if (txDao.isIdempotent()) {
+                TransactionDao.SaveResult result = txDao.insertAllIfAbsent(txns);
+                failedTxns.addAll(result.getFailed());
+                duplicates.addAll(result.getDuplicates());
+            } else {
+                failedTxns.addAll(txDao.saveAll(txns));
+            }
+        } catch (RuntimeException e) {
+            log.error("Async write of {} transactions failed", txns.size(), e);
+            failedTxns.addAll(txns);
+        }
+        written.add(txns.size() - failedTxns.size());
+
+        List<Record> rejected = new ArrayList<>();
+        List<FraudAlert> alerts = new ArrayList<>();
+        for (Record r : group) {
+            if (r.tx != null && failedTxns.contains(r.tx)) rejected.add(r);   // alert waits for its row
+            else if (r.tx != null && duplicates.contains(r.tx)) continue;     // stored with its alert before
+            else if (r.alert != null) alerts.add(r.alert);
+        }
+        Set<FraudAlert> failedAlerts = identitySet();
+        try {
+            failedAlerts.addAll(alertDao.saveAll(alerts));
+        } catch (RuntimeException e) {
+            log.error("Async write of {} alerts failed", alerts.size(), e);
+            failedAlerts.addAll(alerts);
+        }
+        // the transaction row exists; only the alert needs writing again
+        for (FraudAlert a : failedAlerts) rejected.add(new Record(null, a));
+
+        for (Record r : rejected) {
+            if (backpressure == Backpressure.SPILL) spill(r);
+            else failed.increment();
+        }
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    // ------------------------------------------------------------------
+    // spill file: one JSON object per line, {"txn":{...},"alert":{...}}; either part may be absent
+    // ------------------------------------------------------------------
+
+    private void spill(Record r) {
+        synchronized (spillLock) {
+            try {
+                if (spill == null) {
+                    spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                spill.write(JSON.writeValueAsString(toJson(r)));
+                spill.newLine();
+                spill.flush();
+                spilled.increment();
+            } catch (IOException e) {
+                failed.increment();
+                log.error("Could not spill tx={} to {}; record lost", r.transactionId(), spillFile, e);
+            }
+        }
+    }
+
+    /**
+     * Write back a spill file left by an earlier run or by this one; failures are spilled again.
+     * The file is renamed to {@code <spillFile>.replay} first and deleted once written back, so a
+     * crash in between leaves the records for the next start (then with possible duplicates).
+     */
+    private void replaySpill() {
+        Path replay = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        List<Record> records = new ArrayList<>();
+        synchronized (spillLock) {
+            closeSpill();
+            try {
+                if (!Files.exists(replay)) {
+                    if (!Files.exists(spillFile)) return;
+                    Files.move(spillFile, replay);
+                }
+                for (String line : Files.readAllLines(replay, StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty()) records.add(fromJson(line));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read spill file " + replay, e);
+            }
+        }
+        log.info("Writing back {} spilled records from {}", records.size(), replay);
+        for (int i = 0; i < records.size(); i += batchSize) {
+            write(records.subList(i, Math.min(records.size(), i + batchSize)));
+        }
+        synchronized (spillLock) {
+            closeSpill();
+            try {
+                Files.delete(replay);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete " + replay, e);
+            }
+        }
+    }
+
+    private void closeSpill() {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            spill = null;
+        }
+    }
+
+    private static ObjectNode toJson(Record r) {
+        ObjectNode n = JSON.createObjectNode();
+        if (r.tx != null) {
+            Transaction t = r.tx;
+            ObjectNode txn = n.putObject("txn");
+            txn.put("transactionId", t.getTransactionId());
+            txn.put("accountId", t.getAccountId());
+            txn.put("amount", t.getAmount());
+            txn.put("currency", t.getCurrency());
+            txn.put("timestamp", t.getTimestamp() == null ? null : DateUtil.format(t.getTimestamp()));
+            txn.put("merchant", t.getMerchant());
+            txn.put("location", t.getLocation());
+            txn.put("channel", t.getChannel());
+        }
+        if (r.alert != null) {
+            FraudAlert a = r.alert;
+            ObjectNode alert = n.putObject("alert");
+            alert.put("transactionId", a.getTransactionId());
+            alert.put("accountId", a.getAccountId());
+            alert.put("score", a.getScore());
+            alert.put("riskLevel", a.getRiskLevel());
+            alert.put("reason", a.getReason());
+            alert.put("configVersion", a.getConfigVersion());
+            if (a.getRules() != null) {
+                ArrayNode rules = alert.putArray("rules");
+                a.getRules().forEach(rules::add);
+            }
+        }
+        return n;
+    }
+
+    private static Record fromJson(String line) throws IOException {
+        JsonNode n = JSON.readTree(line);
+        Transaction tx = null;
+        if (n.hasNonNull("txn")) {
+            tx = TransactionJson.read(JSON.treeAsTokens(n.get("txn")), new Transaction());
+        }
+        FraudAlert alert = null;
+        JsonNode a = n.get("alert");
+        if (a != null && !a.isNull()) {
+            alert = new FraudAlert(a.path("transactionId").asText(), a.path("accountId").asText(),
+                    a.path("score").asInt(), a.path("riskLevel").asText(), a.path("reason").asText(null));
+            alert.setConfigVersion(a.path("configVersion").asText(null));
+            if (a.has("rules")) {
+                List<String> rules = new ArrayList<>();
+                a.get("rules").forEach(r -> rules.add(r.asText()));
+                alert.setRules(rules);
+            }
+        }
+        return new Record(tx, alert);
+    }
+
+    /** A transaction and its alert; tx is null for an alert whose transaction is already written. */
+    private static final class Record {
+        final Transaction tx;
+        final FraudAlert alert;
+
+        Record(Transaction tx, FraudAlert alert) {
+            this.tx = tx;
+            this.alert = alert;
+        }
+
+        String transactionId() {
+            return tx != null ? tx.getTransactionId() : alert.getTransactionId();
+        }
+    }
+}
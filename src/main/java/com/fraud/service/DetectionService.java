@@ -1,81 +1,321 @@
 package com.fraud.service;
 
-import com.fraud.dao.AlertDao;
+import com.fraud.dao.AlertStore;
+import com.fraud.dao.DaoException;
 import com.fraud.dao.TransactionDao;
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.RulePipeline;
+import com.fraud.engine.ScoreCard;
 import com.fraud.model.FraudAlert;
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.model.TransactionDictionary;
 import com.fraud.rules.Rule;
-import com.fraud.rules.RuleResult;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.VelocityStore;
+import com.fraud.state.WindowCheck;
+import com.fraud.state.WindowPolicy;
 
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Scores transactions (velocity/duplicate state plus the rule engine) and persists them with any
+ * alert.
+ * <p>
+ * Safe to call from several threads as long as each account's transactions are analyzed by one
+ * thread at a time and in order (see {@link ParallelDetectionExecutor}): the velocity check reads
+ * the account's window and then records into it.
+ */
 public class DetectionService {
+    private static final int VELOCITY_WEIGHT = 20; // choose some weight or make it configurable
+    private static final int DUPLICATE_WEIGHT = 15;
+
+    /** Rule names recorded in {@link FraudAlert#getRules()} for the velocity and duplicate checks. */
+    public static final String VELOCITY_RULE = "Velocity";
+    public static final String DUPLICATE_RULE = "Duplicate";
+
     private final TransactionDao txDao;
-    private final AlertDao alertDao;
-    private final List<Rule> rules;
-    private final int highRiskThreshold;
-    private final int mediumRiskThreshold;
+    private final AlertStore alertDao;
+    private final AsyncPersistence async;
+    private final RulePipeline pipeline;
     private final int velocityWindowSeconds;
     private final int velocityLimit;
+    private final VelocityStore velocityStore;
+    private final WindowPolicy windowPolicy;
+    private final AtomicLong lateEvents = new AtomicLong();
+    // per-thread working state, so scoring a LOW transaction allocates nothing here
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
 
-    public DetectionService(TransactionDao txDao, AlertDao alertDao,
+    public DetectionService(TransactionDao txDao, AlertStore alertDao,
                             List<Rule> rules, int mediumRiskThreshold, int highRiskThreshold,
                             int velocityWindowSeconds, int velocityLimit) {
+        this(txDao, alertDao, rules, mediumRiskThreshold, highRiskThreshold,
+                velocityWindowSeconds, velocityLimit, new InMemoryVelocityStore(
+                        Math.max(InMemoryVelocityStore.DEFAULT_CAPACITY, velocityLimit), velocityLimit,
+                        Math.max(1, velocityWindowSeconds)));
+    }
+
+    /**
+     * @param velocityStore source of per-account history for the velocity and duplicate checks;
+     *                      the DAOs are then only used for persistence
+     */
+    public DetectionService(TransactionDao txDao, AlertStore alertDao,
+                            List<Rule> rules, int mediumRiskThreshold, int highRiskThreshold,
+                            int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore) {
+        this(txDao, alertDao, rules, mediumRiskThreshold, highRiskThreshold,
+                velocityWindowSeconds, velocityLimit, velocityStore, WindowPolicy.processingTime());
+    }
+
+    /**
+     * @param windowPolicy processing-time (wall clock) or event-time (transaction timestamp) windows
+     */
+    public DetectionService(TransactionDao txDao, AlertStore alertDao,
+                            List<Rule> rules, int mediumRiskThreshold, int highRiskThreshold,
+                            int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore,
+                            WindowPolicy windowPolicy) {
+        this(txDao, alertDao, new FraudEngine(rules, mediumRiskThreshold, highRiskThreshold, true, true),
+                velocityWindowSeconds, velocityLimit, velocityStore, windowPolicy);
+    }
+
+    /**
+     * @param engine rule engine; also owns the MEDIUM/HIGH thresholds and early-exit settings
+     */
+    public DetectionService(TransactionDao txDao, AlertStore alertDao, FraudEngine engine,
+                            int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore,
+                            WindowPolicy windowPolicy) {
+        this(txDao, alertDao, new RulePipeline(engine), velocityWindowSeconds, velocityLimit,
+                velocityStore, windowPolicy);
+    }
+
+    /**
+     * @param pipeline holder of the current engine; may swap engines while scoring runs
+     */
+    public DetectionService(TransactionDao txDao, AlertStore alertDao, RulePipeline pipeline,
+                            int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore,
+                            WindowPolicy windowPolicy) {
+        this(txDao, alertDao, null, pipeline, velocityWindowSeconds, velocityLimit, velocityStore, windowPolicy);
+    }
 
+    /**
+     * @param persistence queues writes for its writer threads, so analysis returns as soon as
+     *                    scoring is done; the caller closes it
+     */
+    public DetectionService(AsyncPersistence persistence, RulePipeline pipeline,
+                            int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore,
+                            WindowPolicy windowPolicy) {
+        this(null, null, Objects.requireNonNull(persistence, "persistence required"), pipeline,
+                velocityWindowSeconds, velocityLimit, velocityStore, windowPolicy);
+    }
+
+    private DetectionService(TransactionDao txDao, AlertStore alertDao, AsyncPersistence async, RulePipeline pipeline,
+                             int velocityWindowSeconds, int velocityLimit, VelocityStore velocityStore,
+                             WindowPolicy windowPolicy) {
         this.txDao = txDao;
         this.alertDao = alertDao;
-        this.rules = rules;
-        this.mediumRiskThreshold = mediumRiskThreshold;
-        this.highRiskThreshold = highRiskThreshold;
+        this.async = async;
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline required");
         this.velocityWindowSeconds = velocityWindowSeconds;
         this.velocityLimit = velocityLimit;
+        this.velocityStore = Objects.requireNonNull(velocityStore, "velocityStore required");
+        this.windowPolicy = Objects.requireNonNull(windowPolicy, "windowPolicy required");
     }
 
     public Optional<FraudAlert> analyzeAndPersist(Transaction tx) {
-        // 1) run stateless rules
-        int totalScore = 0;
-        List<String> reasons = new ArrayList<>();
-        for (Rule rule : rules) {
-            RuleResult result = rule.evaluate(tx);
-            if (result != null && result.isMatched()) {
-                totalScore += result.getScore();
-                reasons.add(result.getRuleName() + ":" + result.getReason());
+        FraudAlert alert = score(tx);
+        persist(tx, alert);
+        return Optional.ofNullable(alert);
+    }
+
+    /**
+     * The scoring half of {@link #analyzeAndPersist(Transaction)}: velocity/duplicate state and
+     * rules, with nothing written to the database. Records the transaction in the velocity store,
+     * so the per-account ordering rule applies here as well.
+     *
+     * @return the alert to persist, or null for LOW risk
+     */
+    public FraudAlert score(Transaction tx) {
+        // readers encode at ingest; catch transactions built elsewhere so rules stay on int ids
+        if (!tx.isEncoded()) TransactionDictionary.global().encode(tx);
+
+        // 1) velocity + duplicate checks (in memory, so they run first and their score lets the
+        //    rule engine stop early)
+        Scratch s = scratch.get();
+        StateCheck state = checkState(tx, s.state);
+
+        // 2) run stateless rules (score-only; reasons are built later if an alert is raised)
+        ScoreCard card = s.card;
+        FraudEngine engine = pipeline.score(tx, card, state.score);
+
+        // 3) determine risk level
+        String risk = engine.riskLevel(state.score + card.getScore());
+        if (!"LOW".equals(risk)) {
+            engine.complete(tx, card);
+        }
+        return alert(tx, engine, risk, state, card.getScore(), card.getMatchedMask());
+    }
+
+    /**
+     * The persistence half: saves the transaction, then the alert from {@link #score} if any.
+     * With {@link AsyncPersistence} this only queues them. With an
+     * {@link TransactionDao#isIdempotent idempotent} DAO a transaction that is already stored is
+     * skipped together with its alert, which was written the first time.
+     */
+    public void persist(Transaction tx, FraudAlert alert) {
+        if (async != null) {
+            async.submit(tx, alert);
+            return;
+        }
+        if (txDao.isIdempotent()) {
+            if (!txDao.insertIfAbsent(tx)) return;
+        } else {
+            txDao.save(tx);
+        }
+        if (alert != null) {
+            alertDao.saveAlert(alert);
+        }
+    }
+
+    /**
+     * Bulk variant: stateless rules run column-wise over the whole batch (see
+     * {@link FraudEngine#scoreBatch}), velocity checks go row by row in batch order, and the
+     * transactions and alerts are then saved with one batch insert each.
+     *
+     * @return alerts raised, in batch order
+     * @throws DaoException if some rows could not be saved (the others are)
+     */
+    public List<FraudAlert> analyzeAndPersist(TransactionBatch batch) {
+        FraudEngine engine = pipeline.current();
+        int n = batch.size();
+        int[] scores = new int[n];
+        long[] masks = new long[n];
+        engine.scoreBatch(batch, scores, masks);
+
+        List<Transaction> txns = new ArrayList<>(n);
+        List<FraudAlert> txnAlerts = new ArrayList<>(n);
+        List<FraudAlert> alerts = new ArrayList<>();
+        StateCheck state = scratch.get().state;
+        for (int i = 0; i < n; i++) {
+            Transaction tx = batch.get(i);
+            checkState(tx, state);
+            String risk = engine.riskLevel(state.score + scores[i]);
+            FraudAlert alert = alert(tx, engine, risk, state, scores[i], masks[i]);
+            if (async != null) {
+                async.submit(tx, alert);
+            } else {
+                txns.add(tx);
+                txnAlerts.add(alert);
             }
+            if (alert != null) alerts.add(alert);
         }
+        if (async == null) persistAll(txns, txnAlerts);
+        return alerts;
+    }
 
-        // 2) velocity detection using txDao
-        List<Transaction> recent = txDao.getRecentTransactions(tx.getAccountId(), velocityWindowSeconds);
-        if (recent.size() >= velocityLimit) {
-            int vWeight = 20; // choose some weight or make it configurable
-            totalScore += vWeight;
-            reasons.add("Velocity: " + recent.size() + " txns within last " + velocityWindowSeconds + "s");
+    // one JDBC batch per table; txnAlerts[i] is the alert (or null) of txns[i]. Alerts of
+    // transactions that failed, or that an idempotent DAO skipped as already stored, are not written.
+    private void persistAll(List<Transaction> txns, List<FraudAlert> txnAlerts) {
+        List<Transaction> failed;
+        Set<Transaction> skip = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (txDao.isIdempotent()) {
+            TransactionDao.SaveResult result = txDao.insertAllIfAbsent(txns);
+            failed = result.getFailed();
+            skip.addAll(result.getDuplicates());
+        } else {
+            failed = txDao.saveAll(txns);
+        }
+        skip.addAll(failed);
+        List<FraudAlert> toSave = new ArrayList<>();
+        for (int i = 0; i < txns.size(); i++) {
+            FraudAlert a = txnAlerts.get(i);
+            if (a != null && !skip.contains(txns.get(i))) toSave.add(a);
         }
+        List<FraudAlert> failedAlerts = alertDao.saveAll(toSave);
+        if (!failed.isEmpty() || !failedAlerts.isEmpty()) {
+            throw new DaoException("Batch of " + txns.size() + " saved partially: " + failed.size()
+                    + " transaction(s) and " + failedAlerts.size() + " alert(s) failed, first tx="
+                    + (failed.isEmpty() ? failedAlerts.get(0).getTransactionId() : failed.get(0).getTransactionId()));
+        }
+    }
 
-        // 3) duplicate detection: same amount + merchant in short time
-        boolean duplicate = recent.stream().anyMatch(r ->
-                r.getAmount() == tx.getAmount() && r.getMerchant().equalsIgnoreCase(tx.getMerchant()));
-        if (duplicate) {
-            int dWeight = 15;
-            totalScore += dWeight;
-            reasons.add("Duplicate: same amount+merchant in recent window");
+    // fills in the caller's state, which is cleared first; returns it
+    private StateCheck checkState(Transaction tx, StateCheck state) {
+        state.reset();
+        long windowEnd = windowPolicy.windowEnd(tx);
+        if (windowPolicy.isLate(windowEnd, velocityStore.latestTimestamp(tx.getAccountId()))) {
+            // behind the account watermark: stateless score only, window left untouched
+            lateEvents.incrementAndGet();
+            return state;
+        }
+        long from = windowEnd - velocityWindowSeconds;
+        long to = windowPolicy.queryUpperBound(windowEnd);
+        // velocity count and duplicate detection (same amount + merchant in short time) in one look-up
+        WindowCheck window = velocityStore.check(tx.getAccountId(), from, to, tx.getAmount(), tx.getMerchant());
+        state.recentCount = window.getCount();
+        if (state.recentCount >= velocityLimit) {
+            state.velocity = true;
+            state.score += VELOCITY_WEIGHT;
         }
 
-        // 4) determine risk level
-        String risk;
-        if (totalScore >= highRiskThreshold) risk = "HIGH";
-        else if (totalScore >= mediumRiskThreshold) risk = "MEDIUM";
-        else risk = "LOW";
+        state.duplicate = window.isDuplicate();
+        if (state.duplicate) {
+            state.score += DUPLICATE_WEIGHT;
+        }
+        velocityStore.record(tx);
+        return state;
+    }
 
-        // 5) persist transaction & optional alert
-        txDao.save(tx);
-        if (!"LOW".equals(risk)) {
-            String reasonTxt = String.join("; ", reasons);
-            FraudAlert alert = new FraudAlert(tx.getTransactionId(), tx.getAccountId(), totalScore, risk, reasonTxt);
-            alertDao.saveAlert(alert);
-            return Optional.of(alert);
+    private FraudAlert alert(Transaction tx, FraudEngine engine, String risk, StateCheck state,
+                             int ruleScore, long matchedMask) {
+        if ("LOW".equals(risk)) {
+            return null;
+        }
+        List<String> reasons = new ArrayList<>(engine.reasons(tx, matchedMask));
+        List<String> rules = engine.ruleNames(matchedMask);
+        if (state.velocity) {
+            reasons.add(VELOCITY_RULE + ": " + state.recentCount + " txns within last " + velocityWindowSeconds + "s");
+            rules.add(VELOCITY_RULE);
+        }
+        if (state.duplicate) {
+            reasons.add(DUPLICATE_RULE + ": same amount+merchant in recent window");
+            rules.add(DUPLICATE_RULE);
+        }
+        String reasonTxt = String.join("; ", reasons);
+        FraudAlert alert = new FraudAlert(tx.getTransactionId(), tx.getAccountId(),
+                state.score + ruleScore, risk, reasonTxt);
+        alert.setConfigVersion(engine.getConfigVersion());
+        alert.setRules(rules);
+        return alert;
+    }
+
+    /** The asynchronous writer, or null when saving inline. */
+    public AsyncPersistence getAsyncPersistence() {
+        return async;
+    }
+
+    /** Transactions that arrived behind their account watermark (event-time mode only). */
+    public long getLateEventCount() {
+        return lateEvents.get();
+    }
+
+    /** Outcome of the velocity/duplicate checks for one transaction. */
+    private static final class StateCheck {
+        int score;
+        int recentCount;
+        boolean velocity;
+        boolean duplicate;
+
+        void reset() {
+            score = 0;
+            recentCount = 0;
+            velocity = false;
+            duplicate = false;
         }
+    }
 
-        return Optional.empty();
+    /** One scoring thread's reusable card and state; only read until the next transaction. */
+    private static final class Scratch {
+        final ScoreCard card = new ScoreCard();
+        final StateCheck state = new StateCheck();
     }
 }
@@ -0,0 +1,64 @@
+package com.fraud.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram for periodic reports: {@link #record} from any thread,
+ * {@link #drain} to take (and reset) the counts of the last interval. Buckets are a quarter
+ * power of two wide, so percentiles are accurate to about 19%.
+ */
+class LatencyWindow {
+    private static final int SUB = 4;
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(1, nanos)));
+    }
+
+    Snapshot drain() {
+        long[] out = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < out.length; i++) total += out[i] = counts.getAndSet(i, 0);
+        return new Snapshot(out, total);
+    }
+
+    static int bucket(long nanos) {
+        int log2 = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = log2 < 2 ? 0 : (int) (nanos >>> (log2 - 2)) & (SUB - 1);
+        return log2 * SUB + sub;
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts, long total) {
+            this.counts = counts;
+            this.total = total;
+        }
+
+        long count() {
+            return total;
+        }
+
+        /** Upper bound in nanos of the bucket holding the {@code q} quantile, or 0 if empty. */
+        long percentile(double q) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    int log2 = i / SUB, sub = i % SUB;
+                    return log2 < 2 ? 1L << (log2 + 1) : (1L << log2) + ((long) (sub + 1) << (log2 - 2));
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /** Milliseconds, for log lines. */
+        String millis(double q) {
+            return String.format("%.2f", percentile(q) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.util.CsvReader;
+import com.fraud.util.DateUtil;
+import com.fraud.util.NumberUtil;
+import com.fraud.util.ShutdownUtil;
+import com.fraud.util.TransactionJson;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TCP server for live scoring. Producers send newline-delimited transactions and get one reply
+ * line per transaction back on the same connection.
+ * <p>
+ * A line is either CSV with the columns of the transaction file
+ * ({@code transactionId,accountId,amount,currency,timestamp,merchant,location,channel}, no header)
+ * or a JSON object with those fields. An empty or missing timestamp means "now". Replies use the
+ * format of the request:
+ * <pre>
+ * T1,LOW                   {"transactionId":"T1","risk":"LOW"}
+ * T1,HIGH,75               {"transactionId":"T1","risk":"HIGH","score":75,"reason":"..."}
+ * T1,ERROR,message         {"transactionId":"T1","error":"message"}
+ * </pre>
+ * Replies for one account come in request order; replies for different accounts may overtake
+ * each other, so clients match them by transactionId.
+ * <p>
+ * One selector thread accepts, reads (through a shared direct buffer), decodes and writes for
+ * all connections; scoring runs on a {@link ParallelDetectionExecutor}. When the executor is
+ * backed up the selector waits, which stops reading from every socket. A connection whose
+ * unsent replies exceed {@link #MAX_PENDING_REPLY_BYTES} stops being read until they drain.
+ * After a client closes its output, the connection is closed once its replies are written.
+ * <p>
+ * Every {@code reportSeconds} the server logs throughput and latency percentiles (receive to
+ * reply queued) for the last interval.
+ */
+public class LiveIngestServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveIngestServer.class);
+
+    /** Longest accepted line, in bytes. */
+    public static final int MAX_LINE = 8192;
+    public static final int MAX_PENDING_REPLY_BYTES = 256 << 10;
+
+    private static final int IO_BUFFER = 64 << 10;
+    private static final long SELECT_TIMEOUT_MS = 250;
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final ObjectMapper JSON = new ObjectMapper();
+    // CSV column order of the transaction file
+    private static final int COLUMNS = 8, AMOUNT = 2, TIMESTAMP = 4;
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ParallelDetectionExecutor executor;
+    private final Thread loop;
+    private final long reportNanos;
+
+    // selector thread only
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(IO_BUFFER);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(IO_BUFFER);
+    private final String[] fields = new String[COLUMNS];
+
+    private final Queue<Connection> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final CountDownLatch readsStopped = new CountDownLatch(1);
+    private final LatencyWindow latency = new LatencyWindow();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean stopping;
+    private volatile boolean drained;
+    private boolean closed;
+
+    /**
+     * Bind to {@code port} (0 picks a free one) and start serving.
+     *
+     * @param workers       detection threads
+     * @param batchSize     see {@link ParallelDetectionExecutor}; 0 scores one at a time
+     * @param reportSeconds interval of the throughput/latency log line; 0 disables it
+     */
+    public LiveIngestServer(DetectionService service, int port, int workers, int batchSize, int reportSeconds)
+            throws IOException {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be > 0");
+        if (reportSeconds < 0) throw new IllegalArgumentException("reportSeconds must be >= 0");
+        this.reportNanos = TimeUnit.SECONDS.toNanos(reportSeconds);
+        Selector selector = Selector.open();
+        ServerSocketChannel server = null;
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException | RuntimeException e) {
+            if (server != null) server.close();
+            selector.close();
+            throw e;
+        }
+        this.selector = selector;
+        this.server = server;
+        this.executor = new ParallelDetectionExecutor(service, workers,
+                ParallelDetectionExecutor.DEFAULT_QUEUE_CAPACITY, batchSize, this::onResult);
+        this.loop = new Thread(this::run, "live-ingest");
+        loop.setDaemon(true);
+        loop.start();
+        log.info("Live ingest listening on port {} with {} detection workers", getPort(), workers);
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /** Transactions scored so far (with or without an alert, including failures). */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getAlerts() {
+        return alerts.sum();
+    }
+
+    /** Lines that could not be decoded plus transactions whose detection failed. */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Stop accepting and reading, finish the transactions already received and write their
+     * replies (waiting up to 5 seconds for slow clients), then close every connection. Idempotent;
+     * an interrupted caller still waits and keeps its interrupt flag.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        stopping = true;
+        selector.wakeup();
+        ShutdownUtil.uninterruptibly(readsStopped::await);
+        executor.close();
+        drained = true;
+        selector.wakeup();
+        ShutdownUtil.uninterruptibly(loop::join);
+    }
+
+    // --------------------------------------------------------------------
+    // selector thread
+    // --------------------------------------------------------------------
+
+    private void run() {
+        long nextReport = System.nanoTime() + reportNanos;
+        long drainDeadline = 0;
+        try {
+            while (true) {
+                if (stopping && readsStopped.getCount() > 0) {
+                    stopReading();
+                    readsStopped.countDown();
+                }
+                if (drained) {
+                    if (drainDeadline == 0) drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+                    flushDirty();
+                    if (!hasPendingReplies() || System.nanoTime() - drainDeadline > 0) break;
+                }
+
+                selector.select(SELECT_TIMEOUT_MS);
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection c = (Connection) key.attachment();
+                    try {
+                        if (key.isWritable()) flush(c);
+                        if (key.isValid() && key.isReadable()) read(c);
+                    } catch (IOException e) {
+                        log.debug("Connection {} failed: {}", c.remote, e.toString());
+                        closeConnection(c);
+                    }
+                }
+                flushDirty();
+
+                if (reportNanos > 0 && System.nanoTime() - nextReport >= 0) {
+                    report();
+                    nextReport += reportNanos;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Live ingest loop failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readsStopped.countDown();
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) closeConnection((Connection) key.attachment());
+            }
+            closeQuietly();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection c = new Connection(channel);
+            c.key = channel.register(selector, SelectionKey.OP_READ, c);
+            connections.incrementAndGet();
+        }
+    }
+
+    private void stopReading() throws IOException {
+        server.close();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Connection) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    private void read(Connection c) throws IOException, InterruptedException {
+        readBuffer.clear();
+        int n = c.channel.read(readBuffer);
+        if (n < 0) {
+            if (c.lineLength > 0 || c.overflow) line(c);
+            c.eof = true;
+            c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_READ);
+            closeIfDone(c);
+            return;
+        }
+        int limit = readBuffer.position();
+        int start = 0;
+        for (int i = 0; i < limit; i++) {
+            if (readBuffer.get(i) == '\n') {
+                c.append(readBuffer, start, i);
+                line(c);
+                start = i + 1;
+            }
+        }
+        c.append(readBuffer, start, limit);
+        if (c.pendingReplyBytes() > MAX_PENDING_REPLY_BYTES) {
+            c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_READ);
+            c.readPaused = true;
+        }
+    }
+
+    private void line(Connection c) throws InterruptedException {
+        byte[] b = c.line;
+        int s = 0, e = c.lineLength;
+        boolean overflow = c.overflow;
+        c.lineLength = 0;
+        c.overflow = false;
+        c.lineNumber++;
+        while (s < e && (b[s] & 0xff) <= ' ') s++;
+        while (e > s && (b[e - 1] & 0xff) <= ' ') e--;
+        if (e == s && !overflow) return;
+
+        boolean json = e > s && b[s] == '{';
+        Inbound t;
+        try {
+            if (overflow) throw new IllegalArgumentException("Line longer than " + MAX_LINE + " bytes");
+            t = json ? decodeJson(b, s, e) : decodeCsv(b, s, e);
+        } catch (IOException | RuntimeException ex) {
+            errors.increment();
+            c.enqueue(errorReply(json, null, "Line " + c.lineNumber + ": " + ex.getMessage()));
+            markDirty(c);
+            return;
+        }
+        t.connection = c;
+        t.json = json;
+        t.receivedNanos = System.nanoTime();
+        c.inFlight.incrementAndGet();
+        executor.submit(t);
+    }
+
+    private Inbound decodeCsv(byte[] b, int s, int e) {
+        int n = 0;
+        int from = s;
+        double amount = 0;
+        LocalDateTime ts = null;
+        for (int i = s; i <= e; i++) {
+            if (i == e || b[i] == ',') {
+                if (n == COLUMNS) throw new IllegalArgumentException("More than " + COLUMNS + " values");
+                int fs = from, fe = i;
+                while (fs < fe && (b[fs] & 0xff) <= ' ') fs++;
+                while (fe > fs && (b[fe - 1] & 0xff) <= ' ') fe--;
+                if (n == AMOUNT) {
+                    amount = NumberUtil.parseDouble(b, fs, fe);
+                } else if (n == TIMESTAMP) {
+                    ts = fe == fs ? null : DateUtil.parse(b, fs, fe);
+                } else {
+                    fields[n] = new String(b, fs, fe - fs, StandardCharsets.UTF_8);
+                }
+                n++;
+                from = i + 1;
+            } else if (b[i] == '"') {
+                return decodeQuoted(new String(b, s, e - s, StandardCharsets.UTF_8));
+            }
+        }
+        if (n < COLUMNS) throw new IllegalArgumentException("Expected " + COLUMNS + " values, got " + n);
+        return inbound(fields[0], fields[1], amount, fields[3], ts, fields[5], fields[6], fields[7]);
+    }
+
+    private static Inbound decodeQuoted(String line) {
+        CSVRecord r;
+        try (CSVParser p = CSVParser.parse(line, CsvReader.TRIMMED)) {
+            r = p.iterator().next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (r.size() != COLUMNS) throw new IllegalArgumentException("Expected " + COLUMNS + " values, got " + r.size());
+        return inbound(r.get(0), r.get(1), Double.parseDouble(r.get(AMOUNT)), r.get(3),
+                DateUtil.parse(r.get(TIMESTAMP).isEmpty() ? null : r.get(TIMESTAMP)), r.get(5), r.get(6), r.get(7));
+    }
+
+    private static Inbound decodeJson(byte[] b, int s, int e) throws IOException {
+        Inbound t = TransactionJson.read(b, s, e - s, new Inbound());
+        if (t.getTimestamp() == null) t.setTimestamp(LocalDateTime.now());
+        return t;
+    }
+
+    // a null timestamp means now
+    private static Inbound inbound(String transactionId, String accountId, double amount, String currency,
+                                   LocalDateTime ts, String merchant, String location, String channel) {
+        if (transactionId == null || transactionId.isEmpty()) throw new IllegalArgumentException("Missing transactionId");
+        if (accountId == null || accountId.isEmpty()) throw new IllegalArgumentException("Missing accountId");
+        Inbound t = new Inbound(transactionId, accountId, amount, currency, ts == null ? LocalDateTime.now() : ts,
+                merchant, location, channel);
+        TransactionDictionary.global().encode(t);
+        return t;
+    }
+
+    private void flushDirty() {
+        Connection c;
+        while ((c = dirty.poll()) != null) {
+            c.flushQueued.set(false);
+            if (c.closed) continue;
+            try {
+                flush(c);
+            } catch (IOException e) {
+                log.debug("Connection {} failed: {}", c.remote, e.toString());
+                closeConnection(c);
+            }
+        }
+    }
+
+    // write as much of the outbox as the socket takes; OP_WRITE covers the rest
+    private void flush(Connection c) throws IOException {
+        boolean done = false;
+        while (true) {
+            writeBuffer.clear();
+            synchronized (c) {
+                if (c.outboxSize == 0) {
+                    done = true;
+                    break;
+                }
+                writeBuffer.put(c.outbox, 0, Math.min(c.outboxSize, writeBuffer.capacity()));
+            }
+            writeBuffer.flip();
+            c.consumed(c.channel.write(writeBuffer));
+            if (writeBuffer.hasRemaining()) break;
+        }
+        if (!c.key.isValid()) return;
+        int ops = c.key.interestOps();
+        ops = done ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE;
+        if (c.readPaused && c.pendingReplyBytes() <= MAX_PENDING_REPLY_BYTES / 2) {
+            c.readPaused = false;
+            if (!stopping && !c.eof) ops |= SelectionKey.OP_READ;
+        }
+        c.key.interestOps(ops);
+        if (done) closeIfDone(c);
+    }
+
+    private void closeIfDone(Connection c) {
+        if (c.eof && c.inFlight.get() == 0 && c.pendingReplyBytes() == 0) closeConnection(c);
+    }
+
+    private void closeConnection(Connection c) {
+        if (c.closed) return;
+        c.closed = true;
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            log.debug("Closing {} failed: {}", c.remote, e.toString());
+        }
+        connections.decrementAndGet();
+    }
+
+    private boolean hasPendingReplies() {
+        for (SelectionKey key : selector.keys()) {
+            Object a = key.attachment();
+            if (a instanceof Connection && !((Connection) a).closed && ((Connection) a).pendingReplyBytes() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void report() {
+        LatencyWindow.Snapshot window = latency.drain();
+        log.info("Live: {} txn/s, latency p50 {} ms, p99 {} ms, {} connections, {} errors total",
+                Math.round(window.count() / (reportNanos / 1e9)), window.millis(0.50), window.millis(0.99),
+                connections.get(), errors.sum());
+    }
+
+    private void closeQuietly() {
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Closing the selector failed: {}", e.toString());
+        }
+    }
+
+    // --------------------------------------------------------------------
+    // detection workers
+    // --------------------------------------------------------------------
+
+    private void onResult(Transaction t, FraudAlert alert, RuntimeException error) {
+        Inbound in = (Inbound) t;
+        latency.record(System.nanoTime() - in.receivedNanos);
+        processed.increment();
+        byte[] reply;
+        if (error != null) {
+            errors.increment();
+            reply = errorReply(in.json, in.getTransactionId(), String.valueOf(error.getMessage()));
+        } else {
+            if (alert != null) alerts.increment();
+            reply = in.json ? jsonReply(in.getTransactionId(), alert) : csvReply(in.getTransactionId(), alert);
+        }
+        Connection c = in.connection;
+        c.enqueue(reply);
+        c.inFlight.decrementAndGet();
+        markDirty(c);
+    }
+
+    private void markDirty(Connection c) {
+        if (c.flushQueued.compareAndSet(false, true)) dirty.add(c);
+        if (Thread.currentThread() != loop && wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    private static byte[] csvReply(String transactionId, FraudAlert alert) {
+        String line = alert == null
+                ? transactionId + ",LOW\n"
+                : transactionId + "," + alert.getRiskLevel() + "," + alert.getScore() + "\n";
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] jsonReply(String transactionId, FraudAlert alert) {
+        ObjectNode n = JSON.createObjectNode();
+        n.put("transactionId", transactionId);
+        if (alert == null) {
+            n.put("risk", "LOW");
+        } else {
+            n.put("risk", alert.getRiskLevel());
+            n.put("score", alert.getScore());
+            n.put("reason", alert.getReason());
+        }
+        return json(n);
+    }
+
+    private static byte[] errorReply(boolean json, String transactionId, String message) {
+        if (json) {
+            ObjectNode n = JSON.createObjectNode();
+            n.put("transactionId", transactionId);
+            n.put("error", message);
+            return json(n);
+        }
+        String flat = message.replace(',', ';').replace('\n', ' ').replace('\r', ' ');
+        return ((transactionId == null ? "" : transactionId) + ",ERROR," + flat + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] json(ObjectNode n) {
+        try {
+            byte[] b = JSON.writeValueAsBytes(n);
+            byte[] line = Arrays.copyOf(b, b.length + 1);
+            line[b.length] = '\n';
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A received transaction, remembering where to send its reply. */
+    private static final class Inbound extends Transaction {
+        Connection connection;
+        boolean json;
+        long receivedNanos;
+
+        Inbound() {
+        }
+
+        Inbound(String transactionId, String accountId, double amount, String currency, LocalDateTime timestamp,
+                String merchant, String location, String channel) {
+            super(transactionId, accountId, amount, currency, timestamp, merchant, location, channel);
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final String remote;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicBoolean flushQueued = new AtomicBoolean();
+        SelectionKey key;
+
+        // selector thread only
+        byte[] line = new byte[256];
+        int lineLength;
+        boolean overflow;
+        long lineNumber;
+        boolean eof;
+        boolean readPaused;
+        volatile boolean closed;
+
+        // replies not yet written, guarded by this
+        byte[] outbox = new byte[256];
+        int outboxSize;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void append(ByteBuffer src, int from, int to) {
+            int n = to - from;
+            if (n == 0 || overflow) return;
+            if (lineLength + n > MAX_LINE) {
+                overflow = true;
+                lineLength = 0;
+                return;
+            }
+            if (line.length < lineLength + n) line = Arrays.copyOf(line, Math.max(lineLength + n, line.length * 2));
+            for (int i = 0; i < n; i++) line[lineLength + i] = src.get(from + i);
+            lineLength += n;
+        }
+
+        synchronized void enqueue(byte[] reply) {
+            if (outbox.length < outboxSize + reply.length) {
+                outbox = Arrays.copyOf(outbox, Math.max(outboxSize + reply.length, outbox.length * 2));
+            }
+            System.arraycopy(reply, 0, outbox, outboxSize, reply.length);
+            outboxSize += reply.length;
+        }
+
+        synchronized void consumed(int n) {
+            System.arraycopy(outbox, n, outbox, 0, outboxSize - n);
+            outboxSize -= n;
+        }
+
+        synchronized int pendingReplyBytes() {
+            return outboxSize;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.fraud.service;
+
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.util.ShutdownUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs {@link DetectionService} on {@code workers} threads. Transactions are hash-partitioned by
+ * account id, so all transactions of one account are analyzed by the same worker in submission
+ * order (keeping velocity and duplicate checks exact) while different accounts run concurrently.
+ * <p>
+ * Each worker has a bounded queue; {@link #submit} blocks when the target queue is full.
+ * With {@code batchSize > 0} a worker scores whatever is queued (up to that many) as one
+ * {@link TransactionBatch}. A transaction (or batch) that fails is logged and counted, and the
+ * worker moves on.
+ * <p>
+ * {@link #submit} may be called from several threads, but not concurrently with {@link #close}.
+ */
+public class ParallelDetectionExecutor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelDetectionExecutor.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /** Outcome of one transaction, reported on the worker thread that analyzed it. */
+    public interface ResultListener {
+        /**
+         * @param alert the alert raised, or null
+         * @param error why analysis or persistence failed, or null
+         */
+        void onResult(Transaction t, FraudAlert alert, RuntimeException error);
+    }
+
+    // per-transaction mode still drains the queue in chunks of this size
+    private static final int DRAIN_CHUNK = 64;
+    private static final Transaction POISON = new Transaction();
+
+    private final DetectionService service;
+    private final ResultListener listener;
+    private final int batchSize;
+    private final List<BlockingQueue<Transaction>> queues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean closed;
+
+    public ParallelDetectionExecutor(DetectionService service, int workers) {
+        this(service, workers, DEFAULT_QUEUE_CAPACITY, 0, a -> { });
+    }
+
+    /**
+     * @param workers       number of worker threads (thread.pool.size)
+     * @param queueCapacity transactions buffered per worker before {@link #submit} blocks
+     * @param batchSize     score queued transactions in batches of up to this size; 0 = one at a time
+     * @param onAlert       called on the worker thread for every alert raised
+     */
+    public ParallelDetectionExecutor(DetectionService service, int workers, int queueCapacity,
+                                     int batchSize, Consumer<FraudAlert> onAlert) {
+        this(service, workers, queueCapacity, batchSize, alertsOnly(onAlert));
+    }
+
+    /**
+     * @param listener called on the worker thread for every transaction, in per-account order
+     */
+    public ParallelDetectionExecutor(DetectionService service, int workers, int queueCapacity,
+                                     int batchSize, ResultListener listener) {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be > 0");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be > 0");
+        this.service = Objects.requireNonNull(service, "service required");
+        this.listener = Objects.requireNonNull(listener, "listener required");
+        this.batchSize = Math.max(0, batchSize);
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<Transaction> queue = new ArrayBlockingQueue<>(queueCapacity);
+            Thread th = new Thread(() -> work(queue), "detection-worker-" + i);
+            th.setDaemon(true);
+            queues.add(queue);
+            threads.add(th);
+        }
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Queue a transaction on its account's worker, waiting if that worker is backed up.
+     *
+     * @throws IllegalStateException if the executor is closed
+     */
+    public void submit(Transaction t) throws InterruptedException {
+        if (closed) throw new IllegalStateException("executor closed");
+        queues.get(partition(t.getAccountId(), queues.size())).put(t);
+    }
+
+    private static ResultListener alertsOnly(Consumer<FraudAlert> onAlert) {
+        Objects.requireNonNull(onAlert, "onAlert required");
+        return (t, alert, error) -> {
+            if (alert != null) onAlert.accept(alert);
+        };
+    }
+
+    /** Worker index for an account; stable for the lifetime of the executor. */
+    static int partition(String accountId, int workers) {
+        if (accountId == null) return 0;
+        int h = accountId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), workers);
+    }
+
+    /**
+     * Finish everything submitted so far and stop the workers. Idempotent. If the calling thread
+     * is interrupted, it still waits for the workers and keeps its interrupt flag set.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (BlockingQueue<Transaction> q : queues) ShutdownUtil.uninterruptibly(() -> q.put(POISON));
+        for (Thread th : threads) ShutdownUtil.uninterruptibly(th::join);
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getAlerts() {
+        return alerts.sum();
+    }
+
+    /** Transactions that threw while being analyzed or persisted. */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getWorkers() {
+        return threads.size();
+    }
+
+    private void work(BlockingQueue<Transaction> queue) {
+        int chunk = batchSize > 0 ? batchSize : DRAIN_CHUNK;
+        List<Transaction> pending = new ArrayList<>(chunk);
+        TransactionBatch batch = batchSize > 0 ? new TransactionBatch(batchSize) : null;
+        try {
+            boolean stop = false;
+            while (!stop) {
+                pending.add(queue.take());
+                queue.drainTo(pending, chunk - 1);
+                int end = pending.size();
+                if (pending.get(end - 1) == POISON) {  // nothing is queued after the pill
+                    stop = true;
+                    end--;
+                }
+                if (batch != null) {
+                    analyzeBatch(batch, pending, end);
+                } else {
+                    for (int i = 0; i < end; i++) analyze(pending.get(i));
+                }
+                pending.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void analyze(Transaction t) {
+        FraudAlert alert = null;
+        RuntimeException error = null;
+        try {
+            alert = service.analyzeAndPersist(t).orElse(null);
+            if (alert != null) alerts.increment();
+        } catch (RuntimeException e) {
+            error = e;
+            failures.increment();
+            log.error("Detection failed for tx={} account={}", t.getTransactionId(), t.getAccountId(), e);
+        } finally {
+            processed.increment();
+        }
+        report(t, alert, error);
+    }
+
+    private void analyzeBatch(TransactionBatch batch, List<Transaction> txns, int end) {
+        if (end == 0) return;
+        batch.clear();
+        for (int i = 0; i < end; i++) batch.add(txns.get(i));
+        List<FraudAlert> raised;
+        try {
+            raised = service.analyzeAndPersist(batch);
+            alerts.add(raised.size());
+        } catch (RuntimeException e) {
+            failures.add(end);
+            log.error("Detection failed for a batch of {} starting at tx={}", end, txns.get(0).getTransactionId(), e);
+            for (int i = 0; i < end; i++) report(txns.get(i), null, e);
+            return;
+        } finally {
+            processed.add(end);
+        }
+        // alerts come back in batch order, one per alerting transaction
+        int next = 0;
+        for (int i = 0; i < end; i++) {
+            Transaction t = txns.get(i);
+            FraudAlert alert = null;
+            if (next < raised.size() && Objects.equals(raised.get(next).getTransactionId(), t.getTransactionId())) {
+                alert = raised.get(next++);
+            }
+            report(t, alert, null);
+        }
+    }
+
+    private void report(Transaction t, FraudAlert alert, RuntimeException error) {
+        try {
+            listener.onResult(t, alert, error);
+        } catch (RuntimeException e) {
+            log.error("Result listener failed for tx={}", t.getTransactionId(), e);
+        }
+    }
+}
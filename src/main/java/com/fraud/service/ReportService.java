@@ -1,8 +1,9 @@
 package com.fraud.service;
 
 import com.fraud.dao.AlertDao;
-import com.fraud.model.FraudAlert;
+import com.fraud.dao.AlertStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
@@ -21,12 +22,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 public class ReportService {
 
@@ -34,12 +35,13 @@ public class ReportService {
 
     private static final DateTimeFormatter CREATED_AT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final int DEFAULT_LIMIT = 1000;
+    private static final int PDF_FLUSH_ROWS = 100;
 
-    private final AlertDao alertDao;
+    private final AlertStore alertDao;
     private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
             .enable(SerializationFeature.INDENT_OUTPUT);
 
-    public ReportService(AlertDao alertDao) {
+    public ReportService(AlertStore alertDao) {
         this.alertDao = Objects.requireNonNull(alertDao, "alertDao required");
     }
 
@@ -58,29 +60,29 @@ public class ReportService {
         if (limit <= 0) limit = DEFAULT_LIMIT;
         log.info("Exporting CSV report for account={} limit={} -> file={}", accountId, limit, outputFile);
 
-        List<FraudAlert> alerts = alertDao.getAlertsByAccount(accountId, limit);
-        if (alerts == null) alerts = Collections.emptyList();
-
         File out = ensureParentAndFile(outputFile);
 
+        // rows are written page by page as they are read, so memory does not grow with the limit
         try (BufferedWriter writer = Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8);
              CSVPrinter printer = new CSVPrinter(writer,
                      CSVFormat.DEFAULT.withHeader("id", "transactionId", "accountId", "score", "riskLevel", "reason", "createdAt"))
         ) {
-            for (FraudAlert a : alerts) {
-                printer.printRecord(
-                        a.getId(),
-                        a.getTransactionId(),
-                        a.getAccountId(),
-                        a.getScore(),
-                        a.getRiskLevel(),
-                        a.getReason(),
-                        a.getCreatedAt() == null ? "" : a.getCreatedAt().format(CREATED_AT_FMT)
-                );
-            }
+            long count = alertDao.forEachAlert(accountId, limit, AlertDao.DEFAULT_PAGE_SIZE, unchecked(a ->
+                    printer.printRecord(
+                            a.getId(),
+                            a.getTransactionId(),
+                            a.getAccountId(),
+                            a.getScore(),
+                            a.getRiskLevel(),
+                            a.getReason(),
+                            a.getCreatedAt() == null ? "" : a.getCreatedAt().format(CREATED_AT_FMT)
+                    )));
             printer.flush();
-            log.info("CSV report exported successfully: {} ({} alerts)", out.getAbsolutePath(), alerts.size());
+            log.info("CSV report exported successfully: {} ({} alerts)", out.getAbsolutePath(), count);
             return out;
+        } catch (UncheckedIOException e) {
+            log.error("Failed to export alerts report to CSV: {}", outputFile, e);
+            throw new RuntimeException("Failed to export alerts report", e.getCause());
         } catch (IOException e) {
             log.error("Failed to export alerts report to CSV: {}", outputFile, e);
             throw new RuntimeException("Failed to export alerts report", e);
@@ -107,15 +109,15 @@ public class ReportService {
         if (limit <= 0) limit = DEFAULT_LIMIT;
         log.info("Exporting JSON report for account={} limit={} -> file={}", accountId, limit, outputFile);
 
-        List<FraudAlert> alerts = alertDao.getAlertsByAccount(accountId, limit);
-        if (alerts == null) alerts = Collections.emptyList();
-
         File out = ensureParentAndFile(outputFile);
 
-        try {
-            objectMapper.writeValue(out, alerts);
-            log.info("JSON report exported successfully: {} ({} alerts)", out.getAbsolutePath(), alerts.size());
+        try (SequenceWriter array = objectMapper.writer().writeValuesAsArray(out)) {
+            long count = alertDao.forEachAlert(accountId, limit, AlertDao.DEFAULT_PAGE_SIZE, unchecked(array::write));
+            log.info("JSON report exported successfully: {} ({} alerts)", out.getAbsolutePath(), count);
             return out;
+        } catch (UncheckedIOException e) {
+            log.error("Failed to export alerts report to JSON", e);
+            throw new RuntimeException("Failed to export alerts report (JSON)", e.getCause());
         } catch (IOException e) {
             log.error("Failed to export alerts report to JSON", e);
             throw new RuntimeException("Failed to export alerts report (JSON)", e);
@@ -143,9 +145,6 @@ public class ReportService {
         if (limit <= 0) limit = DEFAULT_LIMIT;
         log.info("Exporting PDF report for account={} limit={} -> file={}", accountId, limit, destPath);
 
-        List<FraudAlert> alerts = alertDao.getAlertsByAccount(accountId, limit);
-        if (alerts == null) alerts = Collections.emptyList();
-
         File out = ensureParentAndFile(destPath);
 
         try (OutputStream os = Files.newOutputStream(out.toPath())) {
@@ -158,25 +157,29 @@ public class ReportService {
             document.add(new Paragraph("Generated on: " + java.time.LocalDateTime.now().format(CREATED_AT_FMT)));
             document.add(new Paragraph("\n"));
 
-            Table table = new Table(UnitValue.createPercentArray(new float[]{1, 3, 2, 6}))
+            // a "large" table is laid out and flushed to the document in parts instead of at the end
+            Table table = new Table(UnitValue.createPercentArray(new float[]{1, 3, 2, 6}), true)
                     .useAllAvailableWidth();
 
             table.addHeaderCell("ID");
             table.addHeaderCell("Transaction ID");
             table.addHeaderCell("Risk Level");
             table.addHeaderCell("Reason");
+            document.add(table);
 
-            for (FraudAlert alert : alerts) {
+            long[] rows = {0};
+            long count = alertDao.forEachAlert(accountId, limit, AlertDao.DEFAULT_PAGE_SIZE, alert -> {
                 table.addCell(String.valueOf(alert.getId()));
                 table.addCell(safeString(alert.getTransactionId()));
                 table.addCell(safeString(alert.getRiskLevel()));
                 table.addCell(safeString(alert.getReason()));
-            }
+                if (++rows[0] % PDF_FLUSH_ROWS == 0) table.flush();
+            });
 
-            document.add(table);
+            table.complete();
             document.close();
 
-            log.info("PDF Report generated: {} ({} alerts)", out.getAbsolutePath(), alerts.size());
+            log.info("PDF Report generated: {} ({} alerts)", out.getAbsolutePath(), count);
             return out;
         } catch (Exception e) {
             log.error("Failed to generate PDF report", e);
@@ -207,6 +210,21 @@ public class ReportService {
         }
     }
 
+    /** A write step that may fail with IOException, for use inside {@link AlertStore#forEachAlert}. */
+    private interface IoConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
+    private static <T> Consumer<T> unchecked(IoConsumer<T> action) {
+        return t -> {
+            try {
+                action.accept(t);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
     private String safeString(Object o) {
         return o == null ? "" : o.toString();
     }
@@ -0,0 +1,301 @@
+package com.fraud.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.util.TransactionJson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Synchronous scoring API on the JDK's built-in HTTP server: {@code POST /score} with a JSON
+ * transaction (see {@link TransactionJson}; a missing timestamp means now) answers
+ * <pre>
+ * 200 {"transactionId":"T1","risk":"HIGH","score":75,"reasons":["...", "..."]}
+ * 200 {"transactionId":"T1","risk":"LOW"}
+ * 400 / 405 / 500 / 503 / 504 {"transactionId":...,"error":"..."}
+ * </pre>
+ * LOW results carry no score: rule evaluation stops early once a transaction cannot alert.
+ * <p>
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+), otherwise on a
+ * pool of {@code fallbackThreads} platform threads. The request thread parses the body and waits
+ * while a {@link ParallelDetectionExecutor} scores it, so one account is still scored by one
+ * worker at a time, in arrival order. A result not ready within {@code timeoutMillis} is answered
+ * with 504; the transaction is still scored. Requests that arrive while the server closes get 503,
+ * and every request already handed to the executor is scored before its workers stop.
+ * <p>
+ * Latency is measured from the request reaching its handler until the response is written.
+ * Responses slower than {@code sloMillis} are counted, and every {@code reportSeconds} the server
+ * logs throughput, p50/p99/p99.9 and the violation count.
+ */
+public class ScoringHttpServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScoringHttpServer.class);
+
+    public static final String PATH = "/score";
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer http;
+    private final ParallelDetectionExecutor executor;
+    private final ExecutorService requestThreads;
+    private final boolean virtualThreads;
+    private final ScheduledExecutorService reporter;
+    private final long sloNanos;
+    private final long timeoutNanos;
+    private final long reportNanos;
+    private final LatencyWindow latency = new LatencyWindow();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sloViolations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // requests hold the read lock while handing a transaction to the executor, close takes the
+    // write lock to set closing, so nothing is submitted once the executor starts stopping
+    private final ReadWriteLock submitting = new ReentrantReadWriteLock();
+    private volatile boolean closing;
+    private boolean closed;
+
+    /**
+     * Bind to {@code port} (0 picks a free one) and start serving.
+     *
+     * @param workers         detection threads
+     * @param fallbackThreads request threads when virtual threads are unavailable
+     * @param sloMillis       latency objective; slower responses count as violations
+     * @param reportSeconds   interval of the throughput/latency log line; 0 disables it
+     */
+    public ScoringHttpServer(DetectionService service, int port, int workers, int fallbackThreads,
+                             long sloMillis, int reportSeconds) throws IOException {
+        this(service, port, workers, fallbackThreads, sloMillis, DEFAULT_TIMEOUT_MILLIS, reportSeconds);
+    }
+
+    /**
+     * @param timeoutMillis longest a request waits for its score before it is answered with 504
+     */
+    public ScoringHttpServer(DetectionService service, int port, int workers, int fallbackThreads,
+                             long sloMillis, long timeoutMillis, int reportSeconds) throws IOException {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be > 0");
+        if (fallbackThreads <= 0) throw new IllegalArgumentException("fallbackThreads must be > 0");
+        if (sloMillis <= 0) throw new IllegalArgumentException("sloMillis must be > 0");
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("timeoutMillis must be > 0");
+        if (reportSeconds < 0) throw new IllegalArgumentException("reportSeconds must be >= 0");
+        this.sloNanos = TimeUnit.MILLISECONDS.toNanos(sloMillis);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.reportNanos = TimeUnit.SECONDS.toNanos(reportSeconds);
+
+        this.http = HttpServer.create(new InetSocketAddress(port), 1024);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.requestThreads = virtual != null ? virtual : Executors.newFixedThreadPool(fallbackThreads, daemon("http-score"));
+        this.executor = new ParallelDetectionExecutor(service, workers,
+                ParallelDetectionExecutor.DEFAULT_QUEUE_CAPACITY, 0, ScoringHttpServer::onResult);
+        http.createContext(PATH, this::handle);
+        http.setExecutor(requestThreads);
+        http.start();
+
+        if (reportSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(daemon("http-score-report"));
+            reporter.scheduleAtFixedRate(this::report, reportSeconds, reportSeconds, TimeUnit.SECONDS);
+        } else {
+            reporter = null;
+        }
+        log.info("Scoring endpoint on port {}{} ({} request threads, {} detection workers)", getPort(), PATH,
+                virtualThreads ? "virtual" : String.valueOf(fallbackThreads), workers);
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /** True if requests run on virtual threads. */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /** Responses slower than the SLO. */
+    public long getSloViolations() {
+        return sloViolations.sum();
+    }
+
+    /** Requests answered with a 4xx/5xx status. */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Stop accepting requests, give in-flight ones up to a second to finish, then stop the
+     * detection workers once every submitted transaction is scored. Idempotent; an interrupted
+     * caller still waits for the workers and keeps its interrupt flag.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        submitting.writeLock().lock();
+        try {
+            closing = true;
+        } finally {
+            submitting.writeLock().unlock();
+        }
+        http.stop(1);
+        executor.close();
+        requestThreads.shutdownNow();   // a request that raced the shutdown gets a 503
+        if (reporter != null) reporter.shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        long start = System.nanoTime();
+        // counted before the response goes out, so a client that has its answer sees it counted
+        requests.increment();
+        try {
+            if (!"POST".equalsIgnoreCase(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", "POST");
+                send(ex, 405, error(null, "Use POST"));
+                return;
+            }
+            Pending t;
+            try (InputStream in = ex.getRequestBody()) {
+                t = TransactionJson.read(in, new Pending());
+            } catch (IOException | IllegalArgumentException e) {
+                send(ex, 400, error(null, e.getMessage()));
+                return;
+            }
+            if (t.getTimestamp() == null) t.setTimestamp(LocalDateTime.now());
+
+            FraudAlert alert;
+            try {
+                if (!submit(t)) {
+                    send(ex, 503, error(t.getTransactionId(), "Shutting down"));
+                    return;
+                }
+                alert = t.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                send(ex, 500, error(t.getTransactionId(), String.valueOf(e.getCause().getMessage())));
+                return;
+            } catch (TimeoutException e) {
+                send(ex, 504, error(t.getTransactionId(), "Scoring timed out"));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                send(ex, 503, error(t.getTransactionId(), "Shutting down"));
+                return;
+            }
+            send(ex, 200, result(t.getTransactionId(), alert));
+        } finally {
+            ex.close();
+            long elapsed = System.nanoTime() - start;
+            latency.record(elapsed);
+            if (elapsed > sloNanos) sloViolations.increment();
+        }
+    }
+
+    // false once closing: the executor may already have queued its stop markers
+    private boolean submit(Pending t) throws InterruptedException {
+        submitting.readLock().lock();
+        try {
+            if (closing) return false;
+            executor.submit(t);
+            return true;
+        } finally {
+            submitting.readLock().unlock();
+        }
+    }
+
+    private static void onResult(Transaction t, FraudAlert alert, RuntimeException error) {
+        CompletableFuture<FraudAlert> result = ((Pending) t).result;
+        if (error != null) result.completeExceptionally(error);
+        else result.complete(alert);
+    }
+
+    private void send(HttpExchange ex, int status, ObjectNode body) throws IOException {
+        if (status >= 400) errors.increment();
+        byte[] bytes = JSON.writeValueAsBytes(body);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ObjectNode result(String transactionId, FraudAlert alert) {
+        ObjectNode n = JSON.createObjectNode();
+        n.put("transactionId", transactionId);
+        if (alert == null) {
+            n.put("risk", "LOW");
+            return n;
+        }
+        n.put("risk", alert.getRiskLevel());
+        n.put("score", alert.getScore());
+        ArrayNode reasons = n.putArray("reasons");
+        if (alert.getReason() != null && !alert.getReason().isEmpty()) {
+            for (String r : alert.getReason().split("; ")) reasons.add(r);
+        }
+        return n;
+    }
+
+    private static ObjectNode error(String transactionId, String message) {
+        ObjectNode n = JSON.createObjectNode();
+        n.put("transactionId", transactionId);
+        n.put("error", message);
+        return n;
+    }
+
+    private void report() {
+        LatencyWindow.Snapshot window = latency.drain();
+        if (window.count() == 0) return;
+        log.info("HTTP: {} req/s, latency p50 {} ms, p99 {} ms, p99.9 {} ms, {} SLO violations total",
+                Math.round(window.count() / (reportNanos / 1e9)), window.millis(0.50), window.millis(0.99),
+                window.millis(0.999), sloViolations.sum());
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on Java 21+, looked up so the build stays on Java 11
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads unavailable, using a platform thread pool: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread th = new Thread(r, prefix + "-" + n.getAndIncrement());
+            th.setDaemon(true);
+            return th;
+        };
+    }
+
+    /** A request's transaction, completed by the detection worker that scores it. */
+    private static final class Pending extends Transaction {
+        final CompletableFuture<FraudAlert> result = new CompletableFuture<>();
+    }
+}
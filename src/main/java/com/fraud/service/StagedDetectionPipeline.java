@@ -0,0 +1,247 @@
+package com.fraud.service;
+
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.util.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs detection as three stages on three threads, so a slow stage only holds up the ones
+ * before it once the ring between them is full:
+ * <pre>
+ * parse (caller: input iterator) -> ring -> score (velocity + rules) -> ring -> persist (DAOs)
+ * </pre>
+ * Stages are joined by {@link RingBuffer}s whose slots are allocated once and reused. Scoring
+ * runs on a single thread in input order, so velocity and duplicate checks see exactly what
+ * {@link DetectionService#analyzeAndPersist(Transaction)} would; persistence follows in the same
+ * order. The velocity store must therefore not depend on persisted rows (use the in-memory one).
+ * <p>
+ * A transaction that fails to score or persist is logged, counted and reported to the listener,
+ * and the pipeline moves on. After {@link #run}, {@link #stats} tells which stage was the
+ * bottleneck: it is busy most of the time, the ring in front of it is full and the one behind it
+ * empty.
+ */
+public class StagedDetectionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StagedDetectionPipeline.class);
+
+    public static final int DEFAULT_RING_SIZE = 1024;
+
+    private final DetectionService service;
+    private final ParallelDetectionExecutor.ResultListener listener;
+    private final RingBuffer<Event> parsed;
+    private final RingBuffer<Event> scored;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicReference<Throwable> stageFailure = new AtomicReference<>();
+    private long elapsedNanos;
+    private boolean started;
+
+    /**
+     * @param ringSize slots in each ring; a power of two
+     * @param listener called on the persist thread for every transaction, in input order
+     */
+    public StagedDetectionPipeline(DetectionService service, int ringSize, RingBuffer.WaitStrategy waitStrategy,
+                                   ParallelDetectionExecutor.ResultListener listener) {
+        this.service = Objects.requireNonNull(service, "service required");
+        this.listener = Objects.requireNonNull(listener, "listener required");
+        this.parsed = new RingBuffer<>(ringSize, Event::new, waitStrategy);
+        this.scored = new RingBuffer<>(ringSize, Event::new, waitStrategy);
+    }
+
+    /**
+     * Pull every transaction from {@code input} on the calling thread (the parse stage) and
+     * return once all of them are scored and persisted. Can be called once.
+     *
+     * @throws RuntimeException whatever {@code input} threw; transactions read before it are
+     *                          still scored and persisted
+     */
+    public void run(Iterator<? extends Transaction> input) throws InterruptedException {
+        synchronized (this) {
+            if (started) throw new IllegalStateException("pipeline already run");
+            started = true;
+        }
+        Thread score = stage("pipeline-score", this::scoreStage);
+        Thread persist = stage("pipeline-persist", this::persistStage);
+        long start = System.nanoTime();
+        RuntimeException inputError = null;
+        try {
+            parseStage(input);
+        } catch (RuntimeException e) {
+            inputError = e;
+        } finally {
+            try {
+                endOfStream();
+                score.join();
+                persist.join();
+            } finally {
+                elapsedNanos = System.nanoTime() - start;
+            }
+        }
+        // a dead stage halts the rings, which the parse stage sees as its own error
+        Throwable failure = stageFailure.get();
+        if (failure != null) throw new IllegalStateException("detection pipeline stage failed", failure);
+        if (inputError != null) throw inputError;
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    public long getAlerts() {
+        return alerts.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Per-stage utilization and ring occupancy of the last run, e.g.
+     * {@code parse busy 31% | ring 4/1024 | score busy 22% | ring 1019/1024 | persist busy 97%}.
+     * Busy is wall time minus time spent waiting on either neighbouring ring.
+     */
+    public String stats() {
+        long elapsed = Math.max(1, elapsedNanos);
+        long parseIdle = parsed.getProducerWaitNanos();
+        long scoreIdle = parsed.getConsumerWaitNanos() + scored.getProducerWaitNanos();
+        long persistIdle = scored.getConsumerWaitNanos();
+        return String.format("parse busy %d%% | ring %.0f/%d | score busy %d%% | ring %.0f/%d | persist busy %d%%",
+                busy(parseIdle, elapsed), parsed.getAverageOccupancy(), parsed.capacity(),
+                busy(scoreIdle, elapsed), scored.getAverageOccupancy(), scored.capacity(),
+                busy(persistIdle, elapsed));
+    }
+
+    private static long busy(long idleNanos, long elapsedNanos) {
+        return Math.max(0, Math.round(100.0 * (elapsedNanos - idleNanos) / elapsedNanos));
+    }
+
+    private void parseStage(Iterator<? extends Transaction> input) {
+        while (input.hasNext()) {
+            Transaction t = input.next();
+            long seq = parsed.next();
+            parsed.get(seq).set(t, null, null);
+            parsed.publish(seq);
+        }
+    }
+
+    // a downstream stage that died halted the rings; then there is no one left to tell
+    private void endOfStream() {
+        if (parsed.isHalted()) return;
+        try {
+            long seq = parsed.next();
+            parsed.get(seq).end();
+            parsed.publish(seq);
+        } catch (IllegalStateException halted) {
+            // a stage failed while the ring was full
+        }
+    }
+
+    private void scoreStage() {
+        long next = 0;
+        while (true) {
+            long available = parsed.waitFor(next);
+            for (; next <= available; next++) {
+                Event in = parsed.get(next);
+                long seq = scored.next();
+                Event out = scored.get(seq);
+                if (in.end) {
+                    out.end();
+                    scored.publish(seq);
+                    return;
+                }
+                FraudAlert alert = null;
+                RuntimeException error = null;
+                try {
+                    alert = service.score(in.txn);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                out.set(in.txn, alert, error);
+                in.txn = null;
+                scored.publish(seq);
+            }
+            // release once per batch: one store for every slot read
+            parsed.release(available);
+        }
+    }
+
+    private void persistStage() {
+        long next = 0;
+        while (true) {
+            long available = scored.waitFor(next);
+            for (; next <= available; next++) {
+                Event e = scored.get(next);
+                if (e.end) return;
+                persist(e.txn, e.alert, e.error);
+                e.set(null, null, null);
+            }
+            scored.release(available);
+        }
+    }
+
+    private void persist(Transaction t, FraudAlert alert, RuntimeException error) {
+        if (error == null) {
+            try {
+                service.persist(t, alert);
+                if (alert != null) alerts.increment();
+            } catch (RuntimeException e) {
+                error = e;
+                alert = null;
+            }
+        }
+        processed.increment();
+        if (error != null) {
+            failures.increment();
+            log.error("Detection failed for tx={} account={}", t.getTransactionId(), t.getAccountId(), error);
+        }
+        try {
+            listener.onResult(t, alert, error);
+        } catch (RuntimeException e) {
+            log.error("Result listener failed for tx={}", t.getTransactionId(), e);
+        }
+    }
+
+    private Thread stage(String name, Runnable body) {
+        Thread th = new Thread(() -> {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                // the first failure wins; the other stage then fails on the halted ring
+                if (stageFailure.compareAndSet(null, e)) log.error("Stage {} failed", name, e);
+                parsed.halt();
+                scored.halt();
+            }
+        }, name);
+        th.setDaemon(true);
+        th.start();
+        return th;
+    }
+
+    /** A reusable ring slot. */
+    private static final class Event {
+        Transaction txn;
+        FraudAlert alert;
+        RuntimeException error;
+        boolean end;
+
+        void set(Transaction txn, FraudAlert alert, RuntimeException error) {
+            this.txn = txn;
+            this.alert = alert;
+            this.error = error;
+            this.end = false;
+        }
+
+        void end() {
+            set(null, null, null);
+            end = true;
+        }
+    }
+}
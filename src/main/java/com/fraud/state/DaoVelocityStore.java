@@ -0,0 +1,63 @@
+package com.fraud.state;
+
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+/**
+ * Velocity store backed by the transactions table (the original behaviour).
+ * Every check is a SELECT ({@link #check} counts and looks for a duplicate in one), and
+ * {@link #record} is a no-op because the service persists the transaction itself. Useful when
+ * several processes score the same accounts.
+ */
+public class DaoVelocityStore implements VelocityStore {
+
+    private final TransactionDao txDao;
+
+    public DaoVelocityStore(TransactionDao txDao) {
+        this.txDao = txDao;
+    }
+
+    @Override
+    public int countBetween(String accountId, long from, long to) {
+        return (int) window(accountId, from, to).count();
+    }
+
+    @Override
+    public boolean hasDuplicateBetween(String accountId, long from, long to, double amount, String merchant) {
+        if (merchant == null) return false;
+        return window(accountId, from, to)
+                .anyMatch(r -> r.getAmount() == amount && merchant.equalsIgnoreCase(r.getMerchant()));
+    }
+
+    @Override
+    public WindowCheck check(String accountId, long from, long to, double amount, String merchant) {
+        TransactionDao.WindowCount c = txDao.countWindow(accountId, toLocal(from),
+                to == Long.MAX_VALUE ? null : toLocal(to), amount, merchant);
+        return new WindowCheck(c.getCount(), c.getMatches() > 0);
+    }
+
+    @Override
+    public long latestTimestamp(String accountId) {
+        // not tracked: every event is treated as on time
+        return UNKNOWN;
+    }
+
+    @Override
+    public void record(Transaction txn) {
+        // persisted by DetectionService via TransactionDao.save
+    }
+
+    private Stream<Transaction> window(String accountId, long from, long to) {
+        Stream<Transaction> s = txDao.getTransactionsSince(accountId, toLocal(from)).stream();
+        if (to == Long.MAX_VALUE) return s;
+        return s.filter(r -> r.getTimestamp().toEpochSecond(ZoneOffset.UTC) <= to);
+    }
+
+    private static LocalDateTime toLocal(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,234 @@
+package com.fraud.state;
+
+import com.fraud.model.CategoryDictionary;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Keeps a bounded ring of compact entries (timestamp, amount, merchant id) per account,
+ * so velocity and duplicate checks never need a database round trip. Merchant ids come from
+ * {@link TransactionDictionary#global()}.
+ * <p>
+ * Each ring holds at most {@code capacity} entries; once full the oldest entry is overwritten,
+ * so counts saturate at {@code capacity}. Keep it at or above velocity.limit.
+ * <p>
+ * With a retention, accounts whose newest entry is more than {@code retentionSeconds} older than
+ * the newest timestamp recorded for any account are dropped, so the number of rings follows the
+ * active accounts rather than every account ever seen. About one in {@value #SWEEP_EVERY}
+ * records (chosen at random, so recording threads share no counter) triggers the sweep.
+ */
+public class InMemoryVelocityStore implements VelocityStore {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /** Without a retention, accounts are kept until {@link #clear}. */
+    public static final long KEEP_ALL = Long.MAX_VALUE;
+
+    static final int SWEEP_EVERY = 4096;
+
+    private final int capacity;
+    private final long retentionSeconds;
+    private final ConcurrentMap<String, AccountWindow> windows = new ConcurrentHashMap<>();
+    private final CategoryDictionary merchants = TransactionDictionary.global().merchants();
+    // newest timestamp recorded for any account: the clock idle accounts are measured against
+    private final LongAccumulator newest = new LongAccumulator(Math::max, UNKNOWN);
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /** Default capacity; every account is kept (tests and bounded runs). */
+    public InMemoryVelocityStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Every account is kept (tests and bounded runs). */
+    public InMemoryVelocityStore(int capacity) {
+        this(capacity, 1, KEEP_ALL);
+    }
+
+    /**
+     * @param capacity         entries per account; at least {@code velocityLimit}, or counts would
+     *                         saturate below it and the velocity check could never fire
+     * @param velocityLimit    transactions in the window that trigger the velocity check
+     * @param retentionSeconds how far an account's newest entry may fall behind before the account
+     *                         is dropped: the velocity window plus any allowed lateness
+     */
+    public InMemoryVelocityStore(int capacity, int velocityLimit, long retentionSeconds) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        if (capacity < velocityLimit) {
+            throw new IllegalArgumentException("capacity (" + capacity + ") must be >= velocity limit ("
+                    + velocityLimit + "), or the velocity check can never fire");
+        }
+        if (retentionSeconds <= 0) throw new IllegalArgumentException("retentionSeconds must be > 0");
+        this.capacity = capacity;
+        this.retentionSeconds = retentionSeconds;
+    }
+
+    @Override
+    public int countBetween(String accountId, long from, long to) {
+        AccountWindow w = accountId == null ? null : windows.get(accountId);
+        return w == null ? 0 : w.countBetween(from, to);
+    }
+
+    @Override
+    public boolean hasDuplicateBetween(String accountId, long from, long to, double amount, String merchant) {
+        if (accountId == null || merchant == null) return false;
+        AccountWindow w = windows.get(accountId);
+        if (w == null) return false;
+        int merchantId = merchants.find(merchant);
+        return merchantId != CategoryDictionary.UNKNOWN && w.containsBetween(from, to, amount, merchantId);
+    }
+
+    /** One pass over the account's ring for both answers. */
+    @Override
+    public WindowCheck check(String accountId, long from, long to, double amount, String merchant) {
+        AccountWindow w = accountId == null ? null : windows.get(accountId);
+        if (w == null) return WindowCheck.EMPTY;
+        int merchantId = merchant == null ? CategoryDictionary.UNKNOWN : merchants.find(merchant);
+        return w.check(from, to, amount, merchantId);
+    }
+
+    @Override
+    public long latestTimestamp(String accountId) {
+        AccountWindow w = accountId == null ? null : windows.get(accountId);
+        return w == null ? UNKNOWN : w.latest();
+    }
+
+    @Override
+    public void record(Transaction txn) {
+        if (txn == null || txn.getAccountId() == null || txn.getTimestamp() == null) return;
+        int merchantId = merchantId(txn);
+        long ts = txn.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        String account = txn.getAccountId();
+        AccountWindow w = windows.get(account);
+        // look up first: the capturing lambda would be allocated on every call
+        if (w == null) w = windows.computeIfAbsent(account, k -> new AccountWindow(capacity));
+        while (!w.add(ts, txn.getAmount(), merchantId)) {
+            // dropped by a sweep meanwhile: start a fresh ring
+            windows.remove(account, w);
+            w = windows.computeIfAbsent(account, k -> new AccountWindow(capacity));
+        }
+        if (retentionSeconds == KEEP_ALL) return;
+        newest.accumulate(ts);
+        if (ThreadLocalRandom.current().nextInt(SWEEP_EVERY) == 0) evictIdle();
+    }
+
+    /**
+     * Drop the accounts whose newest entry is more than the retention behind the newest timestamp
+     * recorded. Runs on its own every {@value #SWEEP_EVERY} records or so; no-op without a retention.
+     *
+     * @return accounts dropped
+     */
+    public int evictIdle() {
+        long now = newest.get();
+        if (retentionSeconds == KEEP_ALL || now == UNKNOWN || !sweeping.compareAndSet(false, true)) return 0;
+        try {
+            long cutoff = now - retentionSeconds;
+            int evicted = 0;
+            for (Iterator<Map.Entry<String, AccountWindow>> it = windows.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, AccountWindow> e = it.next();
+                if (e.getValue().retireIfBefore(cutoff)) {
+                    windows.remove(e.getKey(), e.getValue());
+                    evicted++;
+                }
+            }
+            return evicted;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /** Number of accounts currently tracked. */
+    public int size() {
+        return windows.size();
+    }
+
+    public void clear() {
+        windows.clear();
+    }
+
+    private int merchantId(Transaction txn) {
+        int id = txn.getMerchantId();
+        return id != CategoryDictionary.UNKNOWN ? id : merchants.encode(txn.getMerchant());
+    }
+
+    /**
+     * Fixed-size ring for one account. Entries are appended in arrival order; lookups scan
+     * the (small) ring so out-of-order timestamps are still counted correctly.
+     */
+    static final class AccountWindow {
+        private final long[] timestamps;
+        private final double[] amounts;
+        private final int[] merchants;
+        private int next;
+        private int size;
+        private long latest = UNKNOWN;
+        private boolean retired;
+
+        AccountWindow(int capacity) {
+            this.timestamps = new long[capacity];
+            this.amounts = new double[capacity];
+            this.merchants = new int[capacity];
+        }
+
+        /** False if the ring was retired by a sweep; the caller records into a new one. */
+        synchronized boolean add(long ts, double amount, int merchantId) {
+            if (retired) return false;
+            timestamps[next] = ts;
+            amounts[next] = amount;
+            merchants[next] = merchantId;
+            next = (next + 1) % timestamps.length;
+            if (size < timestamps.length) size++;
+            if (ts > latest) latest = ts;
+            return true;
+        }
+
+        // retire the ring if nothing newer than cutoff was recorded; retired rings take no more entries
+        synchronized boolean retireIfBefore(long cutoff) {
+            if (latest < cutoff) retired = true;
+            return retired;
+        }
+
+        synchronized int countBetween(long from, long to) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long ts = timestamps[i];
+                if (ts >= from && ts <= to) count++;
+            }
+            return count;
+        }
+
+        synchronized boolean containsBetween(long from, long to, double amount, int merchantId) {
+            for (int i = 0; i < size; i++) {
+                long ts = timestamps[i];
+                if (ts >= from && ts <= to && amounts[i] == amount && merchants[i] == merchantId) return true;
+            }
+            return false;
+        }
+
+        synchronized WindowCheck check(long from, long to, double amount, int merchantId) {
+            int count = 0;
+            boolean duplicate = false;
+            for (int i = 0; i < size; i++) {
+                long ts = timestamps[i];
+                if (ts >= from && ts <= to) {
+                    count++;
+                    if (!duplicate && merchantId != CategoryDictionary.UNKNOWN
+                            && amounts[i] == amount && merchants[i] == merchantId) duplicate = true;
+                }
+            }
+            return WindowCheck.of(count, duplicate);
+        }
+
+        synchronized long latest() {
+            return latest;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.fraud.state;
+
+import com.fraud.model.Transaction;
+
+/**
+ * Per-account state used by the velocity and duplicate checks.
+ * Implementations decide where the recent history lives (memory, database, ...).
+ * <p>
+ * All times are UTC epoch seconds of the transaction's local timestamp.
+ */
+public interface VelocityStore {
+
+    /** Returned by {@link #latestTimestamp} when nothing is known for the account. */
+    long UNKNOWN = Long.MIN_VALUE;
+
+    /**
+     * Number of recorded transactions for the account with a timestamp in {@code [from, to]}.
+     *
+     * @param accountId account to inspect
+     * @param from      lower bound of the window (inclusive)
+     * @param to        upper bound of the window (inclusive); {@code Long.MAX_VALUE} for open-ended
+     * @return count of transactions inside the window
+     */
+    int countBetween(String accountId, long from, long to);
+
+    /**
+     * True if a transaction with the same amount and merchant (case-insensitive) was recorded
+     * for the account with a timestamp in {@code [from, to]}.
+     */
+    boolean hasDuplicateBetween(String accountId, long from, long to, double amount, String merchant);
+
+    /**
+     * {@link #countBetween} and {@link #hasDuplicateBetween} in one call, for stores that can
+     * answer both with a single look-up (one query, one pass over the window).
+     */
+    default WindowCheck check(String accountId, long from, long to, double amount, String merchant) {
+        int count = countBetween(accountId, from, to);
+        if (count == 0) return WindowCheck.EMPTY;
+        return new WindowCheck(count, hasDuplicateBetween(accountId, from, to, amount, merchant));
+    }
+
+    /**
+     * Highest transaction timestamp recorded for the account, used as its event-time watermark.
+     *
+     * @return epoch seconds, or {@link #UNKNOWN} if the store does not track it
+     */
+    long latestTimestamp(String accountId);
+
+    /**
+     * Remember a transaction so later calls can see it.
+     *
+     * @param txn transaction that has just been scored
+     */
+    void record(Transaction txn);
+}
@@ -0,0 +1,42 @@
+package com.fraud.state;
+
+/**
+ * Result of {@link VelocityStore#check}: transactions in the window, and whether one of them has
+ * the same amount and merchant as the transaction being checked.
+ */
+public final class WindowCheck {
+
+    static final WindowCheck EMPTY = new WindowCheck(0, false);
+
+    // shared results for the small counts an in-memory ring can return
+    private static final int CACHED_COUNTS = 256;
+    private static final WindowCheck[] CACHE = new WindowCheck[CACHED_COUNTS * 2];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new WindowCheck(i >> 1, (i & 1) != 0);
+        }
+    }
+
+    private final int count;
+    private final boolean duplicate;
+
+    public WindowCheck(int count, boolean duplicate) {
+        this.count = count;
+        this.duplicate = duplicate;
+    }
+
+    /** Same as the constructor, but shares the instance for counts below {@value #CACHED_COUNTS}. */
+    static WindowCheck of(int count, boolean duplicate) {
+        if (count >= 0 && count < CACHED_COUNTS) return CACHE[count << 1 | (duplicate ? 1 : 0)];
+        return new WindowCheck(count, duplicate);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+}
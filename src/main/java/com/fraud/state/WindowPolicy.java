@@ -0,0 +1,88 @@
+package com.fraud.state;
+
+import com.fraud.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Decides which clock the velocity window is measured against.
+ * <ul>
+ *   <li>processing time: window ends at the wall clock ({@code now - window .. now}), the original behaviour</li>
+ *   <li>event time: window ends at the transaction's own timestamp, so replays and backfills
+ *       give the same result at any speed</li>
+ * </ul>
+ * In event-time mode a transaction is <em>late</em> when its timestamp is older than the
+ * account's latest seen timestamp minus the allowed lateness. Late transactions are still scored
+ * by the stateless rules but skip the velocity/duplicate checks and are not added to the window.
+ */
+public final class WindowPolicy {
+
+    public enum Mode { PROCESSING, EVENT }
+
+    private final Mode mode;
+    private final long allowedLatenessSeconds;
+
+    private WindowPolicy(Mode mode, long allowedLatenessSeconds) {
+        this.mode = mode;
+        this.allowedLatenessSeconds = allowedLatenessSeconds;
+    }
+
+    public static WindowPolicy processingTime() {
+        return new WindowPolicy(Mode.PROCESSING, 0);
+    }
+
+    public static WindowPolicy eventTime(long allowedLatenessSeconds) {
+        if (allowedLatenessSeconds < 0) throw new IllegalArgumentException("allowedLatenessSeconds must be >= 0");
+        return new WindowPolicy(Mode.EVENT, allowedLatenessSeconds);
+    }
+
+    /**
+     * Parse from properties style values, e.g. ("event", "300").
+     */
+    public static WindowPolicy of(String mode, String allowedLatenessSeconds) {
+        if (mode != null && "event".equalsIgnoreCase(mode.trim())) {
+            long lateness = allowedLatenessSeconds == null || allowedLatenessSeconds.trim().isEmpty()
+                    ? 0 : Long.parseLong(allowedLatenessSeconds.trim());
+            return eventTime(lateness);
+        }
+        return processingTime();
+    }
+
+    public Mode getMode() { return mode; }
+    public long getAllowedLatenessSeconds() { return allowedLatenessSeconds; }
+
+    /**
+     * End of the velocity window for this transaction (inclusive).
+     */
+    public long windowEnd(Transaction txn) {
+        if (mode == Mode.EVENT && txn.getTimestamp() != null) {
+            return txn.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        }
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Upper bound used when querying the store. Processing time keeps the window open-ended
+     * (anything recorded up to now counts); event time excludes entries later than the transaction.
+     */
+    public long queryUpperBound(long windowEnd) {
+        return mode == Mode.EVENT ? windowEnd : Long.MAX_VALUE;
+    }
+
+    /**
+     * True if the transaction falls behind the account watermark.
+     *
+     * @param eventTime       transaction timestamp (epoch seconds)
+     * @param latestForAccount {@link VelocityStore#latestTimestamp} for the account
+     */
+    public boolean isLate(long eventTime, long latestForAccount) {
+        if (mode != Mode.EVENT || latestForAccount == VelocityStore.UNKNOWN) return false;
+        return eventTime < latestForAccount - allowedLatenessSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.EVENT ? "event-time(lateness=" + allowedLatenessSeconds + "s)" : "processing-time";
+    }
+}
@@ -0,0 +1,337 @@
+package com.fraud.util;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary form of a transaction file, for re-scoring the same history repeatedly
+ * without re-parsing text.
+ * <p>
+ * Layout: the magic {@code FTXB} and a version byte, then one record per entry:
+ * <ul>
+ *   <li>{@code DEFINE}: a string (varint length + UTF-8) that gets the next dictionary id, starting at 1;</li>
+ *   <li>{@code TXN} (with flags for a missing timestamp or non-zero nanos): transactionId inline,
+ *       accountId as a dictionary id, amount as 8 raw IEEE bytes, epoch seconds (UTC) as a zigzag varint
+ *       delta from the previous record, nanos as a varint if flagged, then currency, merchant, location
+ *       and channel as dictionary ids.</li>
+ * </ul>
+ * Id and inline length 0 mean null. A string is defined just before its first use, so files are
+ * written and read in one pass.
+ */
+public class BinaryTransactionFile {
+
+    private static final byte[] MAGIC = {'F', 'T', 'X', 'B'};
+    private static final int VERSION = 1;
+
+    private static final int DEFINE = 0;
+    private static final int TXN = 1;
+    private static final int TXN_NO_TIMESTAMP = 2;
+    private static final int TXN_NANOS = 3;
+
+    /** Longest string (in UTF-8 bytes) a record may hold. */
+    public static final int MAX_STRING = 65_535;
+    // upper bound for one record: tag, inline id, 6 varints, amount, nanos
+    private static final int MAX_RECORD = 1 + 5 + MAX_STRING + 6 * 10 + 8 + 5;
+    private static final int WINDOW = 32 << 20;
+    private static final int DATE_CACHE = 1024;
+
+    /** True if the file starts with this format's magic. */
+    public static boolean isBinary(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = new byte[MAGIC.length];
+            int n = in.readNBytes(head, 0, head.length);
+            return n == MAGIC.length && Arrays.equals(head, MAGIC);
+        }
+    }
+
+    /**
+     * Write everything left in {@code in} to {@code out}, replacing it.
+     *
+     * @return records written
+     */
+    public static long convert(TransactionCursor in, Path out) throws IOException {
+        try (Writer w = new Writer(Files.newOutputStream(out))) {
+            while (in.hasNext()) w.write(in.next());
+            return w.getCount();
+        }
+    }
+
+    public static Cursor open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Cursor(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends records to a stream. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private long lastEpoch;
+        private long count;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.out.write(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        public void write(Transaction t) throws IOException {
+            byte[] transactionId = t.getTransactionId() == null ? null : bytes(t.getTransactionId());
+            int account = id(t.getAccountId());
+            int currency = id(t.getCurrency());
+            int merchant = id(t.getMerchant());
+            int location = id(t.getLocation());
+            int channel = id(t.getChannel());
+
+            LocalDateTime ts = t.getTimestamp();
+            int nanos = ts == null ? 0 : ts.getNano();
+            out.writeByte(ts == null ? TXN_NO_TIMESTAMP : nanos != 0 ? TXN_NANOS : TXN);
+            if (transactionId == null) {
+                writeVar(0);
+            } else {
+                writeVar(transactionId.length + 1L);
+                out.write(transactionId);
+            }
+            writeVar(account);
+            out.writeLong(Double.doubleToRawLongBits(t.getAmount()));
+            if (ts != null) {
+                long epoch = ts.toEpochSecond(ZoneOffset.UTC);
+                long delta = epoch - lastEpoch;
+                writeVar(delta << 1 ^ delta >> 63);
+                lastEpoch = epoch;
+                if (nanos != 0) writeVar(nanos);
+            }
+            writeVar(currency);
+            writeVar(merchant);
+            writeVar(location);
+            writeVar(channel);
+            count++;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        private int id(String s) throws IOException {
+            if (s == null) return 0;
+            Integer id = ids.get(s);
+            if (id != null) return id;
+            out.writeByte(DEFINE);
+            writeBytes(bytes(s));
+            int next = ids.size() + 1;
+            ids.put(s, next);
+            return next;
+        }
+
+        private void writeBytes(byte[] b) throws IOException {
+            writeVar(b.length);
+            out.write(b);
+        }
+
+        private static byte[] bytes(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            if (b.length > MAX_STRING) throw new IllegalArgumentException("String longer than " + MAX_STRING + " bytes");
+            return b;
+        }
+
+        private void writeVar(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                out.writeByte((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.writeByte((int) v);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a file through a memory-mapped window that slides forward as records are consumed.
+     * Transactions come back dictionary-encoded, sharing one String per distinct value.
+     */
+    public static final class Cursor implements TransactionCursor {
+        private final FileChannel channel;
+        private final long size;
+        private final List<String> strings = new ArrayList<>();
+        private final TransactionDictionary dict = TransactionDictionary.global();
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] scratch = new byte[256];
+        private long lastEpoch;
+        private long rowsRead;
+        private Transaction next;
+        private final LocalDate[] dates = new LocalDate[DATE_CACHE];
+        private final long[] dateKeys = new long[DATE_CACHE];
+        private final LocalTime[] times = new LocalTime[86_400];
+
+        private Cursor(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            if (size < MAGIC.length + 1) throw new IllegalArgumentException("Not a binary transaction file");
+            map(0);
+            byte[] head = new byte[MAGIC.length];
+            window.get(head);
+            if (!Arrays.equals(head, MAGIC)) throw new IllegalArgumentException("Not a binary transaction file");
+            int version = window.get();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported binary format version " + version);
+            strings.add(null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && position() < size) {
+                    if (window.remaining() < MAX_RECORD && windowStart + window.limit() < size) map(position());
+                    int tag = window.get();
+                    if (tag == DEFINE) {
+                        strings.add(string(varInt()));
+                    } else if (tag >= TXN && tag <= TXN_NANOS) {
+                        next = record(tag);
+                        rowsRead++;
+                    } else {
+                        throw corrupt();
+                    }
+                }
+                return next != null;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw corrupt();   // truncated file or a bad string id
+            }
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Transaction t = next;
+            next = null;
+            return t;
+        }
+
+        @Override
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        @Override
+        public long getRowsRejected() {
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private Transaction record(int tag) {
+            int idLength = varInt();
+            String transactionId = idLength == 0 ? null : string(idLength - 1);
+            String accountId = strings.get(varInt());
+            double amount = Double.longBitsToDouble(window.getLong());
+            LocalDateTime ts = null;
+            if (tag != TXN_NO_TIMESTAMP) {
+                long zigzag = varLong();
+                lastEpoch += zigzag >>> 1 ^ -(zigzag & 1);
+                ts = dateTime(lastEpoch, tag == TXN_NANOS ? varInt() : 0);
+            }
+            String currency = strings.get(varInt());
+            String merchant = strings.get(varInt());
+            String location = strings.get(varInt());
+            String channel = strings.get(varInt());
+            return dict.encode(new Transaction(transactionId, accountId, amount, currency, ts, merchant, location, channel));
+        }
+
+        // replays repeat dates and times of day; share those parts so a timestamp is one allocation
+        private LocalDateTime dateTime(long epoch, int nanos) {
+            long day = Math.floorDiv(epoch, 86_400);
+            int secondOfDay = Math.floorMod(epoch, 86_400);
+            int slot = (int) day & (DATE_CACHE - 1);
+            LocalDate date = dates[slot];
+            if (date == null || dateKeys[slot] != day) {
+                date = LocalDate.ofEpochDay(day);
+                dates[slot] = date;
+                dateKeys[slot] = day;
+            }
+            LocalTime time;
+            if (nanos != 0) {
+                time = LocalTime.ofNanoOfDay(secondOfDay * 1_000_000_000L + nanos);
+            } else if ((time = times[secondOfDay]) == null) {
+                time = LocalTime.ofSecondOfDay(secondOfDay);
+                times[secondOfDay] = time;
+            }
+            return LocalDateTime.of(date, time);
+        }
+
+        private String string(int length) {
+            if (length > MAX_STRING) throw corrupt();
+            if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            window.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int varInt() {
+            long v = varLong();
+            if (v > Integer.MAX_VALUE) throw corrupt();
+            return (int) v;
+        }
+
+        private long varLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = window.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw corrupt();
+        }
+
+        private long position() {
+            return windowStart + window.position();
+        }
+
+        private void map(long at) {
+            try {
+                windowStart = at;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, size - at));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private IllegalArgumentException corrupt() {
+            return new IllegalArgumentException("Corrupt binary transaction file near byte " + position());
+        }
+    }
+}
@@ -1,18 +1,67 @@
 package com.fraud.util;
 
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public class CsvReader {
 
+    /** Comma-separated, quoted fields trimmed; for parsing one header or data line on its own. */
+    public static final CSVFormat TRIMMED = CSVFormat.DEFAULT.builder().setTrim(true).build();
+
+    // a whole file: the first record names the columns
+    private static final CSVFormat WITH_HEADER = TRIMMED.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreEmptyLines(true)
+            .build();
+
+    /** What to do with a row that cannot be turned into a transaction (bad amount, timestamp, ...). */
+    public enum OnError {
+        /** Log the row and continue. */
+        SKIP,
+        /** Append the row and the error to a quarantine CSV file and continue. */
+        QUARANTINE,
+        /** Throw a {@link RowException}, ending the read. */
+        FAIL;
+
+        /** "skip", "quarantine" or "fail" (case-insensitive); null means FAIL. */
+        public static OnError of(String value) {
+            return value == null ? FAIL : valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /** A row that could not be parsed, with its 1-based line number in the file. */
+    public static class RowException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+
+        public RowException(long line, String message, Throwable cause) {
+            super("Line " + line + ": " + message, cause);
+            this.line = line;
+        }
+
+        public long getLine() {
+            return line;
+        }
+    }
+
     /**
      * Reads transactions CSV from resources or given InputStream.
      * Expects header: transactionId,accountId,amount,currency,timestamp,merchant,location,channel
@@ -24,33 +73,132 @@ public class CsvReader {
         }
     }
 
+    /**
+     * Reads the whole input into memory; the first bad row throws. Prefer {@link #open} for large files.
+     */
     public static List<Transaction> read(InputStream inputStream) throws Exception {
         List<Transaction> list = new ArrayList<>();
-        try (Reader in = new InputStreamReader(inputStream)) {
-            Iterable<CSVRecord> records = CSVFormat.DEFAULT
-                    .withFirstRecordAsHeader()
-                    .withIgnoreEmptyLines()
-                    .withTrim()
-                    .parse(in);
-            for (CSVRecord r : records) {
-                String txIdField = r.get("transactionId");
-                if (txIdField == null || txIdField.trim().isEmpty()) continue;
-
-                String transactionId = txIdField.trim();
-                String accountId = r.get("accountId").trim();
-                double amount = Double.parseDouble(r.get("amount").trim());
-                String currency = r.get("currency").trim();
-                String timestamp = r.get("timestamp").trim();
-                String merchant = r.get("merchant").trim();
-                String location = r.get("location").trim();
-                String channel = r.get("channel").trim();
-
-                LocalDateTime ts = DateUtil.parse(timestamp);
-
-                Transaction t = new Transaction(transactionId, accountId, amount, currency, ts, merchant, location, channel);
-                list.add(t);
-            }
+        try (Cursor cursor = open(inputStream, OnError.FAIL, null)) {
+            cursor.forEachRemaining(list::add);
         }
         return list;
     }
+
+    /**
+     * Stream transactions from a file in constant memory.
+     *
+     * @param quarantine file that rejected rows are appended to; required for {@link OnError#QUARANTINE}
+     */
+    public static Cursor open(Path file, OnError onError, Path quarantine) throws IOException {
+        return open(Files.newInputStream(file), onError, quarantine);
+    }
+
+    /**
+     * Stream transactions from a classpath resource in constant memory.
+     */
+    public static Cursor openResource(String resourcePath, OnError onError, Path quarantine) throws IOException {
+        InputStream is = CsvReader.class.getResourceAsStream(resourcePath);
+        if (is == null) throw new IllegalArgumentException("Resource not found: " + resourcePath);
+        return open(is, onError, quarantine);
+    }
+
+    /**
+     * Stream transactions from {@code inputStream}, which the returned cursor closes.
+     */
+    public static Cursor open(InputStream inputStream, OnError onError, Path quarantine) throws IOException {
+        RejectHandler rejects;
+        try {
+            rejects = new RejectHandler(onError, quarantine);
+        } catch (IllegalArgumentException e) {
+            inputStream.close();
+            throw e;
+        }
+        Reader in = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        CSVParser parser = WITH_HEADER.parse(in);
+        return new Cursor(parser, rejects);
+    }
+
+    /**
+     * Parses one record at a time as it is requested. Rows with an empty transactionId are
+     * ignored; other bad rows are handled per {@link OnError}. Close it to release the input
+     * (and the quarantine file).
+     */
+    public static final class Cursor implements TransactionCursor {
+        private final CSVParser parser;
+        private final Iterator<CSVRecord> records;
+        private final RejectHandler rejects;
+        private final TransactionDictionary dict = TransactionDictionary.global();
+        private Transaction next;
+        private long rowsRead;
+
+        private Cursor(CSVParser parser, RejectHandler rejects) {
+            this.parser = parser;
+            this.records = parser.iterator();
+            this.rejects = rejects;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && records.hasNext()) {
+                CSVRecord r = records.next();
+                rowsRead++;
+                try {
+                    next = parse(r);
+                } catch (RuntimeException e) {
+                    reject(r, e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Transaction t = next;
+            next = null;
+            return t;
+        }
+
+        @Override
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        @Override
+        public long getRowsRejected() {
+            return rejects.getRejected();
+        }
+
+        private Transaction parse(CSVRecord r) {
+            String txIdField = r.get("transactionId");
+            if (txIdField == null || txIdField.trim().isEmpty()) return null;
+
+            String transactionId = txIdField.trim();
+            String accountId = r.get("accountId").trim();
+            double amount = Double.parseDouble(r.get("amount").trim());
+            String currency = r.get("currency").trim();
+            String timestamp = r.get("timestamp").trim();
+            String merchant = r.get("merchant").trim();
+            String location = r.get("location").trim();
+            String channel = r.get("channel").trim();
+
+            LocalDateTime ts = DateUtil.parse(timestamp);
+
+            Transaction t = new Transaction(transactionId, accountId, amount, currency, ts, merchant, location, channel);
+            return dict.encode(t);
+        }
+
+        private void reject(CSVRecord r, RuntimeException e) {
+            rejects.reject(parser.getHeaderNames(), r, parser.getCurrentLineNumber(), e);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                rejects.close();
+            } finally {
+                parser.close();
+            }
+        }
+    }
 }
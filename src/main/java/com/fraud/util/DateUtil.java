@@ -1,14 +1,67 @@
 package com.fraud.util;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
+/**
+ * Timestamps in "yyyy-MM-dd HH:mm:ss" or ISO ("yyyy-MM-ddTHH:mm[:ss[.fff]]") form.
+ * <p>
+ * Both layouts are recognized by character position and decoded without a formatter or
+ * exceptions. Anything else (signed or 5+ digit years, "24:00", ...) goes through the
+ * formatters, so results and errors are the same as parsing with {@link #FORMATTER} and then
+ * {@link LocalDateTime#parse(CharSequence)}; in particular a day past the end of the month is
+ * clamped in the first layout ("2025-02-30 ..." is Feb 28) and rejected in ISO form.
+ */
 public class DateUtil {
     public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    private static final long INVALID = -1;
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private static final int[] SCALE = {0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
     public static LocalDateTime parse(String s) {
         if (s == null) return null;
+        int from = start(s), to = end(s, from);
+        long f = decode(s, from, to);
+        if (f == INVALID) return parseSlow(s);
+        return toDateTime(f, to - from > 19 ? fraction(s, from + 20, to) : 0);
+    }
+
+    /**
+     * {@link #parse(String)} over UTF-8/ASCII bytes {@code [start, end)}, without creating a String
+     * for the usual layouts.
+     */
+    public static LocalDateTime parse(byte[] b, int start, int end) {
+        int from = start, to = end;
+        while (from < to && (b[from] & 0xff) <= ' ') from++;
+        while (to > from && (b[to - 1] & 0xff) <= ' ') to--;
+        long f = decode(b, from, to);
+        if (f == INVALID) return parseSlow(new String(b, from, to - from, StandardCharsets.UTF_8));
+        return toDateTime(f, to - from > 19 ? fraction(b, from + 20, to) : 0);
+    }
+
+    /**
+     * Seconds since the epoch, reading the timestamp as UTC, without allocating for the usual layouts.
+     *
+     * @throws IllegalArgumentException if {@code s} is null or not a timestamp
+     */
+    public static long parseEpochSeconds(String s) {
+        if (s == null) throw new IllegalArgumentException("Unable to parse datetime: null");
+        int from = start(s), to = end(s, from);
+        long f = decode(s, from, to);
+        if (f == INVALID) return parseSlow(s).toEpochSecond(ZoneOffset.UTC);
+        return epochDay(year(f), month(f), day(f)) * 86_400L + hour(f) * 3600 + minute(f) * 60 + second(f);
+    }
+
+    public static String format(LocalDateTime dt) {
+        if (dt == null) return null;
+        return dt.format(FORMATTER);
+    }
+
+    private static LocalDateTime parseSlow(String s) {
         try {
             return LocalDateTime.parse(s.trim(), FORMATTER);
         } catch (DateTimeParseException ex) {
@@ -21,8 +74,137 @@ public class DateUtil {
         }
     }
 
-    public static String format(LocalDateTime dt) {
-        if (dt == null) return null;
-        return dt.format(FORMATTER);
+    // ---- layout detection; the String and byte[] versions must stay in step ----
+
+    private static long decode(String s, int from, int to) {
+        int len = to - from;
+        if (len < 16 || s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-' || s.charAt(from + 13) != ':') {
+            return INVALID;
+        }
+        char sep = s.charAt(from + 10);
+        boolean iso = sep == 'T' || sep == 't';
+        if (!iso && sep != ' ') return INVALID;
+        int second = 0;
+        if (len >= 19) {
+            if (s.charAt(from + 16) != ':') return INVALID;
+            second = digits(s, from + 17, 2);
+        }
+        if (iso ? !(len == 16 || len == 19 || len > 20 && len <= 29 && s.charAt(from + 19) == '.'
+                && fraction(s, from + 20, to) >= 0) : len != 19) {
+            return INVALID;
+        }
+        return resolve(iso, digits(s, from, 4), digits(s, from + 5, 2), digits(s, from + 8, 2),
+                digits(s, from + 11, 2), digits(s, from + 14, 2), second);
+    }
+
+    private static long decode(byte[] b, int from, int to) {
+        int len = to - from;
+        if (len < 16 || b[from + 4] != '-' || b[from + 7] != '-' || b[from + 13] != ':') return INVALID;
+        byte sep = b[from + 10];
+        boolean iso = sep == 'T' || sep == 't';
+        if (!iso && sep != ' ') return INVALID;
+        int second = 0;
+        if (len >= 19) {
+            if (b[from + 16] != ':') return INVALID;
+            second = digits(b, from + 17, 2);
+        }
+        if (iso ? !(len == 16 || len == 19 || len > 20 && len <= 29 && b[from + 19] == '.'
+                && fraction(b, from + 20, to) >= 0) : len != 19) {
+            return INVALID;
+        }
+        return resolve(iso, digits(b, from, 4), digits(b, from + 5, 2), digits(b, from + 8, 2),
+                digits(b, from + 11, 2), digits(b, from + 14, 2), second);
+    }
+
+    // non-negative value of n ASCII digits, or -1
+    private static int digits(String s, int at, int n) {
+        int v = 0;
+        for (int i = at; i < at + n; i++) {
+            int c = s.charAt(i) - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
+    }
+
+    private static int digits(byte[] b, int at, int n) {
+        int v = 0;
+        for (int i = at; i < at + n; i++) {
+            int c = b[i] - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
+    }
+
+    // nanoseconds for 1-9 fraction digits, or -1
+    private static int fraction(String s, int from, int to) {
+        int v = digits(s, from, to - from);
+        return v < 0 ? -1 : v * SCALE[to - from];
+    }
+
+    private static int fraction(byte[] b, int from, int to) {
+        int v = digits(b, from, to - from);
+        return v < 0 ? -1 : v * SCALE[to - from];
+    }
+
+    private static int start(String s) {
+        int i = 0;
+        while (i < s.length() && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int end(String s, int from) {
+        int i = s.length();
+        while (i > from && s.charAt(i - 1) <= ' ') i--;
+        return i;
+    }
+
+    // ---- field validation, packed as year:14 month:4 day:5 hour:5 minute:6 second:6 ----
+
+    private static long resolve(boolean iso, int year, int month, int day, int hour, int minute, int second) {
+        if ((year | month | day | hour | minute | second) < 0 || month < 1 || month > 12 || day < 1
+                || hour > 23 || minute > 59 || second > 59) {
+            return INVALID;
+        }
+        // "yyyy" is year-of-era, which has no year 0
+        if (year == 0 && !iso) return INVALID;
+        int last = lengthOfMonth(year, month);
+        if (day > last) {
+            if (iso || day > 31) return INVALID;
+            day = last;   // the pattern formatter's SMART resolver clamps to the last day
+        }
+        return (long) year << 26 | month << 22 | day << 17 | hour << 12 | minute << 6 | second;
+    }
+
+    private static int year(long f) { return (int) (f >>> 26); }
+    private static int month(long f) { return (int) (f >>> 22) & 0xf; }
+    private static int day(long f) { return (int) (f >>> 17) & 0x1f; }
+    private static int hour(long f) { return (int) (f >>> 12) & 0x1f; }
+    private static int minute(long f) { return (int) (f >>> 6) & 0x3f; }
+    private static int second(long f) { return (int) f & 0x3f; }
+
+    private static LocalDateTime toDateTime(long f, int nanos) {
+        return LocalDateTime.of(year(f), month(f), day(f), hour(f), minute(f), second(f), nanos);
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2: return isLeapYear(year) ? 29 : 28;
+            case 4: case 6: case 9: case 11: return 30;
+            default: return 31;
+        }
+    }
+
+    // same as LocalDate.toEpochDay for years 0..9999
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) total -= isLeapYear(year) ? 1 : 2;
+        return total - DAYS_0000_TO_1970;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,411 @@
+package com.fraud.util;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk-ingest counterpart of {@link CsvReader} for large local files. The file is memory-mapped
+ * in chunks that end on a line boundary; chunks are parsed on {@code threads} threads directly
+ * from bytes (amounts and timestamps without intermediate strings) and handed out in file
+ * order, so per-account order is the same as with {@link CsvReader}.
+ * <p>
+ * Columns, trimming, rows with an empty transactionId and the {@link CsvReader.OnError} policy
+ * behave as in {@link CsvReader}, including line numbers. A line containing a quote is parsed
+ * with commons-csv; quoted fields spanning several lines are not supported.
+ */
+public class MappedCsvParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private static final String[] COLUMNS =
+            {"transactionId", "accountId", "amount", "currency", "timestamp", "merchant", "location", "channel"};
+    private static final int TX_ID = 0, ACCOUNT = 1, AMOUNT = 2, CURRENCY = 3, TIMESTAMP = 4,
+            MERCHANT = 5, LOCATION = 6, CHANNEL = 7;
+
+    public static Cursor open(Path file, int threads, CsvReader.OnError onError, Path quarantine) throws IOException {
+        return open(file, threads, DEFAULT_CHUNK_SIZE, onError, quarantine);
+    }
+
+    /**
+     * @param threads    parser threads
+     * @param chunkSize  target bytes per chunk; at most {@code 2 * threads} chunks are in memory at once
+     * @param quarantine file that rejected rows are appended to; required for {@link CsvReader.OnError#QUARANTINE}
+     */
+    public static Cursor open(Path file, int threads, int chunkSize, CsvReader.OnError onError,
+                              Path quarantine) throws IOException {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be > 0");
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be > 0");
+        RejectHandler rejects = new RejectHandler(onError, quarantine);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Cursor(channel, threads, chunkSize, onError == CsvReader.OnError.FAIL, rejects);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands out parsed records in file order while the following chunks are parsed in the
+     * background. Not thread-safe.
+     */
+    public static final class Cursor implements TransactionCursor {
+        private final FileChannel channel;
+        private final long size;
+        private final int chunkSize;
+        private final int window;
+        private final boolean failFast;
+        private final RejectHandler rejects;
+        private final ExecutorService pool;
+        private final ThreadLocal<ChunkParser> parsers;
+        private final ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        private final List<String> header = new ArrayList<>();
+        private long nextStart;     // file offset of the next chunk to schedule
+        private long nextLine = 2;  // line number of the first line of the next chunk to consume
+        private Chunk current;
+        private int pos;
+        private int rejectPos;
+        private long rowsRead;
+
+        private Cursor(FileChannel channel, int threads, int chunkSize, boolean failFast,
+                       RejectHandler rejects) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.chunkSize = chunkSize;
+            this.window = 2 * threads;
+            this.failFast = failFast;
+            this.rejects = rejects;
+
+            int[] columns = readHeader();
+            AtomicInteger n = new AtomicInteger();
+            this.pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread th = new Thread(r, "csv-parser-" + n.getAndIncrement());
+                th.setDaemon(true);
+                return th;
+            });
+            this.parsers = ThreadLocal.withInitial(() -> new ChunkParser(columns, header.size()));
+            schedule();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (true) {
+                if (current != null) {
+                    // rejected rows are reported where they were in the file, relative to good rows
+                    while (rejectPos < current.rejects.size() && current.rejects.get(rejectPos).before == pos) {
+                        Reject r = current.rejects.get(rejectPos++);
+                        rejects.reject(header, r.values, current.firstLine + r.line, r.error);
+                    }
+                    if (pos < current.txns.size()) return true;
+                    current = null;
+                }
+                if (inFlight.isEmpty()) return false;
+                current = take();
+                pos = 0;
+                rejectPos = 0;
+                schedule();
+            }
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.txns.get(pos++);
+        }
+
+        @Override
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        @Override
+        public long getRowsRejected() {
+            return rejects.getRejected();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            try {
+                rejects.close();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private int[] readHeader() throws IOException {
+            if (size == 0) {
+                nextStart = 0;
+                return new int[COLUMNS.length];
+            }
+            long end = lineEnd(0);
+            ByteBuffer bytes = ByteBuffer.allocate((int) end);
+            while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) > 0) {
+                // read until full
+            }
+            String line = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+            try (CSVParser p = CSVParser.parse(line, CsvReader.TRIMMED)) {
+                List<CSVRecord> records = p.getRecords();
+                if (!records.isEmpty()) records.get(0).forEach(header::add);
+            }
+            int[] columns = new int[COLUMNS.length];
+            for (int k = 0; k < COLUMNS.length; k++) {
+                columns[k] = header.indexOf(COLUMNS[k]);
+                if (columns[k] < 0) throw new IllegalArgumentException("Missing column: " + COLUMNS[k]);
+            }
+            nextStart = end;
+            return columns;
+        }
+
+        private void schedule() {
+            try {
+                while (inFlight.size() < window && nextStart < size) {
+                    long start = nextStart;
+                    long end = start + chunkSize >= size ? size : lineEnd(start + chunkSize - 1);
+                    if (end - start > Integer.MAX_VALUE) throw new IllegalArgumentException("Line too long at byte " + start);
+                    nextStart = end;
+                    inFlight.add(pool.submit(() -> parsers.get().parse(map(start, end), failFast)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Chunk take() {
+            try {
+                Chunk c = inFlight.poll().get();
+                c.firstLine = nextLine;
+                nextLine += c.lines;
+                rowsRead += c.rows;
+                return c;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while parsing", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw new UncheckedIOException((IOException) cause);
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        private MappedByteBuffer map(long start, long end) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+
+        // offset just past the first '\n' at or after from, or the file size
+        private long lineEnd(long from) throws IOException {
+            ByteBuffer probe = ByteBuffer.allocate(8192);
+            long at = from;
+            while (at < size) {
+                probe.clear();
+                int n = channel.read(probe, at);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') return at + i + 1;
+                }
+                at += n;
+            }
+            return size;
+        }
+    }
+
+    private static final class Chunk {
+        final List<Transaction> txns = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>(0);
+        int lines;
+        int rows;
+        long firstLine;
+    }
+
+    private static final class Reject {
+        final int line;        // relative to the chunk's first line
+        final int before;      // good rows preceding it in the chunk
+        final List<String> values;
+        final RuntimeException error;
+
+        Reject(int line, int before, List<String> values, RuntimeException error) {
+            this.line = line;
+            this.before = before;
+            this.values = values;
+            this.error = error;
+        }
+    }
+
+    /** Per-thread parsing state: the chunk copy, field offsets and a small string cache. */
+    private static final class ChunkParser {
+        private static final int CACHE = 1 << 12;
+
+        private final int[] columns;
+        private final int[] starts;
+        private final int[] ends;
+        private final byte[][] cacheKeys = new byte[CACHE][];
+        private final String[] cacheValues = new String[CACHE];
+        private final TransactionDictionary dict = TransactionDictionary.global();
+        private byte[] buf = new byte[0];
+        private int fields;
+
+        ChunkParser(int[] columns, int headerSize) {
+            this.columns = columns;
+            this.starts = new int[headerSize];
+            this.ends = new int[headerSize];
+        }
+
+        Chunk parse(MappedByteBuffer map, boolean failFast) {
+            int len = map.remaining();
+            if (buf.length < len) buf = new byte[Math.max(len, buf.length + (buf.length >> 1))];
+            map.get(buf, 0, len);
+            byte[] b = buf;
+
+            Chunk chunk = new Chunk();
+            int p = 0;
+            int line = 0;
+            while (p < len) {
+                int nl = p;
+                while (nl < len && b[nl] != '\n') nl++;
+                int end = nl > p && b[nl - 1] == '\r' ? nl - 1 : nl;
+                if (end > p) {
+                    chunk.rows++;
+                    try {
+                        Transaction t = parseLine(b, p, end);
+                        if (t != null) chunk.txns.add(t);
+                    } catch (RuntimeException e) {
+                        chunk.rejects.add(new Reject(line, chunk.txns.size(), values(b, p, end), e));
+                        if (failFast) break;
+                    }
+                }
+                line++;
+                p = nl + 1;
+            }
+            chunk.lines = line;
+            return chunk;
+        }
+
+        private Transaction parseLine(byte[] b, int s, int e) {
+            if (!split(b, s, e)) return parseQuoted(new String(b, s, e - s, StandardCharsets.UTF_8));
+
+            int id = columns[TX_ID];
+            check(id);
+            if (starts[id] == ends[id]) return null;
+            for (int c : columns) check(c);
+
+            String transactionId = new String(b, starts[id], ends[id] - starts[id], StandardCharsets.UTF_8);
+            String accountId = cached(b, columns[ACCOUNT]);
+            double amount = NumberUtil.parseDouble(b, starts[columns[AMOUNT]], ends[columns[AMOUNT]]);
+            String currency = cached(b, columns[CURRENCY]);
+            LocalDateTime ts = DateUtil.parse(b, starts[columns[TIMESTAMP]], ends[columns[TIMESTAMP]]);
+            String merchant = cached(b, columns[MERCHANT]);
+            String location = cached(b, columns[LOCATION]);
+            String channel = cached(b, columns[CHANNEL]);
+
+            return dict.encode(new Transaction(transactionId, accountId, amount, currency, ts, merchant, location, channel));
+        }
+
+        // trimmed field offsets into starts/ends; false if the line needs a real CSV parser
+        private boolean split(byte[] b, int s, int e) {
+            int n = 0;
+            int from = s;
+            for (int i = s; i <= e && n < starts.length; i++) {
+                if (i == e || b[i] == ',') {
+                    int fs = from, fe = i;
+                    while (fs < fe && (b[fs] & 0xff) <= ' ') fs++;
+                    while (fe > fs && (b[fe - 1] & 0xff) <= ' ') fe--;
+                    starts[n] = fs;
+                    ends[n] = fe;
+                    n++;
+                    from = i + 1;
+                } else if (b[i] == '"') {
+                    return false;
+                }
+            }
+            fields = n;
+            return true;
+        }
+
+        private void check(int column) {
+            if (column >= fields) {
+                throw new IllegalArgumentException("Missing value for column " + COLUMNS[indexOfColumn(column)]
+                        + ": row has " + fields + " values");
+            }
+        }
+
+        private int indexOfColumn(int column) {
+            for (int k = 0; k < columns.length; k++) if (columns[k] == column) return k;
+            return 0;
+        }
+
+        private Transaction parseQuoted(String line) {
+            CSVRecord r = record(line);
+            int id = columns[TX_ID];
+            String txId = get(r, id);
+            if (txId.isEmpty()) return null;
+            Transaction t = new Transaction(txId, get(r, columns[ACCOUNT]), Double.parseDouble(get(r, columns[AMOUNT])),
+                    get(r, columns[CURRENCY]), DateUtil.parse(get(r, columns[TIMESTAMP])), get(r, columns[MERCHANT]),
+                    get(r, columns[LOCATION]), get(r, columns[CHANNEL]));
+            return dict.encode(t);
+        }
+
+        private String get(CSVRecord r, int column) {
+            if (column >= r.size()) {
+                throw new IllegalArgumentException("Missing value for column " + COLUMNS[indexOfColumn(column)]
+                        + ": row has " + r.size() + " values");
+            }
+            return r.get(column).trim();
+        }
+
+        private List<String> values(byte[] b, int s, int e) {
+            String line = new String(b, s, e - s, StandardCharsets.UTF_8);
+            List<String> values = new ArrayList<>();
+            try {
+                record(line).forEach(values::add);
+            } catch (RuntimeException ex) {
+                values.add(line);
+            }
+            return values;
+        }
+
+        private static CSVRecord record(String line) {
+            try (CSVParser p = CSVParser.parse(line, CsvReader.TRIMMED)) {
+                return p.iterator().next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // repeated values (accounts, merchants, ...) reuse one String per distinct byte sequence
+        private String cached(byte[] b, int column) {
+            int s = starts[column], e = ends[column];
+            int h = 1;
+            for (int i = s; i < e; i++) h = 31 * h + b[i];
+            int slot = (h ^ (h >>> 16)) & (CACHE - 1);
+            byte[] key = cacheKeys[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, b, s, e)) return cacheValues[slot];
+            String value = new String(b, s, e - s, StandardCharsets.UTF_8);
+            cacheKeys[slot] = Arrays.copyOfRange(b, s, e);
+            cacheValues[slot] = value;
+            return value;
+        }
+    }
+}
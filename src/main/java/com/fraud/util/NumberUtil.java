@@ -0,0 +1,48 @@
+package com.fraud.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Number parsing straight from bytes, for readers that decode input without creating Strings.
+ */
+public class NumberUtil {
+
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    /**
+     * Same result as {@link Double#parseDouble} for the text in {@code [s, e)}. Plain decimals
+     * with up to 15 significant digits are computed exactly (one correctly rounded division);
+     * anything else goes through {@code Double.parseDouble}.
+     */
+    public static double parseDouble(byte[] b, int s, int e) {
+        int i = s;
+        boolean negative = false;
+        if (i < e && (b[i] == '-' || b[i] == '+')) negative = b[i++] == '-';
+        long m = 0;
+        int digits = 0;
+        int frac = -1;
+        for (; i < e; i++) {
+            int c = b[i] - '0';
+            if (c >= 0 && c <= 9) {
+                if (++digits > 15) return parseSlow(b, s, e);
+                m = m * 10 + c;
+                if (frac >= 0) frac++;
+            } else if (b[i] == '.' && frac < 0) {
+                frac = 0;
+            } else {
+                return parseSlow(b, s, e);
+            }
+        }
+        if (digits == 0 || frac >= POW10.length) return parseSlow(b, s, e);
+        double v = frac > 0 ? m / POW10[frac] : m;
+        return negative ? -v : v;
+    }
+
+    private static double parseSlow(byte[] b, int s, int e) {
+        return Double.parseDouble(new String(b, s, e - s, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,43 @@
+package com.fraud.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free memory of recently seen ids: a direct-mapped table where each id has one
+ * slot and a newer id evicts whatever held it. {@link #contains} never reports an id that was not
+ * added (entries are compared with {@code equals}), but may forget one that was, so it can skip
+ * work for known ids and must fall back to the authoritative check otherwise.
+ */
+public final class RecentIdFilter {
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+
+    /**
+     * @param capacity slots, rounded up to a power of two
+     */
+    public RecentIdFilter(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity) size <<= 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public boolean contains(String id) {
+        return id != null && id.equals(slots.get(slot(id)));
+    }
+
+    public void add(String id) {
+        if (id != null) slots.lazySet(slot(id), id);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private int slot(String id) {
+        int h = id.hashCode() * 0x9E3779B9;   // spread ids that differ only in their last characters
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
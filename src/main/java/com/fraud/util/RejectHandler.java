@@ -0,0 +1,84 @@
+package com.fraud.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a {@link CsvReader.OnError} policy to rows that failed to parse. The quarantine file is
+ * created on the first rejected row, with the input header plus "line" and "error" columns.
+ */
+final class RejectHandler implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvReader.class);
+
+    private final CsvReader.OnError onError;
+    private final Path quarantinePath;
+    private CSVPrinter quarantine;
+    private long rejected;
+
+    RejectHandler(CsvReader.OnError onError, Path quarantinePath) {
+        if (onError == CsvReader.OnError.QUARANTINE && quarantinePath == null) {
+            throw new IllegalArgumentException("quarantine file required for OnError.QUARANTINE");
+        }
+        this.onError = onError;
+        this.quarantinePath = quarantinePath;
+    }
+
+    /**
+     * @throws CsvReader.RowException under {@link CsvReader.OnError#FAIL}
+     */
+    void reject(List<String> header, Iterable<String> values, long line, RuntimeException e) {
+        if (onError == CsvReader.OnError.FAIL) {
+            throw new CsvReader.RowException(line, e.getMessage(), e);
+        }
+        rejected++;
+        if (onError == CsvReader.OnError.SKIP) {
+            log.warn("Skipping line {}: {}", line, e.getMessage());
+            return;
+        }
+        try {
+            if (quarantine == null) quarantine = open(header);
+            List<String> row = new ArrayList<>(header.size() + 2);
+            values.forEach(row::add);
+            row.add(String.valueOf(line));
+            row.add(String.valueOf(e.getMessage()));
+            quarantine.printRecord(row);
+        } catch (IOException io) {
+            throw new UncheckedIOException("Cannot write quarantine file " + quarantinePath, io);
+        }
+    }
+
+    long getRejected() {
+        return rejected;
+    }
+
+    private CSVPrinter open(List<String> header) throws IOException {
+        boolean fresh = !Files.exists(quarantinePath) || Files.size(quarantinePath) == 0;
+        CSVPrinter printer = new CSVPrinter(Files.newBufferedWriter(quarantinePath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), CSVFormat.DEFAULT);
+        if (fresh) {
+            List<String> columns = new ArrayList<>(header);
+            columns.add("line");
+            columns.add("error");
+            printer.printRecord(columns);
+        }
+        return printer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (quarantine != null) quarantine.close();
+    }
+}
@@ -0,0 +1,245 @@
+package com.fraud.util;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded single-producer, single-consumer ring of preallocated, reusable slots.
+ * <p>
+ * The producer claims a slot with {@link #next}, fills it in place and makes it visible with
+ * {@link #publish}; the consumer waits with {@link #waitFor}, reads every slot up to the
+ * returned sequence and hands them back with {@link #release}. Neither side takes a lock: each
+ * owns one sequence counter, and reads the other's only when its cached copy says it must wait.
+ * How a side waits is the {@link WaitStrategy}.
+ * <p>
+ * The ring keeps counters for spotting the slow side of a pipeline: average occupancy seen by
+ * the consumer, and time each side spent waiting (a full ring means the consumer is behind, an
+ * empty one the producer).
+ */
+public final class RingBuffer<E> {
+
+    /** How a side waits for the other: trades CPU burned while idle against wake-up latency. */
+    public enum WaitStrategy {
+        /** Spin on the counter. Lowest latency; occupies a core even when idle. */
+        BUSY_SPIN,
+        /** Spin briefly, then {@link Thread#yield}. */
+        YIELDING,
+        /** Spin, yield, then park for ~50 µs at a time. Little CPU when idle (default). */
+        SLEEPING,
+        /** Spin briefly, then park until the other side signals. */
+        BLOCKING;
+
+        private static final int SPINS = 100;
+        private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+        private static final long BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        /** Parse a config value such as {@code sleeping} or {@code busy-spin}. */
+        public static WaitStrategy of(String value) {
+            String v = value == null ? "" : value.trim();
+            if (v.isEmpty()) return SLEEPING;
+            try {
+                return valueOf(v.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown wait strategy '" + value
+                        + "' (expected busy-spin, yielding, sleeping or blocking)");
+            }
+        }
+
+        void idle(int attempt, Object blocker) {
+            if (this == BUSY_SPIN || attempt < SPINS) {
+                Thread.onSpinWait();
+            } else if (this == YIELDING || (this == SLEEPING && attempt < 2 * SPINS)) {
+                Thread.yield();
+            } else if (this == SLEEPING) {
+                LockSupport.parkNanos(blocker, SLEEP_NANOS);
+            } else {
+                // bounded park: a signal racing the waiter's registration costs at most this long
+                LockSupport.parkNanos(blocker, BLOCK_NANOS);
+            }
+        }
+    }
+
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    // producer side: next sequence to claim, and the last consumer position it read
+    private final Sequence published = new Sequence(-1);
+    private long claimed = -1;
+    private long cachedReleased = -1;
+    private volatile long producerWaitNanos;
+    private volatile Thread waitingProducer;
+
+    // consumer side: the last sequence handed back, and the last published position it read
+    private final Sequence released = new Sequence(-1);
+    private long cachedPublished = -1;
+    private volatile long consumerWaitNanos;
+    private volatile long occupancySum;
+    private volatile long occupancySamples;
+    private volatile Thread waitingConsumer;
+
+    private volatile boolean halted;
+
+    /**
+     * @param capacity slots; a power of two
+     * @param factory  creates each slot once, up front
+     */
+    public RingBuffer(int capacity, Supplier<? extends E> factory, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        if (waitStrategy == null) throw new IllegalArgumentException("waitStrategy required");
+        this.slots = new Object[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = factory.get();
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /** The slot for a sequence from {@link #next} or {@link #waitFor}. */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    /**
+     * Producer: claim the next slot, waiting while the ring is full.
+     *
+     * @throws IllegalStateException if the ring was {@link #halt halted}
+     */
+    public long next() {
+        long seq = ++claimed;
+        long wrapPoint = seq - slots.length;
+        if (wrapPoint > cachedReleased) {
+            cachedReleased = released.get();
+            if (wrapPoint > cachedReleased) {
+                long start = System.nanoTime();
+                waitingProducer = Thread.currentThread();
+                for (int attempt = 0; wrapPoint > (cachedReleased = released.get()); attempt++) {
+                    checkHalted();
+                    waitStrategy.idle(attempt, this);
+                }
+                waitingProducer = null;
+                producerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        return seq;
+    }
+
+    /** Producer: make the slot claimed as {@code sequence} (and every earlier one) visible. */
+    public void publish(long sequence) {
+        published.setRelease(sequence);
+        if (waitStrategy == WaitStrategy.BLOCKING) LockSupport.unpark(waitingConsumer);
+    }
+
+    /**
+     * Consumer: wait until {@code sequence} is published.
+     *
+     * @return the highest published sequence; every slot from {@code sequence} to it is readable
+     * @throws IllegalStateException if the ring was halted while waiting
+     */
+    public long waitFor(long sequence) {
+        if (sequence > cachedPublished) {
+            cachedPublished = published.get();
+            if (sequence > cachedPublished) {
+                long start = System.nanoTime();
+                waitingConsumer = Thread.currentThread();
+                for (int attempt = 0; sequence > (cachedPublished = published.get()); attempt++) {
+                    checkHalted();
+                    waitStrategy.idle(attempt, this);
+                }
+                waitingConsumer = null;
+                consumerWaitNanos += System.nanoTime() - start;
+            }
+        }
+        occupancySum += cachedPublished - sequence + 1;
+        occupancySamples++;
+        return cachedPublished;
+    }
+
+    /** Consumer: done with every slot up to and including {@code sequence}; the producer may reuse them. */
+    public void release(long sequence) {
+        released.setRelease(sequence);
+        if (waitStrategy == WaitStrategy.BLOCKING) LockSupport.unpark(waitingProducer);
+    }
+
+    /**
+     * Make any current or later wait on either side throw, e.g. because the other side died.
+     * Already published slots stay readable.
+     */
+    public void halt() {
+        halted = true;
+        LockSupport.unpark(waitingProducer);
+        LockSupport.unpark(waitingConsumer);
+    }
+
+    public boolean isHalted() {
+        return halted;
+    }
+
+    private void checkHalted() {
+        if (halted) throw new IllegalStateException("ring buffer halted");
+    }
+
+    /** Slots published but not yet released, right now. */
+    public long size() {
+        return Math.max(0, published.get() - released.get());
+    }
+
+    /** Mean number of readable slots each time the consumer asked for more. */
+    public double getAverageOccupancy() {
+        long samples = occupancySamples;
+        return samples == 0 ? 0 : (double) occupancySum / samples;
+    }
+
+    /** Time the producer spent waiting for a free slot (ring full). */
+    public long getProducerWaitNanos() {
+        return producerWaitNanos;
+    }
+
+    /** Time the consumer spent waiting for a published slot (ring empty). */
+    public long getConsumerWaitNanos() {
+        return consumerWaitNanos;
+    }
+
+    // a sequence counter padded onto its own cache lines, so the producer's and consumer's
+    // counters do not invalidate each other
+    @SuppressWarnings("unused")
+    private static class LeftPad {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static class Value extends LeftPad {
+        volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Sequence extends Value {
+        private static final AtomicLongFieldUpdater<Value> VALUE =
+                AtomicLongFieldUpdater.newUpdater(Value.class, "value");
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        Sequence(long initial) {
+            value = initial;
+        }
+
+        long get() {
+            return value;
+        }
+
+        // ordered store without a full fence: the only writer is one thread
+        void setRelease(long v) {
+            VALUE.lazySet(this, v);
+        }
+    }
+}
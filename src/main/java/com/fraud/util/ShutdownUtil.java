@@ -1,16 +1,81 @@
 package com.fraud.util;
 
 import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Deque;
 import java.util.Enumeration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class ShutdownUtil {
+    private static final Logger log = LoggerFactory.getLogger(ShutdownUtil.class);
+
+    private static final Deque<AutoCloseable> BEFORE_DATA_SOURCE = new ConcurrentLinkedDeque<>();
+    private static final AtomicBoolean HOOK_INSTALLED = new AtomicBoolean();
+
     private ShutdownUtil() { }
 
+    /**
+     * Close {@code c} (e.g. a writer with queued rows) before {@link #closeDataSource} closes the
+     * pool, or from a JVM shutdown hook if the process is stopped first (Ctrl-C, SIGTERM). Later
+     * registrations close first. Whoever closes {@code c} earlier should {@link #unregister} it.
+     */
+    public static void flushOnShutdown(AutoCloseable c) {
+        BEFORE_DATA_SOURCE.push(c);
+        if (HOOK_INSTALLED.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ShutdownUtil::closeRegistered, "shutdown-flush"));
+        }
+    }
+
+    public static void unregister(AutoCloseable c) {
+        BEFORE_DATA_SOURCE.remove(c);
+    }
+
+    /** A blocking step of a {@code close()}, e.g. {@code thread::join}. */
+    public interface Blocking {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Run {@code step} to completion even if the thread is interrupted meanwhile, then restore the
+     * interrupt flag. For {@code close()} methods, which must not give up halfway (queued work would
+     * be lost) and should not declare {@link InterruptedException}.
+     */
+    public static void uninterruptibly(Blocking step) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    step.run();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeRegistered() {
+        AutoCloseable c;
+        while ((c = BEFORE_DATA_SOURCE.poll()) != null) {
+            try {
+                c.close();
+            } catch (Exception e) {
+                log.error("Failed to close {} on shutdown", c, e);
+            }
+        }
+    }
+
     public static void closeDataSource(Object ds) {
+        closeRegistered();
+
         // close Hikari if present
         try {
             if (ds instanceof HikariDataSource) {
@@ -0,0 +1,36 @@
+package com.fraud.util;
+
+import com.fraud.model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Transactions read from an input one at a time, in input order. Close it to release the input.
+ */
+public interface TransactionCursor extends Iterator<Transaction>, Closeable {
+
+    /** Data rows read so far, including rejected ones. */
+    long getRowsRead();
+
+    /** Rows skipped or quarantined so far. */
+    long getRowsRejected();
+
+    /** Sequential stream over the remaining records; closing the stream closes the cursor. */
+    default Stream<Transaction> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
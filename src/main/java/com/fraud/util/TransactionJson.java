@@ -0,0 +1,91 @@
+package com.fraud.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads one JSON transaction object straight into a {@link Transaction}, token by token, without
+ * building a tree. Field names match the CSV header; {@code amount} may be a number or a numeric
+ * string, {@code timestamp} uses the layouts of {@link DateUtil#parse}. Unknown fields are skipped.
+ */
+public class TransactionJson {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public static <T extends Transaction> T read(InputStream in, T into) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            return read(p, into);
+        }
+    }
+
+    public static <T extends Transaction> T read(byte[] b, int offset, int length, T into) throws IOException {
+        try (JsonParser p = FACTORY.createParser(b, offset, length)) {
+            return read(p, into);
+        }
+    }
+
+    /**
+     * Fill {@code into} from the parser's input, which must be exactly one object, and
+     * dictionary-encode it. A missing timestamp is left null.
+     *
+     * @throws IllegalArgumentException if the value is not an object, or transactionId, accountId
+     *                                  or amount is missing or invalid
+     * @throws IOException              on malformed JSON
+     */
+    public static <T extends Transaction> T read(JsonParser p, T into) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("Expected a JSON object");
+        boolean hasAmount = false;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "transactionId": into.setTransactionId(text(p, value)); break;
+                case "accountId": into.setAccountId(text(p, value)); break;
+                case "currency": into.setCurrency(text(p, value)); break;
+                case "merchant": into.setMerchant(text(p, value)); break;
+                case "location": into.setLocation(text(p, value)); break;
+                case "channel": into.setChannel(text(p, value)); break;
+                case "timestamp": {
+                    String ts = text(p, value);
+                    into.setTimestamp(ts == null || ts.isEmpty() ? null : DateUtil.parse(ts));
+                    break;
+                }
+                case "amount":
+                    if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                        into.setAmount(p.getDoubleValue());
+                        hasAmount = true;
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        into.setAmount(Double.parseDouble(p.getText().trim()));
+                        hasAmount = true;
+                    } else if (value != JsonToken.VALUE_NULL) {
+                        throw new IllegalArgumentException("amount must be a number");
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        if (p.nextToken() != null) throw new IllegalArgumentException("Unexpected content after the JSON object");
+        if (into.getTransactionId() == null || into.getTransactionId().isEmpty()) {
+            throw new IllegalArgumentException("Missing transactionId");
+        }
+        if (into.getAccountId() == null || into.getAccountId().isEmpty()) {
+            throw new IllegalArgumentException("Missing accountId");
+        }
+        if (!hasAmount) throw new IllegalArgumentException("Missing amount");
+        TransactionDictionary.global().encode(into);
+        return into;
+    }
+
+    private static String text(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) return null;
+        if (!value.isScalarValue()) throw new IllegalArgumentException(p.getCurrentName() + " must be a scalar");
+        return p.getText().trim();
+    }
+}
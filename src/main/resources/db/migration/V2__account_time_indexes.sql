@@ -0,0 +1,6 @@
+-- Velocity look-ups (account_id = ? AND txn_timestamp >= ?) and the alert history
+-- (account_id = ? ORDER BY created_at DESC LIMIT ?) read an index range in order
+-- instead of scanning and sorting the whole table.
+CREATE INDEX idx_txn_account_time ON transactions (account_id, txn_timestamp);
+
+CREATE INDEX idx_alert_account_created ON fraud_alerts (account_id, created_at);
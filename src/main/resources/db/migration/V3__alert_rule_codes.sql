@@ -0,0 +1,20 @@
+-- Matched rules as a bitmask next to the free-text reason, so analytics can group by rule in SQL.
+-- Bit n of fraud_alerts.rule_mask is the rule with code n in rule_codes. Codes are never reused;
+-- rules not listed here (e.g. expression rules) get the next free code from AlertDao when first
+-- alerted on.
+CREATE TABLE IF NOT EXISTS rule_codes (
+    code      TINYINT UNSIGNED PRIMARY KEY,
+    rule_name VARCHAR(100) NOT NULL UNIQUE,
+    CHECK (code < 64)
+);
+
+INSERT IGNORE INTO rule_codes (code, rule_name) VALUES
+    (0, 'Velocity'), (1, 'Duplicate'), (2, 'HighAmountRule'), (3, 'GeoLocationRule'),
+    (4, 'NightTimeRule'), (5, 'ChannelRiskRule'), (6, 'RiskyMerchantRule');
+
+ALTER TABLE fraud_alerts ADD COLUMN rule_mask BIGINT NOT NULL DEFAULT 0;
+
+-- existing alerts: the reason is "Name:detail" entries joined with "; "
+UPDATE fraud_alerts f SET f.rule_mask = (
+    SELECT COALESCE(BIT_OR(1 << r.code), 0) FROM rule_codes r
+    WHERE f.reason LIKE CONCAT(r.rule_name, ':%') OR f.reason LIKE CONCAT('%; ', r.rule_name, ':%'));
@@ -0,0 +1,14 @@
+-- fraud_alerts.config_version: version (checksum) of the rules/thresholds config that produced an
+-- alert. Databases created from the baseline schema do not have it. Installs that already added it
+-- by hand are left alone: MySQL has no ADD COLUMN IF NOT EXISTS, so the check goes through
+-- information_schema.
+SET @add_config_version = IF((SELECT COUNT(*) FROM information_schema.columns
+        WHERE table_schema = DATABASE() AND table_name = 'fraud_alerts' AND column_name = 'config_version') = 0,
+    'ALTER TABLE fraud_alerts ADD COLUMN config_version VARCHAR(16)',
+    'DO 0');
+
+PREPARE add_config_version FROM @add_config_version;
+
+EXECUTE add_config_version;
+
+DEALLOCATE PREPARE add_config_version;
@@ -0,0 +1,233 @@
+package com.fraud;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.model.AlertSummary;
+import com.fraud.model.FraudAlert;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AlertDaoTest {
+
+    private static List<FraudAlert> alerts(int n) {
+        List<FraudAlert> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(new FraudAlert("T" + i, "ACC1", 70, "HIGH", "HighAmountRule:HighAmount:60000.0"));
+        return out;
+    }
+
+    private static ResultSet keys(long... ids) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] next = {0};
+        when(rs.next()).thenAnswer(inv -> next[0]++ < ids.length);
+        when(rs.getLong(1)).thenAnswer(inv -> ids[next[0] - 1]);
+        return rs;
+    }
+
+    private static AlertDao dao(PreparedStatement ps) throws SQLException {
+        Connection c = mock(Connection.class);
+        when(c.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(ps);
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+        return new AlertDao(ds);
+    }
+
+    @Test
+    public void testSaveAllAssignsGeneratedIdsInBulk() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(ps.executeBatch()).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        ResultSet rs = keys(101, 102, 103);
+        when(ps.getGeneratedKeys()).thenReturn(rs);
+        List<FraudAlert> alerts = alerts(3);
+
+        assertTrue(dao(ps).saveAll(alerts).isEmpty());
+
+        assertEquals(101, alerts.get(0).getId());
+        assertEquals(103, alerts.get(2).getId());
+        verify(ps, times(3)).addBatch();
+        verify(ps, never()).executeUpdate();
+        verify(ps, times(1)).getGeneratedKeys();
+    }
+
+    @Test
+    public void testFailedRowIsRetriedAloneAndReported() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(ps.executeBatch()).thenThrow(new BatchUpdateException("too long", "22001", 1406,
+                new int[]{Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED}, null));
+        List<String> bound = new ArrayList<>();
+        doAnswer(inv -> bound.add(inv.getArgument(1))).when(ps).setString(eq(1), anyString());
+        when(ps.executeUpdate()).thenAnswer(inv -> {
+            if (bound.get(bound.size() - 1).equals("T1")) throw new SQLException("Data too long", "22001", 1406);
+            return 1;
+        });
+        ResultSet rs = keys(7);
+        when(ps.getGeneratedKeys()).thenReturn(rs);
+        List<FraudAlert> alerts = alerts(2);
+
+        List<FraudAlert> failed = dao(ps).saveAll(alerts);
+
+        assertEquals(1, failed.size());
+        assertSame(alerts.get(1), failed.get(0));
+        assertEquals(7, alerts.get(0).getId());
+    }
+
+    /** A result set of alerts id, id-1, ... all created at {@code createdAt}. */
+    private static ResultSet alertRows(int count, long firstId, LocalDateTime createdAt) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {0};
+        when(rs.next()).thenAnswer(inv -> row[0]++ < count);
+        when(rs.getLong("id")).thenAnswer(inv -> firstId - (row[0] - 1));
+        when(rs.getString("account_id")).thenReturn("ACC1");
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(createdAt));
+        return rs;
+    }
+
+    @Test
+    public void testForEachAlertWalksKeysetPages() throws Exception {
+        LocalDateTime at = LocalDateTime.of(2025, 6, 18, 12, 0);
+        Connection c = mock(Connection.class);
+        PreparedStatement first = mock(PreparedStatement.class);
+        PreparedStatement after = mock(PreparedStatement.class);
+        when(c.prepareStatement(argThat((String sql) -> sql != null && sql.contains("ORDER BY created_at DESC, id DESC")
+                && !sql.contains("id < ?")))).thenReturn(first);
+        when(c.prepareStatement(contains("id < ?"))).thenReturn(after);
+        ResultSet page1 = alertRows(2, 10, at);
+        when(first.executeQuery()).thenReturn(page1);
+        ResultSet page2 = alertRows(2, 8, at);
+        ResultSet page3 = alertRows(1, 6, at);
+        when(after.executeQuery()).thenReturn(page2, page3);
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+
+        List<Long> ids = new ArrayList<>();
+        long n = new AlertDao(ds).forEachAlert("ACC1", 0, 2, a -> ids.add(a.getId()));
+
+        assertEquals(5, n);
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L), ids);
+        // each later page seeks past the last row of the one before
+        verify(after).setLong(4, 9L);
+        verify(after).setLong(4, 7L);
+        verify(after, times(4)).setTimestamp(anyInt(), eq(Timestamp.valueOf(at)));
+        verify(c, times(3)).close();   // no connection held between pages
+    }
+
+    @Test
+    public void testForEachAlertStopsAtLimit() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(anyString())).thenReturn(ps);
+        ResultSet page = alertRows(3, 3, LocalDateTime.of(2025, 6, 18, 12, 0));
+        when(ps.executeQuery()).thenReturn(page);
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+
+        assertEquals(3, new AlertDao(ds).forEachAlert("ACC1", 3, 10, a -> { }));
+        verify(ps).setInt(2, 3);   // page shrunk to the limit
+        verify(ps, times(1)).executeQuery();
+    }
+
+    /** rule_codes rows as (code, name) pairs. */
+    private static ResultSet codes(Object... codeAndName) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {0};
+        when(rs.next()).thenAnswer(inv -> ++row[0] <= codeAndName.length / 2);
+        when(rs.getInt(1)).thenAnswer(inv -> codeAndName[2 * (row[0] - 1)]);
+        when(rs.getString(2)).thenAnswer(inv -> codeAndName[2 * (row[0] - 1) + 1]);
+        return rs;
+    }
+
+    @Test
+    public void testRulesAreStoredAsCodeMaskAndNewRulesRegistered() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(insert.executeUpdate()).thenReturn(1);
+        when(insert.getGeneratedKeys()).thenAnswer(inv -> keys(1));
+        when(c.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(insert);
+        PreparedStatement select = mock(PreparedStatement.class);
+        ResultSet before = codes(0, "Velocity", 2, "HighAmountRule");
+        ResultSet after = codes(0, "Velocity", 2, "HighAmountRule", 7, "LargeOnlineNightRule");
+        when(select.executeQuery()).thenReturn(before, after);
+        when(c.prepareStatement("SELECT code, rule_name FROM rule_codes")).thenReturn(select);
+        PreparedStatement register = mock(PreparedStatement.class);
+        when(c.prepareStatement(startsWith("INSERT IGNORE INTO rule_codes"))).thenReturn(register);
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+        AlertDao dao = new AlertDao(ds);
+
+        FraudAlert a = new FraudAlert("T1", "ACC1", 70, "HIGH", "...");
+        a.setRules(Arrays.asList("HighAmountRule", "LargeOnlineNightRule", "Velocity"));
+        dao.saveAlert(a);
+        FraudAlert b = new FraudAlert("T2", "ACC1", 40, "MEDIUM", "...");
+        b.setRules(List.of("HighAmountRule"));
+        dao.saveAlert(b);
+
+        verify(insert).setLong(7, (1L << 2) | (1L << 7) | 1L);
+        verify(insert).setLong(7, 1L << 2);
+        verify(register, times(1)).setString(1, "LargeOnlineNightRule");
+        verify(select, times(2)).executeQuery();   // the second alert's rules were all known
+
+        // and read back as names, from the codes already loaded
+        PreparedStatement query = mock(PreparedStatement.class);
+        ResultSet rows = alertRows(1, 5, LocalDateTime.of(2025, 6, 18, 12, 0));
+        when(rows.getLong("rule_mask")).thenReturn((1L << 7) | 1L);
+        when(query.executeQuery()).thenReturn(rows);
+        when(c.prepareStatement(startsWith("SELECT id,"))).thenReturn(query);
+        assertEquals(List.of("Velocity", "LargeOnlineNightRule"), dao.getAlertsByAccount("ACC1", 10).get(0).getRules());
+        verify(select, times(2)).executeQuery();
+    }
+
+    @Test
+    public void testMonthlySummaryIsReadFromGroupedRows() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement byRisk = mock(PreparedStatement.class);
+        ResultSet risks = mock(ResultSet.class);
+        when(risks.next()).thenReturn(true, true, true, false);
+        when(risks.getString("month")).thenReturn("2025-05", "2025-06", "2025-06");
+        when(risks.getString("risk_level")).thenReturn("HIGH", "HIGH", "MEDIUM");
+        when(risks.getLong("alerts")).thenReturn(4L, 2L, 3L);
+        when(risks.getTimestamp("latest")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2025, 5, 30, 9, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2025, 6, 18, 12, 0)), Timestamp.valueOf(LocalDateTime.of(2025, 6, 2, 8, 0)));
+        when(byRisk.executeQuery()).thenReturn(risks);
+        PreparedStatement byRule = mock(PreparedStatement.class);
+        ResultSet rules = mock(ResultSet.class);
+        when(rules.next()).thenReturn(true, true, true, false);
+        when(rules.getString("month")).thenReturn("2025-05", "2025-06", "2025-06");
+        when(rules.getString("risk_level")).thenReturn("HIGH", "HIGH", "MEDIUM");
+        when(rules.getString("rule_name")).thenReturn("HighAmountRule", "HighAmountRule", "Velocity");
+        when(rules.getLong("alerts")).thenReturn(4L, 1L, 3L);
+        when(byRule.executeQuery()).thenReturn(rules);
+        when(c.prepareStatement(contains("GROUP BY month, risk_level"))).thenReturn(byRisk);
+        when(c.prepareStatement(contains("GROUP BY month, a.risk_level, r.rule_name"))).thenReturn(byRule);
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+
+        AlertSummary summary = new AlertDao(ds).getMonthlySummary("ACC1");
+
+        assertEquals(9, summary.getTotal());
+        assertEquals(6, summary.getTotal("high"));
+        assertEquals(Map.of(YearMonth.of(2025, 5), 4L, YearMonth.of(2025, 6), 5L), summary.getAlertsPerMonth());
+        assertEquals(Map.of("HighAmountRule", 1L, "Velocity", 3L), summary.getRuleCounts(YearMonth.of(2025, 6)));
+        assertEquals(List.of(Map.entry("HighAmountRule", 5L), Map.entry("Velocity", 3L)), summary.getRuleCounts());
+        assertEquals(List.of(Map.entry("Velocity", 3L)), summary.getRuleCounts("MEDIUM"));
+        assertEquals(LocalDateTime.of(2025, 6, 18, 12, 0), summary.getLatest());
+        verify(byRisk).setString(1, "ACC1");
+        verify(byRule).setString(1, "ACC1");
+        verify(c, times(1)).close();
+    }
+}
@@ -0,0 +1,232 @@
+package com.fraud;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.DaoException;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.service.AsyncPersistence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class AsyncPersistenceTest {
+
+    @TempDir
+    Path dir;
+
+    private static Transaction txn(int i) {
+        return new Transaction("T" + i, "ACC" + (i % 3), 100 + i, "INR",
+                LocalDateTime.of(2025, 6, 18, 12, 0, i % 60), "M1", "India", "Card");
+    }
+
+    private static FraudAlert alert(int i) {
+        FraudAlert a = new FraudAlert("T" + i, "ACC" + (i % 3), 70, "HIGH", "HighAmountRule:HighAmount:60000.0");
+        a.setConfigVersion("v1");
+        a.setRules(List.of("HighAmountRule"));
+        return a;
+    }
+
+    // records what reaches the batch APIs; rows in failIds are reported back as failed
+    private static TransactionDao recordingTxDao(List<String> saved, Set<String> failIds) {
+        TransactionDao txDao = mock(TransactionDao.class);
+        when(txDao.saveAll(any())).thenAnswer(inv -> {
+            List<Transaction> failed = new ArrayList<>();
+            for (Transaction t : inv.<Collection<Transaction>>getArgument(0)) {
+                if (failIds.contains(t.getTransactionId())) failed.add(t);
+                else saved.add(t.getTransactionId());
+            }
+            return failed;
+        });
+        return txDao;
+    }
+
+    private static AlertDao recordingAlertDao(List<String> saved) {
+        AlertDao alertDao = mock(AlertDao.class);
+        when(alertDao.saveAll(any())).thenAnswer(inv -> {
+            for (FraudAlert a : inv.<Collection<FraudAlert>>getArgument(0)) saved.add("alert:" + a.getTransactionId());
+            return Collections.emptyList();
+        });
+        return alertDao;
+    }
+
+    @Test
+    public void testWritesEverythingInGroupsOnClose() throws Exception {
+        List<String> saved = new CopyOnWriteArrayList<>();
+        TransactionDao txDao = recordingTxDao(saved, Collections.emptySet());
+        AlertDao alertDao = recordingAlertDao(saved);
+        AsyncPersistence persistence = new AsyncPersistence(txDao, alertDao, 100, 2, 4, 10_000,
+                AsyncPersistence.Backpressure.BLOCK, null);
+        for (int i = 0; i < 10; i++) persistence.submit(txn(i), i % 2 == 0 ? alert(i) : null);
+        persistence.close();
+
+        assertEquals(10, persistence.getWritten());
+        assertTrue(persistence.getBatches() >= 3, "batches: " + persistence.getBatches());
+        assertEquals(15, saved.size());
+        for (int i = 0; i < 10; i += 2) {
+            assertTrue(saved.indexOf("T" + i) < saved.indexOf("alert:T" + i), "alert before its transaction: " + saved);
+        }
+        verify(txDao, never()).save(any());
+        assertThrows(IllegalStateException.class, () -> persistence.submit(txn(99), null));
+        persistence.close();   // idempotent
+    }
+
+    @Test
+    public void testCloseRacingSubmitsLosesNoAcceptedRecord() throws Exception {
+        List<String> saved = new CopyOnWriteArrayList<>();
+        AsyncPersistence persistence = new AsyncPersistence(recordingTxDao(saved, Collections.emptySet()),
+                recordingAlertDao(saved), 8, 2, 4, 1, AsyncPersistence.Backpressure.BLOCK, null);
+        List<String> accepted = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1_000_000;
+            Thread th = new Thread(() -> {
+                started.countDown();
+                for (int i = base; ; i++) {
+                    try {
+                        persistence.submit(txn(i), null);
+                    } catch (IllegalStateException closed) {
+                        return;
+                    }
+                    accepted.add("T" + i);
+                }
+            });
+            submitters.add(th);
+            th.start();
+        }
+        started.await();
+        Thread.sleep(50);
+        persistence.close();   // as the shutdown hook would, while the submitters keep going
+        for (Thread th : submitters) th.join(5000);
+
+        assertFalse(accepted.isEmpty());
+        assertEquals(accepted.size(), persistence.getWritten());
+        assertTrue(saved.containsAll(accepted), "accepted but not written");
+        assertEquals(0, persistence.getQueued());
+    }
+
+    @Test
+    public void testInterruptedCloseStillWritesEverything() {
+        List<String> saved = new CopyOnWriteArrayList<>();
+        AsyncPersistence persistence = new AsyncPersistence(recordingTxDao(saved, Collections.emptySet()),
+                recordingAlertDao(saved), 100, 2, 4, 10_000, AsyncPersistence.Backpressure.BLOCK, null);
+        for (int i = 0; i < 10; i++) persistence.submit(txn(i), null);
+
+        Thread.currentThread().interrupt();
+        persistence.close();
+        assertTrue(Thread.interrupted(), "interrupt flag restored");
+        assertEquals(10, persistence.getWritten());
+    }
+
+    @Test
+    public void testPartialGroupIsWrittenAfterMaxDelay() throws Exception {
+        List<String> saved = new CopyOnWriteArrayList<>();
+        TransactionDao txDao = recordingTxDao(saved, Collections.emptySet());
+        try (AsyncPersistence persistence = new AsyncPersistence(txDao, recordingAlertDao(saved), 100, 1, 100, 20,
+                AsyncPersistence.Backpressure.BLOCK, null)) {
+            for (int i = 0; i < 3; i++) persistence.submit(txn(i), null);
+            verify(txDao, timeout(2000)).saveAll(argThat(txns -> txns.size() == 3));
+            assertEquals(1, persistence.getBatches());
+        }
+    }
+
+    @Test
+    public void testSpillsWhenQueueIsFullAndWritesBackOnClose() throws Exception {
+        CountDownLatch dbStalled = new CountDownLatch(1);
+        List<String> saved = new CopyOnWriteArrayList<>();
+        TransactionDao txDao = mock(TransactionDao.class);
+        when(txDao.saveAll(any())).thenAnswer(inv -> {
+            dbStalled.await(5, TimeUnit.SECONDS);
+            for (Transaction t : inv.<Collection<Transaction>>getArgument(0)) saved.add(t.getTransactionId());
+            return Collections.emptyList();
+        });
+        AlertDao alertDao = mock(AlertDao.class);
+        when(alertDao.saveAll(any())).thenReturn(Collections.emptyList());
+        Path spill = dir.resolve("spill.jsonl");
+
+        AsyncPersistence persistence = new AsyncPersistence(txDao, alertDao, 2, 1, 1, 0,
+                AsyncPersistence.Backpressure.SPILL, spill);
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) persistence.submit(txn(i), i == 15 ? alert(i) : null);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "submit must not wait for the database");
+        assertTrue(persistence.getSpilled() >= 17, "spilled: " + persistence.getSpilled());
+        assertTrue(Files.exists(spill));
+
+        dbStalled.countDown();
+        persistence.close();
+        assertEquals(20, saved.size());
+        assertTrue(saved.containsAll(List.of("T0", "T7", "T15", "T19")));
+        verify(alertDao).saveAll(argThat(alerts -> alerts.stream().anyMatch(a -> "T15".equals(a.getTransactionId())
+                && a.getScore() == 70 && "HIGH".equals(a.getRiskLevel()) && "v1".equals(a.getConfigVersion())
+                && List.of("HighAmountRule").equals(a.getRules()))));
+        assertFalse(Files.exists(spill));
+        assertFalse(Files.exists(dir.resolve("spill.jsonl.replay")));
+    }
+
+    @Test
+    public void testRejectedRowsAreSpilledAndRetriedOnNextStart() throws Exception {
+        AtomicBoolean dbDown = new AtomicBoolean(true);
+        TransactionDao txDao = mock(TransactionDao.class);
+        when(txDao.saveAll(any())).thenAnswer(inv -> {
+            if (dbDown.get()) throw new DaoException("db down");
+            return Collections.emptyList();
+        });
+        List<String> saved = new CopyOnWriteArrayList<>();
+        AlertDao alertDao = recordingAlertDao(saved);
+        Path spill = dir.resolve("spill.jsonl");
+
+        AsyncPersistence first = new AsyncPersistence(txDao, alertDao, 100, 1, 10, 0,
+                AsyncPersistence.Backpressure.SPILL, spill);
+        first.submit(txn(1), alert(1));
+        first.submit(txn(2), null);
+        first.close();
+        assertEquals(0, first.getWritten());
+        assertTrue(first.getSpilled() >= 2);
+        assertEquals(2, Files.readAllLines(spill).size());   // the write-back on close failed again
+        assertTrue(saved.isEmpty());
+
+        dbDown.set(false);
+        AsyncPersistence second = new AsyncPersistence(txDao, alertDao, 100, 1, 10, 0,
+                AsyncPersistence.Backpressure.SPILL, spill);
+        assertEquals(2, second.getWritten());
+        assertEquals(List.of("alert:T1"), saved);
+        assertFalse(Files.exists(spill));
+        second.close();
+    }
+
+    @Test
+    public void testBlockPolicyCountsLostRows() throws Exception {
+        List<String> saved = new CopyOnWriteArrayList<>();
+        TransactionDao txDao = recordingTxDao(saved, Set.of("T1"));
+        AlertDao alertDao = recordingAlertDao(saved);
+        AsyncPersistence persistence = new AsyncPersistence(txDao, alertDao, 1, 1, 10, 0,
+                AsyncPersistence.Backpressure.BLOCK, null);
+        for (int i = 0; i < 5; i++) persistence.submit(txn(i), alert(i));
+        persistence.close();
+        assertEquals(4, persistence.getWritten());
+        assertEquals(1, persistence.getFailed());
+        assertFalse(saved.contains("alert:T1"));   // no alert without its transaction row
+        assertTrue(saved.contains("alert:T2"));
+        assertThrows(IllegalArgumentException.class, () -> AsyncPersistence.Backpressure.of("drop"));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncPersistence(txDao, alertDao,
+                1, 1, 1, 0, AsyncPersistence.Backpressure.SPILL, null));
+    }
+}
@@ -0,0 +1,115 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.util.BinaryTransactionFile;
+import com.fraud.util.CsvReader;
+import com.fraud.util.TransactionCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryTransactionFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static String describe(Transaction t) {
+        return t.getTransactionId() + "|" + t.getAccountId() + "|" + Double.doubleToRawLongBits(t.getAmount()) + "|"
+                + t.getCurrency() + "|" + t.getTimestamp() + "|" + t.getMerchant() + "|" + t.getLocation() + "|"
+                + t.getChannel() + "|" + t.getMerchantId() + "|" + t.getChannelId();
+    }
+
+    private static List<String> drain(TransactionCursor cursor) throws Exception {
+        try (TransactionCursor c = cursor) {
+            return c.stream().map(BinaryTransactionFileTest::describe).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 18, 2, 58);
+        List<Transaction> txns = Arrays.asList(
+                new Transaction("T1", "A1", 45000, "INR", base, "AMAZON", "Russia", "Online"),
+                new Transaction("T2", "A1", -0.0, "INR", base.minusYears(60), "AMAZON", "Pune", "Card"),
+                new Transaction("T3", "Ä2", Double.NaN, null, null, "Café", null, "UPI"),
+                new Transaction(null, null, 1e-300, "USD", base.plusNanos(123_456_789), "", "USA", "Online"),
+                new Transaction("", "A1", 12.5, "INR", LocalDateTime.of(1, 1, 1, 0, 0), "AMAZON", "Russia", "Online"));
+        Path file = dir.resolve("t.ftx");
+        try (OutputStream out = Files.newOutputStream(file);
+             BinaryTransactionFile.Writer w = new BinaryTransactionFile.Writer(out)) {
+            for (Transaction t : txns) w.write(t);
+            assertEquals(5, w.getCount());
+        }
+
+        txns.forEach(TransactionDictionary.global()::encode);
+        assertTrue(BinaryTransactionFile.isBinary(file));
+        BinaryTransactionFile.Cursor cursor = BinaryTransactionFile.open(file);
+        assertEquals(txns.stream().map(BinaryTransactionFileTest::describe).collect(Collectors.toList()), drain(cursor));
+        assertEquals(5, cursor.getRowsRead());
+    }
+
+    @Test
+    public void testConvertMatchesCsv() throws Exception {
+        Path file = dir.resolve("t.ftx");
+        long written;
+        try (TransactionCursor csv = CsvReader.openResource("/transactions.csv", CsvReader.OnError.FAIL, null)) {
+            written = BinaryTransactionFile.convert(csv, file);
+        }
+        List<String> expected = drain(CsvReader.openResource("/transactions.csv", CsvReader.OnError.FAIL, null));
+        assertEquals(expected.size(), written);
+        assertEquals(expected, drain(BinaryTransactionFile.open(file)));
+        assertTrue(Files.size(file) < 1024);
+    }
+
+    @Test
+    public void testRecordsAcrossMappingWindows() throws Exception {
+        // ~40 MB of long ids, more than one mapped window
+        String pad = String.join("", Collections.nCopies(40_000, "x"));
+        Path file = dir.resolve("big.ftx");
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<String> expected = new ArrayList<>();
+        try (OutputStream out = Files.newOutputStream(file);
+             BinaryTransactionFile.Writer w = new BinaryTransactionFile.Writer(out)) {
+            for (int i = 0; i < 1000; i++) {
+                Transaction t = new Transaction(i + pad, "A" + i % 7, i, "INR", base.plusSeconds(i * 37L % 1000),
+                        "M", "India", "Card");
+                w.write(t);
+                expected.add(t.getTransactionId() + "|" + t.getTimestamp());
+            }
+        }
+        assertTrue(Files.size(file) > 40_000_000L);
+        try (TransactionCursor c = BinaryTransactionFile.open(file)) {
+            assertEquals(expected, c.stream().map(t -> t.getTransactionId() + "|" + t.getTimestamp())
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testRejectsOtherAndTruncatedFiles() throws Exception {
+        Path csv = dir.resolve("t.csv");
+        Files.write(csv, "transactionId,accountId\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(BinaryTransactionFile.isBinary(csv));
+        assertThrows(IllegalArgumentException.class, () -> BinaryTransactionFile.open(csv));
+
+        Path file = dir.resolve("t.ftx");
+        try (TransactionCursor in = CsvReader.openResource("/transactions.csv", CsvReader.OnError.FAIL, null)) {
+            BinaryTransactionFile.convert(in, file);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IllegalArgumentException.class, () -> drain(BinaryTransactionFile.open(file)));
+    }
+}
@@ -0,0 +1,130 @@
+package com.fraud;
+
+import com.fraud.dao.AlertStore;
+import com.fraud.dao.CachingAlertDao;
+import com.fraud.model.FraudAlert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CachingAlertDaoTest {
+
+    private AlertStore db;
+
+    private static FraudAlert alert(String txn, String account) {
+        return new FraudAlert(txn, account, 70, "HIGH", "HighAmountRule");
+    }
+
+    private static List<String> txns(List<FraudAlert> alerts) {
+        return alerts.stream().map(FraudAlert::getTransactionId).collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    public void setup() {
+        db = mock(AlertStore.class);
+        when(db.getAlertsByAccount(eq("A1"), anyInt())).thenAnswer(inv -> {
+            List<FraudAlert> out = new ArrayList<>();
+            for (int i = 3; i > 0 && out.size() < (int) inv.getArgument(1); i--) out.add(alert("T" + i, "A1"));
+            return out;
+        });
+        when(db.getAlertsByAccount(eq("A2"), anyInt())).thenReturn(new ArrayList<>(List.of(alert("U1", "A2"))));
+        when(db.saveAll(any())).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void testRepeatedLookupsAreServedFromMemory() {
+        CachingAlertDao cache = new CachingAlertDao(db, 10, 100, 60_000);
+
+        assertEquals(Arrays.asList("T3", "T2"), txns(cache.getAlertsByAccount("A1", 2)));
+        assertEquals(Arrays.asList("T3", "T2"), txns(cache.getAlertsByAccount("A1", 2)));
+        assertEquals(Arrays.asList("T3"), txns(cache.getAlertsByAccount("A1", 1)));
+        verify(db, times(1)).getAlertsByAccount("A1", 2);
+
+        // a larger limit than was loaded goes to the database once; the account has only 3 alerts,
+        // so after that any limit is answered from memory
+        assertEquals(3, cache.getAlertsByAccount("A1", 50).size());
+        assertEquals(3, cache.getAlertsByAccount("A1", 100).size());
+        assertEquals(3, cache.forEachAlert("A1", 20, 500, a -> { }));
+        verify(db, times(1)).getAlertsByAccount("A1", 50);
+        verify(db, never()).getAlertsByAccount("A1", 100);
+
+        assertEquals(4, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertTrue(cache.stats().contains("66.7% hit rate"), cache.stats());
+    }
+
+    @Test
+    public void testSavingAlertsReloadsTheirAccounts() {
+        CachingAlertDao cache = new CachingAlertDao(db, 10, 100, 60_000);
+        cache.getAlertsByAccount("A1", 2);
+        cache.getAlertsByAccount("A2", 2);
+
+        cache.saveAlert(alert("T4", "A1"));
+        verify(db).saveAlert(argThat(a -> "T4".equals(a.getTransactionId())));
+        assertEquals(1, cache.size());   // A2 is still cached
+        cache.getAlertsByAccount("A1", 2);
+        verify(db, times(2)).getAlertsByAccount("A1", 2);   // read back as stored, not as submitted
+
+        when(db.saveAll(any())).thenThrow(new IllegalStateException("connection lost"));
+        assertThrows(IllegalStateException.class, () -> cache.saveAll(Arrays.asList(alert("U2", "A2"))));
+        assertEquals(1, cache.size());   // A1 still cached; A2 dropped as it may have been written
+        cache.getAlertsByAccount("A2", 2);
+        verify(db, times(2)).getAlertsByAccount("A2", 2);
+    }
+
+    @Test
+    public void testLoadRacingASaveIsNotCached() {
+        CachingAlertDao cache = new CachingAlertDao(db, 10, 100, 60_000);
+        // the save lands while the load is reading the account
+        when(db.getAlertsByAccount(eq("A1"), anyInt())).thenAnswer(inv -> {
+            cache.saveAlert(alert("T4", "A1"));
+            return new ArrayList<>(List.of(alert("T3", "A1")));
+        }).thenReturn(new ArrayList<>(List.of(alert("T4", "A1"), alert("T3", "A1"))));
+
+        assertEquals(Arrays.asList("T3"), txns(cache.getAlertsByAccount("A1", 2)));
+        assertEquals(0, cache.size());
+        assertEquals(Arrays.asList("T4", "T3"), txns(cache.getAlertsByAccount("A1", 2)));
+        assertEquals(Arrays.asList("T4", "T3"), txns(cache.getAlertsByAccount("A1", 2)));
+        verify(db, times(2)).getAlertsByAccount("A1", 2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAccountIsEvicted() {
+        CachingAlertDao cache = new CachingAlertDao(db, 1, 100, 60_000);
+        cache.getAlertsByAccount("A1", 10);
+        cache.getAlertsByAccount("A2", 10);
+        cache.getAlertsByAccount("A1", 10);
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+        verify(db, times(2)).getAlertsByAccount("A1", 10);
+    }
+
+    @Test
+    public void testExpiredEntriesAndLargeReadsGoToTheDatabase() throws Exception {
+        CachingAlertDao cache = new CachingAlertDao(db, 10, 5, 20);
+        cache.getAlertsByAccount("A1", 2);
+        Thread.sleep(40);
+        cache.getAlertsByAccount("A1", 2);
+        verify(db, times(2)).getAlertsByAccount("A1", 2);
+
+        cache.getAlertsByAccount("A1", 6);
+        cache.getAlertsByAccount("A1", 6);
+        verify(db, times(2)).getAlertsByAccount("A1", 6);   // above maxAlertsPerAccount: never cached
+
+        cache.forEachAlert("A1", 0, 500, a -> { });
+        verify(db).forEachAlert(eq("A1"), eq(0L), eq(500), any());   // whole history: streamed
+
+        cache.invalidate("A1");
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,52 @@
+package com.fraud;
+
+import com.fraud.model.CategoryDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryDictionaryTest {
+
+    // "aMaZoN  " style spellings of one merchant, as untrusted live input may send them
+    private static String variant(Random random, String value) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(4); i > 0; i--) sb.append(' ');
+        for (char c : value.toCharArray()) {
+            sb.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        for (int i = random.nextInt(4); i > 0; i--) sb.append(' ');
+        return sb.toString();
+    }
+
+    @Test
+    public void testRawSpellingsAreCachedUpToTheBound() {
+        CategoryDictionary dict = new CategoryDictionary("merchant", 16, 8);
+        int id = dict.encode("Amazon");
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            String v = variant(random, "amazon marketplace " + i % 3);
+            assertEquals(dict.encode(v.trim().toUpperCase(Locale.ROOT)), dict.encode(v), v);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(id, dict.encode(variant(random, "amazon")));
+        }
+
+        assertEquals(8, dict.getCachedVariants());
+        assertEquals(4, dict.size());   // AMAZON and AMAZON MARKETPLACE 0 to 2
+        assertEquals(id, dict.find("  aMAZon"));
+        assertEquals("AMAZON", dict.valueOf(id));
+    }
+
+    @Test
+    public void testNoRawCacheStillEncodes() {
+        CategoryDictionary dict = new CategoryDictionary("channel", 4, 0);
+        assertEquals(0, dict.encode("Card"));
+        assertEquals(0, dict.encode(" card "));
+        assertEquals(1, dict.encode("Online"));
+        assertEquals(0, dict.getCachedVariants());
+        assertThrows(IllegalArgumentException.class, () -> new CategoryDictionary("channel", 4, -1));
+    }
+}
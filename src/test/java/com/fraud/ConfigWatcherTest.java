@@ -0,0 +1,135 @@
+package com.fraud;
+
+import com.fraud.config.ConfigLoader;
+import com.fraud.config.ConfigWatcher;
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.RuleFactory;
+import com.fraud.engine.RulePipeline;
+import com.fraud.engine.ScoreCard;
+import com.fraud.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final Transaction online = new Transaction("T1", "acct1", 100, "INR",
+            LocalDateTime.of(2025, 6, 18, 12, 0), "M", "India", "Online");
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        write("application.properties", "risk.score.medium=10\nrisk.score.high=60\n");
+        writeRules(15);
+    }
+
+    @Test
+    public void testReloadSwapsEngineAndRecordsVersion() throws Exception {
+        ConfigLoader cfg = new ConfigLoader(dir);
+        RulePipeline pipeline = new RulePipeline(RuleFactory.createEngine(cfg), 1);
+        ConfigWatcher watcher = new ConfigWatcher(cfg, pipeline::reload);
+        FraudEngine before = pipeline.current();
+        assertEquals(cfg.getVersion(), before.getConfigVersion());
+        assertEquals(15, score(pipeline));
+
+        // same content: nothing to do
+        writeRules(15);
+        assertFalse(watcher.reload());
+        assertSame(before, pipeline.current());
+
+        writeRules(40);
+        assertTrue(watcher.reload());
+        FraudEngine after = pipeline.current();
+        assertNotEquals(before.getConfigVersion(), after.getConfigVersion());
+        assertEquals(watcher.getAppliedVersion(), after.getConfigVersion());
+        assertEquals(40, score(pipeline));
+        assertEquals(1, pipeline.getStats().sampledTransactions());   // fresh statistics for the new rules
+    }
+
+    @Test
+    public void testInvalidConfigKeepsCurrentEngine() throws Exception {
+        ConfigLoader cfg = new ConfigLoader(dir);
+        RulePipeline pipeline = new RulePipeline(RuleFactory.createEngine(cfg));
+        ConfigWatcher watcher = new ConfigWatcher(cfg, pipeline::reload);
+        FraudEngine before = pipeline.current();
+
+        write("rules.json", "{\"rules\": {\"Bad\": {\"weight\": 5, \"when\": \"amount >=\"}}}");
+        assertFalse(watcher.reload());
+        write("rules.json", "{\"rules\": ");
+        assertFalse(watcher.reload());
+        writeRules(15);
+        write("application.properties", "risk.score.medium=70\nrisk.score.high=60\n");
+        assertFalse(watcher.reload());
+
+        assertSame(before, pipeline.current());
+        assertEquals(cfg.getVersion(), watcher.getAppliedVersion());
+    }
+
+    @Test
+    public void testWatcherPicksUpFileChanges() throws Exception {
+        ConfigLoader cfg = new ConfigLoader(dir);
+        RulePipeline pipeline = new RulePipeline(RuleFactory.createEngine(cfg));
+        try (ConfigWatcher watcher = new ConfigWatcher(cfg, pipeline::reload)) {
+            watcher.start();
+            writeRules(40);
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (score(pipeline) != 40 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(40, score(pipeline));
+        }
+    }
+
+    @Test
+    public void testScoringContinuesDuringReloads() throws Exception {
+        ConfigLoader cfg = new ConfigLoader(dir);
+        RulePipeline pipeline = new RulePipeline(RuleFactory.createEngine(cfg));
+        ConfigWatcher watcher = new ConfigWatcher(cfg, pipeline::reload);
+        Thread reloader = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    writeRules(i % 2 == 0 ? 40 : 15);
+                    watcher.reload();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        reloader.start();
+        // every score comes from one complete engine, never a mix
+        while (reloader.isAlive()) {
+            int s = score(pipeline);
+            assertTrue(s == 15 || s == 40, "score " + s);
+        }
+        reloader.join();
+    }
+
+    private int score(RulePipeline pipeline) {
+        ScoreCard card = new ScoreCard();
+        pipeline.score(online, card, 0);
+        return card.getScore();
+    }
+
+    private void writeRules(int onlineWeight) throws Exception {
+        write("rules.json", "{\"rules\": {\"ChannelRiskRule\": {\"enabled\": true, \"weightOnline\": "
+                + onlineWeight + "}}}");
+    }
+
+    private void write(String name, String content) throws Exception {
+        Path tmp = dir.resolve(name + ".tmp");
+        Files.write(tmp, Arrays.asList(content), StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,82 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.util.CsvReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvReaderTest {
+
+    private static final String HEADER = "transactionId,accountId,amount,currency,timestamp,merchant,location,channel";
+
+    @TempDir
+    Path dir;
+
+    private Path input() throws Exception {
+        Path file = dir.resolve("in.csv");
+        Files.write(file, Arrays.asList(
+                HEADER,
+                "T1,A1,100,INR,2025-06-18 10:00:00,M,India,Card",
+                "T2,A1,abc,INR,2025-06-18 10:01:00,M,India,Card",
+                "",
+                ",A1,100,INR,2025-06-18 10:02:00,M,India,Card",
+                "T3,A2,300,INR,not-a-date,M,India,Card",
+                "T4,A2,400,INR,2025-06-18 10:04:00,M,India,Online"), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void testSkipStreamsGoodRows() throws Exception {
+        try (CsvReader.Cursor cursor = CsvReader.open(input(), CsvReader.OnError.SKIP, null)) {
+            List<String> ids = cursor.stream().map(Transaction::getTransactionId).collect(Collectors.toList());
+            assertEquals(Arrays.asList("T1", "T4"), ids);
+            assertEquals(5, cursor.getRowsRead());
+            assertEquals(2, cursor.getRowsRejected());
+            assertFalse(cursor.hasNext());
+        }
+    }
+
+    @Test
+    public void testQuarantineWritesRejectedRows() throws Exception {
+        Path quarantine = dir.resolve("bad.csv");
+        try (CsvReader.Cursor cursor = CsvReader.open(input(), CsvReader.OnError.QUARANTINE, quarantine)) {
+            assertEquals(2, cursor.stream().count());
+        }
+        List<String> lines = Files.readAllLines(quarantine, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals(HEADER + ",line,error", lines.get(0));
+        assertTrue(lines.get(1).startsWith("T2,A1,abc,INR,2025-06-18 10:01:00,M,India,Card,3,"), lines.get(1));
+        assertTrue(lines.get(2).startsWith("T3,"), lines.get(2));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvReader.open(input(), CsvReader.OnError.QUARANTINE, null));
+    }
+
+    @Test
+    public void testFailReportsLine() throws Exception {
+        try (CsvReader.Cursor cursor = CsvReader.open(input(), CsvReader.OnError.FAIL, null)) {
+            assertEquals("T1", cursor.next().getTransactionId());
+            CsvReader.RowException e = assertThrows(CsvReader.RowException.class, cursor::next);
+            assertEquals(3, e.getLine());
+        }
+    }
+
+    @Test
+    public void testReadFromResourceMatchesStream() throws Exception {
+        List<Transaction> all = CsvReader.readFromResource("/transactions.csv");
+        try (CsvReader.Cursor cursor = CsvReader.openResource("/transactions.csv", CsvReader.OnError.FAIL, null)) {
+            List<String> streamed = cursor.stream().map(Transaction::getTransactionId).collect(Collectors.toList());
+            assertEquals(all.stream().map(Transaction::getTransactionId).collect(Collectors.toList()), streamed);
+        }
+        assertFalse(all.isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package com.fraud;
+
+import com.fraud.util.DateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateUtilTest {
+
+    // DateUtil.parse before the hand-written layouts, kept as the reference behavior
+    private static LocalDateTime legacyParse(String s) {
+        if (s == null) return null;
+        try {
+            return LocalDateTime.parse(s.trim(), DateUtil.FORMATTER);
+        } catch (DateTimeParseException ex) {
+            try {
+                return LocalDateTime.parse(s.trim());
+            } catch (Exception ex2) {
+                throw new IllegalArgumentException("Unable to parse datetime: " + s, ex);
+            }
+        }
+    }
+
+    @Test
+    public void testCommonLayouts() {
+        assertEquals(LocalDateTime.of(2025, 6, 18, 2, 58, 0), DateUtil.parse("2025-06-18 02:58:00"));
+        assertEquals(LocalDateTime.of(2025, 6, 18, 2, 58), DateUtil.parse("2025-06-18T02:58"));
+        assertEquals(LocalDateTime.of(2025, 6, 18, 2, 58, 7, 120_000_000), DateUtil.parse(" 2025-06-18T02:58:07.12 "));
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), DateUtil.parse("2024-02-31 00:00:00"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parse("2024-02-31T00:00"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parse("2025-06-18"));
+        assertNull(DateUtil.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parseEpochSeconds(null));
+        assertEquals(0, DateUtil.parseEpochSeconds("1970-01-01 00:00:00"));
+    }
+
+    @Test
+    public void testFuzzEquivalentToFormatterParsing() {
+        Random rnd = new Random(42);
+        String[] templates = {"2025-06-18 02:58:00", "2025-06-18T02:58", "2025-06-18T02:58:07", "2025-06-18T02:58:07.123456789"};
+        String noise = "0123456789 -:T.t+x";
+        for (int i = 0; i < 30_000; i++) {
+            char[] c = templates[rnd.nextInt(templates.length)].toCharArray();
+            // mostly digit changes (exercising field ranges), sometimes layout damage
+            int edits = 1 + rnd.nextInt(4);
+            for (int k = 0; k < edits; k++) {
+                int at = rnd.nextInt(c.length);
+                c[at] = Character.isDigit(c[at]) && rnd.nextInt(4) > 0
+                        ? (char) ('0' + rnd.nextInt(10)) : noise.charAt(rnd.nextInt(noise.length()));
+            }
+            String s = new String(c, 0, rnd.nextInt(8) == 0 ? rnd.nextInt(c.length + 1) : c.length);
+            if (rnd.nextInt(10) == 0) s = " " + s + "\t";
+            assertSame(s);
+        }
+        // every calendar day of a leap and a non-leap year, plus out-of-range days, in both layouts
+        for (int year : new int[]{0, 1, 1900, 2000, 2023, 2024, 9999}) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++) {
+                    assertSame(String.format("%04d-%02d-%02d 23:59:59", year, month, day));
+                    assertSame(String.format("%04d-%02d-%02dT00:00", year, month, day));
+                }
+            }
+        }
+    }
+
+    private static void assertSame(String s) {
+        LocalDateTime expected;
+        try {
+            expected = legacyParse(s);
+        } catch (IllegalArgumentException e) {
+            assertThrows(IllegalArgumentException.class, () -> DateUtil.parse(s), s);
+            assertThrows(IllegalArgumentException.class, () -> DateUtil.parseEpochSeconds(s), s);
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            assertThrows(IllegalArgumentException.class, () -> DateUtil.parse(b, 0, b.length), s);
+            return;
+        }
+        assertEquals(expected, DateUtil.parse(s), s);
+        assertEquals(expected.toEpochSecond(ZoneOffset.UTC), DateUtil.parseEpochSeconds(s), s);
+        byte[] b = ("," + s + ",").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, DateUtil.parse(b, 1, b.length - 1), s);
+    }
+}
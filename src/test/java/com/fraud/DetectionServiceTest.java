@@ -1,17 +1,23 @@
 package com.fraud;
 
 import com.fraud.dao.AlertDao;
+import com.fraud.dao.DaoException;
 import com.fraud.dao.TransactionDao;
 import com.fraud.model.FraudAlert;
 import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
 import com.fraud.rules.Rule;
 import com.fraud.rules.RuleResult;
+import com.fraud.rules.impl.HighAmountRule;
 import com.fraud.service.DetectionService;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -85,4 +91,101 @@ public class DetectionServiceTest {
         verify(txDao, times(1)).save(t);
         verify(alertDao, times(1)).saveAlert(any(FraudAlert.class));
     }
+
+    @Test
+    public void testEventTimeVelocityOnHistoricalReplay() {
+        DetectionService svc = new DetectionService(txDao, alertDao,
+                Collections.emptyList(),
+                15, 60,
+                120, 1, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+
+        LocalDateTime base = LocalDateTime.of(2025, 6, 19, 2, 2, 0);
+        Transaction first = new Transaction("T3", "acct1", 15000.0, "INR", base, "TRAVEL", "Turkey", "Online");
+        Transaction second = new Transaction("T4", "acct1", 15000.0, "INR", base.plusSeconds(20), "TRAVEL", "Turkey", "Online");
+        Transaction late = new Transaction("T5", "acct1", 15000.0, "INR", base.minusHours(1), "TRAVEL", "Turkey", "Online");
+
+        assertFalse(svc.analyzeAndPersist(first).isPresent());
+        Optional<FraudAlert> opt = svc.analyzeAndPersist(second);
+        assertTrue(opt.isPresent());
+        assertEquals(35, opt.get().getScore()); // velocity + duplicate
+
+        assertFalse(svc.analyzeAndPersist(late).isPresent());
+        assertEquals(1, svc.getLateEventCount());
+        verify(txDao, never()).getRecentTransactions(anyString(), anyInt());
+    }
+
+    @Test
+    public void testBatchCombinesRuleAndVelocityScores() {
+        DetectionService svc = new DetectionService(txDao, alertDao,
+                Collections.singletonList(new HighAmountRule(50000, 30)),
+                30, 60,
+                120, 1, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+
+        LocalDateTime base = LocalDateTime.of(2025, 6, 19, 2, 2, 0);
+        TransactionBatch batch = TransactionBatch.of(Arrays.asList(
+                new Transaction("B1", "acct1", 60000.0, "INR", base, "TRAVEL", "Turkey", "Online"),
+                new Transaction("B2", "acct2", 100.0, "INR", base, "COFFEE", "India", "Card"),
+                new Transaction("B3", "acct1", 60000.0, "INR", base.plusSeconds(20), "TRAVEL", "Turkey", "Online")));
+
+        List<FraudAlert> alerts = svc.analyzeAndPersist(batch);
+
+        assertEquals(2, alerts.size());
+        assertEquals("B1", alerts.get(0).getTransactionId());
+        assertEquals(30, alerts.get(0).getScore());
+        assertEquals(65, alerts.get(1).getScore()); // rule + velocity + duplicate
+        assertEquals("HIGH", alerts.get(1).getRiskLevel());
+        assertEquals(List.of("HighAmountRule"), alerts.get(0).getRules());
+        assertEquals(List.of("HighAmountRule", DetectionService.VELOCITY_RULE, DetectionService.DUPLICATE_RULE),
+                alerts.get(1).getRules());
+        // one batch insert per table
+        verify(txDao).saveAll(argThat(txns -> txns.size() == 3));
+        verify(alertDao).saveAll(argThat(a -> a.size() == 2));
+        verify(txDao, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    public void testBatchReportsRowsThatFailedToSave() {
+        DetectionService svc = new DetectionService(txDao, alertDao,
+                Collections.singletonList(new HighAmountRule(50000, 30)),
+                30, 60, 120, 5, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+        LocalDateTime base = LocalDateTime.of(2025, 6, 19, 2, 2, 0);
+        Transaction bad = new Transaction("B1", "acct1", 60000.0, "INR", base, "TRAVEL", "Turkey", "Online");
+        TransactionBatch batch = TransactionBatch.of(Arrays.asList(bad,
+                new Transaction("B2", "acct2", 70000.0, "INR", base, "TRAVEL", "India", "Card")));
+        when(txDao.saveAll(any())).thenReturn(Collections.singletonList(bad));
+
+        DaoException e = assertThrows(DaoException.class, () -> svc.analyzeAndPersist(batch));
+        assertTrue(e.getMessage().contains("tx=B1"), e.getMessage());
+        // only B2's alert: B1 has no transaction row
+        verify(alertDao).saveAll(argThat(a -> a.size() == 1 && "B2".equals(a.iterator().next().getTransactionId())));
+    }
+
+    @Test
+    public void testIdempotentDaoSkipsAlertsOfStoredTransactions() {
+        DetectionService svc = new DetectionService(txDao, alertDao,
+                Collections.singletonList(new HighAmountRule(50000, 30)),
+                30, 60, 120, 5, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+        LocalDateTime base = LocalDateTime.of(2025, 6, 19, 2, 2, 0);
+        Transaction stored = new Transaction("B1", "acct1", 60000.0, "INR", base, "TRAVEL", "Turkey", "Online");
+        Transaction fresh = new Transaction("B2", "acct2", 70000.0, "INR", base, "TRAVEL", "India", "Card");
+        when(txDao.isIdempotent()).thenReturn(true);
+        when(txDao.insertIfAbsent(stored)).thenReturn(false);
+        when(txDao.insertIfAbsent(fresh)).thenReturn(true);
+
+        assertTrue(svc.analyzeAndPersist(stored).isPresent());   // still scored
+        assertTrue(svc.analyzeAndPersist(fresh).isPresent());
+        verify(alertDao, times(1)).saveAlert(argThat(a -> "B2".equals(a.getTransactionId())));
+        verify(txDao, never()).save(any(Transaction.class));
+
+        // batch path: the repeat's alert is dropped, the first occurrence's kept
+        Transaction first = new Transaction("B3", "acct3", 80000.0, "INR", base, "TRAVEL", "India", "Card");
+        Transaction repeat = new Transaction("B3", "acct3", 80000.0, "INR", base, "TRAVEL", "India", "Card");
+        TransactionDao.SaveResult result = new TransactionDao.SaveResult();
+        result.getDuplicates().add(repeat);
+        when(txDao.insertAllIfAbsent(any())).thenReturn(result);
+
+        assertEquals(2, svc.analyzeAndPersist(TransactionBatch.of(Arrays.asList(first, repeat))).size());
+        verify(alertDao).saveAll(argThat(a -> a.size() == 1));
+        verify(txDao, never()).saveAll(any());
+    }
 }
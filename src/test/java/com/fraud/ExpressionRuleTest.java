@@ -0,0 +1,126 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.rules.Rule;
+import com.fraud.rules.expr.ExpressionCompiler;
+import com.fraud.rules.expr.ExpressionRule;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.rules.impl.NightTimeRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpressionRuleTest {
+
+    private static Transaction txn(double amount, Integer hour, String channel, String merchant) {
+        LocalDateTime ts = hour == null ? null : LocalDateTime.of(2025, 6, 19, hour, 30);
+        return new Transaction("E1", "acct1", amount, "INR", ts, merchant, "India", channel);
+    }
+
+    private static List<Transaction> sample() {
+        return Arrays.asList(
+                txn(45000, 2, "Online", "AMAZON"),
+                txn(50000, 4, " online ", "LUXURY"),
+                txn(20000, 5, "ONLINE", "COFFEE"),
+                txn(19999.99, 0, "Card", "JEWELER"),
+                txn(100, null, null, null),
+                TransactionDictionary.global().encode(txn(80000, 23, "Online", "jeweler")));
+    }
+
+    @Test
+    public void testMatchesHandWrittenRules() {
+        Object[][] pairs = {
+                {new HighAmountRule(50000, 30), new ExpressionRule("e", "amount >= 50000", 30)},
+                {new NightTimeRule(0, 5, 20), new ExpressionRule("e", "hour in [0,5)", 20)},
+                {new ChannelRiskRule(15), new ExpressionRule("e", "channel == \"online\"", 15)}
+        };
+        for (Object[] pair : pairs) {
+            Rule hand = (Rule) pair[0];
+            Rule expr = (Rule) pair[1];
+            for (Transaction t : sample()) {
+                assertEquals(hand.score(t), expr.score(t), hand.name() + " on " + t);
+            }
+        }
+    }
+
+    @Test
+    public void testCombinedExpression() {
+        ExpressionRule rule = new ExpressionRule("LargeOnlineNightRule",
+                "amount >= 20000 && channel == \"online\" && hour in [0,5)", 20);
+        List<Transaction> txns = sample();
+        assertEquals(20, rule.score(txns.get(0)));
+        assertEquals(20, rule.score(txns.get(1)));
+        assertEquals(Rule.NO_MATCH, rule.score(txns.get(2)));   // 05:30 is outside [0,5)
+        assertEquals(Rule.NO_MATCH, rule.score(txns.get(4)));   // no timestamp
+        assertEquals("Expr:amount >= 20000 && channel == \"online\" && hour in [0,5)", rule.reason(txns.get(0)));
+        assertEquals(20, rule.maxScore());
+    }
+
+    @Test
+    public void testListsNegationAndWrappingHours() {
+        ExpressionRule rule = new ExpressionRule("r",
+                "merchant in [\"jeweler\", \"LUXURY\"] && !(channel != \"online\") || hour in (22,4]", 10);
+        List<Transaction> txns = sample();
+        assertEquals(10, rule.score(txns.get(1)));              // LUXURY online
+        assertEquals(10, rule.score(txns.get(3)));              // JEWELER by card, but 00:30 is in (22,4]
+        assertEquals(Rule.NO_MATCH, rule.score(txns.get(2)));   // COFFEE at 05:30
+        assertEquals(10, rule.score(txns.get(5)));              // encoded jeweler online
+        assertEquals(10, new ExpressionRule("r", "hour in (22,4]", 10).score(txns.get(5)));
+        assertEquals(Rule.NO_MATCH, new ExpressionRule("r", "hour in (22,4]", 10).score(txns.get(2)));
+        assertEquals(Rule.NO_MATCH, new ExpressionRule("r", "merchant in [\"JEWELER\"] && channel == \"online\"", 10)
+                .score(txns.get(3)));
+    }
+
+    @Test
+    public void testAmountBoundsAndRepeatedFields() {
+        List<Transaction> txns = sample();
+        assertEquals(Rule.NO_MATCH, new ExpressionRule("r", "amount > 20000 && amount < 50000", 5).score(txns.get(2)));
+        assertEquals(5, new ExpressionRule("r", "amount in [20000,50000) && hour >= 5", 5).score(txns.get(2)));
+        assertEquals(Rule.NO_MATCH, new ExpressionRule("r", "amount in [20000,50000)", 5).score(txns.get(1)));
+        assertEquals(5, new ExpressionRule("r", "amount != 100", 5).score(txns.get(0)));
+        // the same categorical field twice cannot be folded into one test, but still means AND
+        assertEquals(Rule.NO_MATCH, new ExpressionRule("r",
+                "channel == \"online\" && channel != \"online\"", 5).score(txns.get(0)));
+        assertEquals(5, new ExpressionRule("r",
+                "merchant in [\"AMAZON\", \"LUXURY\"] && merchant != \"LUXURY\"", 5).score(txns.get(0)));
+    }
+
+    @Test
+    public void testBatchMatchesScore() {
+        String[] exprs = {
+                "amount >= 20000", "hour in (22,4]", "channel == \"online\"", "merchant in [\"jeweler\", \"LUXURY\"]",
+                "location != \"India\"", "amount < 50000 && hour >= 1 && channel == \"online\"", "currency == \"INR\""
+        };
+        List<Transaction> txns = sample();
+        TransactionBatch batch = TransactionBatch.of(txns);
+        for (String expr : exprs) {
+            ExpressionRule rule = new ExpressionRule("r", expr, 7);
+            int[] scores = new int[txns.size()];
+            long[] masks = new long[txns.size()];
+            rule.scoreBatch(batch, 3, scores, masks);
+            for (int i = 0; i < txns.size(); i++) {
+                boolean hit = rule.score(txns.get(i)) != Rule.NO_MATCH;
+                assertEquals(hit ? 7 : 0, scores[i], expr + " row " + i);
+                assertEquals(hit ? 1L << 3 : 0L, masks[i], expr + " row " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsMalformedExpressions() {
+        String[] bad = {
+                "", "amount >=", "amount >= 1 &&", "speed > 3", "channel > \"online\"",
+                "hour in [0,5", "merchant == JEWELER", "(amount > 1", "amount > 1 extra", "hour in [25]"
+        };
+        for (String expr : bad) {
+            assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile(expr), expr);
+        }
+    }
+}
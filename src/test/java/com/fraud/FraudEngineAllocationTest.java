@@ -0,0 +1,155 @@
+package com.fraud;
+
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.ScoreCard;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.rules.Rule;
+import com.fraud.rules.impl.*;
+import com.fraud.service.DetectionService;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class FraudEngineAllocationTest {
+
+    private static FraudEngine engine() {
+        List<Rule> rules = Arrays.asList(
+                new HighAmountRule(50000, 30),
+                new GeoLocationRule(new HashSet<>(Arrays.asList("Russia", "Nigeria", "Turkey", "USA")), 25),
+                new NightTimeRule(0, 5, 20),
+                new ChannelRiskRule(15),
+                new RiskyMerchantRule(new HashSet<>(Arrays.asList("JEWELER", "LUXURY")), 25));
+        return new FraudEngine(rules);
+    }
+
+    private static Transaction[] sample() {
+        return new Transaction[]{
+                new Transaction("T1", "acct1", 45000, "INR", LocalDateTime.of(2025, 6, 18, 2, 58), "AMAZON", "Russia", "Online"),
+                new Transaction("T2", "acct1", 1200, "INR", LocalDateTime.of(2025, 6, 18, 10, 22), "D-MART", "Pune", "Card"),
+                new Transaction("T3", "acct2", 120000, "INR", LocalDateTime.of(2025, 6, 19, 1, 15), "JEWELER", "Nigeria", "Online")
+        };
+    }
+
+    @Test
+    public void testScoreMatchesEvaluateAndMask() {
+        FraudEngine engine = engine();
+        ScoreCard card = new ScoreCard();
+        Transaction t = sample()[2];
+
+        engine.score(t, card);
+        assertEquals(engine.evaluate(t), card.getScore());
+        assertEquals(30 + 25 + 20 + 15 + 25, card.getScore());
+        assertEquals(0b11111L, card.getMatchedMask());
+        assertEquals(5, engine.reasons(t, card.getMatchedMask()).size());
+        assertEquals("HighAmountRule:HighAmount:120000.0", engine.reasons(t, card.getMatchedMask()).get(0));
+    }
+
+    @Test
+    public void testEncodedTransactionsScoreLikeRawOnes() {
+        FraudEngine engine = engine();
+        ScoreCard raw = new ScoreCard();
+        ScoreCard encoded = new ScoreCard();
+        Transaction[] plain = sample();
+        Transaction[] ids = sample();
+        for (int i = 0; i < plain.length; i++) {
+            engine.score(plain[i], raw);
+            Transaction e = TransactionDictionary.global().encode(ids[i]);
+            assertTrue(e.isEncoded());
+            engine.score(e, encoded);
+            assertEquals(raw.getMatchedMask(), encoded.getMatchedMask(), plain[i].toString());
+        }
+
+        // ids are shared across case/whitespace variants
+        Transaction lower = TransactionDictionary.global().encode(new Transaction("T9", "acct9", 1, "INR",
+                LocalDateTime.of(2025, 6, 18, 12, 0), " jeweler ", "nigeria", "online"));
+        engine.score(lower, encoded);
+        assertEquals(0b11010L, encoded.getMatchedMask());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "allocation counters not available");
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mx.isThreadAllocatedMemorySupported());
+        mx.setThreadAllocatedMemoryEnabled(true);
+        return mx;
+    }
+
+    @Test
+    public void testStatelessScoringDoesNotAllocate() {
+        com.sun.management.ThreadMXBean mx = allocationCounter();
+
+        FraudEngine engine = engine();
+        ScoreCard card = new ScoreCard();
+        Transaction[] raw = sample();
+        Transaction[] txns = new Transaction[raw.length * 2];
+        for (int i = 0; i < raw.length; i++) {
+            txns[i] = raw[i];
+            txns[raw.length + i] = TransactionDictionary.global().encode(sample()[i]);
+        }
+        long sink = 0;
+
+        for (int i = 0; i < 50_000; i++) {
+            engine.score(txns[i % txns.length], card);
+            sink += card.getMatchedMask();
+        }
+
+        long tid = Thread.currentThread().getId();
+        int iterations = 200_000;
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < iterations; i++) {
+            engine.score(txns[i % txns.length], card);
+            sink += card.getScore();
+        }
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+
+        assertTrue(sink > 0);
+        // allow a little noise from the measurement call itself
+        assertTrue(allocated < 1024, "stateless scoring allocated " + allocated + " bytes for " + iterations + " txns");
+    }
+
+    @Test
+    public void testLowRiskDetectionDoesNotAllocate() {
+        com.sun.management.ThreadMXBean mx = allocationCounter();
+
+        FraudEngine engine = new FraudEngine(engine().getRules(), 40, 70, true, true);
+        DetectionService service = new DetectionService(null, null, engine, 60, 64,
+                new InMemoryVelocityStore(64, 64, 86_400), WindowPolicy.eventTime(86_400));
+        // one account, a transaction a second with distinct amounts: about 60 in each window,
+        // no velocity or duplicate hit, and every rule quiet
+        Transaction[] txns = new Transaction[1000];
+        LocalDateTime start = LocalDateTime.of(2025, 6, 18, 10, 0);
+        for (int i = 0; i < txns.length; i++) {
+            txns[i] = TransactionDictionary.global().encode(new Transaction("D" + i, "acct1", 100 + i, "INR",
+                    start.plusSeconds(i), "D-MART", "Pune", "Card"));
+        }
+        long sink = 0;
+
+        for (int i = 0; i < 50_000; i++) {
+            if (service.score(txns[i % txns.length]) != null) sink++;
+        }
+
+        long tid = Thread.currentThread().getId();
+        int iterations = 200_000;
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < iterations; i++) {
+            if (service.score(txns[i % txns.length]) != null) sink++;
+        }
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+
+        assertEquals(0, sink);
+        // the idle-account sweep every few thousand records allocates a little; an object per
+        // transaction would be 16 bytes or more each
+        assertTrue(allocated < iterations, "low-risk detection allocated " + allocated + " bytes for " + iterations + " txns");
+    }
+}
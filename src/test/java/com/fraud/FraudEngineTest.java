@@ -0,0 +1,100 @@
+package com.fraud;
+
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.ScoreCard;
+import com.fraud.model.Transaction;
+import com.fraud.rules.Rule;
+import com.fraud.rules.RuleResult;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.rules.impl.NightTimeRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FraudEngineTest {
+
+    /** Always matches with the given weight and counts how often it ran. */
+    private static Rule counting(String name, int weight, AtomicInteger calls) {
+        return new Rule() {
+            @Override
+            public RuleResult evaluate(Transaction txn) {
+                calls.incrementAndGet();
+                return new RuleResult(name, true, weight, "hit");
+            }
+            @Override public int maxScore() { return weight; }
+            @Override public String name() { return name; }
+        };
+    }
+
+    private static Transaction txn(double amount, int hour, String channel) {
+        return new Transaction("T1", "acct1", amount, "INR",
+                LocalDateTime.of(2025, 6, 18, hour, 0), "M", "India", channel);
+    }
+
+    @Test
+    public void testHighWeightRulesRunFirst() {
+        FraudEngine engine = new FraudEngine(Arrays.asList(
+                new ChannelRiskRule(15), new NightTimeRule(0, 5, 20), new HighAmountRule(50000, 30)),
+                30, 60, true, true);
+        assertEquals(Arrays.asList("HighAmountRule", "NightTimeRule", "ChannelRiskRule"), engine.getEvaluationOrder());
+    }
+
+    @Test
+    public void testStopsOnceLowIsCertain() {
+        AtomicInteger calls = new AtomicInteger();
+        // HighAmount (30) runs first and misses; the 10-point rule can no longer reach MEDIUM (30)
+        FraudEngine engine = new FraudEngine(Arrays.asList(
+                counting("small", 10, calls), new HighAmountRule(50000, 30)),
+                30, 60, true, true);
+        ScoreCard card = new ScoreCard();
+
+        engine.score(txn(100, 12, "Card"), card);
+        assertEquals(0, card.getScore());
+        assertEquals(1, card.getRulesEvaluated());
+        assertEquals(0, calls.get());
+        assertEquals("LOW", engine.riskLevel(card.getScore()));
+    }
+
+    @Test
+    public void testStopsOnceHighIsReachedAndCompletesReasons() {
+        AtomicInteger calls = new AtomicInteger();
+        FraudEngine engine = new FraudEngine(Arrays.asList(
+                counting("small", 10, calls), new HighAmountRule(50000, 30)),
+                30, 60, true, true);
+        ScoreCard card = new ScoreCard();
+        Transaction t = txn(75000, 12, "Card");
+
+        engine.score(t, card, 35); // e.g. velocity + duplicate already counted
+        assertEquals("HIGH", engine.riskLevel(35 + card.getScore()));
+        assertEquals(1, card.getRulesEvaluated());
+
+        engine.complete(t, card);
+        assertEquals(40, card.getScore());
+        assertEquals(0b11L, card.getMatchedMask());
+        assertEquals(Arrays.asList("small:hit", "HighAmountRule:HighAmount:75000.0"),
+                engine.reasons(t, card.getMatchedMask()));
+    }
+
+    @Test
+    public void testEarlyExitKeepsBandOfFullEvaluation() {
+        FraudEngine full = new FraudEngine(Arrays.asList(
+                new ChannelRiskRule(15), new NightTimeRule(0, 5, 20), new HighAmountRule(50000, 30)));
+        FraudEngine fast = new FraudEngine(full.getRules(), 30, 60, true, false);
+        ScoreCard card = new ScoreCard();
+
+        for (double amount : new double[]{10, 60000}) {
+            for (int hour : new int[]{1, 12}) {
+                for (String channel : new String[]{"Online", "Card"}) {
+                    Transaction t = txn(amount, hour, channel);
+                    fast.score(t, card);
+                    assertEquals(fast.riskLevel(full.evaluate(t)), fast.riskLevel(card.getScore()), t.toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.rules.Rule;
+import com.fraud.rules.RuleResult;
+import com.fraud.rules.impl.GeoLocationRule;
+import com.fraud.rules.impl.RiskRegionTable;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoLocationRuleTest {
+
+    private static Transaction at(String location) {
+        return new Transaction("T1", "acct1", 100.0, "INR", LocalDateTime.now(), "M", location, "Card");
+    }
+
+    @Test
+    public void testAliasesResolveToRegionWeight() {
+        GeoLocationRule rule = new GeoLocationRule(new RiskRegionTable(Arrays.asList(
+                new RiskRegionTable.Region("Russia", 30, Arrays.asList("RU", "RUS")),
+                new RiskRegionTable.Region("Nigeria", 20, Collections.singletonList("NG")))));
+
+        assertEquals(30, rule.score(at("Russia")));
+        assertEquals(30, rule.score(at(" rus ")));
+        assertEquals(20, rule.score(at("ng")));
+        assertEquals(Rule.NO_MATCH, rule.score(at("India")));
+        assertEquals(30, rule.maxScore());
+
+        RuleResult res = rule.evaluate(at("RU"));
+        assertTrue(res.isMatched());
+        assertEquals(30, res.getScore());
+        assertEquals("RiskCountry:RU(Russia)", res.getReason());
+    }
+
+    @Test
+    public void testEncodedAndRawLookupsAgree() {
+        GeoLocationRule rule = new GeoLocationRule(new HashSet<>(Arrays.asList("Turkey", "USA")), 25);
+        for (String loc : new String[]{"Turkey", "usa", "Pune", "", null}) {
+            Transaction encoded = TransactionDictionary.global().encode(at(loc));
+            assertEquals(rule.score(at(loc)), rule.score(encoded), String.valueOf(loc));
+        }
+        assertEquals(25, rule.score(at("turkey")));
+    }
+}
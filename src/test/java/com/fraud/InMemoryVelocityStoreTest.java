@@ -0,0 +1,114 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.VelocityStore;
+import com.fraud.state.WindowCheck;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryVelocityStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 6, 18, 10, 0, 0);
+
+    private static Transaction txn(String id, String acct, double amount, String merchant, LocalDateTime ts) {
+        return new Transaction(id, acct, amount, "INR", ts, merchant, "India", "Card");
+    }
+
+    private static long epoch(LocalDateTime ts) {
+        return ts.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    @Test
+    public void testCountsOnlyEntriesInsideWindow() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore();
+        store.record(txn("T1", "acct1", 10.0, "M", BASE.minusSeconds(300)));
+        store.record(txn("T2", "acct1", 20.0, "M", BASE.minusSeconds(60)));
+        store.record(txn("T3", "acct1", 30.0, "M", BASE.minusSeconds(10)));
+        store.record(txn("T4", "acct2", 40.0, "M", BASE.minusSeconds(10)));
+
+        assertEquals(2, store.countBetween("acct1", epoch(BASE.minusSeconds(120)), Long.MAX_VALUE));
+        assertEquals(1, store.countBetween("acct2", epoch(BASE.minusSeconds(120)), Long.MAX_VALUE));
+        assertEquals(0, store.countBetween("unknown", epoch(BASE.minusSeconds(120)), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testDuplicateIsCaseInsensitiveOnMerchant() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore();
+        store.record(txn("T1", "acct1", 500.0, "Amazon", BASE.minusSeconds(30)));
+
+        long since = epoch(BASE.minusSeconds(120));
+        assertTrue(store.hasDuplicateBetween("acct1", since, Long.MAX_VALUE, 500.0, " AMAZON "));
+        assertFalse(store.hasDuplicateBetween("acct1", since, Long.MAX_VALUE, 501.0, "AMAZON"));
+        assertFalse(store.hasDuplicateBetween("acct1", since, Long.MAX_VALUE, 500.0, "FLIPKART"));
+        assertFalse(store.hasDuplicateBetween("acct1", epoch(BASE), Long.MAX_VALUE, 500.0, "AMAZON"));
+    }
+
+    @Test
+    public void testCheckMatchesTheSeparateLookups() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore();
+        store.record(txn("T1", "acct1", 500.0, "Amazon", BASE.minusSeconds(300)));
+        store.record(txn("T2", "acct1", 20.0, "Amazon", BASE.minusSeconds(30)));
+
+        long since = epoch(BASE.minusSeconds(120));
+        WindowCheck check = store.check("acct1", since, Long.MAX_VALUE, 500.0, "AMAZON");
+        assertEquals(1, check.getCount());
+        assertFalse(check.isDuplicate());   // the 500.0 entry is outside the window
+        assertTrue(store.check("acct1", since, Long.MAX_VALUE, 20.0, "amazon").isDuplicate());
+        assertEquals(0, store.check("acct2", since, Long.MAX_VALUE, 20.0, "amazon").getCount());
+    }
+
+    @Test
+    public void testRingIsBounded() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore(4);
+        for (int i = 0; i < 10; i++) {
+            store.record(txn("T" + i, "acct1", i, "M", BASE.plusSeconds(i)));
+        }
+        assertEquals(4, store.countBetween("acct1", epoch(BASE), Long.MAX_VALUE));
+        // oldest entries were overwritten
+        assertFalse(store.hasDuplicateBetween("acct1", epoch(BASE), Long.MAX_VALUE, 0.0, "M"));
+        assertTrue(store.hasDuplicateBetween("acct1", epoch(BASE), Long.MAX_VALUE, 9.0, "M"));
+    }
+
+    @Test
+    public void testEventTimeUpperBoundAndLatest() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore();
+        assertEquals(VelocityStore.UNKNOWN, store.latestTimestamp("acct1"));
+
+        store.record(txn("T1", "acct1", 10.0, "M", BASE.plusSeconds(60)));
+        store.record(txn("T2", "acct1", 10.0, "M", BASE.minusSeconds(30)));
+
+        // an event at BASE must not see the entry recorded for BASE+60
+        assertEquals(1, store.countBetween("acct1", epoch(BASE.minusSeconds(120)), epoch(BASE)));
+        assertEquals(epoch(BASE.plusSeconds(60)), store.latestTimestamp("acct1"));
+    }
+
+    @Test
+    public void testIdleAccountsAreEvicted() {
+        InMemoryVelocityStore store = new InMemoryVelocityStore(8, 3, 120);
+        store.record(txn("T1", "idle", 10.0, "M", BASE));
+        store.record(txn("T2", "busy", 10.0, "M", BASE.plusSeconds(100)));
+        assertEquals(0, store.evictIdle());   // both within the retention of the newest entry
+
+        store.record(txn("T3", "busy", 10.0, "M", BASE.plusSeconds(200)));
+        assertEquals(1, store.evictIdle());
+        assertEquals(1, store.size());
+        assertEquals(VelocityStore.UNKNOWN, store.latestTimestamp("idle"));
+
+        // an evicted account starts a fresh ring when it is seen again
+        store.record(txn("T4", "idle", 10.0, "M", BASE.plusSeconds(210)));
+        assertEquals(1, store.countBetween("idle", epoch(BASE), Long.MAX_VALUE));
+        assertEquals(0, new InMemoryVelocityStore(8).evictIdle());
+    }
+
+    @Test
+    public void testCapacityBelowVelocityLimitIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new InMemoryVelocityStore(2, 3, 120));
+        assertTrue(e.getMessage().contains("velocity limit"), e.getMessage());
+    }
+}
@@ -0,0 +1,170 @@
+package com.fraud;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.service.DetectionService;
+import com.fraud.service.LiveIngestServer;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import com.fraud.util.DateUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class LiveIngestServerTest {
+
+    private static DetectionService service(TransactionDao txDao) {
+        return new DetectionService(txDao, mock(AlertDao.class),
+                Collections.singletonList(new HighAmountRule(50000, 30)), 30, 60,
+                20, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+    }
+
+    // one account per client, a burst every 5 seconds so velocity fires
+    private static List<Transaction> clientTxns(int client) {
+        List<Transaction> txns = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2025, 6, 18, 12, 0);
+        for (int i = 0; i < 40; i++) {
+            txns.add(new Transaction("C" + client + "-" + i, "ACC" + client, 1000 + (i % 7) * 10_000.5, "INR",
+                    base.plusSeconds(i * 5L), "M" + (i % 3), "India", "Card"));
+        }
+        return txns;
+    }
+
+    private static String csv(Transaction t) {
+        return t.getTransactionId() + "," + t.getAccountId() + "," + t.getAmount() + "," + t.getCurrency() + ","
+                + DateUtil.format(t.getTimestamp()) + "," + t.getMerchant() + "," + t.getLocation() + ","
+                + t.getChannel();
+    }
+
+    private static String json(Transaction t) {
+        return "{\"transactionId\":\"" + t.getTransactionId() + "\",\"accountId\":\"" + t.getAccountId()
+                + "\",\"amount\":" + t.getAmount() + ",\"currency\":\"" + t.getCurrency() + "\",\"timestamp\":\""
+                + t.getTimestamp() + "\",\"merchant\":\"" + t.getMerchant() + "\",\"location\":\""
+                + t.getLocation() + "\",\"channel\":\"" + t.getChannel() + "\"}";
+    }
+
+    // write everything, half-close, read replies until the server closes the connection
+    private static List<String> exchange(int port, List<String> lines) throws Exception {
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            s.setSoTimeout(10_000);
+            OutputStream out = s.getOutputStream();
+            out.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            s.shutdownOutput();
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            List<String> replies = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) replies.add(line);
+            return replies;
+        }
+    }
+
+    @Test
+    public void testScoresCsvAndJsonFromManyConnections() throws Exception {
+        int clients = 50;
+        Map<String, String> expected = new TreeMap<>();
+        DetectionService sequential = service(mock(TransactionDao.class));
+        for (int c = 0; c < clients; c++) {
+            for (Transaction t : clientTxns(c)) {
+                FraudAlert a = sequential.analyzeAndPersist(t).orElse(null);
+                expected.put(t.getTransactionId(), a == null ? "LOW" : a.getRiskLevel() + "," + a.getScore());
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try (LiveIngestServer server = new LiveIngestServer(service(mock(TransactionDao.class)), 0, 4, 0, 0)) {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                boolean asJson = c % 2 == 1;
+                List<String> lines = new ArrayList<>();
+                for (Transaction t : clientTxns(c)) lines.add(asJson ? json(t) : csv(t));
+                results.add(pool.submit(() -> exchange(server.getPort(), lines)));
+            }
+
+            Map<String, String> actual = new TreeMap<>();
+            for (int c = 0; c < clients; c++) {
+                List<String> replies = results.get(c).get(30, TimeUnit.SECONDS);
+                assertEquals(40, replies.size());
+                for (String r : replies) {
+                    if (c % 2 == 1) {
+                        assertTrue(r.startsWith("{\"transactionId\":\"C" + c + "-"), r);
+                        String id = r.replaceAll(".*\"transactionId\":\"([^\"]+)\".*", "$1");
+                        String risk = r.replaceAll(".*\"risk\":\"([A-Z]+)\".*", "$1");
+                        actual.put(id, r.contains("\"score\"")
+                                ? risk + "," + r.replaceAll(".*\"score\":(\\d+).*", "$1") : risk);
+                    } else {
+                        int comma = r.indexOf(',');
+                        actual.put(r.substring(0, comma), r.substring(comma + 1));
+                    }
+                }
+            }
+            assertEquals(expected, actual);
+            assertEquals(clients * 40L, server.getProcessed());
+            assertEquals(0, server.getErrors());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBadLinesAndFailedDetectionGetErrorReplies() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        doThrow(new RuntimeException("db down")).when(txDao).save(argThat(t -> "T2".equals(t.getTransactionId())));
+        char[] huge = new char[LiveIngestServer.MAX_LINE + 10];
+        Arrays.fill(huge, 'x');
+
+        try (LiveIngestServer server = new LiveIngestServer(service(txDao), 0, 2, 0, 0)) {
+            List<String> replies = exchange(server.getPort(), Arrays.asList(
+                    "T1,A1,abc,INR,2025-06-18 02:58:00,M,India,Card",
+                    "",
+                    "{\"transactionId\":\"T9\",\"accountId\":\"A1\"}",
+                    new String(huge),
+                    "T2,A1,10,INR,,M,India,Card",
+                    "{\"transactionId\":\"T3\",\"accountId\":\"A2\",\"amount\":\"60000\"}",
+                    "\"T4\",A3,\"70000\",INR,2025-06-18 02:58:00,\"M, Inc\",India,Card",
+                    "T5,A3,1"));
+
+            // replies are queued as each line is decoded or scored; order them for comparison
+            Collections.sort(replies);
+            assertEquals(7, replies.size());
+            assertTrue(replies.get(0).startsWith(",ERROR,Line 1: "), replies.get(0));
+            assertEquals(",ERROR,Line 4: Line longer than " + LiveIngestServer.MAX_LINE + " bytes", replies.get(1));
+            assertEquals(",ERROR,Line 8: Expected 8 values; got 3", replies.get(2));
+            assertEquals("T2,ERROR,db down", replies.get(3));
+            assertEquals("T4,MEDIUM,30", replies.get(4));
+            assertEquals("{\"transactionId\":\"T3\",\"risk\":\"MEDIUM\",\"score\":30,\"reason\":\"HighAmountRule:HighAmount:60000.0\"}",
+                    replies.get(5));
+            assertEquals("{\"transactionId\":null,\"error\":\"Line 3: Missing amount\"}", replies.get(6));
+            assertEquals(5, server.getErrors());
+            assertEquals(3, server.getProcessed());
+        }
+        verify(txDao, times(3)).save(any(Transaction.class));
+    }
+}
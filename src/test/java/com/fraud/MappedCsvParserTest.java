@@ -0,0 +1,119 @@
+package com.fraud;
+
+import com.fraud.model.Transaction;
+import com.fraud.util.CsvReader;
+import com.fraud.util.MappedCsvParser;
+import com.fraud.util.TransactionCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCsvParserTest {
+
+    @TempDir
+    Path dir;
+
+    // mix of clean rows and the cases the byte parser has to hand off or reject
+    private Path input(int rows) throws Exception {
+        Random rnd = new Random(7);
+        String[] amounts = {"100", "0.1", "49999.99", "-3.5", "1e3", "12345678901234567.5", " 7 ", "abc", ""};
+        String[] times = {"2025-06-18 10:00:00", "2025-02-30 01:02:03", "2025-06-18T02:58", "2025-13-01 00:00:00", "x"};
+        StringBuilder sb = new StringBuilder("transactionId,accountId,amount,currency,timestamp,merchant,location,channel\n");
+        for (int i = 0; i < rows; i++) {
+            switch (rnd.nextInt(12)) {
+                case 0: sb.append('\n'); break;
+                case 1: sb.append(",A1,1,INR,2025-06-18 10:00:00,M,India,Card\n"); break;
+                case 2: sb.append("T").append(i).append(",A1,5\n"); break;
+                case 3: sb.append("T").append(i).append(",\"A,").append(i % 5)
+                        .append("\",20,INR,2025-06-18 10:00:00,\"Big \"\"Shop\"\"\",India,Online\n"); break;
+                default:
+                    sb.append(" T").append(i).append(" ,A").append(rnd.nextInt(50)).append(',')
+                            .append(amounts[rnd.nextInt(amounts.length)]).append(",INR,")
+                            .append(times[rnd.nextInt(times.length)]).append(",Mé").append(rnd.nextInt(4))
+                            .append(",Pune,Card").append(rnd.nextBoolean() ? "\r\n" : "\n");
+            }
+        }
+        Path file = dir.resolve("in.csv");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> drain(TransactionCursor cursor) throws Exception {
+        try (TransactionCursor c = cursor) {
+            return c.stream().map(MappedCsvParserTest::describe).collect(Collectors.toList());
+        }
+    }
+
+    private static String describe(Transaction t) {
+        return t.getTransactionId() + "|" + t.getAccountId() + "|" + t.getAmount() + "|" + t.getCurrency() + "|"
+                + t.getTimestamp() + "|" + t.getMerchant() + "|" + t.getLocation() + "|" + t.getChannel()
+                + "|" + t.getMerchantId();
+    }
+
+    @Test
+    public void testSameRecordsAsCsvReader() throws Exception {
+        Path file = input(3000);
+        List<String> expected = drain(CsvReader.open(file, CsvReader.OnError.SKIP, null));
+        assertTrue(expected.size() > 1000);
+
+        for (int chunk : new int[]{1, 100, 4096, MappedCsvParser.DEFAULT_CHUNK_SIZE}) {
+            MappedCsvParser.Cursor cursor = MappedCsvParser.open(file, 3, chunk, CsvReader.OnError.SKIP, null);
+            assertEquals(expected, drain(cursor), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    public void testQuarantineAndCountsMatchCsvReader() throws Exception {
+        Path file = input(500);
+        Path a = dir.resolve("a.csv"), b = dir.resolve("b.csv");
+        TransactionCursor reader = CsvReader.open(file, CsvReader.OnError.QUARANTINE, a);
+        TransactionCursor mapped = MappedCsvParser.open(file, 2, 256, CsvReader.OnError.QUARANTINE, b);
+        assertEquals(drain(reader), drain(mapped));
+        assertEquals(reader.getRowsRead(), mapped.getRowsRead());
+        assertEquals(reader.getRowsRejected(), mapped.getRowsRejected());
+        assertTrue(mapped.getRowsRejected() > 0);
+        assertEquals(withoutErrors(a), withoutErrors(b));
+    }
+
+    // same rows and line numbers; error texts may differ in wording
+    private static List<String> withoutErrors(Path quarantine) throws Exception {
+        return Files.readAllLines(quarantine, StandardCharsets.UTF_8).stream()
+                .map(l -> l.substring(0, l.lastIndexOf(",")))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFailStopsAtSameLine() throws Exception {
+        Path file = input(500);
+        List<String> readerRows = new ArrayList<>();
+        List<String> mappedRows = new ArrayList<>();
+        CsvReader.RowException expected = assertThrows(CsvReader.RowException.class, () -> {
+            try (TransactionCursor c = CsvReader.open(file, CsvReader.OnError.FAIL, null)) {
+                c.forEachRemaining(t -> readerRows.add(describe(t)));
+            }
+        });
+        CsvReader.RowException actual = assertThrows(CsvReader.RowException.class, () -> {
+            try (TransactionCursor c = MappedCsvParser.open(file, 4, 64, CsvReader.OnError.FAIL, null)) {
+                c.forEachRemaining(t -> mappedRows.add(describe(t)));
+            }
+        });
+        assertEquals(expected.getLine(), actual.getLine());
+        assertEquals(readerRows, mappedRows);
+    }
+
+    @Test
+    public void testMissingColumnIsRejectedAtOpen() throws Exception {
+        Path file = dir.resolve("bad.csv");
+        Files.write(file, "transactionId,amount\nT1,5\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> MappedCsvParser.open(file, 1, CsvReader.OnError.SKIP, null));
+    }
+}
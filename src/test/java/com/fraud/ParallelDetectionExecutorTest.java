@@ -0,0 +1,162 @@
+package com.fraud;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.service.DetectionService;
+import com.fraud.service.ParallelDetectionExecutor;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ParallelDetectionExecutorTest {
+
+    // 40 accounts, bursts of 5 transactions a few seconds apart, so velocity fires per account
+    private static List<Transaction> workload() {
+        List<Transaction> txns = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2025, 6, 18, 12, 0);
+        for (int i = 0; i < 2000; i++) {
+            String account = "ACC" + (i % 40);
+            txns.add(new Transaction("T" + i, account, 1000 + (i % 7) * 10_000, "INR",
+                    base.plusSeconds(i / 40 * 5L), "M" + (i % 3), "India", "Card"));
+        }
+        return txns;
+    }
+
+    private static DetectionService service(TransactionDao txDao, AlertDao alertDao) {
+        return new DetectionService(txDao, alertDao,
+                Collections.singletonList(new HighAmountRule(50000, 30)), 30, 60,
+                20, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+    }
+
+    @Test
+    public void testSameAlertsAsSequentialAndPerAccountOrder() throws Exception {
+        List<Transaction> txns = workload();
+
+        Set<String> expected = new TreeSet<>();
+        DetectionService sequential = service(mock(TransactionDao.class), mock(AlertDao.class));
+        for (Transaction t : txns) {
+            sequential.analyzeAndPersist(t).ifPresent(a -> expected.add(a.getTransactionId() + "/" + a.getScore()));
+        }
+        assertFalse(expected.isEmpty());
+
+        // record the order in which each account's transactions reach persistence
+        Map<String, List<String>> saved = new ConcurrentHashMap<>();
+        TransactionDao txDao = mock(TransactionDao.class);
+        doAnswer(inv -> {
+            Transaction t = inv.getArgument(0);
+            saved.computeIfAbsent(t.getAccountId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(t.getTransactionId());
+            return null;
+        }).when(txDao).save(any(Transaction.class));
+        doAnswer(inv -> {   // batch mode saves each batch in one call
+            for (Transaction t : inv.<Collection<Transaction>>getArgument(0)) {
+                saved.computeIfAbsent(t.getAccountId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(t.getTransactionId());
+            }
+            return Collections.emptyList();
+        }).when(txDao).saveAll(any());
+
+        for (int batchSize : new int[]{0, 16}) {
+            saved.clear();
+            Set<String> actual = Collections.synchronizedSet(new TreeSet<>());
+            ParallelDetectionExecutor executor = new ParallelDetectionExecutor(service(txDao, mock(AlertDao.class)),
+                    4, 8, batchSize, a -> actual.add(a.getTransactionId() + "/" + a.getScore()));
+            for (Transaction t : txns) executor.submit(t);
+            executor.close();
+
+            assertEquals(txns.size(), executor.getProcessed());
+            assertEquals(0, executor.getFailures());
+            assertEquals(expected.size(), executor.getAlerts());
+            assertEquals(expected, actual);
+            assertEquals(txns.size(), saved.values().stream().mapToInt(List::size).sum());
+            for (Map.Entry<String, List<String>> e : saved.entrySet()) {
+                List<String> inOrder = new ArrayList<>();
+                for (Transaction t : txns) {
+                    if (t.getAccountId().equals(e.getKey())) inOrder.add(t.getTransactionId());
+                }
+                assertEquals(inOrder, e.getValue(), e.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void testResultListenerSeesEveryTransaction() throws Exception {
+        List<Transaction> txns = workload();
+        Set<String> expected = new TreeSet<>();
+        DetectionService sequential = service(mock(TransactionDao.class), mock(AlertDao.class));
+        for (Transaction t : txns) {
+            sequential.analyzeAndPersist(t).ifPresent(a -> expected.add(t.getTransactionId() + "/" + a.getTransactionId()));
+        }
+
+        for (int batchSize : new int[]{0, 16}) {
+            Map<String, String> results = new ConcurrentHashMap<>();
+            ParallelDetectionExecutor executor = new ParallelDetectionExecutor(
+                    service(mock(TransactionDao.class), mock(AlertDao.class)), 4, 8, batchSize,
+                    (t, alert, error) -> results.put(t.getTransactionId(),
+                            error != null ? "error" : alert == null ? "-" : alert.getTransactionId()));
+            for (Transaction t : txns) executor.submit(t);
+            executor.close();
+
+            assertEquals(txns.size(), results.size());
+            Set<String> alerted = new TreeSet<>();
+            results.forEach((id, alertId) -> {
+                if (!alertId.equals("-")) alerted.add(id + "/" + alertId);
+            });
+            assertEquals(expected, alerted, "batchSize=" + batchSize);
+        }
+    }
+
+    @Test
+    public void testFailuresAreCountedAndWorkersContinue() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        doThrow(new RuntimeException("boom")).when(txDao).save(argThat(t -> t.getTransactionId().equals("T5")));
+        ParallelDetectionExecutor executor = new ParallelDetectionExecutor(service(txDao, mock(AlertDao.class)), 2);
+        List<Transaction> txns = workload().subList(0, 100);
+        for (Transaction t : txns) executor.submit(t);
+        executor.close();
+        executor.close();   // idempotent
+
+        assertEquals(100, executor.getProcessed());
+        assertEquals(1, executor.getFailures());
+        assertThrows(IllegalStateException.class, () -> executor.submit(txns.get(0)));
+        verify(txDao, times(100)).save(any(Transaction.class));
+    }
+
+    @Test
+    public void testInterruptedCloseStillFinishesTheWork() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        ParallelDetectionExecutor executor = new ParallelDetectionExecutor(service(txDao, mock(AlertDao.class)), 2);
+        for (Transaction t : workload().subList(0, 100)) executor.submit(t);
+
+        Thread.currentThread().interrupt();
+        executor.close();
+        assertTrue(Thread.interrupted(), "interrupt flag restored");
+        assertEquals(100, executor.getProcessed());
+        verify(txDao, times(100)).save(any(Transaction.class));
+    }
+
+    @Test
+    public void testRejectsInvalidSettings() {
+        DetectionService svc = service(mock(TransactionDao.class), mock(AlertDao.class));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelDetectionExecutor(svc, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelDetectionExecutor(svc, 2, 0, 0, (FraudAlert a) -> { }));
+    }
+}
@@ -0,0 +1,36 @@
+package com.fraud;
+
+import com.fraud.util.RecentIdFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecentIdFilterTest {
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(1024, new RecentIdFilter(1000).capacity());
+        assertEquals(1, new RecentIdFilter(1).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RecentIdFilter(0));
+    }
+
+    @Test
+    public void testRemembersAddedIdsAndNeverInventsOthers() {
+        RecentIdFilter filter = new RecentIdFilter(4);
+        assertFalse(filter.contains("T1"));
+        filter.add("T1");
+        assertTrue(filter.contains("T1"));
+        assertTrue(filter.contains(new String("T1")));
+        assertFalse(filter.contains(null));
+
+        // more ids than slots: older ones may be forgotten, but only added ids are ever reported
+        for (int i = 0; i < 100; i++) filter.add("X" + i);
+        int remembered = 0;
+        for (int i = 0; i < 100; i++) {
+            if (filter.contains("X" + i)) remembered++;
+            assertFalse(filter.contains("Y" + i));
+        }
+        assertTrue(remembered > 0 && remembered <= 4, "remembered " + remembered);
+        assertTrue(filter.contains("X99"));
+    }
+}
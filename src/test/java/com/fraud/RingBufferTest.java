@@ -0,0 +1,86 @@
+package com.fraud;
+
+import com.fraud.util.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+
+    private static final class Slot {
+        long value;
+    }
+
+    @Test
+    public void testHandsOverInOrderAcrossWrapsWithEveryStrategy() throws Exception {
+        for (RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values()) {
+            RingBuffer<Slot> ring = new RingBuffer<>(8, Slot::new, strategy);
+            int n = 2000;
+            List<Long> received = new ArrayList<>(n);
+            Thread consumer = new Thread(() -> {
+                long next = 0;
+                while (next < n) {
+                    long available = ring.waitFor(next);
+                    for (; next <= available; next++) received.add(ring.get(next).value);
+                    ring.release(available);
+                }
+            });
+            consumer.start();
+            for (long i = 0; i < n; i++) {
+                long seq = ring.next();
+                ring.get(seq).value = i * 3;
+                ring.publish(seq);
+            }
+            consumer.join(10_000);
+            assertFalse(consumer.isAlive(), strategy + " consumer stuck");
+            assertEquals(n, received.size(), strategy.name());
+            for (int i = 0; i < n; i++) assertEquals(i * 3L, received.get(i).longValue(), strategy.name());
+            assertEquals(0, ring.size());
+            assertTrue(ring.getAverageOccupancy() >= 1 && ring.getAverageOccupancy() <= 8);
+        }
+    }
+
+    @Test
+    public void testSlotsAreReusedAndCapacityIsBounded() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new, RingBuffer.WaitStrategy.BUSY_SPIN);
+        for (int i = 0; i < 4; i++) ring.publish(ring.next());
+        assertEquals(4, ring.size());
+        assertSame(ring.get(0), ring.get(4));
+        assertEquals(3, ring.waitFor(0));
+        ring.release(1);
+        assertEquals(4, ring.next());
+        assertEquals(5, ring.next());
+    }
+
+    @Test
+    public void testHaltWakesWaitingConsumer() throws Exception {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new, RingBuffer.WaitStrategy.BLOCKING);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                ring.waitFor(0);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        ring.halt();
+        consumer.join(5_000);
+        assertFalse(consumer.isAlive());
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testConfigValues() {
+        assertEquals(RingBuffer.WaitStrategy.BUSY_SPIN, RingBuffer.WaitStrategy.of(" busy-spin "));
+        assertEquals(RingBuffer.WaitStrategy.SLEEPING, RingBuffer.WaitStrategy.of(null));
+        assertThrows(IllegalArgumentException.class, () -> RingBuffer.WaitStrategy.of("nap"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RingBuffer<>(6, Slot::new, RingBuffer.WaitStrategy.SLEEPING));
+    }
+}
@@ -0,0 +1,59 @@
+package com.fraud;
+
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.RulePipeline;
+import com.fraud.engine.ScoreCard;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.HighAmountRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RulePipelineTest {
+
+    @Test
+    public void testReordersTowardsRulesThatDecideTheOutcome() {
+        // Equal weights, so the static order keeps ChannelRisk first. With MEDIUM at 40 a miss of
+        // either rule settles LOW, so the rule that usually misses should move to the front.
+        FraudEngine engine = new FraudEngine(Arrays.asList(
+                new ChannelRiskRule(30), new HighAmountRule(50000, 30)), 40, 60, true, true);
+        RulePipeline pipeline = new RulePipeline(engine, 1);
+
+        // all online, small amounts: ChannelRisk always hits (not decisive for LOW), HighAmount always misses
+        Transaction t = new Transaction("T1", "acct1", 100, "INR",
+                LocalDateTime.of(2025, 6, 18, 12, 0), "M", "India", "Online");
+        ScoreCard card = new ScoreCard();
+        for (int i = 0; i < 5000; i++) pipeline.score(t, card, 0);
+
+        assertTrue(pipeline.reoptimize());
+        assertEquals(2, pipeline.getVersion());
+        assertEquals(Arrays.asList("HighAmountRule", "ChannelRiskRule"), pipeline.current().getEvaluationOrder());
+
+        // a second pass with the same statistics keeps the order
+        assertFalse(pipeline.reoptimize());
+    }
+
+    @Test
+    public void testCountsRulesEvaluatedPerTransaction() {
+        FraudEngine engine = new FraudEngine(Arrays.asList(
+                new ChannelRiskRule(30), new HighAmountRule(50000, 30)), 40, 60, true, true);
+        RulePipeline pipeline = new RulePipeline(engine);
+        Transaction t = new Transaction("T1", "acct1", 100, "INR",
+                LocalDateTime.of(2025, 6, 18, 12, 0), "M", "India", "Online");
+        ScoreCard card = new ScoreCard();
+
+        // ChannelRisk first: hits (30), HighAmount must still run -> 2 rules
+        for (int i = 0; i < 10; i++) pipeline.score(t, card, 0);
+        assertEquals(2.0, pipeline.getAvgRulesEvaluated(), 1e-9);
+
+        pipeline.publish(engine.reorder(new double[]{0, 1}));
+        // HighAmount first: misses, 30 points left can't reach 40 -> 1 rule
+        for (int i = 0; i < 10; i++) pipeline.score(t, card, 0);
+        assertEquals(2.0, pipeline.getPreviousAvgRulesEvaluated(), 1e-9);
+        assertEquals(1.0, pipeline.getAvgRulesEvaluated(), 1e-9);
+    }
+}
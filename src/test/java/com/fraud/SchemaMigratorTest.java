@@ -0,0 +1,135 @@
+package com.fraud;
+
+import com.fraud.dao.DaoException;
+import com.fraud.dao.SchemaMigrator;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SchemaMigratorTest {
+
+    @Test
+    public void testSplitStatementsSkipsCommentsAndQuotedSemicolons() {
+        List<String> statements = SchemaMigrator.splitStatements(
+                "-- header; not a statement\n" +
+                "CREATE TABLE a (x INT);\n" +
+                "\n" +
+                "INSERT INTO a VALUES ('1;2'),\n" +
+                "  ('3');\n" +
+                "ALTER TABLE a ADD y INT");
+        assertEquals(Arrays.asList("CREATE TABLE a (x INT)", "INSERT INTO a VALUES ('1;2'),\n  ('3')",
+                "ALTER TABLE a ADD y INT"), statements);
+    }
+
+    @Test
+    public void testMigrateAppliesOnlyPendingScriptsInOrder() throws Exception {
+        Jdbc db = new Jdbc();
+        List<String> executed = new ArrayList<>();
+        when(db.statement.execute(anyString())).thenAnswer(inv -> executed.add(inv.getArgument(0)));
+
+        assertEquals(4, new SchemaMigrator(db.ds).migrate());
+
+        assertTrue(executed.get(0).startsWith("CREATE TABLE IF NOT EXISTS schema_version"));
+        int index = indexOf(executed, "CREATE INDEX idx_txn_account_time");
+        int ruleMask = indexOf(executed, "ALTER TABLE fraud_alerts ADD COLUMN rule_mask");
+        assertTrue(0 < index && index < ruleMask, executed.toString());
+        int configVersion = indexOf(executed, "PREPARE add_config_version");
+        assertTrue(ruleMask < configVersion, executed.toString());
+        assertTrue(executed.get(configVersion - 1).contains("'ALTER TABLE fraud_alerts ADD COLUMN config_version VARCHAR(16)'"));
+        verify(db.record, times(4)).executeUpdate();
+        verify(db.record).setInt(1, 1);
+        verify(db.record).setInt(1, 4);
+        verify(db.record).setString(2, "alert rule codes");
+        verify(db.record).setString(2, "alert config version");
+        verify(db.connection).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+
+    @Test
+    public void testTransactionIdStaysThePrimaryKey() throws Exception {
+        Jdbc db = new Jdbc();
+        List<String> executed = new ArrayList<>();
+        when(db.statement.execute(anyString())).thenAnswer(inv -> executed.add(inv.getArgument(0)));
+        new SchemaMigrator(db.ds).migrate();
+
+        // partitioning would need txn_timestamp in the key, letting a transaction id repeat
+        assertTrue(executed.stream().anyMatch(sql -> sql.matches("(?s).*transaction_id\\s+VARCHAR\\(50\\) PRIMARY KEY.*")),
+                executed.toString());
+        for (String sql : executed) {
+            assertFalse(sql.startsWith("ALTER TABLE transactions") && sql.contains("PRIMARY KEY"), sql);
+            assertFalse(sql.contains("PARTITION"), sql);
+        }
+    }
+
+    @Test
+    public void testMigrateStopsAtTargetAndRejectsEditedScripts() throws Exception {
+        Jdbc db = new Jdbc();
+        assertEquals(1, new SchemaMigrator(db.ds).migrate(1));
+        verify(db.record, times(1)).executeUpdate();
+
+        // version 1 recorded with a checksum that does not match the script any more
+        when(db.applied.next()).thenReturn(true, false);
+        when(db.applied.getInt(1)).thenReturn(1);
+        when(db.applied.getLong(2)).thenReturn(42L);
+        DaoException e = assertThrows(DaoException.class, () -> new SchemaMigrator(db.ds).migrate());
+        assertTrue(e.getMessage().contains("V1__baseline.sql was changed"), e.getMessage());
+    }
+
+    @Test
+    public void testFailedScriptIsNotRecorded() throws Exception {
+        Jdbc db = new Jdbc();
+        when(db.statement.execute(startsWith("CREATE INDEX"))).thenThrow(new SQLException("Duplicate key name", "42000", 1061));
+
+        DaoException e = assertThrows(DaoException.class, () -> new SchemaMigrator(db.ds).migrate());
+        assertTrue(e.getMessage().contains("V2__account_time_indexes.sql failed"), e.getMessage());
+        verify(db.record, times(1)).executeUpdate();   // only V1
+        verify(db.connection).prepareStatement("SELECT RELEASE_LOCK(?)");
+    }
+
+    private static int indexOf(List<String> statements, String prefix) {
+        for (int i = 0; i < statements.size(); i++) {
+            if (statements.get(i).startsWith(prefix)) return i;
+        }
+        return -1;
+    }
+
+    /** A connection that grants the migration lock and has no applied versions. */
+    private static final class Jdbc {
+        final DataSource ds = mock(DataSource.class);
+        final Connection connection = mock(Connection.class);
+        final Statement statement = mock(Statement.class);
+        final PreparedStatement record = mock(PreparedStatement.class);
+        final ResultSet applied = mock(ResultSet.class);
+
+        Jdbc() throws SQLException {
+            when(ds.getConnection()).thenReturn(connection);
+            when(connection.createStatement()).thenReturn(statement);
+
+            PreparedStatement lock = mock(PreparedStatement.class);
+            ResultSet granted = mock(ResultSet.class);
+            when(granted.next()).thenReturn(true);
+            when(granted.getInt(1)).thenReturn(1);
+            when(lock.executeQuery()).thenReturn(granted);
+            when(connection.prepareStatement("SELECT GET_LOCK(?, ?)")).thenReturn(lock);
+            PreparedStatement unlock = mock(PreparedStatement.class);
+            when(unlock.executeQuery()).thenReturn(mock(ResultSet.class));
+            when(connection.prepareStatement("SELECT RELEASE_LOCK(?)")).thenReturn(unlock);
+
+            PreparedStatement select = mock(PreparedStatement.class);
+            when(select.executeQuery()).thenReturn(applied);
+            when(connection.prepareStatement(startsWith("SELECT version"))).thenReturn(select);
+            when(connection.prepareStatement(startsWith("INSERT INTO schema_version"))).thenReturn(record);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.fraud;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.GeoLocationRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.service.DetectionService;
+import com.fraud.service.ScoringHttpServer;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ScoringHttpServerTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private static DetectionService service(TransactionDao txDao) {
+        return new DetectionService(txDao, mock(AlertDao.class),
+                Arrays.asList(new HighAmountRule(50000, 30),
+                        new GeoLocationRule(Collections.singleton("Russia"), 40)), 30, 60,
+                20, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+    }
+
+    private HttpResponse<String> post(ScoringHttpServer server, String body) throws Exception {
+        return client.send(request(server).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder request(ScoringHttpServer server) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + ScoringHttpServer.PATH));
+    }
+
+    @Test
+    public void testScoresJsonTransactions() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        try (ScoringHttpServer server = new ScoringHttpServer(service(txDao), 0, 2, 8, 1000, 0)) {
+            assertEquals(Runtime.version().feature() >= 21, server.isVirtualThreads());
+
+            HttpResponse<String> high = post(server, "{\"transactionId\":\"T1\",\"accountId\":\"A1\",\"amount\":75000,"
+                    + "\"currency\":\"INR\",\"timestamp\":\"2025-06-18 02:58:00\",\"merchant\":\"AMAZON\","
+                    + "\"location\":\"Russia\",\"channel\":\"Online\",\"extra\":{\"ignored\":[1,2]}}");
+            assertEquals(200, high.statusCode());
+            assertEquals("application/json", high.headers().firstValue("Content-Type").orElse(""));
+            JsonNode n = JSON.readTree(high.body());
+            assertEquals("T1", n.get("transactionId").asText());
+            assertEquals("HIGH", n.get("risk").asText());
+            assertEquals(70, n.get("score").asInt());
+            assertEquals(2, n.get("reasons").size());
+
+            JsonNode low = JSON.readTree(post(server,
+                    "{\"transactionId\":\"T2\",\"accountId\":\"A2\",\"amount\":\"12.5\",\"location\":\"India\"}").body());
+            assertEquals("LOW", low.get("risk").asText());
+            assertNull(low.get("score"));
+            assertEquals(2, server.getRequests());
+            assertEquals(0, server.getErrors());
+        }
+        verify(txDao, times(2)).save(any(Transaction.class));
+    }
+
+    @Test
+    public void testErrorResponses() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        doThrow(new RuntimeException("db down")).when(txDao).save(argThat(t -> "T9".equals(t.getTransactionId())));
+        try (ScoringHttpServer server = new ScoringHttpServer(service(txDao), 0, 1, 4, 1000, 0)) {
+            HttpResponse<String> malformed = post(server, "{\"transactionId\":\"T1\",");
+            assertEquals(400, malformed.statusCode());
+            assertTrue(JSON.readTree(malformed.body()).has("error"));
+
+            HttpResponse<String> missing = post(server, "{\"transactionId\":\"T1\",\"accountId\":\"A1\"}");
+            assertEquals(400, missing.statusCode());
+            assertEquals("Missing amount", JSON.readTree(missing.body()).get("error").asText());
+
+            HttpResponse<String> get = client.send(request(server).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+            assertEquals("POST", get.headers().firstValue("Allow").orElse(""));
+
+            HttpResponse<String> failed = post(server, "{\"transactionId\":\"T9\",\"accountId\":\"A1\",\"amount\":1}");
+            assertEquals(500, failed.statusCode());
+            assertEquals("T9", JSON.readTree(failed.body()).get("transactionId").asText());
+            assertEquals("db down", JSON.readTree(failed.body()).get("error").asText());
+            assertEquals(4, server.getErrors());
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        try (ScoringHttpServer server = new ScoringHttpServer(service(txDao), 0, 4, 32, 1000, 0)) {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String body = "{\"transactionId\":\"T" + i + "\",\"accountId\":\"A" + i + "\",\"amount\":"
+                        + (i % 3 == 0 ? 60000 : 100) + "}";
+                responses.add(client.sendAsync(request(server).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            int alerts = 0;
+            for (int i = 0; i < responses.size(); i++) {
+                HttpResponse<String> r = responses.get(i).get();
+                assertEquals(200, r.statusCode());
+                JsonNode n = JSON.readTree(r.body());
+                assertEquals("T" + i, n.get("transactionId").asText());
+                if (!n.get("risk").asText().equals("LOW")) alerts++;
+            }
+            assertEquals(67, alerts);
+            assertEquals(200, server.getRequests());
+        }
+        verify(txDao, times(200)).save(any(Transaction.class));
+    }
+
+    @Test
+    public void testSlowScoreIsAnsweredWith504() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> release.await(5, TimeUnit.SECONDS)).when(txDao).save(any(Transaction.class));
+        try (ScoringHttpServer server = new ScoringHttpServer(service(txDao), 0, 1, 4, 1000, 100, 0)) {
+            HttpResponse<String> slow = post(server, "{\"transactionId\":\"T1\",\"accountId\":\"A1\",\"amount\":1}");
+            assertEquals(504, slow.statusCode());
+            assertEquals("T1", JSON.readTree(slow.body()).get("transactionId").asText());
+            release.countDown();
+        }
+        verify(txDao).save(any(Transaction.class));   // still scored and saved
+    }
+
+    @Test
+    public void testCloseRacingRequestsAnswersEveryRequest() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        ScoringHttpServer server = new ScoringHttpServer(service(txDao), 0, 2, 16, 1000, 0);
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String body = "{\"transactionId\":\"T" + i + "\",\"accountId\":\"A" + i + "\",\"amount\":100}";
+            responses.add(client.sendAsync(request(server).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        server.close();
+
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<String>> r : responses) {
+            try {
+                int status = r.get(10, TimeUnit.SECONDS).statusCode();
+                assertTrue(status == 200 || status == 503, "status " + status);
+                if (status == 200) ok++;
+            } catch (ExecutionException refused) {
+                // the listener was already stopped
+            }
+        }
+        verify(txDao, atLeast(ok)).save(any(Transaction.class));   // every 200 was scored and saved
+    }
+}
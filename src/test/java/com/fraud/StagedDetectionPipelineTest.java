@@ -0,0 +1,122 @@
+package com.fraud;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.service.DetectionService;
+import com.fraud.service.StagedDetectionPipeline;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import com.fraud.util.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class StagedDetectionPipelineTest {
+
+    // 40 accounts, bursts of 5 transactions a few seconds apart, so velocity fires per account
+    private static List<Transaction> workload(int n) {
+        List<Transaction> txns = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2025, 6, 18, 12, 0);
+        for (int i = 0; i < n; i++) {
+            txns.add(new Transaction("T" + i, "ACC" + (i % 40), 1000 + (i % 7) * 10_000, "INR",
+                    base.plusSeconds(i / 40 * 5L), "M" + (i % 3), "India", "Card"));
+        }
+        return txns;
+    }
+
+    private static DetectionService service(TransactionDao txDao, AlertDao alertDao) {
+        return new DetectionService(txDao, alertDao,
+                Collections.singletonList(new HighAmountRule(50000, 30)), 30, 60,
+                20, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(0));
+    }
+
+    @Test
+    public void testSameResultsAsSequentialInInputOrder() throws Exception {
+        List<Transaction> txns = workload(2000);
+        List<String> expected = new ArrayList<>();
+        DetectionService sequential = service(mock(TransactionDao.class), mock(AlertDao.class));
+        for (Transaction t : txns) {
+            expected.add(t.getTransactionId() + sequential.analyzeAndPersist(t).map(a -> "/" + a.getScore()).orElse(""));
+        }
+
+        for (RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values()) {
+            List<String> saved = new ArrayList<>();
+            TransactionDao txDao = mock(TransactionDao.class);
+            doAnswer(inv -> saved.add(inv.<Transaction>getArgument(0).getTransactionId())).when(txDao).save(any());
+            AlertDao alertDao = mock(AlertDao.class);
+            List<String> results = new ArrayList<>();
+            StagedDetectionPipeline pipeline = new StagedDetectionPipeline(service(txDao, alertDao), 16, strategy,
+                    (t, alert, error) -> results.add(t.getTransactionId() + (alert == null ? "" : "/" + alert.getScore())));
+
+            pipeline.run(workload(2000).iterator());
+
+            assertEquals(expected, results, strategy.name());
+            assertEquals(2000, saved.size());
+            for (int i = 0; i < saved.size(); i++) assertEquals("T" + i, saved.get(i));
+            long alerts = expected.stream().filter(s -> s.contains("/")).count();
+            assertEquals(alerts, pipeline.getAlerts());
+            verify(alertDao, times((int) alerts)).saveAlert(any(FraudAlert.class));
+            assertEquals(2000, pipeline.getProcessed());
+            assertEquals(0, pipeline.getFailures());
+            assertTrue(pipeline.stats().startsWith("parse busy "), pipeline.stats());
+        }
+    }
+
+    @Test
+    public void testFailedTransactionIsReportedAndSkipped() throws Exception {
+        TransactionDao txDao = mock(TransactionDao.class);
+        doThrow(new RuntimeException("db down")).when(txDao).save(argThat(t -> "T5".equals(t.getTransactionId())));
+        List<RuntimeException> errors = new ArrayList<>();
+        StagedDetectionPipeline pipeline = new StagedDetectionPipeline(service(txDao, mock(AlertDao.class)), 4,
+                RingBuffer.WaitStrategy.SLEEPING, (t, alert, error) -> {
+                    if (error != null) errors.add(error);
+                    if ("T3".equals(t.getTransactionId())) throw new IllegalStateException("listener bug");
+                });
+
+        pipeline.run(workload(10).iterator());
+
+        assertEquals(10, pipeline.getProcessed());
+        assertEquals(1, pipeline.getFailures());
+        assertEquals(1, errors.size());
+        assertEquals("db down", errors.get(0).getMessage());
+        verify(txDao, times(10)).save(any());
+    }
+
+    @Test
+    public void testInputErrorStopsAfterDrainingEarlierTransactions() {
+        TransactionDao txDao = mock(TransactionDao.class);
+        StagedDetectionPipeline pipeline = new StagedDetectionPipeline(service(txDao, mock(AlertDao.class)), 8,
+                RingBuffer.WaitStrategy.BLOCKING, (t, alert, error) -> { });
+        Iterator<Transaction> good = workload(25).iterator();
+        Iterator<Transaction> input = new Iterator<Transaction>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!good.hasNext()) throw new IllegalArgumentException("Line 26: bad amount");
+                return good.next();
+            }
+        };
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> pipeline.run(input));
+        assertEquals("Line 26: bad amount", e.getMessage());
+        assertEquals(25, pipeline.getProcessed());
+        verify(txDao, times(25)).save(any());
+        assertThrows(IllegalStateException.class, () -> pipeline.run(workload(1).iterator()));
+    }
+}
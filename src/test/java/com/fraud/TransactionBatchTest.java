@@ -0,0 +1,76 @@
+package com.fraud;
+
+import com.fraud.engine.FraudEngine;
+import com.fraud.engine.ScoreCard;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.GeoLocationRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.rules.impl.NightTimeRule;
+import com.fraud.rules.impl.RiskyMerchantRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionBatchTest {
+
+    private static FraudEngine engine() {
+        return new FraudEngine(Arrays.asList(
+                new HighAmountRule(50000, 30),
+                new NightTimeRule(0, 5, 20),
+                new GeoLocationRule(new HashSet<>(Arrays.asList("Russia", "Nigeria", "Turkey", "USA")), 25),
+                new ChannelRiskRule(15),
+                new RiskyMerchantRule(new HashSet<>(Arrays.asList("JEWELER", "LUXURY")), 25)));
+    }
+
+    private static List<Transaction> sample() {
+        return Arrays.asList(
+                new Transaction("B1", "acct1", 45000, "INR", LocalDateTime.of(2025, 6, 18, 2, 58), "AMAZON", "Russia", "Online"),
+                new Transaction("B2", "acct1", 1200, "INR", LocalDateTime.of(2025, 6, 18, 10, 22), "D-MART", "Pune", "Card"),
+                new Transaction("B3", "acct2", 120000, "INR", LocalDateTime.of(2025, 6, 19, 1, 15), " jeweler ", "nigeria", "ONLINE"),
+                new Transaction("B4", "acct3", 50000, "INR", null, "LUXURY", null, null),
+                new Transaction("B5", "acct3", 10, "INR", LocalDateTime.of(2025, 6, 19, 5, 0), "COFFEE", " usa ", "Card"));
+    }
+
+    @Test
+    public void testBatchMatchesPerTransactionScoring() {
+        FraudEngine engine = engine();
+        List<Transaction> txns = sample();
+        TransactionBatch batch = TransactionBatch.of(txns);
+        int[] scores = new int[batch.size()];
+        long[] masks = new long[batch.size()];
+
+        engine.scoreBatch(batch, scores, masks);
+
+        ScoreCard card = new ScoreCard();
+        for (int i = 0; i < txns.size(); i++) {
+            engine.score(txns.get(i), card);
+            assertEquals(card.getScore(), scores[i], "score of " + txns.get(i).getTransactionId());
+            assertEquals(card.getMatchedMask(), masks[i], "mask of " + txns.get(i).getTransactionId());
+        }
+        assertEquals(30 + 20 + 25 + 15 + 25, scores[2]);
+    }
+
+    @Test
+    public void testAddStopsWhenFullAndClearReuses() {
+        TransactionBatch batch = new TransactionBatch(2);
+        List<Transaction> txns = sample();
+        assertTrue(batch.add(txns.get(0)));
+        assertTrue(batch.add(txns.get(1)));
+        assertTrue(batch.isFull());
+        assertFalse(batch.add(txns.get(2)));
+        assertEquals(2, batch.size());
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        assertTrue(batch.add(txns.get(3)));
+        assertEquals(TransactionBatch.NO_TIMESTAMP, batch.epochSeconds()[0]);
+        assertSame(txns.get(3), batch.get(0));
+    }
+}
@@ -0,0 +1,281 @@
+package com.fraud;
+
+import com.fraud.dao.DaoException;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.Transaction;
+import com.fraud.state.DaoVelocityStore;
+import com.fraud.state.WindowCheck;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class TransactionDaoTest {
+
+    private static Transaction txn(int i) {
+        return new Transaction("T" + i, "ACC1", 100 + i, "INR", LocalDateTime.of(2025, 6, 18, 12, 0).plusSeconds(i), "M1", "India", "Card");
+    }
+
+    private static List<Transaction> txns(int n) {
+        List<Transaction> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add(txn(i));
+        return out;
+    }
+
+    private static DataSource dataSource(Connection c) throws SQLException {
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenReturn(c);
+        return ds;
+    }
+
+    @Test
+    public void testSaveAllUsesOneConnectionAndBatches() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(anyString())).thenReturn(ps);
+        when(ps.executeBatch()).thenAnswer(inv -> new int[1000]);
+
+        List<Transaction> failed = new TransactionDao(dataSource(c)).saveAll(txns(1500));
+
+        assertTrue(failed.isEmpty());
+        verify(c, times(1)).prepareStatement(anyString());
+        verify(ps, times(1500)).addBatch();
+        verify(ps, times(2)).executeBatch();   // 1000 + 500
+        verify(ps, never()).executeUpdate();
+        verify(ps).close();
+        verify(c).close();
+    }
+
+    @Test
+    public void testFailedBatchRetriesRowsSkippingDuplicates() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(anyString())).thenReturn(ps);
+        // the driver ran row 0, then rows 1 and 2 failed
+        when(ps.executeBatch()).thenThrow(new BatchUpdateException("dup", "23000", 1062,
+                new int[]{1, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED}, null));
+        List<String> bound = new ArrayList<>();
+        doAnswer(inv -> bound.add(inv.getArgument(1))).when(ps).setString(eq(1), anyString());
+        when(ps.executeUpdate()).thenAnswer(inv -> {
+            String id = bound.get(bound.size() - 1);
+            if (id.equals("T1")) throw new SQLException("Duplicate entry", "23000", 1062);
+            if (id.equals("T2")) throw new SQLException("Data too long", "22001", 1406);
+            return 1;
+        });
+
+        List<Transaction> failed = new TransactionDao(dataSource(c)).saveAll(txns(3));
+
+        assertEquals(Arrays.asList("T2"), failed.stream().map(Transaction::getTransactionId).collect(Collectors.toList()));
+        verify(ps, times(2)).executeUpdate();   // T0 was already in
+    }
+
+    @Test
+    public void testNoConnectionFailsTheCall() throws Exception {
+        DataSource ds = mock(DataSource.class);
+        when(ds.getConnection()).thenThrow(new SQLException("pool exhausted", "08001"));
+        assertThrows(DaoException.class, () -> new TransactionDao(ds).saveAll(txns(2)));
+        assertTrue(new TransactionDao(ds).saveAll(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testInsertAllIfAbsentLooksUpThenInsertsTheRestInOneStatement() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement select = mock(PreparedStatement.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(c.prepareStatement(startsWith("SELECT"))).thenReturn(select);
+        when(c.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(insert);
+        when(select.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getString(1)).thenReturn("T1");   // already stored
+        when(insert.executeUpdate()).thenReturn(2);
+
+        List<Transaction> in = txns(3);
+        in.add(txn(2));   // repeated within the call
+        TransactionDao dao = new TransactionDao(dataSource(c), true, 64);
+        TransactionDao.SaveResult result = dao.insertAllIfAbsent(in);
+
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getSkipped());
+        assertEquals(Arrays.asList("T2", "T1"),
+                result.getDuplicates().stream().map(Transaction::getTransactionId).collect(Collectors.toList()));
+        assertSame(in.get(3), result.getDuplicates().get(0));
+        assertTrue(result.getFailed().isEmpty());
+        verify(c).prepareStatement(argThat((String sql) -> sql.endsWith("VALUES (?, ?, ?, ?, ?, ?, ?, ?), (?, ?, ?, ?, ?, ?, ?, ?)"
+                + " ON DUPLICATE KEY UPDATE transaction_id = transaction_id")));
+        verify(insert, times(1)).executeUpdate();
+        verify(insert, never()).executeBatch();
+
+        // every id is now remembered: a replay never reaches the database
+        TransactionDao.SaveResult replay = dao.insertAllIfAbsent(txns(3));
+        assertEquals(0, replay.getInserted());
+        assertEquals(3, replay.getSkipped());
+        verify(c, times(1)).close();
+        assertEquals(2, dao.getInsertedCount());
+        assertEquals(5, dao.getDuplicateCount());
+        assertEquals(3, dao.getFilteredCount());
+    }
+
+    @Test
+    public void testInsertAllIfAbsentRetriesRowsWhenTheStatementFails() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement select = mock(PreparedStatement.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(c.prepareStatement(startsWith("SELECT"))).thenReturn(select);
+        when(c.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(insert);
+        when(select.executeQuery()).thenReturn(rs);
+        List<String> bound = new ArrayList<>();
+        doAnswer(inv -> {
+            int index = inv.getArgument(0);
+            if (index % 8 == 1) bound.add(inv.getArgument(1));   // the transaction_id of each row
+            return null;
+        }).when(insert).setString(anyInt(), anyString());
+        when(insert.executeUpdate()).thenAnswer(inv -> {
+            if (bound.size() > 1) {   // the multi-row statement
+                bound.clear();
+                throw new SQLException("Data too long", "22001", 1406);
+            }
+            String id = bound.remove(0);
+            if (id.equals("T0")) return 0;   // inserted by another writer since the lookup
+            if (id.equals("T1")) throw new SQLException("Lock wait timeout", "HY000", 1205);
+            return 1;
+        });
+
+        TransactionDao.SaveResult result = new TransactionDao(dataSource(c), true, 0).insertAllIfAbsent(txns(3));
+
+        assertEquals(1, result.getInserted());
+        assertEquals(Arrays.asList("T0"), result.getDuplicates().stream().map(Transaction::getTransactionId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("T1"), result.getFailed().stream().map(Transaction::getTransactionId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testInsertIfAbsentReportsDuplicatesWithoutThrowing() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(startsWith("INSERT INTO transactions"))).thenReturn(ps);
+        when(ps.executeUpdate()).thenReturn(1, 0);
+
+        TransactionDao dao = new TransactionDao(dataSource(c), true, 0);
+        assertTrue(dao.isIdempotent());
+        assertTrue(dao.insertIfAbsent(txn(1)));
+        assertFalse(dao.insertIfAbsent(txn(2)));
+        assertFalse(new TransactionDao(dataSource(c)).isIdempotent());
+
+        TransactionDao remembering = new TransactionDao(dataSource(c), true, 16);
+        when(ps.executeUpdate()).thenReturn(1);
+        assertTrue(remembering.insertIfAbsent(txn(3)));
+        assertFalse(remembering.insertIfAbsent(txn(3)));
+        verify(ps, times(3)).executeUpdate();
+        assertEquals(1, remembering.getFilteredCount());
+        verify(c, atLeastOnce()).prepareStatement(endsWith(" ON DUPLICATE KEY UPDATE transaction_id = transaction_id"));
+
+        // not IGNORE: an over-long value fails the row instead of being stored truncated
+        when(ps.executeUpdate()).thenThrow(new SQLException("Data too long for column 'merchant'", "22001", 1406));
+        assertThrows(DaoException.class, () -> dao.insertIfAbsent(txn(4)));
+    }
+
+    @Test
+    public void testSameIdWithAnotherTimestampIsADuplicate() throws Exception {
+        // the table as migrated: transaction_id alone is the primary key
+        List<String> stored = new ArrayList<>();
+        Connection c = mock(Connection.class);
+        when(c.prepareStatement(startsWith("INSERT"))).thenAnswer(inv -> {
+            String sql = inv.getArgument(0);
+            PreparedStatement ps = mock(PreparedStatement.class);
+            String[] id = new String[1];
+            doAnswer(a -> id[0] = a.getArgument(1)).when(ps).setString(eq(1), anyString());
+            when(ps.executeUpdate()).thenAnswer(a -> {
+                if (!stored.contains(id[0])) return stored.add(id[0]) ? 1 : 0;
+                if (sql.contains("ON DUPLICATE KEY")) return 0;
+                throw new SQLException("Duplicate entry", "23000", 1062);
+            });
+            return ps;
+        });
+        Transaction first = txn(1);
+        Transaction later = new Transaction("T1", "ACC1", 101, "INR", first.getTimestamp().plusHours(1), "M1", "India", "Card");
+
+        TransactionDao dao = new TransactionDao(dataSource(c), true, 0);
+        dao.save(first);
+        dao.save(later);
+        assertFalse(dao.insertIfAbsent(later));
+        assertEquals(Arrays.asList("T1"), stored);
+    }
+
+    @Test
+    public void testForEachTransactionSinceWalksKeysetPages() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(anyString())).thenReturn(ps);
+        List<Transaction> rows = txns(5);
+        int[] served = {0};
+        // pages of 2 served from 'rows' newest first: T4 T3 | T2 T1 | T0
+        when(ps.executeQuery()).thenAnswer(inv -> {
+            ResultSet rs = mock(ResultSet.class);
+            int end = Math.min(rows.size(), served[0] + 2);
+            Transaction[] current = {null};
+            when(rs.next()).thenAnswer(x -> {
+                if (served[0] == end) return false;
+                current[0] = rows.get(rows.size() - 1 - served[0]++);
+                return true;
+            });
+            when(rs.getString("transaction_id")).thenAnswer(x -> current[0].getTransactionId());
+            when(rs.getTimestamp("txn_timestamp")).thenAnswer(x -> Timestamp.valueOf(current[0].getTimestamp()));
+            return rs;
+        });
+
+        List<String> seen = new ArrayList<>();
+        long n = new TransactionDao(dataSource(c)).forEachTransactionSince("ACC1", LocalDateTime.of(2025, 1, 1, 0, 0), 2,
+                t -> seen.add(t.getTransactionId()));
+
+        assertEquals(5, n);
+        assertEquals(Arrays.asList("T4", "T3", "T2", "T1", "T0"), seen);
+        verify(c).prepareStatement(argThat((String sql) -> sql.endsWith("ORDER BY txn_timestamp DESC, transaction_id DESC LIMIT ?")
+                && !sql.contains("transaction_id < ?")));
+        verify(c, times(2)).prepareStatement(contains("transaction_id < ?"));
+        verify(ps).setString(5, "T3");
+        verify(ps).setString(5, "T1");
+    }
+
+    @Test
+    public void testVelocityCheckIsOneQuery() throws Exception {
+        Connection c = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(c.prepareStatement(anyString())).thenReturn(ps);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(3);
+        when(rs.getInt(2)).thenReturn(1);
+        when(ps.executeQuery()).thenReturn(rs);
+        LocalDateTime since = LocalDateTime.of(2025, 6, 18, 12, 0);
+
+        WindowCheck check = new DaoVelocityStore(new TransactionDao(dataSource(c)))
+                .check("ACC1", since.toEpochSecond(ZoneOffset.UTC), Long.MAX_VALUE, 500.0, "Amazon");
+
+        assertEquals(3, check.getCount());
+        assertTrue(check.isDuplicate());
+        verify(c, times(1)).prepareStatement(argThat((String sql) -> sql.startsWith("SELECT COUNT(*), COALESCE(SUM(")
+                && !sql.contains("txn_timestamp <= ?")));   // open-ended: processing time
+        verify(ps, times(1)).executeQuery();
+        verify(ps).setDouble(1, 500.0);
+        verify(ps).setString(2, "Amazon");
+        verify(ps).setString(3, "ACC1");
+        verify(ps).setTimestamp(4, Timestamp.valueOf(since));
+    }
+}
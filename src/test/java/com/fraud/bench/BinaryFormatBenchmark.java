@@ -0,0 +1,97 @@
+package com.fraud.bench;
+
+import com.fraud.model.Transaction;
+import com.fraud.util.BinaryTransactionFile;
+import com.fraud.util.CsvReader;
+import com.fraud.util.MappedCsvParser;
+import com.fraud.util.TransactionCursor;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Time to stream a replay, and to load it into memory, from CSV (CsvReader, MappedCsvParser on
+ * one thread) and from the binary format.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.BinaryFormatBenchmark
+ * </pre>
+ */
+public class BinaryFormatBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path csv = Files.createTempFile("transactions", ".csv");
+        Path bin = Files.createTempFile("transactions", ".ftx");
+        try {
+            CsvParseBenchmark.write(csv, rows);
+            try (TransactionCursor in = CsvReader.open(csv, CsvReader.OnError.FAIL, null)) {
+                BinaryTransactionFile.convert(in, bin);
+            }
+            System.out.printf("%,d rows: CSV %.0f MB, binary %.0f MB%n", rows, Files.size(csv) / 1e6, Files.size(bin) / 1e6);
+
+            for (int i = 0; i < 3; i++) {     // warm-up
+                csvReader(csv);
+                run(csvCursor(csv), true);
+                run(MappedCsvParser.open(csv, 1, CsvReader.OnError.FAIL, null), true);
+                run(BinaryTransactionFile.open(bin), true);
+            }
+            System.out.printf("%-22s %10s %10s%n", "", "stream", "load");
+            long[] reader = {run(csvCursor(csv), false), csvReader(csv)};
+            long[] mapped = {run(MappedCsvParser.open(csv, 1, CsvReader.OnError.FAIL, null), false),
+                    run(MappedCsvParser.open(csv, 1, CsvReader.OnError.FAIL, null), true)};
+            long[] binary = {run(BinaryTransactionFile.open(bin), false), run(BinaryTransactionFile.open(bin), true)};
+            report("CsvReader", reader, reader);
+            report("MappedCsvParser x1", mapped, reader);
+            report("BinaryTransactionFile", binary, reader);
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(bin);
+        }
+    }
+
+    private static long csvReader(Path csv) throws Exception {
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(csv)) {
+            blackhole(CsvReader.read(in).size());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static TransactionCursor csvCursor(Path csv) throws Exception {
+        return CsvReader.open(csv, CsvReader.OnError.FAIL, null);
+    }
+
+    // stream: consume records one at a time (as detection does); load: keep them all in a list
+    private static long run(TransactionCursor cursor, boolean keep) throws Exception {
+        long start = System.nanoTime();
+        List<Transaction> all = new ArrayList<>();
+        long n = 0;
+        try (TransactionCursor c = cursor) {
+            while (c.hasNext()) {
+                Transaction t = c.next();
+                if (keep) all.add(t);
+                n += t.getMerchantId();
+            }
+        }
+        blackhole(n + all.size());
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long[] nanos, long[] base) {
+        System.out.printf("%-22s %7d ms %7d ms", name, nanos[0] / 1_000_000, nanos[1] / 1_000_000);
+        if (nanos != base) {
+            System.out.printf("   (%.1fx / %.1fx faster than CsvReader)",
+                    (double) base[0] / nanos[0], (double) base[1] / nanos[1]);
+        }
+        System.out.println();
+    }
+
+    private static volatile long sink;
+
+    private static void blackhole(long v) {
+        sink += v;
+    }
+}
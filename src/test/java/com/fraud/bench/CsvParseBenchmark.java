@@ -0,0 +1,92 @@
+package com.fraud.bench;
+
+import com.fraud.model.Transaction;
+import com.fraud.util.CsvReader;
+import com.fraud.util.DateUtil;
+import com.fraud.util.MappedCsvParser;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Parse throughput of CsvReader.read against MappedCsvParser on 1..N threads. The file is
+ * written first, so it is read from the page cache rather than the disk.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.CsvParseBenchmark
+ * </pre>
+ */
+public class CsvParseBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path file = Files.createTempFile("transactions", ".csv");
+        try {
+            write(file, rows);
+            double mb = Files.size(file) / 1e6;
+            System.out.printf("%,d rows, %.0f MB%n", rows, mb);
+
+            for (int i = 0; i < 3; i++) {     // warm-up
+                readerPass(file);
+                mappedPass(file, 1);
+            }
+            double base = report("CsvReader.read", mb, readerPass(file), 0);
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                report("MappedCsvParser x" + threads, mb, mappedPass(file, threads), base);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static void write(Path file, int rows) throws Exception {
+        List<Transaction> txns = RuleExpressionBenchmark.generate(Math.min(rows, 100_000));
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("transactionId,accountId,amount,currency,timestamp,merchant,location,channel\n");
+            for (int i = 0; i < rows; i++) {
+                Transaction t = txns.get(i % txns.size());
+                w.write("TXN" + i + "," + t.getAccountId() + "," + t.getAmount() + "," + t.getCurrency() + ","
+                        + DateUtil.format(t.getTimestamp()) + "," + t.getMerchant() + "," + t.getLocation() + ","
+                        + t.getChannel() + "\n");
+            }
+        }
+    }
+
+    private static long readerPass(Path file) throws Exception {
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(file)) {
+            blackhole(CsvReader.read(in).size());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long mappedPass(Path file, int threads) throws Exception {
+        long start = System.nanoTime();
+        try (MappedCsvParser.Cursor cursor = MappedCsvParser.open(file, threads, CsvReader.OnError.FAIL, null)) {
+            long n = 0;
+            while (cursor.hasNext()) {
+                cursor.next();
+                n++;
+            }
+            blackhole(n);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double report(String name, double mb, long nanos, double base) {
+        double perSec = mb / (nanos / 1e9);
+        System.out.printf("%-22s %8.0f MB/s%s%n", name, perSec,
+                base > 0 ? String.format("  (%.1fx)", perSec / base) : "");
+        return perSec;
+    }
+
+    private static volatile long sink;
+
+    private static void blackhole(long v) {
+        sink += v;
+    }
+}
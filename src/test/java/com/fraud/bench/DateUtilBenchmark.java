@@ -0,0 +1,97 @@
+package com.fraud.bench;
+
+import com.fraud.util.DateUtil;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+/**
+ * Timestamp parsing: DateTimeFormatter with exception-driven ISO fallback (the previous
+ * DateUtil.parse) against the positional parser, for both layouts.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.DateUtilBenchmark
+ * </pre>
+ */
+public class DateUtilBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] plain = generate(size, false);
+        String[] iso = generate(size, true);
+
+        for (int i = 0; i < 3; i++) {     // warm-up
+            formatter(plain);
+            formatter(iso);
+            positional(plain);
+            positional(iso);
+            epochSeconds(plain);
+        }
+        for (String[] input : new String[][]{plain, iso}) {
+            String name = input == plain ? "yyyy-MM-dd HH:mm:ss" : "ISO";
+            long legacy = 0, now = 0, epoch = 0;
+            for (int r = 0; r < rounds; r++) {
+                legacy += formatter(input);
+                now += positional(input);
+                epoch += epochSeconds(input);
+            }
+            double total = (double) size * rounds;
+            System.out.printf("%-20s formatter %6.0f ns  positional %5.1f ns (%.0fx)  epochSeconds %5.1f ns%n",
+                    name, legacy / total, now / total, (double) legacy / now, epoch / total);
+        }
+    }
+
+    private static String[] generate(int size, boolean iso) {
+        Random rnd = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        String[] out = new String[size];
+        for (int i = 0; i < size; i++) {
+            LocalDateTime t = base.plusSeconds(rnd.nextInt(365 * 86_400));
+            out[i] = iso ? t.withSecond(0).toString() : DateUtil.format(t);
+        }
+        return out;
+    }
+
+    private static LocalDateTime legacyParse(String s) {
+        try {
+            return LocalDateTime.parse(s.trim(), DateUtil.FORMATTER);
+        } catch (DateTimeParseException ex) {
+            try {
+                return LocalDateTime.parse(s.trim());
+            } catch (Exception ex2) {
+                throw new IllegalArgumentException("Unable to parse datetime: " + s, ex);
+            }
+        }
+    }
+
+    private static long formatter(String[] input) {
+        long start = System.nanoTime();
+        long h = 0;
+        for (String s : input) h += legacyParse(s).getMinute();
+        blackhole(h);
+        return System.nanoTime() - start;
+    }
+
+    private static long positional(String[] input) {
+        long start = System.nanoTime();
+        long h = 0;
+        for (String s : input) h += DateUtil.parse(s).getMinute();
+        blackhole(h);
+        return System.nanoTime() - start;
+    }
+
+    private static long epochSeconds(String[] input) {
+        long start = System.nanoTime();
+        long h = 0;
+        for (String s : input) h += DateUtil.parseEpochSeconds(s);
+        blackhole(h);
+        return System.nanoTime() - start;
+    }
+
+    private static volatile long sink;
+
+    private static void blackhole(long v) {
+        sink += v;
+    }
+}
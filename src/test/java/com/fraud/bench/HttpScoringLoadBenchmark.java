@@ -0,0 +1,95 @@
+package com.fraud.bench;
+
+import com.fraud.model.Transaction;
+import com.fraud.service.DetectionService;
+import com.fraud.service.ScoringHttpServer;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of the HTTP scoring endpoint: requests are sent at a fixed rate whether or
+ * not earlier ones have returned, and latency is measured from each request's scheduled send
+ * time, so a stall shows up in the percentiles instead of silently lowering the rate.
+ * DAOs are no-ops.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.HttpScoringLoadBenchmark -Dexec.args="2000 10 50"
+ * </pre>
+ * Arguments: requests per second, seconds, SLO in milliseconds.
+ */
+public class HttpScoringLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long sloMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        List<Transaction> txns = RuleExpressionBenchmark.generate(10_000);
+        DetectionService svc = new DetectionService(new ParallelDetectionBenchmark.NoopTransactionDao(),
+                new ParallelDetectionBenchmark.NoopAlertDao(), ParallelDetectionBenchmark.engine(),
+                120, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(30L * 24 * 3600));
+
+        try (ScoringHttpServer server = new ScoringHttpServer(svc, 0, workers, 200, sloMillis, 0)) {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + ScoringHttpServer.PATH);
+            System.out.printf("request threads: %s, detection workers: %d%n",
+                    server.isVirtualThreads() ? "virtual" : "platform pool", workers);
+
+            run(client, uri, txns, Math.max(1, rate / 2), Math.max(1, seconds / 2), sloMillis, "warm-up");
+            run(client, uri, txns, rate, seconds, sloMillis, "measured");
+        }
+    }
+
+    private static void run(HttpClient client, URI uri, List<Transaction> txns, int rate, int seconds,
+                            long sloMillis, String label) throws Exception {
+        int total = rate * seconds;
+        long interval = 1_000_000_000L / rate;
+        long[] latencies = new long[total];
+        AtomicInteger failures = new AtomicInteger();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            int slot = i;
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString(json(txns.get(i % txns.size()), label + i))).build();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((r, e) -> {
+                latencies[slot] = System.nanoTime() - scheduled;
+                if (e != null || r.statusCode() != 200) failures.incrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        long withinSlo = Arrays.stream(latencies).filter(l -> l <= sloMillis * 1_000_000L).count();
+        System.out.printf("%-8s %,d req at %,d/s (achieved %,.0f/s): p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, "
+                        + "p99.9 %.2f ms, max %.2f ms; within %d ms SLO: %.2f%%; failures: %d%n",
+                label, total, rate, total / elapsed, pct(latencies, 0.50), pct(latencies, 0.90), pct(latencies, 0.99),
+                pct(latencies, 0.999), latencies[total - 1] / 1e6, sloMillis, 100.0 * withinSlo / total, failures.get());
+    }
+
+    private static double pct(long[] sorted, double q) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)] / 1e6;
+    }
+
+    private static String json(Transaction t, String id) {
+        return "{\"transactionId\":\"" + id + "\",\"accountId\":\"" + t.getAccountId() + "\",\"amount\":" + t.getAmount()
+                + ",\"currency\":\"" + t.getCurrency() + "\",\"timestamp\":\"" + t.getTimestamp() + "\",\"merchant\":\""
+                + t.getMerchant() + "\",\"location\":\"" + t.getLocation() + "\",\"channel\":\"" + t.getChannel() + "\"}";
+    }
+}
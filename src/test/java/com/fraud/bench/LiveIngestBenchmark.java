@@ -0,0 +1,95 @@
+package com.fraud.bench;
+
+import com.fraud.model.Transaction;
+import com.fraud.service.DetectionService;
+import com.fraud.service.LiveIngestServer;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import com.fraud.util.DateUtil;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * End-to-end throughput of the live TCP mode: {@code connections} producers each stream
+ * {@code perConnection} CSV lines and read every reply. DAOs are no-ops, so this measures
+ * socket I/O, decoding and scoring.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.LiveIngestBenchmark
+ * </pre>
+ */
+public class LiveIngestBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int perConnection = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        List<Transaction> txns = RuleExpressionBenchmark.generate(10_000);
+        DetectionService svc = new DetectionService(new ParallelDetectionBenchmark.NoopTransactionDao(),
+                new ParallelDetectionBenchmark.NoopAlertDao(), ParallelDetectionBenchmark.engine(),
+                120, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(30L * 24 * 3600));
+
+        ExecutorService producers = Executors.newFixedThreadPool(Math.min(connections, 64));
+        try (LiveIngestServer server = new LiveIngestServer(svc, 0, workers, 0, 5)) {
+            for (int round = 0; round < 2; round++) {    // first round is warm-up
+                long start = System.nanoTime();
+                List<Future<Long>> done = new ArrayList<>();
+                for (int c = 0; c < connections; c++) {
+                    int id = c;
+                    done.add(producers.submit(() -> produce(server.getPort(), id, perConnection, txns)));
+                }
+                long replies = 0;
+                for (Future<Long> f : done) replies += f.get();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s%d connections x %,d lines: %,d replies in %.2f s = %,.0f txn/s%n",
+                        round == 0 ? "(warm-up) " : "", connections, perConnection, replies, seconds, replies / seconds);
+            }
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
+    // stream the lines, half-close, count reply lines until the server closes
+    private static long produce(int port, int id, int lines, List<Transaction> txns) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            Transaction t = txns.get((id * 7919 + i) % txns.size());
+            sb.append('L').append(id).append('-').append(i).append(',').append(t.getAccountId()).append(',')
+                    .append(t.getAmount()).append(',').append(t.getCurrency()).append(',')
+                    .append(DateUtil.format(t.getTimestamp())).append(',').append(t.getMerchant()).append(',')
+                    .append(t.getLocation()).append(',').append(t.getChannel()).append('\n');
+        }
+        byte[] payload = sb.toString().getBytes(StandardCharsets.UTF_8);
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            Thread writer = new Thread(() -> {
+                try {
+                    OutputStream out = s.getOutputStream();
+                    out.write(payload);
+                    out.flush();
+                    s.shutdownOutput();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            InputStream in = s.getInputStream();
+            byte[] buf = new byte[1 << 16];
+            long newlines = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) if (buf[i] == '\n') newlines++;
+            }
+            writer.join();
+            return newlines;
+        }
+    }
+}
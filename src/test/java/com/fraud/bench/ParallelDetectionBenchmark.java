@@ -0,0 +1,82 @@
+package com.fraud.bench;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.TransactionDao;
+import com.fraud.engine.FraudEngine;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.GeoLocationRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.rules.impl.NightTimeRule;
+import com.fraud.rules.impl.RiskyMerchantRule;
+import com.fraud.service.DetectionService;
+import com.fraud.service.ParallelDetectionExecutor;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Detection throughput for 1..N workers, with persistence stubbed out.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.ParallelDetectionBenchmark
+ * </pre>
+ */
+public class ParallelDetectionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Transaction> txns = RuleExpressionBenchmark.generate(size);
+
+        run(txns, 1);   // warm-up
+        double base = 0;
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            double perSec = run(txns, workers);
+            if (workers == 1) base = perSec;
+            System.out.printf("%2d workers: %,.0f txn/s (%.2fx)%n", workers, perSec, perSec / base);
+        }
+    }
+
+    private static double run(List<Transaction> txns, int workers) throws InterruptedException {
+        DetectionService svc = new DetectionService(new NoopTransactionDao(), new NoopAlertDao(), engine(),
+                120, 3, new InMemoryVelocityStore(), WindowPolicy.eventTime(30L * 24 * 3600));
+        ParallelDetectionExecutor executor = new ParallelDetectionExecutor(svc, workers);
+        long start = System.nanoTime();
+        for (Transaction t : txns) executor.submit(t);
+        executor.close();
+        return txns.size() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    static FraudEngine engine() {
+        return new FraudEngine(Arrays.asList(
+                new HighAmountRule(50000, 30),
+                new GeoLocationRule(new HashSet<>(Arrays.asList("Russia", "Nigeria", "Turkey", "USA")), 25),
+                new NightTimeRule(0, 5, 20),
+                new ChannelRiskRule(15),
+                new RiskyMerchantRule(new HashSet<>(Arrays.asList("JEWELER", "LUXURY")), 25)), 30, 60, true, true);
+    }
+
+    static final class NoopTransactionDao extends TransactionDao {
+        NoopTransactionDao() {
+            super(null);
+        }
+
+        @Override
+        public void save(Transaction t) {
+        }
+    }
+
+    static final class NoopAlertDao extends AlertDao {
+        NoopAlertDao() {
+            super(null);
+        }
+
+        @Override
+        public void saveAlert(FraudAlert a) {
+        }
+    }
+}
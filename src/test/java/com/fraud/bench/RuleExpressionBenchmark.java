@@ -0,0 +1,119 @@
+package com.fraud.bench;
+
+import com.fraud.engine.FraudEngine;
+import com.fraud.model.Transaction;
+import com.fraud.model.TransactionBatch;
+import com.fraud.model.TransactionDictionary;
+import com.fraud.rules.Rule;
+import com.fraud.rules.expr.ExpressionRule;
+import com.fraud.rules.impl.ChannelRiskRule;
+import com.fraud.rules.impl.GeoLocationRule;
+import com.fraud.rules.impl.HighAmountRule;
+import com.fraud.rules.impl.NightTimeRule;
+import com.fraud.rules.impl.RiskyMerchantRule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the hand-written rules with the same rules written as rules.json expressions.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.RuleExpressionBenchmark
+ * </pre>
+ */
+public class RuleExpressionBenchmark {
+
+    private static final String[] MERCHANTS = {"AMAZON", "D-MART", "JEWELER", "LUXURY", "COFFEE", "TRAVEL"};
+    private static final String[] LOCATIONS = {"India", "Pune", "Russia", "USA", "Nigeria", "Mumbai"};
+    private static final String[] CHANNELS = {"Online", "Card", "UPI"};
+    private static final int BATCH = 1024;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        List<Transaction> txns = generate(size);
+
+        List<Rule> handWritten = Arrays.asList(
+                new HighAmountRule(50000, 30),
+                new GeoLocationRule(new HashSet<>(Arrays.asList("Russia", "Nigeria", "Turkey", "USA")), 25),
+                new NightTimeRule(0, 5, 20),
+                new ChannelRiskRule(15),
+                new RiskyMerchantRule(new HashSet<>(Arrays.asList("JEWELER", "LUXURY")), 25));
+        List<Rule> expressions = Arrays.asList(
+                new ExpressionRule("HighAmount", "amount >= 50000", 30),
+                new ExpressionRule("Geo", "location in [\"Russia\", \"Nigeria\", \"Turkey\", \"USA\"]", 25),
+                new ExpressionRule("Night", "hour in [0,5)", 20),
+                new ExpressionRule("Channel", "channel == \"online\"", 15),
+                new ExpressionRule("Merchant", "merchant in [\"JEWELER\", \"LUXURY\"]", 25));
+
+        FraudEngine hand = new FraudEngine(handWritten);
+        FraudEngine expr = new FraudEngine(expressions);
+        List<TransactionBatch> batches = new ArrayList<>();
+        for (int from = 0; from < size; from += BATCH) {
+            batches.add(TransactionBatch.of(txns.subList(from, Math.min(size, from + BATCH))));
+        }
+
+        for (int i = 0; i < 5; i++) {           // warm-up, alternating so neither gets an edge
+            run(hand, txns, rounds / 5 + 1);
+            run(expr, txns, rounds / 5 + 1);
+            runBatches(hand, batches, rounds / 5 + 1);
+            runBatches(expr, batches, rounds / 5 + 1);
+        }
+        double handNs = run(hand, txns, rounds);
+        double exprNs = run(expr, txns, rounds);
+        double handBatchNs = runBatches(hand, batches, rounds);
+        double exprBatchNs = runBatches(expr, batches, rounds);
+        System.out.printf("per transaction  hand-written: %.1f ns/txn, expressions: %.1f ns/txn (%.2fx)%n",
+                handNs, exprNs, exprNs / handNs);
+        System.out.printf("batch (%d rows)  hand-written: %.1f ns/txn, expressions: %.1f ns/txn (%.2fx)%n",
+                BATCH, handBatchNs, exprBatchNs, exprBatchNs / handBatchNs);
+    }
+
+    private static double run(FraudEngine engine, List<Transaction> txns, int rounds) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (Transaction t : txns) sink += engine.evaluate(t);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) System.out.print("");
+        return (double) elapsed / ((long) rounds * txns.size());
+    }
+
+    private static double runBatches(FraudEngine engine, List<TransactionBatch> batches, int rounds) {
+        int[] scores = new int[BATCH];
+        long[] masks = new long[BATCH];
+        long sink = 0;
+        int rows = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (TransactionBatch b : batches) {
+                engine.scoreBatch(b, scores, masks);
+                sink += scores[0];
+                rows += b.size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) System.out.print("");
+        return (double) elapsed / rows;
+    }
+
+    static List<Transaction> generate(int size) {
+        Random rnd = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2025, 6, 18, 0, 0);
+        List<Transaction> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Transaction t = new Transaction("TXN" + i, "ACC" + rnd.nextInt(1000),
+                    rnd.nextInt(120_000), "INR", base.plusMinutes(rnd.nextInt(60 * 24 * 30)),
+                    MERCHANTS[rnd.nextInt(MERCHANTS.length)],
+                    LOCATIONS[rnd.nextInt(LOCATIONS.length)],
+                    CHANNELS[rnd.nextInt(CHANNELS.length)]);
+            out.add(TransactionDictionary.global().encode(t));
+        }
+        return out;
+    }
+}
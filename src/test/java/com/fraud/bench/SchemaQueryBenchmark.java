@@ -0,0 +1,115 @@
+package com.fraud.bench;
+
+import com.fraud.dao.AlertDao;
+import com.fraud.dao.SchemaMigrator;
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.FraudAlert;
+import com.fraud.model.Transaction;
+import com.fraud.util.DBUtil;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Latency of the two hot queries, the velocity look-up ({@code account_id = ? AND txn_timestamp >= ?})
+ * and the alert history ({@code account_id = ? ORDER BY created_at DESC LIMIT ?}), as the tables
+ * grow: once on the baseline schema (migration 1 only) and once fully migrated (with the indexes).
+ * Without the indexes both queries scan the table and slow down with every step;
+ * with them they should stay flat.
+ * <p>
+ * Needs a MySQL database it may wipe: its transactions, fraud_alerts and schema_version tables are
+ * dropped before each run.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.SchemaQueryBenchmark -Dexec.args="jdbc:mysql://localhost:3306/fraudbench user password 200000 5"
+ * </pre>
+ * Arguments: scratch database URL, user, password, rows added per step, steps.
+ */
+public class SchemaQueryBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int QUERIES = 500;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final long SPAN_SECONDS = 365L * 24 * 3600;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: SchemaQueryBenchmark <scratch db url> <user> <password> [rows per step] [steps]");
+            return;
+        }
+        Properties p = new Properties();
+        p.setProperty("db.url", args[0]);
+        p.setProperty("db.user", args[1]);
+        p.setProperty("db.password", args[2]);
+        int stepRows = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+        int steps = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        DataSource ds = DBUtil.createDataSource(p);
+        try {
+            run("baseline", ds, 1, stepRows, steps);
+            run("migrated", ds, Integer.MAX_VALUE, stepRows, steps);
+        } finally {
+            ((HikariDataSource) ds).close();
+        }
+    }
+
+    private static void run(String label, DataSource ds, int version, int stepRows, int steps) throws SQLException {
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS transactions, fraud_alerts, schema_version");
+        }
+        SchemaMigrator migrator = new SchemaMigrator(ds);
+        migrator.migrate(version);
+
+        TransactionDao txDao = new TransactionDao(ds);
+        AlertDao alertDao = new AlertDao(ds);
+        Random random = new Random(42);
+        long rows = 0;
+        System.out.println(label + ":");
+        for (int step = 1; step <= steps; step++) {
+            List<Transaction> txns = new ArrayList<>(10_000);
+            List<FraudAlert> alerts = new ArrayList<>();
+            for (int i = 0; i < stepRows; i++) {
+                long id = rows++;
+                String account = "ACC" + random.nextInt(ACCOUNTS);
+                txns.add(new Transaction("T" + id, account, 10 + random.nextInt(100_000), "INR",
+                        START.plusSeconds((long) (random.nextDouble() * SPAN_SECONDS)), "M" + random.nextInt(50),
+                        "India", "Card"));
+                if (id % 10 == 0) alerts.add(new FraudAlert("T" + id, account, 40, "MEDIUM", "bench"));
+                if (txns.size() == 10_000) {
+                    txDao.saveAll(txns);
+                    txns.clear();
+                }
+            }
+            txDao.saveAll(txns);
+            alertDao.saveAll(alerts);
+
+            long[] since = new long[QUERIES];
+            long[] history = new long[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                String account = "ACC" + random.nextInt(ACCOUNTS);
+                long start = System.nanoTime();
+                txDao.getTransactionsSince(account, START.plusSeconds(SPAN_SECONDS - 7 * 24 * 3600));
+                since[q] = System.nanoTime() - start;
+                start = System.nanoTime();
+                alertDao.getAlertsByAccount(account, 20);
+                history[q] = System.nanoTime() - start;
+            }
+            Arrays.sort(since);
+            Arrays.sort(history);
+            System.out.printf("  %,10d rows: velocity look-up p50 %.2f ms, p99 %.2f ms | alert history p50 %.2f ms, p99 %.2f ms%n",
+                    rows, pct(since, 0.50), pct(since, 0.99), pct(history, 0.50), pct(history, 0.99));
+        }
+    }
+
+    private static double pct(long[] sorted, double q) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)] / 1e6;
+    }
+}
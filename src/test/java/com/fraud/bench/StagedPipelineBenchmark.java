@@ -0,0 +1,68 @@
+package com.fraud.bench;
+
+import com.fraud.dao.TransactionDao;
+import com.fraud.model.Transaction;
+import com.fraud.service.DetectionService;
+import com.fraud.service.StagedDetectionPipeline;
+import com.fraud.state.InMemoryVelocityStore;
+import com.fraud.state.WindowPolicy;
+import com.fraud.util.RingBuffer;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Direct (one thread) versus staged detection when every transaction save waits on a simulated
+ * database round trip, for each ring wait strategy.
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.fraud.bench.StagedPipelineBenchmark -Dexec.args="50000 20"
+ * </pre>
+ * Arguments: transactions, microseconds per save.
+ */
+public class StagedPipelineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        long saveMicros = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        List<Transaction> txns = RuleExpressionBenchmark.generate(size);
+
+        direct(txns, saveMicros);   // warm-up
+        System.out.printf("direct:      %,.0f txn/s%n", direct(txns, saveMicros));
+        for (RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values()) {
+            StagedDetectionPipeline pipeline = new StagedDetectionPipeline(service(saveMicros),
+                    StagedDetectionPipeline.DEFAULT_RING_SIZE, strategy, (t, alert, error) -> { });
+            long start = System.nanoTime();
+            pipeline.run(txns.iterator());
+            double perSec = txns.size() / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("%-12s %,.0f txn/s  [%s]%n", strategy.name().toLowerCase() + ":", perSec, pipeline.stats());
+        }
+    }
+
+    private static double direct(List<Transaction> txns, long saveMicros) {
+        DetectionService svc = service(saveMicros);
+        long start = System.nanoTime();
+        for (Transaction t : txns) svc.analyzeAndPersist(t);
+        return txns.size() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static DetectionService service(long saveMicros) {
+        return new DetectionService(new SlowTransactionDao(saveMicros * 1000), new ParallelDetectionBenchmark.NoopAlertDao(),
+                ParallelDetectionBenchmark.engine(), 120, 3, new InMemoryVelocityStore(),
+                WindowPolicy.eventTime(30L * 24 * 3600));
+    }
+
+    /** Stands in for a JDBC insert: the thread waits without using the CPU. */
+    private static final class SlowTransactionDao extends TransactionDao {
+        private final long nanos;
+
+        SlowTransactionDao(long nanos) {
+            super(null);
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void save(Transaction t) {
+            if (nanos > 0) LockSupport.parkNanos(nanos);
+        }
+    }
+}